@@ -0,0 +1,126 @@
+package ds.merry;
+
+import com.badlogic.gdx.math.Vector2;
+
+/** Key generators shared by the benchmarks. Each distribution is one we actually see in use:
+ * <ul>
+ * <li>{@code SEQUENTIAL}: 1, 2, 3, ... (boxed to Integer for object keys)</li>
+ * <li>{@code VECTOR}: points on an integer grid centered on 0,0, hashed the way {@link Vector2#hashCode()} does it, so the low
+ * bits of the float bits are mostly 0</li>
+ * <li>{@code STRING}: short Strings like the ones produced when parsing names and ids</li>
+ * <li>{@code BIASED}: the 40-bit, low-bit-count longs from MatchingTest (truncated to 32 bits for int keys)</li>
+ * <li>{@code MALICE}: objects that all return 0 from hashCode(), as in ExtremeCaseTest</li>
+ * </ul>
+ * All generators are deterministic, so every run of a benchmark sees the same keys.
+ * @author Tommy Ettinger */
+public final class BenchmarkKeys {
+	private BenchmarkKeys () {
+	}
+
+	/** Returns {@code count} int keys following the named distribution, which must be SEQUENTIAL, VECTOR, or BIASED. Keys may
+	 * repeat for VECTOR and BIASED, as they would in real use. */
+	public static int[] ints (String distribution, int count) {
+		int[] keys = new int[count];
+		if ("SEQUENTIAL".equals(distribution)) {
+			for (int i = 0; i < count; i++)
+				keys[i] = i + 1;
+		} else if ("VECTOR".equals(distribution)) {
+			Vector2[] points = vectors(count);
+			for (int i = 0; i < count; i++)
+				keys[i] = points[i].hashCode();
+		} else if ("BIASED".equals(distribution)) {
+			long[] longs = biasedLongs(count);
+			for (int i = 0; i < count; i++)
+				keys[i] = (int)longs[i];
+		} else {
+			throw new IllegalArgumentException("Unknown int key distribution: " + distribution);
+		}
+		return keys;
+	}
+
+	/** Returns {@code count} long keys following the named distribution, which must be SEQUENTIAL, VECTOR, or BIASED. VECTOR
+	 * packs the float bits of x and y into the upper and lower halves of the long. */
+	public static long[] longs (String distribution, int count) {
+		long[] keys = new long[count];
+		if ("SEQUENTIAL".equals(distribution)) {
+			for (int i = 0; i < count; i++)
+				keys[i] = i + 1;
+		} else if ("VECTOR".equals(distribution)) {
+			Vector2[] points = vectors(count);
+			for (int i = 0; i < count; i++)
+				keys[i] = (long)Float.floatToIntBits(points[i].x) << 32 | (Float.floatToIntBits(points[i].y) & 0xFFFFFFFFL);
+		} else if ("BIASED".equals(distribution)) {
+			keys = biasedLongs(count);
+		} else {
+			throw new IllegalArgumentException("Unknown long key distribution: " + distribution);
+		}
+		return keys;
+	}
+
+	/** Returns {@code count} distinct object keys following the named distribution, which must be SEQUENTIAL, VECTOR, STRING, or
+	 * MALICE. */
+	public static Object[] objects (String distribution, int count) {
+		Object[] keys = new Object[count];
+		if ("SEQUENTIAL".equals(distribution)) {
+			for (int i = 0; i < count; i++)
+				keys[i] = i + 1;
+		} else if ("VECTOR".equals(distribution)) {
+			System.arraycopy(vectors(count), 0, keys, 0, count);
+		} else if ("STRING".equals(distribution)) {
+			long state = 0x1234567890ABCDEFL;
+			for (int i = 0; i < count; i++) {
+				state += 0x9E3779B97F4A7C15L;
+				long z = (state ^ state >>> 27) * 0xAEF17502108EF2D9L;
+				// the index suffix keeps the Strings distinct
+				keys[i] = Long.toString((z ^ z >>> 25) & 0xFFFFFFFFFFL, 36) + '_' + i;
+			}
+		} else if ("MALICE".equals(distribution)) {
+			for (int i = 0; i < count; i++)
+				keys[i] = new Malice(i);
+		} else {
+			throw new IllegalArgumentException("Unknown object key distribution: " + distribution);
+		}
+		return keys;
+	}
+
+	/** Points on a square grid roughly centered on 0,0, walked row by row. */
+	static Vector2[] vectors (int count) {
+		Vector2[] points = new Vector2[count];
+		int side = (int)Math.ceil(Math.sqrt(count)), half = side >> 1;
+		for (int i = 0; i < count; i++)
+			points[i] = new Vector2(i % side - half, i / side - half);
+		return points;
+	}
+
+	/** The same generator as in MatchingTest; crams 64-bit states into about 40 bits, biased toward low bit counts. */
+	static long[] biasedLongs (int count) {
+		long[] keys = new long[count];
+		long stateA = 0L, stateB = 1L, item;
+		for (int i = 0; i < count; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			item = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			keys[i] = item & item >>> 24;
+		}
+		return keys;
+	}
+
+	/** A key with a correct but worst-case hashCode(); every instance collides. Copied from ExtremeCaseTest so the benchmarks
+	 * don't depend on the test sources. */
+	public static final class Malice {
+		public final int e;
+
+		public Malice (int e) {
+			this.e = e;
+		}
+
+		public boolean equals (Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			return e == ((Malice)o).e;
+		}
+
+		public int hashCode () {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,553 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Runs the object-keyed structures with keys whose hashCode() always collides (the Malice keys from ExtremeCaseTest). libGDX is
+ * left out here because its cuckoo hashing runs out of memory on these keys after about 50 insertions; java.util is kept as
+ * the reference. Every operation here is linear in the size, so the sizes are kept small.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class CollidingKeyBenchmark {
+	@Param({"MALICE"}) public String distribution;
+	@Param({"100", "1000"}) public int size;
+
+	Object[] keys;
+	ObjectMap<Object, Object> merryObjectMap;
+	HashMap<Object, Object> jdkObjectMap;
+	ObjectSet<Object> merryObjectSet;
+	HashSet<Object> jdkObjectSet;
+	OrderedMap<Object, Object> merryOrderedMap;
+	LinkedHashMap<Object, Object> jdkOrderedMap;
+	OrderedSet<Object> merryOrderedSet;
+	LinkedHashSet<Object> jdkOrderedSet;
+	ObjectIntMap<Object> merryObjectIntMap;
+	ObjectFloatMap<Object> merryObjectFloatMap;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.objects(distribution, size);
+		merryObjectMap = new ObjectMap<Object, Object>(size);
+		for (Object key : keys)
+			merryObjectMap.put(key, key);
+		jdkObjectMap = new HashMap<Object, Object>(size);
+		for (Object key : keys)
+			jdkObjectMap.put(key, key);
+		merryObjectSet = new ObjectSet<Object>(size);
+		for (Object key : keys)
+			merryObjectSet.add(key);
+		jdkObjectSet = new HashSet<Object>(size);
+		for (Object key : keys)
+			jdkObjectSet.add(key);
+		merryOrderedMap = new OrderedMap<Object, Object>(size);
+		for (Object key : keys)
+			merryOrderedMap.put(key, key);
+		jdkOrderedMap = new LinkedHashMap<Object, Object>(size);
+		for (Object key : keys)
+			jdkOrderedMap.put(key, key);
+		merryOrderedSet = new OrderedSet<Object>(size);
+		for (Object key : keys)
+			merryOrderedSet.add(key);
+		jdkOrderedSet = new LinkedHashSet<Object>(size);
+		for (Object key : keys)
+			jdkOrderedSet.add(key);
+		merryObjectIntMap = new ObjectIntMap<Object>(size);
+		for (Object key : keys)
+			merryObjectIntMap.put(key, 1);
+		merryObjectFloatMap = new ObjectFloatMap<Object>(size);
+		for (Object key : keys)
+			merryObjectFloatMap.put(key, 1f);
+	}
+
+	@Benchmark
+	public Object merryObjectMapInsert () {
+		ObjectMap<Object, Object> map = new ObjectMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectMapInsertPresized () {
+		ObjectMap<Object, Object> map = new ObjectMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectMapGet (Blackhole bh) {
+		ObjectMap<Object, Object> map = merryObjectMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryObjectMapRemove (MerryObjectMapRemoval state) {
+		ObjectMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectMapIterate (Blackhole bh) {
+		for (ObjectMap.Entry<Object, Object> entry : merryObjectMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectMapRemoval {
+		ObjectMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new ObjectMap<Object, Object>(benchmark.merryObjectMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectMapInsert () {
+		HashMap<Object, Object> map = new HashMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectMapInsertPresized () {
+		HashMap<Object, Object> map = new HashMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectMapGet (Blackhole bh) {
+		HashMap<Object, Object> map = jdkObjectMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectMapRemove (JdkObjectMapRemoval state) {
+		HashMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Object> entry : jdkObjectMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectMapRemoval {
+		HashMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new HashMap<Object, Object>(benchmark.jdkObjectMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryObjectSetInsert () {
+		ObjectSet<Object> map = new ObjectSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectSetInsertPresized () {
+		ObjectSet<Object> map = new ObjectSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectSetGet (Blackhole bh) {
+		ObjectSet<Object> map = merryObjectSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object merryObjectSetRemove (MerryObjectSetRemoval state) {
+		ObjectSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectSetIterate (Blackhole bh) {
+		for (Object item : merryObjectSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectSetRemoval {
+		ObjectSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new ObjectSet<Object>(benchmark.merryObjectSet);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectSetInsert () {
+		HashSet<Object> map = new HashSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectSetInsertPresized () {
+		HashSet<Object> map = new HashSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectSetGet (Blackhole bh) {
+		HashSet<Object> map = jdkObjectSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectSetRemove (JdkObjectSetRemoval state) {
+		HashSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectSetIterate (Blackhole bh) {
+		for (Object item : jdkObjectSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectSetRemoval {
+		HashSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new HashSet<Object>(benchmark.jdkObjectSet);
+		}
+	}
+
+	@Benchmark
+	public Object merryOrderedMapInsert () {
+		OrderedMap<Object, Object> map = new OrderedMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryOrderedMapInsertPresized () {
+		OrderedMap<Object, Object> map = new OrderedMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedMapGet (Blackhole bh) {
+		OrderedMap<Object, Object> map = merryOrderedMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryOrderedMapRemove (MerryOrderedMapRemoval state) {
+		OrderedMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedMapIterate (Blackhole bh) {
+		for (ObjectMap.Entry<Object, Object> entry : merryOrderedMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryOrderedMapRemoval {
+		OrderedMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new OrderedMap<Object, Object>(benchmark.merryOrderedMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapInsert () {
+		LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapInsertPresized () {
+		LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedMapGet (Blackhole bh) {
+		LinkedHashMap<Object, Object> map = jdkOrderedMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapRemove (JdkOrderedMapRemoval state) {
+		LinkedHashMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Object> entry : jdkOrderedMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkOrderedMapRemoval {
+		LinkedHashMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new LinkedHashMap<Object, Object>(benchmark.jdkOrderedMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryOrderedSetInsert () {
+		OrderedSet<Object> map = new OrderedSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryOrderedSetInsertPresized () {
+		OrderedSet<Object> map = new OrderedSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedSetGet (Blackhole bh) {
+		OrderedSet<Object> map = merryOrderedSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object merryOrderedSetRemove (MerryOrderedSetRemoval state) {
+		OrderedSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedSetIterate (Blackhole bh) {
+		for (Object item : merryOrderedSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryOrderedSetRemoval {
+		OrderedSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new OrderedSet<Object>(benchmark.merryOrderedSet);
+		}
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetInsert () {
+		LinkedHashSet<Object> map = new LinkedHashSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetInsertPresized () {
+		LinkedHashSet<Object> map = new LinkedHashSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedSetGet (Blackhole bh) {
+		LinkedHashSet<Object> map = jdkOrderedSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetRemove (JdkOrderedSetRemoval state) {
+		LinkedHashSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedSetIterate (Blackhole bh) {
+		for (Object item : jdkOrderedSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class JdkOrderedSetRemoval {
+		LinkedHashSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new LinkedHashSet<Object>(benchmark.jdkOrderedSet);
+		}
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapInsert () {
+		ObjectIntMap<Object> map = new ObjectIntMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapInsertPresized () {
+		ObjectIntMap<Object> map = new ObjectIntMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectIntMapGet (Blackhole bh) {
+		ObjectIntMap<Object> map = merryObjectIntMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0));
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapRemove (MerryObjectIntMapRemoval state) {
+		ObjectIntMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectIntMapIterate (Blackhole bh) {
+		for (ObjectIntMap.Entry<Object> entry : merryObjectIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectIntMapRemoval {
+		ObjectIntMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new ObjectIntMap<Object>(benchmark.merryObjectIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapInsert () {
+		ObjectFloatMap<Object> map = new ObjectFloatMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapInsertPresized () {
+		ObjectFloatMap<Object> map = new ObjectFloatMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectFloatMapGet (Blackhole bh) {
+		ObjectFloatMap<Object> map = merryObjectFloatMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0f));
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapRemove (MerryObjectFloatMapRemoval state) {
+		ObjectFloatMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectFloatMapIterate (Blackhole bh) {
+		for (ObjectFloatMap.Entry<Object> entry : merryObjectFloatMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectFloatMapRemoval {
+		ObjectFloatMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (CollidingKeyBenchmark benchmark) {
+			map = new ObjectFloatMap<Object>(benchmark.merryObjectFloatMap);
+		}
+	}
+}
@@ -0,0 +1,653 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Compares IntMap, IntIntMap, IntFloatMap, and IntSet against libGDX's versions and java.util collections of boxed ints.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class IntKeyedBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "BIASED"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	int[] keys;
+	IntMap<Object> merryIntMap;
+	com.badlogic.gdx.utils.IntMap<Object> gdxIntMap;
+	HashMap<Integer, Object> jdkIntMap;
+	IntIntMap merryIntIntMap;
+	com.badlogic.gdx.utils.IntIntMap gdxIntIntMap;
+	HashMap<Integer, Integer> jdkIntIntMap;
+	IntFloatMap merryIntFloatMap;
+	com.badlogic.gdx.utils.IntFloatMap gdxIntFloatMap;
+	HashMap<Integer, Float> jdkIntFloatMap;
+	IntSet merryIntSet;
+	com.badlogic.gdx.utils.IntSet gdxIntSet;
+	HashSet<Integer> jdkIntSet;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.ints(distribution, size);
+		merryIntMap = new IntMap<Object>(size);
+		for (int key : keys)
+			merryIntMap.put(key, key);
+		gdxIntMap = new com.badlogic.gdx.utils.IntMap<Object>(size);
+		for (int key : keys)
+			gdxIntMap.put(key, key);
+		jdkIntMap = new HashMap<Integer, Object>(size);
+		for (int key : keys)
+			jdkIntMap.put(key, key);
+		merryIntIntMap = new IntIntMap(size);
+		for (int key : keys)
+			merryIntIntMap.put(key, key);
+		gdxIntIntMap = new com.badlogic.gdx.utils.IntIntMap(size);
+		for (int key : keys)
+			gdxIntIntMap.put(key, key);
+		jdkIntIntMap = new HashMap<Integer, Integer>(size);
+		for (int key : keys)
+			jdkIntIntMap.put(key, key);
+		merryIntFloatMap = new IntFloatMap(size);
+		for (int key : keys)
+			merryIntFloatMap.put(key, 1f);
+		gdxIntFloatMap = new com.badlogic.gdx.utils.IntFloatMap(size);
+		for (int key : keys)
+			gdxIntFloatMap.put(key, 1f);
+		jdkIntFloatMap = new HashMap<Integer, Float>(size);
+		for (int key : keys)
+			jdkIntFloatMap.put(key, 1f);
+		merryIntSet = new IntSet(size);
+		for (int key : keys)
+			merryIntSet.add(key);
+		gdxIntSet = new com.badlogic.gdx.utils.IntSet(size);
+		for (int key : keys)
+			gdxIntSet.add(key);
+		jdkIntSet = new HashSet<Integer>(size);
+		for (int key : keys)
+			jdkIntSet.add(key);
+	}
+
+	@Benchmark
+	public Object merryIntMapInsert () {
+		IntMap<Object> map = new IntMap<Object>();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryIntMapInsertPresized () {
+		IntMap<Object> map = new IntMap<Object>(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntMapGet (Blackhole bh) {
+		IntMap<Object> map = merryIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryIntMapRemove (MerryIntMapRemoval state) {
+		IntMap<Object> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntMapIterate (Blackhole bh) {
+		for (IntMap.Entry<Object> entry : merryIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryIntMapRemoval {
+		IntMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new IntMap<Object>(benchmark.merryIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxIntMapInsert () {
+		com.badlogic.gdx.utils.IntMap<Object> map = new com.badlogic.gdx.utils.IntMap<Object>();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxIntMapInsertPresized () {
+		com.badlogic.gdx.utils.IntMap<Object> map = new com.badlogic.gdx.utils.IntMap<Object>(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.IntMap<Object> map = gdxIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object gdxIntMapRemove (GdxIntMapRemoval state) {
+		com.badlogic.gdx.utils.IntMap<Object> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.IntMap.Entry<Object> entry : gdxIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxIntMapRemoval {
+		com.badlogic.gdx.utils.IntMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.IntMap<Object>(benchmark.gdxIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkIntMapInsert () {
+		HashMap<Integer, Object> map = new HashMap<Integer, Object>();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkIntMapInsertPresized () {
+		HashMap<Integer, Object> map = new HashMap<Integer, Object>(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntMapGet (Blackhole bh) {
+		HashMap<Integer, Object> map = jdkIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkIntMapRemove (JdkIntMapRemoval state) {
+		HashMap<Integer, Object> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntMapIterate (Blackhole bh) {
+		for (Map.Entry<Integer, Object> entry : jdkIntMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkIntMapRemoval {
+		HashMap<Integer, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new HashMap<Integer, Object>(benchmark.jdkIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryIntIntMapInsert () {
+		IntIntMap map = new IntIntMap();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryIntIntMapInsertPresized () {
+		IntIntMap map = new IntIntMap(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntIntMapGet (Blackhole bh) {
+		IntIntMap map = merryIntIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key, 0));
+	}
+
+	@Benchmark
+	public Object merryIntIntMapRemove (MerryIntIntMapRemoval state) {
+		IntIntMap map = state.map;
+		for (int key : keys)
+			map.remove(key, 0);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntIntMapIterate (Blackhole bh) {
+		for (IntIntMap.Entry entry : merryIntIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryIntIntMapRemoval {
+		IntIntMap map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new IntIntMap(benchmark.merryIntIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxIntIntMapInsert () {
+		com.badlogic.gdx.utils.IntIntMap map = new com.badlogic.gdx.utils.IntIntMap();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxIntIntMapInsertPresized () {
+		com.badlogic.gdx.utils.IntIntMap map = new com.badlogic.gdx.utils.IntIntMap(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntIntMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.IntIntMap map = gdxIntIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key, 0));
+	}
+
+	@Benchmark
+	public Object gdxIntIntMapRemove (GdxIntIntMapRemoval state) {
+		com.badlogic.gdx.utils.IntIntMap map = state.map;
+		for (int key : keys)
+			map.remove(key, 0);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntIntMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.IntIntMap.Entry entry : gdxIntIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxIntIntMapRemoval {
+		com.badlogic.gdx.utils.IntIntMap map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.IntIntMap(benchmark.gdxIntIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkIntIntMapInsert () {
+		HashMap<Integer, Integer> map = new HashMap<Integer, Integer>();
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkIntIntMapInsertPresized () {
+		HashMap<Integer, Integer> map = new HashMap<Integer, Integer>(keys.length);
+		for (int key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntIntMapGet (Blackhole bh) {
+		HashMap<Integer, Integer> map = jdkIntIntMap;
+		for (int key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkIntIntMapRemove (JdkIntIntMapRemoval state) {
+		HashMap<Integer, Integer> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntIntMapIterate (Blackhole bh) {
+		for (Map.Entry<Integer, Integer> entry : jdkIntIntMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkIntIntMapRemoval {
+		HashMap<Integer, Integer> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new HashMap<Integer, Integer>(benchmark.jdkIntIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryIntFloatMapInsert () {
+		IntFloatMap map = new IntFloatMap();
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryIntFloatMapInsertPresized () {
+		IntFloatMap map = new IntFloatMap(keys.length);
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntFloatMapGet (Blackhole bh) {
+		IntFloatMap map = merryIntFloatMap;
+		for (int key : keys)
+			bh.consume(map.get(key, 0f));
+	}
+
+	@Benchmark
+	public Object merryIntFloatMapRemove (MerryIntFloatMapRemoval state) {
+		IntFloatMap map = state.map;
+		for (int key : keys)
+			map.remove(key, 0f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntFloatMapIterate (Blackhole bh) {
+		for (IntFloatMap.Entry entry : merryIntFloatMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryIntFloatMapRemoval {
+		IntFloatMap map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new IntFloatMap(benchmark.merryIntFloatMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxIntFloatMapInsert () {
+		com.badlogic.gdx.utils.IntFloatMap map = new com.badlogic.gdx.utils.IntFloatMap();
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxIntFloatMapInsertPresized () {
+		com.badlogic.gdx.utils.IntFloatMap map = new com.badlogic.gdx.utils.IntFloatMap(keys.length);
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntFloatMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.IntFloatMap map = gdxIntFloatMap;
+		for (int key : keys)
+			bh.consume(map.get(key, 0f));
+	}
+
+	@Benchmark
+	public Object gdxIntFloatMapRemove (GdxIntFloatMapRemoval state) {
+		com.badlogic.gdx.utils.IntFloatMap map = state.map;
+		for (int key : keys)
+			map.remove(key, 0f);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntFloatMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.IntFloatMap.Entry entry : gdxIntFloatMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxIntFloatMapRemoval {
+		com.badlogic.gdx.utils.IntFloatMap map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.IntFloatMap(benchmark.gdxIntFloatMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkIntFloatMapInsert () {
+		HashMap<Integer, Float> map = new HashMap<Integer, Float>();
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkIntFloatMapInsertPresized () {
+		HashMap<Integer, Float> map = new HashMap<Integer, Float>(keys.length);
+		for (int key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntFloatMapGet (Blackhole bh) {
+		HashMap<Integer, Float> map = jdkIntFloatMap;
+		for (int key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkIntFloatMapRemove (JdkIntFloatMapRemoval state) {
+		HashMap<Integer, Float> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntFloatMapIterate (Blackhole bh) {
+		for (Map.Entry<Integer, Float> entry : jdkIntFloatMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkIntFloatMapRemoval {
+		HashMap<Integer, Float> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new HashMap<Integer, Float>(benchmark.jdkIntFloatMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryIntSetInsert () {
+		IntSet map = new IntSet();
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryIntSetInsertPresized () {
+		IntSet map = new IntSet(keys.length);
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntSetGet (Blackhole bh) {
+		IntSet map = merryIntSet;
+		for (int key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object merryIntSetRemove (MerryIntSetRemoval state) {
+		IntSet map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIntSetIterate (Blackhole bh) {
+		IntSet.IntSetIterator it = merryIntSet.iterator();
+		while (it.hasNext)
+			bh.consume(it.next());
+	}
+
+	@State(Scope.Thread)
+	public static class MerryIntSetRemoval {
+		IntSet map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new IntSet(benchmark.merryIntSet);
+		}
+	}
+
+	@Benchmark
+	public Object gdxIntSetInsert () {
+		com.badlogic.gdx.utils.IntSet map = new com.badlogic.gdx.utils.IntSet();
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxIntSetInsertPresized () {
+		com.badlogic.gdx.utils.IntSet map = new com.badlogic.gdx.utils.IntSet(keys.length);
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntSetGet (Blackhole bh) {
+		com.badlogic.gdx.utils.IntSet map = gdxIntSet;
+		for (int key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object gdxIntSetRemove (GdxIntSetRemoval state) {
+		com.badlogic.gdx.utils.IntSet map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIntSetIterate (Blackhole bh) {
+		com.badlogic.gdx.utils.IntSet.IntSetIterator it = gdxIntSet.iterator();
+		while (it.hasNext)
+			bh.consume(it.next());
+	}
+
+	@State(Scope.Thread)
+	public static class GdxIntSetRemoval {
+		com.badlogic.gdx.utils.IntSet map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.IntSet(benchmark.gdxIntSet);
+		}
+	}
+
+	@Benchmark
+	public Object jdkIntSetInsert () {
+		HashSet<Integer> map = new HashSet<Integer>();
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkIntSetInsertPresized () {
+		HashSet<Integer> map = new HashSet<Integer>(keys.length);
+		for (int key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntSetGet (Blackhole bh) {
+		HashSet<Integer> map = jdkIntSet;
+		for (int key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object jdkIntSetRemove (JdkIntSetRemoval state) {
+		HashSet<Integer> map = state.map;
+		for (int key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIntSetIterate (Blackhole bh) {
+		for (Integer item : jdkIntSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class JdkIntSetRemoval {
+		HashSet<Integer> map;
+
+		@Setup(Level.Invocation)
+		public void setup (IntKeyedBenchmark benchmark) {
+			map = new HashSet<Integer>(benchmark.jdkIntSet);
+		}
+	}
+}
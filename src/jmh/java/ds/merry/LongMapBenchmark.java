@@ -0,0 +1,191 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Compares LongMap against libGDX's LongMap and a java.util.HashMap with boxed long keys.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class LongMapBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "BIASED"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	long[] keys;
+	LongMap<Object> merryLongMap;
+	com.badlogic.gdx.utils.LongMap<Object> gdxLongMap;
+	HashMap<Long, Object> jdkLongMap;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.longs(distribution, size);
+		merryLongMap = new LongMap<Object>(size);
+		for (long key : keys)
+			merryLongMap.put(key, key);
+		gdxLongMap = new com.badlogic.gdx.utils.LongMap<Object>(size);
+		for (long key : keys)
+			gdxLongMap.put(key, key);
+		jdkLongMap = new HashMap<Long, Object>(size);
+		for (long key : keys)
+			jdkLongMap.put(key, key);
+	}
+
+	@Benchmark
+	public Object merryLongMapInsert () {
+		LongMap<Object> map = new LongMap<Object>();
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryLongMapInsertPresized () {
+		LongMap<Object> map = new LongMap<Object>(keys.length);
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryLongMapGet (Blackhole bh) {
+		LongMap<Object> map = merryLongMap;
+		for (long key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryLongMapRemove (MerryLongMapRemoval state) {
+		LongMap<Object> map = state.map;
+		for (long key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryLongMapIterate (Blackhole bh) {
+		for (LongMap.Entry<Object> entry : merryLongMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryLongMapRemoval {
+		LongMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (LongMapBenchmark benchmark) {
+			map = new LongMap<Object>(benchmark.merryLongMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxLongMapInsert () {
+		com.badlogic.gdx.utils.LongMap<Object> map = new com.badlogic.gdx.utils.LongMap<Object>();
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxLongMapInsertPresized () {
+		com.badlogic.gdx.utils.LongMap<Object> map = new com.badlogic.gdx.utils.LongMap<Object>(keys.length);
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxLongMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.LongMap<Object> map = gdxLongMap;
+		for (long key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object gdxLongMapRemove (GdxLongMapRemoval state) {
+		com.badlogic.gdx.utils.LongMap<Object> map = state.map;
+		for (long key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxLongMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.LongMap.Entry<Object> entry : gdxLongMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxLongMapRemoval {
+		com.badlogic.gdx.utils.LongMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (LongMapBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.LongMap<Object>(benchmark.gdxLongMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkLongMapInsert () {
+		HashMap<Long, Object> map = new HashMap<Long, Object>();
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkLongMapInsertPresized () {
+		HashMap<Long, Object> map = new HashMap<Long, Object>(keys.length);
+		for (long key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkLongMapGet (Blackhole bh) {
+		HashMap<Long, Object> map = jdkLongMap;
+		for (long key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkLongMapRemove (JdkLongMapRemoval state) {
+		HashMap<Long, Object> map = state.map;
+		for (long key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkLongMapIterate (Blackhole bh) {
+		for (Map.Entry<Long, Object> entry : jdkLongMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkLongMapRemoval {
+		HashMap<Long, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (LongMapBenchmark benchmark) {
+			map = new HashMap<Long, Object>(benchmark.jdkLongMap);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Compares ObjectMap and IdentityMap against their libGDX and java.util counterparts.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ObjectMapBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "STRING"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	Object[] keys;
+	ObjectMap<Object, Object> merryObjectMap;
+	com.badlogic.gdx.utils.ObjectMap<Object, Object> gdxObjectMap;
+	HashMap<Object, Object> jdkObjectMap;
+	IdentityMap<Object, Object> merryIdentityMap;
+	com.badlogic.gdx.utils.IdentityMap<Object, Object> gdxIdentityMap;
+	IdentityHashMap<Object, Object> jdkIdentityMap;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.objects(distribution, size);
+		merryObjectMap = new ObjectMap<Object, Object>(size);
+		for (Object key : keys)
+			merryObjectMap.put(key, key);
+		gdxObjectMap = new com.badlogic.gdx.utils.ObjectMap<Object, Object>(size);
+		for (Object key : keys)
+			gdxObjectMap.put(key, key);
+		jdkObjectMap = new HashMap<Object, Object>(size);
+		for (Object key : keys)
+			jdkObjectMap.put(key, key);
+		merryIdentityMap = new IdentityMap<Object, Object>(size);
+		for (Object key : keys)
+			merryIdentityMap.put(key, key);
+		gdxIdentityMap = new com.badlogic.gdx.utils.IdentityMap<Object, Object>(size);
+		for (Object key : keys)
+			gdxIdentityMap.put(key, key);
+		jdkIdentityMap = new IdentityHashMap<Object, Object>(size);
+		for (Object key : keys)
+			jdkIdentityMap.put(key, key);
+	}
+
+	@Benchmark
+	public Object merryObjectMapInsert () {
+		ObjectMap<Object, Object> map = new ObjectMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectMapInsertPresized () {
+		ObjectMap<Object, Object> map = new ObjectMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectMapGet (Blackhole bh) {
+		ObjectMap<Object, Object> map = merryObjectMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryObjectMapRemove (MerryObjectMapRemoval state) {
+		ObjectMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectMapIterate (Blackhole bh) {
+		for (ObjectMap.Entry<Object, Object> entry : merryObjectMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectMapRemoval {
+		ObjectMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new ObjectMap<Object, Object>(benchmark.merryObjectMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxObjectMapInsert () {
+		com.badlogic.gdx.utils.ObjectMap<Object, Object> map = new com.badlogic.gdx.utils.ObjectMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxObjectMapInsertPresized () {
+		com.badlogic.gdx.utils.ObjectMap<Object, Object> map = new com.badlogic.gdx.utils.ObjectMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.ObjectMap<Object, Object> map = gdxObjectMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object gdxObjectMapRemove (GdxObjectMapRemoval state) {
+		com.badlogic.gdx.utils.ObjectMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.ObjectMap.Entry<Object, Object> entry : gdxObjectMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxObjectMapRemoval {
+		com.badlogic.gdx.utils.ObjectMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.ObjectMap<Object, Object>(benchmark.gdxObjectMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectMapInsert () {
+		HashMap<Object, Object> map = new HashMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectMapInsertPresized () {
+		HashMap<Object, Object> map = new HashMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectMapGet (Blackhole bh) {
+		HashMap<Object, Object> map = jdkObjectMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectMapRemove (JdkObjectMapRemoval state) {
+		HashMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Object> entry : jdkObjectMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectMapRemoval {
+		HashMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new HashMap<Object, Object>(benchmark.jdkObjectMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryIdentityMapInsert () {
+		IdentityMap<Object, Object> map = new IdentityMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryIdentityMapInsertPresized () {
+		IdentityMap<Object, Object> map = new IdentityMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIdentityMapGet (Blackhole bh) {
+		IdentityMap<Object, Object> map = merryIdentityMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryIdentityMapRemove (MerryIdentityMapRemoval state) {
+		IdentityMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryIdentityMapIterate (Blackhole bh) {
+		for (ObjectMap.Entry<Object, Object> entry : merryIdentityMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryIdentityMapRemoval {
+		IdentityMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new IdentityMap<Object, Object>(benchmark.merryIdentityMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxIdentityMapInsert () {
+		com.badlogic.gdx.utils.IdentityMap<Object, Object> map = new com.badlogic.gdx.utils.IdentityMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxIdentityMapInsertPresized () {
+		com.badlogic.gdx.utils.IdentityMap<Object, Object> map = new com.badlogic.gdx.utils.IdentityMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIdentityMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.IdentityMap<Object, Object> map = gdxIdentityMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object gdxIdentityMapRemove (GdxIdentityMapRemoval state) {
+		com.badlogic.gdx.utils.IdentityMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxIdentityMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.ObjectMap.Entry<Object, Object> entry : gdxIdentityMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxIdentityMapRemoval {
+		com.badlogic.gdx.utils.IdentityMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.IdentityMap<Object, Object>(benchmark.gdxIdentityMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkIdentityMapInsert () {
+		IdentityHashMap<Object, Object> map = new IdentityHashMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkIdentityMapInsertPresized () {
+		IdentityHashMap<Object, Object> map = new IdentityHashMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIdentityMapGet (Blackhole bh) {
+		IdentityHashMap<Object, Object> map = jdkIdentityMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkIdentityMapRemove (JdkIdentityMapRemoval state) {
+		IdentityHashMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkIdentityMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Object> entry : jdkIdentityMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkIdentityMapRemoval {
+		IdentityHashMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectMapBenchmark benchmark) {
+			map = new IdentityHashMap<Object, Object>(benchmark.jdkIdentityMap);
+		}
+	}
+}
@@ -0,0 +1,344 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Compares ObjectIntMap and ObjectFloatMap against libGDX's versions and a java.util.HashMap with boxed values.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ObjectPrimitiveMapBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "STRING"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	Object[] keys;
+	ObjectIntMap<Object> merryObjectIntMap;
+	com.badlogic.gdx.utils.ObjectIntMap<Object> gdxObjectIntMap;
+	HashMap<Object, Integer> jdkObjectIntMap;
+	ObjectFloatMap<Object> merryObjectFloatMap;
+	com.badlogic.gdx.utils.ObjectFloatMap<Object> gdxObjectFloatMap;
+	HashMap<Object, Float> jdkObjectFloatMap;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.objects(distribution, size);
+		merryObjectIntMap = new ObjectIntMap<Object>(size);
+		for (Object key : keys)
+			merryObjectIntMap.put(key, 1);
+		gdxObjectIntMap = new com.badlogic.gdx.utils.ObjectIntMap<Object>(size);
+		for (Object key : keys)
+			gdxObjectIntMap.put(key, 1);
+		jdkObjectIntMap = new HashMap<Object, Integer>(size);
+		for (Object key : keys)
+			jdkObjectIntMap.put(key, 1);
+		merryObjectFloatMap = new ObjectFloatMap<Object>(size);
+		for (Object key : keys)
+			merryObjectFloatMap.put(key, 1f);
+		gdxObjectFloatMap = new com.badlogic.gdx.utils.ObjectFloatMap<Object>(size);
+		for (Object key : keys)
+			gdxObjectFloatMap.put(key, 1f);
+		jdkObjectFloatMap = new HashMap<Object, Float>(size);
+		for (Object key : keys)
+			jdkObjectFloatMap.put(key, 1f);
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapInsert () {
+		ObjectIntMap<Object> map = new ObjectIntMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapInsertPresized () {
+		ObjectIntMap<Object> map = new ObjectIntMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectIntMapGet (Blackhole bh) {
+		ObjectIntMap<Object> map = merryObjectIntMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0));
+	}
+
+	@Benchmark
+	public Object merryObjectIntMapRemove (MerryObjectIntMapRemoval state) {
+		ObjectIntMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectIntMapIterate (Blackhole bh) {
+		for (ObjectIntMap.Entry<Object> entry : merryObjectIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectIntMapRemoval {
+		ObjectIntMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new ObjectIntMap<Object>(benchmark.merryObjectIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxObjectIntMapInsert () {
+		com.badlogic.gdx.utils.ObjectIntMap<Object> map = new com.badlogic.gdx.utils.ObjectIntMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxObjectIntMapInsertPresized () {
+		com.badlogic.gdx.utils.ObjectIntMap<Object> map = new com.badlogic.gdx.utils.ObjectIntMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectIntMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.ObjectIntMap<Object> map = gdxObjectIntMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0));
+	}
+
+	@Benchmark
+	public Object gdxObjectIntMapRemove (GdxObjectIntMapRemoval state) {
+		com.badlogic.gdx.utils.ObjectIntMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectIntMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.ObjectIntMap.Entry<Object> entry : gdxObjectIntMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxObjectIntMapRemoval {
+		com.badlogic.gdx.utils.ObjectIntMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.ObjectIntMap<Object>(benchmark.gdxObjectIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectIntMapInsert () {
+		HashMap<Object, Integer> map = new HashMap<Object, Integer>();
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectIntMapInsertPresized () {
+		HashMap<Object, Integer> map = new HashMap<Object, Integer>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectIntMapGet (Blackhole bh) {
+		HashMap<Object, Integer> map = jdkObjectIntMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectIntMapRemove (JdkObjectIntMapRemoval state) {
+		HashMap<Object, Integer> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectIntMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Integer> entry : jdkObjectIntMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectIntMapRemoval {
+		HashMap<Object, Integer> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new HashMap<Object, Integer>(benchmark.jdkObjectIntMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapInsert () {
+		ObjectFloatMap<Object> map = new ObjectFloatMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapInsertPresized () {
+		ObjectFloatMap<Object> map = new ObjectFloatMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectFloatMapGet (Blackhole bh) {
+		ObjectFloatMap<Object> map = merryObjectFloatMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0f));
+	}
+
+	@Benchmark
+	public Object merryObjectFloatMapRemove (MerryObjectFloatMapRemoval state) {
+		ObjectFloatMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0f);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectFloatMapIterate (Blackhole bh) {
+		for (ObjectFloatMap.Entry<Object> entry : merryObjectFloatMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectFloatMapRemoval {
+		ObjectFloatMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new ObjectFloatMap<Object>(benchmark.merryObjectFloatMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxObjectFloatMapInsert () {
+		com.badlogic.gdx.utils.ObjectFloatMap<Object> map = new com.badlogic.gdx.utils.ObjectFloatMap<Object>();
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxObjectFloatMapInsertPresized () {
+		com.badlogic.gdx.utils.ObjectFloatMap<Object> map = new com.badlogic.gdx.utils.ObjectFloatMap<Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectFloatMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.ObjectFloatMap<Object> map = gdxObjectFloatMap;
+		for (Object key : keys)
+			bh.consume(map.get(key, 0f));
+	}
+
+	@Benchmark
+	public Object gdxObjectFloatMapRemove (GdxObjectFloatMapRemoval state) {
+		com.badlogic.gdx.utils.ObjectFloatMap<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key, 0f);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectFloatMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.ObjectFloatMap.Entry<Object> entry : gdxObjectFloatMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxObjectFloatMapRemoval {
+		com.badlogic.gdx.utils.ObjectFloatMap<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.ObjectFloatMap<Object>(benchmark.gdxObjectFloatMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectFloatMapInsert () {
+		HashMap<Object, Float> map = new HashMap<Object, Float>();
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectFloatMapInsertPresized () {
+		HashMap<Object, Float> map = new HashMap<Object, Float>(keys.length);
+		for (Object key : keys)
+			map.put(key, 1f);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectFloatMapGet (Blackhole bh) {
+		HashMap<Object, Float> map = jdkObjectFloatMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectFloatMapRemove (JdkObjectFloatMapRemoval state) {
+		HashMap<Object, Float> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectFloatMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Float> entry : jdkObjectFloatMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectFloatMapRemoval {
+		HashMap<Object, Float> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectPrimitiveMapBenchmark benchmark) {
+			map = new HashMap<Object, Float>(benchmark.jdkObjectFloatMap);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/** Compares ObjectSet against libGDX's ObjectSet and java.util.HashSet.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ObjectSetBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "STRING"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	Object[] keys;
+	ObjectSet<Object> merryObjectSet;
+	com.badlogic.gdx.utils.ObjectSet<Object> gdxObjectSet;
+	HashSet<Object> jdkObjectSet;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.objects(distribution, size);
+		merryObjectSet = new ObjectSet<Object>(size);
+		for (Object key : keys)
+			merryObjectSet.add(key);
+		gdxObjectSet = new com.badlogic.gdx.utils.ObjectSet<Object>(size);
+		for (Object key : keys)
+			gdxObjectSet.add(key);
+		jdkObjectSet = new HashSet<Object>(size);
+		for (Object key : keys)
+			jdkObjectSet.add(key);
+	}
+
+	@Benchmark
+	public Object merryObjectSetInsert () {
+		ObjectSet<Object> map = new ObjectSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryObjectSetInsertPresized () {
+		ObjectSet<Object> map = new ObjectSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectSetGet (Blackhole bh) {
+		ObjectSet<Object> map = merryObjectSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object merryObjectSetRemove (MerryObjectSetRemoval state) {
+		ObjectSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryObjectSetIterate (Blackhole bh) {
+		for (Object item : merryObjectSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryObjectSetRemoval {
+		ObjectSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectSetBenchmark benchmark) {
+			map = new ObjectSet<Object>(benchmark.merryObjectSet);
+		}
+	}
+
+	@Benchmark
+	public Object gdxObjectSetInsert () {
+		com.badlogic.gdx.utils.ObjectSet<Object> map = new com.badlogic.gdx.utils.ObjectSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxObjectSetInsertPresized () {
+		com.badlogic.gdx.utils.ObjectSet<Object> map = new com.badlogic.gdx.utils.ObjectSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectSetGet (Blackhole bh) {
+		com.badlogic.gdx.utils.ObjectSet<Object> map = gdxObjectSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object gdxObjectSetRemove (GdxObjectSetRemoval state) {
+		com.badlogic.gdx.utils.ObjectSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxObjectSetIterate (Blackhole bh) {
+		for (Object item : gdxObjectSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxObjectSetRemoval {
+		com.badlogic.gdx.utils.ObjectSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectSetBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.ObjectSet<Object>(benchmark.gdxObjectSet);
+		}
+	}
+
+	@Benchmark
+	public Object jdkObjectSetInsert () {
+		HashSet<Object> map = new HashSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkObjectSetInsertPresized () {
+		HashSet<Object> map = new HashSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectSetGet (Blackhole bh) {
+		HashSet<Object> map = jdkObjectSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object jdkObjectSetRemove (JdkObjectSetRemoval state) {
+		HashSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkObjectSetIterate (Blackhole bh) {
+		for (Object item : jdkObjectSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class JdkObjectSetRemoval {
+		HashSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (ObjectSetBenchmark benchmark) {
+			map = new HashSet<Object>(benchmark.jdkObjectSet);
+		}
+	}
+}
@@ -0,0 +1,345 @@
+package ds.merry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Compares OrderedMap and OrderedSet against libGDX's versions and java.util.LinkedHashMap and LinkedHashSet.
+ * <p>
+ * Each structure gets five benchmarks: {@code insert} starts from the default capacity and so includes every resize,
+ * {@code insertPresized} starts large enough to never resize (the difference between the two is the cost of resizing),
+ * {@code get} looks up every key in a full structure, {@code remove} empties a full copy, and {@code iterate} walks a full
+ * structure once.
+ * @author Tommy Ettinger */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class OrderedBenchmark {
+	@Param({"SEQUENTIAL", "VECTOR", "STRING"}) public String distribution;
+	@Param({"1000", "100000"}) public int size;
+
+	Object[] keys;
+	OrderedMap<Object, Object> merryOrderedMap;
+	com.badlogic.gdx.utils.OrderedMap<Object, Object> gdxOrderedMap;
+	LinkedHashMap<Object, Object> jdkOrderedMap;
+	OrderedSet<Object> merryOrderedSet;
+	com.badlogic.gdx.utils.OrderedSet<Object> gdxOrderedSet;
+	LinkedHashSet<Object> jdkOrderedSet;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		keys = BenchmarkKeys.objects(distribution, size);
+		merryOrderedMap = new OrderedMap<Object, Object>(size);
+		for (Object key : keys)
+			merryOrderedMap.put(key, key);
+		gdxOrderedMap = new com.badlogic.gdx.utils.OrderedMap<Object, Object>(size);
+		for (Object key : keys)
+			gdxOrderedMap.put(key, key);
+		jdkOrderedMap = new LinkedHashMap<Object, Object>(size);
+		for (Object key : keys)
+			jdkOrderedMap.put(key, key);
+		merryOrderedSet = new OrderedSet<Object>(size);
+		for (Object key : keys)
+			merryOrderedSet.add(key);
+		gdxOrderedSet = new com.badlogic.gdx.utils.OrderedSet<Object>(size);
+		for (Object key : keys)
+			gdxOrderedSet.add(key);
+		jdkOrderedSet = new LinkedHashSet<Object>(size);
+		for (Object key : keys)
+			jdkOrderedSet.add(key);
+	}
+
+	@Benchmark
+	public Object merryOrderedMapInsert () {
+		OrderedMap<Object, Object> map = new OrderedMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryOrderedMapInsertPresized () {
+		OrderedMap<Object, Object> map = new OrderedMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedMapGet (Blackhole bh) {
+		OrderedMap<Object, Object> map = merryOrderedMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object merryOrderedMapRemove (MerryOrderedMapRemoval state) {
+		OrderedMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedMapIterate (Blackhole bh) {
+		for (ObjectMap.Entry<Object, Object> entry : merryOrderedMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryOrderedMapRemoval {
+		OrderedMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new OrderedMap<Object, Object>(benchmark.merryOrderedMap);
+		}
+	}
+
+	@Benchmark
+	public Object gdxOrderedMapInsert () {
+		com.badlogic.gdx.utils.OrderedMap<Object, Object> map = new com.badlogic.gdx.utils.OrderedMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxOrderedMapInsertPresized () {
+		com.badlogic.gdx.utils.OrderedMap<Object, Object> map = new com.badlogic.gdx.utils.OrderedMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxOrderedMapGet (Blackhole bh) {
+		com.badlogic.gdx.utils.OrderedMap<Object, Object> map = gdxOrderedMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object gdxOrderedMapRemove (GdxOrderedMapRemoval state) {
+		com.badlogic.gdx.utils.OrderedMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxOrderedMapIterate (Blackhole bh) {
+		for (com.badlogic.gdx.utils.ObjectMap.Entry<Object, Object> entry : gdxOrderedMap.entries())
+			bh.consume(entry.value);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxOrderedMapRemoval {
+		com.badlogic.gdx.utils.OrderedMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.OrderedMap<Object, Object>(benchmark.gdxOrderedMap);
+		}
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapInsert () {
+		LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>();
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapInsertPresized () {
+		LinkedHashMap<Object, Object> map = new LinkedHashMap<Object, Object>(keys.length);
+		for (Object key : keys)
+			map.put(key, key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedMapGet (Blackhole bh) {
+		LinkedHashMap<Object, Object> map = jdkOrderedMap;
+		for (Object key : keys)
+			bh.consume(map.get(key));
+	}
+
+	@Benchmark
+	public Object jdkOrderedMapRemove (JdkOrderedMapRemoval state) {
+		LinkedHashMap<Object, Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedMapIterate (Blackhole bh) {
+		for (Map.Entry<Object, Object> entry : jdkOrderedMap.entrySet())
+			bh.consume(entry.getValue());
+	}
+
+	@State(Scope.Thread)
+	public static class JdkOrderedMapRemoval {
+		LinkedHashMap<Object, Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new LinkedHashMap<Object, Object>(benchmark.jdkOrderedMap);
+		}
+	}
+
+	@Benchmark
+	public Object merryOrderedSetInsert () {
+		OrderedSet<Object> map = new OrderedSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object merryOrderedSetInsertPresized () {
+		OrderedSet<Object> map = new OrderedSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedSetGet (Blackhole bh) {
+		OrderedSet<Object> map = merryOrderedSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object merryOrderedSetRemove (MerryOrderedSetRemoval state) {
+		OrderedSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void merryOrderedSetIterate (Blackhole bh) {
+		for (Object item : merryOrderedSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class MerryOrderedSetRemoval {
+		OrderedSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new OrderedSet<Object>(benchmark.merryOrderedSet);
+		}
+	}
+
+	@Benchmark
+	public Object gdxOrderedSetInsert () {
+		com.badlogic.gdx.utils.OrderedSet<Object> map = new com.badlogic.gdx.utils.OrderedSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object gdxOrderedSetInsertPresized () {
+		com.badlogic.gdx.utils.OrderedSet<Object> map = new com.badlogic.gdx.utils.OrderedSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxOrderedSetGet (Blackhole bh) {
+		com.badlogic.gdx.utils.OrderedSet<Object> map = gdxOrderedSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object gdxOrderedSetRemove (GdxOrderedSetRemoval state) {
+		com.badlogic.gdx.utils.OrderedSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void gdxOrderedSetIterate (Blackhole bh) {
+		for (Object item : gdxOrderedSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class GdxOrderedSetRemoval {
+		com.badlogic.gdx.utils.OrderedSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new com.badlogic.gdx.utils.OrderedSet<Object>(benchmark.gdxOrderedSet);
+		}
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetInsert () {
+		LinkedHashSet<Object> map = new LinkedHashSet<Object>();
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetInsertPresized () {
+		LinkedHashSet<Object> map = new LinkedHashSet<Object>(keys.length);
+		for (Object key : keys)
+			map.add(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedSetGet (Blackhole bh) {
+		LinkedHashSet<Object> map = jdkOrderedSet;
+		for (Object key : keys)
+			bh.consume(map.contains(key));
+	}
+
+	@Benchmark
+	public Object jdkOrderedSetRemove (JdkOrderedSetRemoval state) {
+		LinkedHashSet<Object> map = state.map;
+		for (Object key : keys)
+			map.remove(key);
+		return map;
+	}
+
+	@Benchmark
+	public void jdkOrderedSetIterate (Blackhole bh) {
+		for (Object item : jdkOrderedSet)
+			bh.consume(item);
+	}
+
+	@State(Scope.Thread)
+	public static class JdkOrderedSetRemoval {
+		LinkedHashSet<Object> map;
+
+		@Setup(Level.Invocation)
+		public void setup (OrderedBenchmark benchmark) {
+			map = new LinkedHashSet<Object>(benchmark.jdkOrderedSet);
+		}
+	}
+}
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
+import static ds.merry.ObjectSet.newOccupancy;
+
+/** An unordered map where the keys and values are objects, which stores the hashCode of each key in a parallel int array so it
+ * never has to be computed again. Null keys are not allowed. No allocation is done except when growing the table size.
+ * <p>
+ * An {@link ObjectMap} calls {@link Object#hashCode()} on every key it moves during a resize, and on every key that the backward
+ * shift algorithm looks at during removal. This map uses the stored hashCodes instead, and also compares the stored hashCode
+ * with the one of the key being looked up before calling {@link Object#equals(Object)}, so keys in the same cluster that have
+ * different hashCodes are skipped without calling equals(). Each key's hashCode() is called once when it is looked up or
+ * inserted, and never by the map itself after that. This costs 4 bytes per slot in the table, and is worth it for keys with
+ * costly hashCode() or equals() methods, such as composite keys that don't cache their hashCode. For keys like Strings or
+ * boxed numbers, an ObjectMap is usually faster.
+ * <p>
+ * Because placement is computed from the stored hashCode, {@link #place(Object)} can't be overridden here; override
+ * {@link #placeHash(int)} to change how a hashCode is mixed into an index.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class CachedHashMap<K, V> extends ObjectMap<K, V> {
+	/** Holds the hashCode of the key at the same index in {@link #keyTable}; only meaningful where that key is non-null. */
+	int[] hashTable;
+	/** The hashCode of the key most recently given to {@link #locateKey(Object)}, so {@link #insert(int, Object, Object)} can
+	 * store it without calling hashCode() again. */
+	int lastHashCode;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public CachedHashMap () {
+		super();
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public CachedHashMap (int initialCapacity) {
+		super(initialCapacity);
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public CachedHashMap (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new map identical to the specified map. */
+	public CachedHashMap (CachedHashMap<? extends K, ? extends V> map) {
+		super(map);
+		hashTable = new int[keyTable.length];
+		System.arraycopy(map.hashTable, 0, hashTable, 0, map.hashTable.length);
+	}
+
+	/** Calls {@link #placeHash(int)} with the item's hashCode. This is final so placement always agrees with the stored
+	 * hashCodes. */
+	protected final int place (K item) {
+		return placeHash(item.hashCode());
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for a key with the given hashCode. The
+	 * default implementation uses Fibonacci hashing, like {@link ObjectMap#place(Object)}. */
+	protected int placeHash (int hashCode) {
+		return (int)(hashCode * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	int locateKey (K key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		return locateKey(key, lastHashCode = key.hashCode());
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. {@code hashCode} must be the
+	 * key's hashCode. */
+	int locateKey (K key, int hashCode) {
+		K[] keyTable = this.keyTable;
+		int[] hashTable = this.hashTable;
+		for (int i = placeHash(hashCode);; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (hashTable[i] == hashCode && other.equals(key)) return i; // Same key was found.
+		}
+	}
+
+	/** Like {@link ObjectMap#getAll(Object[], Object[])}, but keeps the hashCode of each key from placing it, to compare with the
+	 * stored hashCodes while probing, so each key's hashCode() is still called only once. */
+	public V[] getAll (K[] keys, V[] out) {
+		checkBatch(keys.length, out.length);
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int[] hashTable = this.hashTable;
+		int mask = this.mask;
+		int batch = Math.min(keys.length, BATCH_SIZE);
+		int[] places = new int[batch], hashCodes = new int[batch];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				K key = keys[j];
+				if (key == null) throw new IllegalArgumentException("key cannot be null.");
+				int hashCode = key.hashCode(), i = placeHash(hashCode);
+				hashCodes[j - start] = hashCode;
+				places[j - start] = keyTable[i] == null ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				K key = keys[j];
+				int hashCode = hashCodes[j - start];
+				V value = null;
+				for (int i = places[j - start]; i >= 0; i = i + 1 & mask) {
+					K other = keyTable[i];
+					if (other == null) break;
+					if (hashTable[i] == hashCode && other.equals(key)) {
+						value = valueTable[i];
+						break;
+					}
+				}
+				out[j] = value;
+			}
+		}
+		return out;
+	}
+
+	@Null
+	public V put (K key, @Null V value) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		int i = locateKey(key, hashCode);
+		if (i >= 0) { // Existing key was found.
+			V oldValue = valueTable[i];
+			valueTable[i] = value;
+			return oldValue;
+		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		valueTable[i] = value;
+		hashTable[i] = hashCode;
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return null;
+	}
+
+	/** Stores the hashCode that {@link #locateKey(Object)} kept when it returned {@code i}. */
+	void insert (int i, K key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		hashTable[i] = lastHashCode;
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	void putResize (K key, @Null V value) {
+		putResize(key, value, key.hashCode());
+	}
+
+	/** Skips checks for existing keys, doesn't increment size. */
+	void putResize (K key, @Null V value, int hashCode) {
+		K[] keyTable = this.keyTable;
+		for (int i = placeHash(hashCode);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				valueTable[i] = value;
+				hashTable[i] = hashCode;
+				occupy(i);
+				return;
+			}
+		}
+	}
+
+	int removeAt (int i) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int[] hashTable = this.hashTable;
+		int mask = this.mask, next = i + 1 & mask;
+		K key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = placeHash(hashTable[next]);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				valueTable[i] = valueTable[next];
+				hashTable[i] = hashTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		valueTable[i] = null;
+		vacate(i);
+		size--;
+		return i;
+	}
+
+	void moveSlot (int from, int to) {
+		hashTable[to] = hashTable[from];
+		super.moveSlot(from, to);
+	}
+
+	int placeSlot (int i) {
+		return placeHash(hashTable[i]);
+	}
+
+	void resize (int newSize) {
+		int oldCapacity = keyTable.length;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		K[] oldKeyTable = keyTable;
+		V[] oldValueTable = valueTable;
+		int[] oldHashTable = hashTable;
+
+		keyTable = (K[])new Object[newSize];
+		valueTable = (V[])new Object[newSize];
+		hashTable = new int[newSize];
+		if (occupancy != null) occupancy = newOccupancy(newSize);
+
+		if (size > 0) {
+			for (int i = 0; i < oldCapacity; i++) {
+				K key = oldKeyTable[i];
+				if (key != null) putResize(key, oldValueTable[i], oldHashTable[i]);
+			}
+		}
+	}
+
+	public HashStats hashStats () {
+		K[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			if (keyTable[i] == null)
+				stats.empty();
+			else
+				stats.add(i - placeHash(hashTable[i]) & mask);
+		}
+		return stats.finish();
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(4);
+	}
+}
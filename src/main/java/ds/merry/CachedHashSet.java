@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+/** An unordered set where the keys are objects, which stores the hashCode of each key in a parallel int array so it never has to
+ * be computed again. Null keys are not allowed. No allocation is done except when growing the table size.
+ * <p>
+ * An {@link ObjectSet} calls {@link Object#hashCode()} on every key it moves during a resize, and on every key that the backward
+ * shift algorithm looks at during removal. This set uses the stored hashCodes instead, and also compares the stored hashCode
+ * with the one of the key being looked up before calling {@link Object#equals(Object)}. Each key's hashCode() is called once
+ * when it is looked up or added, and never by the set itself after that. This costs 4 bytes per slot in the table, and is worth
+ * it for keys with costly hashCode() or equals() methods; for keys like Strings or boxed numbers, an ObjectSet is usually
+ * faster.
+ * <p>
+ * Because placement is computed from the stored hashCode, {@link #place(Object)} can't be overridden here; override
+ * {@link #placeHash(int)} to change how a hashCode is mixed into an index.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class CachedHashSet<T> extends ObjectSet<T> {
+	/** Holds the hashCode of the key at the same index in {@link #keyTable}; only meaningful where that key is non-null. */
+	int[] hashTable;
+
+	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
+	public CachedHashSet () {
+		super();
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new set with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public CachedHashSet (int initialCapacity) {
+		super(initialCapacity);
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public CachedHashSet (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		hashTable = new int[keyTable.length];
+	}
+
+	/** Creates a new set identical to the specified set. */
+	public CachedHashSet (CachedHashSet<? extends T> set) {
+		super(set);
+		hashTable = new int[keyTable.length];
+		System.arraycopy(set.hashTable, 0, hashTable, 0, set.hashTable.length);
+	}
+
+	/** Calls {@link #placeHash(int)} with the item's hashCode. This is final so placement always agrees with the stored
+	 * hashCodes. */
+	protected final int place (T item) {
+		return placeHash(item.hashCode());
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for a key with the given hashCode. The
+	 * default implementation uses Fibonacci hashing, like {@link ObjectSet#place(Object)}. */
+	protected int placeHash (int hashCode) {
+		return (int)(hashCode * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	int locateKey (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		return locateKey(key, key.hashCode());
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. {@code hashCode} must be the
+	 * key's hashCode. */
+	int locateKey (T key, int hashCode) {
+		T[] keyTable = this.keyTable;
+		int[] hashTable = this.hashTable;
+		for (int i = placeHash(hashCode);; i = i + 1 & mask) {
+			T other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (hashTable[i] == hashCode && other.equals(key)) return i; // Same key was found.
+		}
+	}
+
+	public boolean add (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		int i = locateKey(key, hashCode);
+		if (i >= 0) return false; // Existing key was found.
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		hashTable[i] = hashCode;
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return true;
+	}
+
+	void addResize (T key) {
+		addResize(key, key.hashCode());
+	}
+
+	/** Skips checks for existing keys, doesn't increment size. */
+	void addResize (T key, int hashCode) {
+		T[] keyTable = this.keyTable;
+		for (int i = placeHash(hashCode);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				hashTable[i] = hashCode;
+				return;
+			}
+		}
+	}
+
+	int removeAt (int i) {
+		T[] keyTable = this.keyTable;
+		int[] hashTable = this.hashTable;
+		int mask = this.mask, next = i + 1 & mask;
+		T key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = placeHash(hashTable[next]);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				hashTable[i] = hashTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		size--;
+		return i;
+	}
+
+	void moveSlot (int from, int to) {
+		hashTable[to] = hashTable[from];
+		super.moveSlot(from, to);
+	}
+
+	int placeSlot (int i) {
+		return placeHash(hashTable[i]);
+	}
+
+	void resize (int newSize) {
+		int oldCapacity = keyTable.length;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		T[] oldKeyTable = keyTable;
+		int[] oldHashTable = hashTable;
+
+		keyTable = (T[])(new Object[newSize]);
+		hashTable = new int[newSize];
+
+		if (size > 0) {
+			for (int i = 0; i < oldCapacity; i++) {
+				T key = oldKeyTable[i];
+				if (key != null) addResize(key, oldHashTable[i]);
+			}
+		}
+	}
+
+	public HashStats hashStats () {
+		T[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			if (keyTable[i] == null)
+				stats.empty();
+			else
+				stats.add(i - placeHash(hashTable[i]) & mask);
+		}
+		return stats.finish();
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(4);
+	}
+}
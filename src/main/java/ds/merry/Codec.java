@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** Writes and reads one kind of key or value for {@link Snapshots}, which handles primitive keys and values by itself but needs
+ * a Codec for each kind of object. A Codec never sees null; Snapshots records null values itself.
+ * @author Tommy Ettinger */
+public interface Codec<T> {
+	void write (DataOutput out, T item) throws IOException;
+
+	T read (DataInput in) throws IOException;
+
+	/** Uses {@link DataOutput#writeUTF(String)}, so each String can take at most 65535 bytes when encoded. */
+	Codec<String> STRING = new Codec<String>() {
+		public void write (DataOutput out, String item) throws IOException {
+			out.writeUTF(item);
+		}
+
+		public String read (DataInput in) throws IOException {
+			return in.readUTF();
+		}
+	};
+
+	Codec<Integer> INTEGER = new Codec<Integer>() {
+		public void write (DataOutput out, Integer item) throws IOException {
+			out.writeInt(item);
+		}
+
+		public Integer read (DataInput in) throws IOException {
+			return in.readInt();
+		}
+	};
+
+	Codec<Long> LONG = new Codec<Long>() {
+		public void write (DataOutput out, Long item) throws IOException {
+			out.writeLong(item);
+		}
+
+		public Long read (DataInput in) throws IOException {
+			return in.readLong();
+		}
+	};
+
+	Codec<Float> FLOAT = new Codec<Float>() {
+		public void write (DataOutput out, Float item) throws IOException {
+			out.writeFloat(item);
+		}
+
+		public Float read (DataInput in) throws IOException {
+			return in.readFloat();
+		}
+	};
+
+	Codec<Double> DOUBLE = new Codec<Double>() {
+		public void write (DataOutput out, Double item) throws IOException {
+			out.writeDouble(item);
+		}
+
+		public Double read (DataInput in) throws IOException {
+			return in.readDouble();
+		}
+	};
+}
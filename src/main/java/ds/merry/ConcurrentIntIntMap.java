@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ds.merry.ObjectSet.tableSize;
+
+/** An unordered map where the keys and values are unboxed ints, which many threads can update at once. It is meant for counters
+ * and id assignment: {@link #getAndIncrement(int, int, int)}, {@link #addAndGet(int, int)}, {@link #putIfAbsent(int, int)}
+ * and the other updates are each a single compare-and-set on one slot, and reads never write.
+ * <p>
+ * Keys are placed with Fibonacci hashing and linear probing like {@link IntIntMap}, and the 0 key is kept outside the table.
+ * Each slot has an int key and a long entry holding the value and its state. Once a key has claimed a slot it stays there
+ * until the next resize; removing a key only marks its entry absent, so no other key ever has to move while threads are
+ * probing, and removed keys are dropped when the table is copied. A resize starts when the claimed slots, including those of
+ * removed keys, reach the load factor. Every thread that wants to write during a resize helps copy the old table, a chunk of
+ * slots at a time, and waits until it is done; reads go on during a resize, following entries that were already copied to the
+ * new table. Because writers wait for the copy, this map is not lock-free: a thread that stalls while copying its chunk holds
+ * up every writer until it continues. The new table always has room for every key the old one could hold, so a copy never
+ * runs out of slots.
+ * <p>
+ * {@link #size()} and {@link #snapshot()} are exact only when no other thread is writing. There is no iterator; iterate a
+ * snapshot instead.
+ * <p>
+ * This class uses java.util.concurrent, so it is not available on GWT.
+ * @author Tommy Ettinger */
+public class ConcurrentIntIntMap {
+	/** Entry states, in the upper 32 bits of an entry. FROZEN is set while an entry is being copied to the next table, and stops
+	 * any other thread from changing it. */
+	static final int ABSENT = 0, PRESENT = 1, FROZEN = 2, MOVED = 4;
+	/** Results of {@link #findSlot(Table, int, boolean)} that aren't a slot index. */
+	static final int NOT_FOUND = -1, REDIRECT = -2, NEED_RESIZE = -3;
+	static final int GET_AND_ADD = 0, ADD_AND_GET = 1, PUT_IF_ABSENT = 2, PUT = 3, REMOVE = 4;
+	/** How many slots a thread claims to copy at a time during a resize. */
+	static final int TRANSFER_CHUNK = 64;
+
+	final float loadFactor;
+	volatile Table table;
+	/** The entry for the 0 key, which uses only the ABSENT and PRESENT states. */
+	final AtomicLong zeroEntry = new AtomicLong();
+	final AtomicInteger size = new AtomicInteger();
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public ConcurrentIntIntMap () {
+		this(51, 0.8f);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ConcurrentIntIntMap (int initialCapacity) {
+		this(initialCapacity, 0.8f);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ConcurrentIntIntMap (int initialCapacity, float loadFactor) {
+		if (loadFactor <= 0f || loadFactor >= 1f)
+			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+		this.loadFactor = loadFactor;
+		table = new Table(tableSize(initialCapacity, loadFactor), loadFactor);
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to the mask of a table with the given {@code shift}.
+	 * <p>
+	 * The default implementation uses Fibonacci hashing, the same as {@link IntIntMap#place(int)}. Unlike there, the shift is a
+	 * parameter, because a resize in progress has two tables with different shifts. */
+	protected int place (int item, int shift) {
+		return (int)(item * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	/** Returns the key's value, or defaultValue if the key is not in the map. */
+	public int get (int key, int defaultValue) {
+		long e = lookup(key);
+		return state(e) == PRESENT ? (int)e : defaultValue;
+	}
+
+	public boolean containsKey (int key) {
+		return state(lookup(key)) == PRESENT;
+	}
+
+	/** Returns the key's entry with its state reduced to PRESENT or ABSENT, without writing anything. */
+	long lookup (int key) {
+		if (key == 0) return zeroEntry.get();
+		Table t = table;
+		for (;;) {
+			int i = findSlot(t, key, false);
+			if (i == NOT_FOUND) return entry(ABSENT, 0);
+			if (i == REDIRECT) {
+				t = t.next.get();
+				continue;
+			}
+			long e = t.entries.get(i);
+			if (state(e) == MOVED) {
+				t = t.next.get();
+				continue;
+			}
+			// A frozen entry can still be read; its value can't change until it is copied.
+			return entry(state(e) & PRESENT, (int)e);
+		}
+	}
+
+	/** Returns the key's current value and atomically adds increment to the stored value. If the key is not in the map,
+	 * defaultValue + increment is put into the map and defaultValue is returned. */
+	public int getAndIncrement (int key, int defaultValue, int increment) {
+		return update(key, GET_AND_ADD, defaultValue, increment);
+	}
+
+	/** Atomically adds delta to the key's value, treating a missing key as having the value 0, and returns the new value. */
+	public int addAndGet (int key, int delta) {
+		return update(key, ADD_AND_GET, delta, 0);
+	}
+
+	/** Puts the value only if the key is not in the map. Returns the value the key has after this call: the value that was
+	 * already there, or the given value if it was put. */
+	public int putIfAbsent (int key, int value) {
+		return update(key, PUT_IF_ABSENT, value, 0);
+	}
+
+	/** Returns the old value associated with the key, or defaultValue if the key was not in the map. */
+	public int put (int key, int value, int defaultValue) {
+		return update(key, PUT, value, defaultValue);
+	}
+
+	/** Returns the value that was associated with the key, or defaultValue if the key was not in the map. */
+	public int remove (int key, int defaultValue) {
+		return update(key, REMOVE, defaultValue, 0);
+	}
+
+	/** Returns the number of keys in the map. If other threads are writing, this may already be out of date. */
+	public int size () {
+		return size.get();
+	}
+
+	public boolean isEmpty () {
+		return size.get() == 0;
+	}
+
+	/** Removes every key that is in a snapshot of the map. Keys that other threads put meanwhile may remain. */
+	public void clear () {
+		IntIntMap.Keys keys = snapshot().keys();
+		while (keys.hasNext)
+			remove(keys.next(), 0);
+	}
+
+	/** Returns a new IntIntMap holding the entries of this map. If other threads are writing, it may hold some of their changes
+	 * and not others. */
+	public IntIntMap snapshot () {
+		IntIntMap map = new IntIntMap(size.get());
+		long zero = zeroEntry.get();
+		if (state(zero) == PRESENT) map.put(0, (int)zero);
+		// Entries that were moved are picked up from the next table.
+		for (Table t = table; t != null; t = t.next.get()) {
+			for (int i = 0, n = t.mask + 1; i < n; i++) {
+				long e = t.entries.get(i);
+				if ((state(e) & PRESENT) != 0) map.put(t.keys.get(i), (int)e);
+			}
+		}
+		return map;
+	}
+
+	/** Returns a snapshot of the probe distances and clusters in the current table, counting every claimed slot, including those
+	 * of removed keys that are still waiting for the next resize. */
+	public HashStats hashStats () {
+		Table t = table;
+		HashStats stats = new HashStats(t.mask + 1);
+		for (int i = 0, n = t.mask + 1; i < n; i++) {
+			int key = t.keys.get(i);
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key, t.shift) & t.mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by the current table. Slots claimed by removed keys count as used. */
+	public MemoryStats memoryStats () {
+		Table t = table;
+		MemoryStats stats = new MemoryStats(t.mask + 1, t.claimed.get()).keys(4).values(8);
+		Table next = t.next.get();
+		if (next != null) {
+			stats.capacity += next.mask + 1;
+			stats.extra(MemoryStats.array(next.mask + 1, 4) + MemoryStats.array(next.mask + 1, 8));
+		}
+		return stats;
+	}
+
+	public String toString () {
+		return snapshot().toString();
+	}
+
+	/** Returns the slot holding the key, claiming an empty one if {@code claim} is true and the table has room. Otherwise returns
+	 * {@link #NOT_FOUND} if the key isn't in the map, {@link #REDIRECT} if it may be in the next table, or {@link #NEED_RESIZE}
+	 * if the key isn't here and can't be claimed here. A slot is counted in {@link Table#claimed} before it is claimed, so the
+	 * keys in a table never exceed its threshold. */
+	int findSlot (Table t, int key, boolean claim) {
+		AtomicIntegerArray keys = t.keys;
+		int mask = t.mask;
+		for (int i = place(key, t.shift), probes = 0; probes <= mask; i = i + 1 & mask, probes++) {
+			int other = keys.get(i);
+			if (other == key) return i;
+			if (other != 0) continue;
+			// An empty slot that was already copied means the key can only be in the next table.
+			if (state(t.entries.get(i)) == MOVED) return REDIRECT;
+			if (!claim) return NOT_FOUND;
+			if (t.next.get() != null) return NEED_RESIZE;
+			if (t.claimed.incrementAndGet() > t.threshold) {
+				t.claimed.decrementAndGet();
+				return NEED_RESIZE;
+			}
+			if (keys.compareAndSet(i, 0, key)) return i;
+			t.claimed.decrementAndGet();
+			if (keys.get(i) == key) return i; // Another thread claimed this slot for the same key.
+		}
+		if (!claim) return t.next.get() == null ? NOT_FOUND : REDIRECT;
+		return NEED_RESIZE;
+	}
+
+	int update (int key, int mode, int a, int b) {
+		if (key == 0) {
+			for (;;) {
+				long e = zeroEntry.get(), n = change(e, mode, a, b);
+				if (n == e || zeroEntry.compareAndSet(e, n)) return finish(e, n, mode, a, b);
+			}
+		}
+		Table t = table;
+		for (;;) {
+			int i = findSlot(t, key, mode != REMOVE);
+			if (i == NOT_FOUND) return a;
+			if (i == REDIRECT || i == NEED_RESIZE) {
+				// Only reads follow a redirect; writing to the next table while it is being filled could overflow it.
+				t = resize(t);
+				continue;
+			}
+			Table next = t.next.get();
+			long e = t.entries.get(i);
+			if (next != null || (state(e) & (FROZEN | MOVED)) != 0) {
+				// Writes wait for a resize in progress to finish, helping it along. This also covers an entry that was frozen
+				// or moved after next was read.
+				t = resize(t);
+				continue;
+			}
+			long n = change(e, mode, a, b);
+			if (n == e || t.entries.compareAndSet(i, e, n)) return finish(e, n, mode, a, b);
+		}
+	}
+
+	/** Returns the entry that the update {@code mode} turns {@code e} into. */
+	static long change (long e, int mode, int a, int b) {
+		boolean present = state(e) == PRESENT;
+		int value = (int)e;
+		switch (mode) {
+		case GET_AND_ADD:
+			return entry(PRESENT, (present ? value : a) + b);
+		case ADD_AND_GET:
+			return entry(PRESENT, (present ? value : 0) + a);
+		case PUT_IF_ABSENT:
+			return present ? e : entry(PRESENT, a);
+		case PUT:
+			return entry(PRESENT, a);
+		default: // REMOVE
+			return present ? entry(ABSENT, 0) : e;
+		}
+	}
+
+	/** Updates the size after {@code e} was changed to {@code n}, and returns what the update {@code mode} returns. */
+	int finish (long e, long n, int mode, int a, int b) {
+		boolean was = state(e) == PRESENT, is = state(n) == PRESENT;
+		if (!was && is)
+			size.incrementAndGet();
+		else if (was && !is) size.decrementAndGet();
+		switch (mode) {
+		case GET_AND_ADD:
+			return was ? (int)e : a;
+		case ADD_AND_GET:
+		case PUT_IF_ABSENT:
+			return (int)n;
+		case PUT:
+			return was ? (int)e : b;
+		default: // REMOVE
+			return was ? (int)e : a;
+		}
+	}
+
+	/** Starts a resize of {@code t} if none is in progress, helps copy it, and returns the table to use once it is done. */
+	Table resize (Table t) {
+		Table next = t.next.get();
+		if (next == null) {
+			Table current = table;
+			// Only the current table can start a resize; t may be the target of one still in progress.
+			if (t != current) return resize(current);
+			// The copy may find as many keys as t's threshold, so next is never smaller than t.
+			int capacity = Math.max(size.get() << 1, t.threshold);
+			next = new Table(tableSize(capacity, loadFactor), loadFactor);
+			if (!t.next.compareAndSet(null, next)) next = t.next.get();
+		}
+		int length = t.mask + 1;
+		while (t.transferIndex.get() < length) {
+			int start = t.transferIndex.getAndAdd(TRANSFER_CHUNK);
+			if (start >= length) break;
+			int end = Math.min(start + TRANSFER_CHUNK, length);
+			for (int i = start; i < end; i++)
+				transfer(t, i, next);
+			if (t.transferred.addAndGet(end - start) == length) table = next;
+		}
+		while (table == t)
+			Thread.yield();
+		return table;
+	}
+
+	/** Copies the entry in slot {@code i} of {@code t} to {@code next} if it is present, and marks it moved. */
+	void transfer (Table t, int i, Table next) {
+		AtomicLongArray entries = t.entries;
+		for (;;) {
+			long e = entries.get(i);
+			int state = state(e);
+			if (state == MOVED) return;
+			if (!entries.compareAndSet(i, e, entry(state | FROZEN, (int)e))) continue;
+			// The key is read after freezing; a key claimed later will find the entry moved.
+			if (state == PRESENT) next.insert(this, t.keys.get(i), (int)e);
+			entries.set(i, entry(MOVED, 0));
+			return;
+		}
+	}
+
+	static long entry (int state, int value) {
+		return (long)state << 32 | value & 0xFFFFFFFFL;
+	}
+
+	static int state (long entry) {
+		return (int)(entry >>> 32);
+	}
+
+	static final class Table {
+		final AtomicIntegerArray keys;
+		/** The value of each slot in the lower 32 bits and its state in the upper 32 bits. */
+		final AtomicLongArray entries;
+		final int mask, shift, threshold;
+		/** How many slots have a key, including keys that were removed. */
+		final AtomicInteger claimed = new AtomicInteger();
+		final AtomicReference<Table> next = new AtomicReference<Table>();
+		/** The next slot to be claimed for copying, and how many slots have been copied. */
+		final AtomicInteger transferIndex = new AtomicInteger(), transferred = new AtomicInteger();
+
+		Table (int tableSize, float loadFactor) {
+			keys = new AtomicIntegerArray(tableSize);
+			entries = new AtomicLongArray(tableSize);
+			mask = tableSize - 1;
+			shift = Long.numberOfLeadingZeros(mask);
+			threshold = (int)(tableSize * loadFactor);
+		}
+
+		/** Puts a key and value that are being copied from the previous table. No other thread can be writing the same key, since
+		 * writers wait for the copy to finish, and other copying threads only claim slots for other keys.
+		 * @throws IllegalStateException if every slot is taken, which the sizing in {@link ConcurrentIntIntMap#resize(Table)}
+		 *            rules out */
+		void insert (ConcurrentIntIntMap map, int key, int value) {
+			for (int i = map.place(key, shift), probes = 0; probes <= mask; i = i + 1 & mask, probes++) {
+				int other = keys.get(i);
+				if (other == 0) {
+					if (!keys.compareAndSet(i, 0, key)) {
+						// Look at this slot again.
+						i = i - 1 & mask;
+						probes--;
+						continue;
+					}
+					claimed.incrementAndGet();
+				} else if (other != key) continue;
+				entries.set(i, entry(PRESENT, value));
+				return;
+			}
+			throw new IllegalStateException("The next table is full.");
+		}
+	}
+}
@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiFunction;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.Function;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** A map where the keys and values are objects, which can be used by many threads at once. Null keys and null values are not
+ * allowed. It is split into a power of two number of segments, each an {@link ObjectMap} with its own read-write lock; the
+ * uppermost bits of a key's Fibonacci hash choose its segment, and the bits below those place it in that segment's table, so
+ * keys spread evenly over the segments and over each segment's table. Threads working with keys in different segments never
+ * wait on each other, and any number of threads can read from the same segment at once; a write blocks other readers and
+ * writers of that segment only. Each segment grows on its own, so a resize stalls only one segment.
+ * <p>
+ * {@link #computeIfAbsent(Object, Function)}, {@link #merge(Object, Object, BiFunction)} and
+ * {@link #putIfAbsent(Object, Object)} are atomic: no other thread can change the key's entry between the lookup and the
+ * update. The functions they are given run while the key's segment is locked for writing, so they should be short and must not
+ * use this map.
+ * <p>
+ * There is no iterator; {@link #snapshot()} copies the entries into a new ObjectMap, locking one segment at a time, and the
+ * copy can be iterated in the usual way. Like {@link #size()}, a snapshot taken while other threads write may include some of
+ * their changes and not others, but each segment's part is consistent.
+ * <p>
+ * This class uses java.util.concurrent, so it is not available on GWT.
+ * @author Tommy Ettinger */
+public class ConcurrentObjectMap<K, V> {
+	final Segment<K, V>[] segments;
+	/** Shifts a Fibonacci hash right so only the bits that choose a segment remain. */
+	final int segmentShift;
+
+	/** Creates a new map with an initial capacity of 51, a load factor of 0.8, and 16 segments. */
+	public ConcurrentObjectMap () {
+		this(51, 0.8f, 16);
+	}
+
+	/** Creates a new map with a load factor of 0.8 and 16 segments.
+	 * @param initialCapacity How many items the whole map can hold before any segment should need to grow. */
+	public ConcurrentObjectMap (int initialCapacity) {
+		this(initialCapacity, 0.8f, 16);
+	}
+
+	/** Creates a new map with the specified initial capacity, load factor, and number of segments.
+	 * @param initialCapacity How many items the whole map can hold before any segment should need to grow.
+	 * @param concurrencyLevel The number of threads expected to write at once; if not a power of two, the number of segments is
+	 *           increased to the next nearest power of two. */
+	public ConcurrentObjectMap (int initialCapacity, float loadFactor, int concurrencyLevel) {
+		if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+		if (concurrencyLevel < 1 || concurrencyLevel > 1 << 16)
+			throw new IllegalArgumentException("concurrencyLevel must be >= 1 and <= 65536: " + concurrencyLevel);
+		int count = 1, bits = 0;
+		while (count < concurrencyLevel) {
+			count <<= 1;
+			bits++;
+		}
+		segmentShift = 64 - bits;
+		segments = new Segment[count];
+		int segmentCapacity = (initialCapacity + count - 1) / count;
+		for (int i = 0; i < count; i++)
+			segments[i] = new Segment<K, V>(segmentCapacity, loadFactor, bits);
+	}
+
+	/** Returns the segment for the key, using the uppermost bits of its Fibonacci hash. */
+	Segment<K, V> segmentFor (Object key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		// With one segment, segmentShift is 64, which Java treats as 0; the mask below keeps that from mattering.
+		return segments[(int)(key.hashCode() * 0x9E3779B97F4A7C15L >>> segmentShift) & segments.length - 1];
+	}
+
+	/** Returns the value for the specified key, or null if the key is not in the map. */
+	@Null
+	public V get (K key) {
+		return get(key, null);
+	}
+
+	/** Returns the value for the specified key, or the default value if the key is not in the map. */
+	public V get (K key, @Null V defaultValue) {
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+		lock.lock();
+		try {
+			int i = segment.locateKey(key);
+			return i < 0 ? defaultValue : segment.valueTable[i];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean containsKey (K key) {
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+		lock.lock();
+		try {
+			return segment.locateKey(key) >= 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the old value associated with the specified key, or null. */
+	@Null
+	public V put (K key, V value) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+		lock.lock();
+		try {
+			return segment.put(key, value);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Puts the value only if the key is not in the map. Returns the value already associated with the key, or null if the value
+	 * was put. */
+	@Null
+	public V putIfAbsent (K key, V value) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+		lock.lock();
+		try {
+			int i = segment.locateKey(key);
+			if (i >= 0) return segment.valueTable[i];
+			segment.insert(-(i + 1), key, value);
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the value for the key, first putting the result of {@code mappingFunction} for the key if the key is not in the
+	 * map. If the function returns null, nothing is put and null is returned. The key's segment is locked for writing only if
+	 * the key is missing, so lookups of keys that are present don't block other readers. */
+	@Null
+	public V computeIfAbsent (K key, Function<? super K, ? extends V> mappingFunction) {
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.ReadLock readLock = segment.lock.readLock();
+		readLock.lock();
+		try {
+			int i = segment.locateKey(key);
+			if (i >= 0) return segment.valueTable[i];
+		} finally {
+			readLock.unlock();
+		}
+		ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+		lock.lock();
+		try {
+			// Another thread may have put the key between the locks.
+			int i = segment.locateKey(key);
+			if (i >= 0) return segment.valueTable[i];
+			V value = mappingFunction.apply(key);
+			if (value != null) segment.insert(-(i + 1), key, value);
+			return value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with the result of
+	 * {@code remappingFunction.apply(oldValue, value)}, removing the key if that is null. Returns the key's new value, or null if
+	 * it was removed. */
+	@Null
+	public V merge (K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+		lock.lock();
+		try {
+			int i = segment.locateKey(key);
+			if (i < 0) {
+				segment.insert(-(i + 1), key, value);
+				return value;
+			}
+			V newValue = remappingFunction.apply(segment.valueTable[i], value);
+			if (newValue == null)
+				segment.removeAt(i);
+			else
+				segment.valueTable[i] = newValue;
+			return newValue;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the value that was associated with the key, or null if the key was not in the map. */
+	@Null
+	public V remove (K key) {
+		Segment<K, V> segment = segmentFor(key);
+		ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+		lock.lock();
+		try {
+			return segment.remove(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Removes every entry for which the predicate returns true, one segment at a time while holding that segment's write lock,
+	 * and returns true if any were removed. Each segment is swept once, as in {@link ObjectMap#removeIf(BiPredicate)}. The
+	 * predicate must not use this map, which would deadlock on the lock this holds. */
+	public boolean removeIf (BiPredicate<? super K, ? super V> predicate) {
+		boolean removed = false;
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+			lock.lock();
+			try {
+				removed |= segment.removeIf(predicate);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return removed;
+	}
+
+	/** Returns the number of entries, adding up the segments one at a time. If other threads are writing, the result may not
+	 * match the size of the map at any single moment. */
+	public int size () {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+			lock.lock();
+			try {
+				size += segment.size;
+			} finally {
+				lock.unlock();
+			}
+		}
+		return size;
+	}
+
+	/** Returns true if no segment has any entries. */
+	public boolean isEmpty () {
+		return size() == 0;
+	}
+
+	/** Clears each segment in turn. */
+	public void clear () {
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.WriteLock lock = segment.lock.writeLock();
+			lock.lock();
+			try {
+				segment.clear();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/** Returns a new ObjectMap holding the entries of this map, copied one segment at a time. */
+	public ObjectMap<K, V> snapshot () {
+		ObjectMap<K, V> map = new ObjectMap<K, V>(size());
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+			lock.lock();
+			try {
+				map.putAll(segment);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return map;
+	}
+
+	/** Calls {@code consumer} with each key and value, one segment at a time while holding that segment's read lock. Entries
+	 * added or removed by other threads while this runs may or may not be seen. The consumer must not change this map, which
+	 * would deadlock on the lock this holds. */
+	public void forEach (BiConsumer<? super K, ? super V> consumer) {
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+			lock.lock();
+			try {
+				segment.forEach(consumer);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/** Returns the number of segments, which is a power of two. */
+	public int segmentCount () {
+		return segments.length;
+	}
+
+	/** Returns the sum of the memory estimates of all segments, each taken while that segment is locked. */
+	public MemoryStats memoryStats () {
+		MemoryStats stats = new MemoryStats(0, 0);
+		for (Segment<K, V> segment : segments) {
+			ReentrantReadWriteLock.ReadLock lock = segment.lock.readLock();
+			lock.lock();
+			try {
+				stats.add(segment.memoryStats());
+			} finally {
+				lock.unlock();
+			}
+		}
+		stats.extraBytes += MemoryStats.array(segments.length, MemoryStats.REFERENCE_BYTES);
+		return stats;
+	}
+
+	public String toString () {
+		return snapshot().toString();
+	}
+
+	/** One independently locked part of a ConcurrentObjectMap. */
+	static class Segment<K, V> extends ObjectMap<K, V> {
+		final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+		/** How many of the uppermost hash bits choose the segment; these are the same for every key in this segment. */
+		final int segmentBits;
+
+		Segment (int initialCapacity, float loadFactor, int segmentBits) {
+			super(initialCapacity, loadFactor);
+			this.segmentBits = segmentBits;
+		}
+
+		/** Skips the bits that chose this segment, which would otherwise crowd every key into a fraction of the table. */
+		protected int place (K item) {
+			return (int)(item.hashCode() * 0x9E3779B97F4A7C15L << segmentBits >>> shift);
+		}
+	}
+}
@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiPredicate;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** An immutable map where the keys and values are objects, built once from an {@link ObjectMap} with
+ * {@link ObjectMap#freeze()} and then only read. Null keys are not allowed. It has the read methods of ObjectMap, and iterators
+ * that don't support remove.
+ * <p>
+ * Keys are placed with a minimal perfect hash, built with the hash-and-displace method of CHD (Belazzougui, Botelho and
+ * Dietzfelbinger): the keys are split into buckets of about 4 by their hashCode(), and each bucket gets a seed that sends all of
+ * its keys to distinct free slots. Buckets with a single key point straight at a free slot instead. The table has exactly one
+ * slot per key, so there are no empty slots and no load factor, and {@link #get(Object)} reads one bucket seed, then checks one
+ * slot with one call to {@link Object#equals(Object)}.
+ * <p>
+ * Keys with the same hashCode() can't be told apart by any seed, so all but one of each such group are kept in a list after
+ * the hashed slots, which is only scanned when the hashed slot doesn't hold the key being looked up. Keys with good hashCode()
+ * methods rarely collide like that, but if many keys share a hashCode(), lookups for them are slow.
+ * <p>
+ * Building one takes time proportional to the number of keys, but is several times slower than filling an ObjectMap, so this
+ * is meant for maps that are read far more often than they are built.
+ * @author Tommy Ettinger */
+public class FrozenObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
+	/** The average number of keys per bucket. */
+	static private final int BUCKET_SIZE = 4;
+
+	public final int size;
+
+	final K[] keyTable;
+	final V[] valueTable;
+	/** For each bucket, the seed for {@link #slot(int, int, int)}, or the bitwise NOT of the slot of a bucket with one key. */
+	final int[] seeds;
+	/** The number of slots placed by the hash; the slots after them hold the keys that share a hashCode() with another. */
+	final int hashed;
+
+	private Entries entries1, entries2;
+	private Values values1, values2;
+	private Keys keys1, keys2;
+
+	/** Creates a frozen map with the same entries as the specified map. Keys are compared with equals(), even if the specified
+	 * map compares them some other way. */
+	public FrozenObjectMap (ObjectMap<? extends K, ? extends V> map) {
+		int n = map.size;
+		size = n;
+		keyTable = (K[])new Object[n];
+		valueTable = (V[])new Object[n];
+		Object[] keys = new Object[n], values = new Object[n];
+		int[] hashes = new int[n];
+		int k = 0;
+		for (ObjectMap.Entry<? extends K, ? extends V> entry : map.entries()) {
+			keys[k] = entry.key;
+			values[k] = entry.value;
+			hashes[k++] = entry.key.hashCode();
+		}
+
+		// Find the keys that share a hashCode() with an earlier key; they go in the list at the end.
+		long[] sorted = new long[n];
+		for (int i = 0; i < n; i++)
+			sorted[i] = (long)hashes[i] << 32 | i;
+		Arrays.sort(sorted);
+		boolean[] listed = new boolean[n];
+		int listCount = 0;
+		for (int i = 1; i < n; i++) {
+			if (sorted[i] >>> 32 == sorted[i - 1] >>> 32) {
+				listed[(int)sorted[i]] = true;
+				listCount++;
+			}
+		}
+		int m = n - listCount;
+		hashed = m;
+		for (int i = 0, slot = m; i < n; i++) {
+			if (listed[i]) {
+				keyTable[slot] = (K)keys[i];
+				valueTable[slot++] = (V)values[i];
+			}
+		}
+
+		int bucketCount = Math.max(1, (m + BUCKET_SIZE - 1) / BUCKET_SIZE);
+		seeds = new int[bucketCount];
+		// Group the hashed keys by bucket with a counting sort.
+		int[] starts = new int[bucketCount + 1];
+		for (int i = 0; i < n; i++)
+			if (!listed[i]) starts[bucket(hashes[i], bucketCount) + 1]++;
+		int largest = 0;
+		for (int b = 0; b < bucketCount; b++) {
+			largest = Math.max(largest, starts[b + 1]);
+			starts[b + 1] += starts[b];
+		}
+		int[] members = new int[m], filled = new int[bucketCount];
+		for (int i = 0; i < n; i++) {
+			if (listed[i]) continue;
+			int b = bucket(hashes[i], bucketCount);
+			members[starts[b] + filled[b]++] = i;
+		}
+
+		// Larger buckets are harder to place, so they go first, while most slots are free.
+		int[] bySize = new int[bucketCount], sizeStarts = new int[largest + 2];
+		for (int b = 0; b < bucketCount; b++)
+			sizeStarts[largest - (starts[b + 1] - starts[b]) + 1]++;
+		for (int s = 0; s <= largest; s++)
+			sizeStarts[s + 1] += sizeStarts[s];
+		for (int b = 0; b < bucketCount; b++)
+			bySize[sizeStarts[largest - (starts[b + 1] - starts[b])]++] = b;
+
+		boolean[] taken = new boolean[m];
+		int[] slots = new int[largest];
+		int nextFree = 0;
+		for (int b : bySize) {
+			int start = starts[b], count = starts[b + 1] - start;
+			if (count == 0) break; // Empty buckets come last, and keep a seed of 0.
+			if (count == 1) {
+				while (taken[nextFree])
+					nextFree++;
+				taken[nextFree] = true;
+				seeds[b] = ~nextFree;
+				keyTable[nextFree] = (K)keys[members[start]];
+				valueTable[nextFree] = (V)values[members[start]];
+				continue;
+			}
+			int seed = 0;
+			search:
+			for (;; seed++) {
+				if (seed < 0) throw new GdxRuntimeException("No seed places this bucket; a hashCode() may be inconsistent.");
+				for (int j = 0; j < count; j++) {
+					int slot = slot(hashes[members[start + j]], seed, m);
+					if (taken[slot]) {
+						while (--j >= 0)
+							taken[slots[j]] = false;
+						continue search;
+					}
+					taken[slot] = true;
+					slots[j] = slot;
+				}
+				break;
+			}
+			seeds[b] = seed;
+			for (int j = 0; j < count; j++) {
+				keyTable[slots[j]] = (K)keys[members[start + j]];
+				valueTable[slots[j]] = (V)values[members[start + j]];
+			}
+		}
+	}
+
+	static private int bucket (int hash, int bucketCount) {
+		return (int)((hash * 0x9E3779B97F4A7C15L >>> 32) * bucketCount >>> 32);
+	}
+
+	static private int slot (int hash, int seed, int slots) {
+		long z = (hash ^ (long)seed << 32) * 0xD1B54A32D192ED03L;
+		z = (z ^ z >>> 31) * 0xBF58476D1CE4E5B9L;
+		return (int)((z >>> 32) * slots >>> 32);
+	}
+
+	/** Returns the index of the key, or -1 if it is not in the map. */
+	int locateKey (K key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hash = key.hashCode();
+		if (hashed > 0) {
+			int seed = seeds[bucket(hash, seeds.length)];
+			int i = seed < 0 ? ~seed : slot(hash, seed, hashed);
+			if (keyTable[i].equals(key)) return i;
+		}
+		for (int i = hashed, n = size; i < n; i++)
+			if (keyTable[i].equals(key)) return i;
+		return -1;
+	}
+
+	/** Returns the value for the specified key, or null if the key is not in the map. */
+	@Null
+	public <T extends K> V get (T key) {
+		int i = locateKey(key);
+		return i < 0 ? null : valueTable[i];
+	}
+
+	/** Returns the value for the specified key, or the default value if the key is not in the map. */
+	public V get (K key, @Null V defaultValue) {
+		int i = locateKey(key);
+		return i < 0 ? defaultValue : valueTable[i];
+	}
+
+	public boolean containsKey (K key) {
+		return locateKey(key) >= 0;
+	}
+
+	/** Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+	 * be an expensive operation.
+	 * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+	 *           {@link #equals(Object)}. */
+	public boolean containsValue (@Null Object value, boolean identity) {
+		return findIndex(value, identity) >= 0;
+	}
+
+	/** Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
+	 * every value, which may be an expensive operation.
+	 * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+	 *           {@link #equals(Object)}. */
+	@Null
+	public K findKey (@Null Object value, boolean identity) {
+		int i = findIndex(value, identity);
+		return i < 0 ? null : keyTable[i];
+	}
+
+	private int findIndex (@Null Object value, boolean identity) {
+		V[] valueTable = this.valueTable;
+		if (value == null || identity) {
+			for (int i = valueTable.length - 1; i >= 0; i--)
+				if (valueTable[i] == value) return i;
+		} else {
+			for (int i = valueTable.length - 1; i >= 0; i--)
+				if (value.equals(valueTable[i])) return i;
+		}
+		return -1;
+	}
+
+	/** Returns true if the map has one or more items. */
+	public boolean notEmpty () {
+		return size > 0;
+	}
+
+	/** Returns true if the map is empty. */
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can be
+	 * nested and never allocates. */
+	public void forEach (BiConsumer<? super K, ? super V> consumer) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			consumer.accept(keyTable[i], valueTable[i]);
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false. Returns
+	 * false if it stopped early, or true if the predicate returned true for every entry. */
+	public boolean forEachWhile (BiPredicate<? super K, ? super V> predicate) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (!predicate.test(keyTable[i], valueTable[i])) return false;
+		return true;
+	}
+
+	/** Returns an estimate of the memory retained by this map's arrays and cached iterators. There are no empty slots. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(size, size).keys(MemoryStats.REFERENCE_BYTES).values(MemoryStats.REFERENCE_BYTES)
+			.extra(MemoryStats.array(seeds.length, 4)).iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	public int hashCode () {
+		int h = size;
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			h += keyTable[i].hashCode();
+			V value = valueTable[i];
+			if (value != null) h += value.hashCode();
+		}
+		return h;
+	}
+
+	public boolean equals (Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof FrozenObjectMap)) return false;
+		FrozenObjectMap other = (FrozenObjectMap)obj;
+		if (other.size != size) return false;
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int o = other.locateKey(keyTable[i]);
+			if (o < 0) return false;
+			V value = valueTable[i];
+			if (value == null ? other.valueTable[o] != null : !value.equals(other.valueTable[o])) return false;
+		}
+		return true;
+	}
+
+	public String toString (String separator) {
+		return toString(separator, false);
+	}
+
+	public String toString () {
+		return toString(", ", true);
+	}
+
+	protected String toString (String separator, boolean braces) {
+		if (size == 0) return braces ? "{}" : "";
+		java.lang.StringBuilder buffer = new java.lang.StringBuilder(32);
+		if (braces) buffer.append('{');
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			if (i > 0) buffer.append(separator);
+			K key = keyTable[i];
+			buffer.append(key == this ? "(this)" : key);
+			buffer.append('=');
+			V value = valueTable[i];
+			buffer.append(value == this ? "(this)" : value);
+		}
+		if (braces) buffer.append('}');
+		return buffer.toString();
+	}
+
+	public Entries<K, V> iterator () {
+		return entries();
+	}
+
+	/** Returns an iterator for the entries in the map. Note that the same iterator instance is returned each time this method is
+	 * called. Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Entries<K, V> entries () {
+		if (entries1 == null) {
+			entries1 = new Entries(this);
+			entries2 = new Entries(this);
+		}
+		if (!entries1.valid) {
+			entries1.reset();
+			entries1.valid = true;
+			entries2.valid = false;
+			return entries1;
+		}
+		entries2.reset();
+		entries2.valid = true;
+		entries1.valid = false;
+		return entries2;
+	}
+
+	/** Returns an iterator for the values in the map. Note that the same iterator instance is returned each time this method is
+	 * called. Use the {@link Values} constructor for nested or multithreaded iteration. */
+	public Values<V> values () {
+		if (values1 == null) {
+			values1 = new Values(this);
+			values2 = new Values(this);
+		}
+		if (!values1.valid) {
+			values1.reset();
+			values1.valid = true;
+			values2.valid = false;
+			return values1;
+		}
+		values2.reset();
+		values2.valid = true;
+		values1.valid = false;
+		return values2;
+	}
+
+	/** Returns an iterator for the keys in the map. Note that the same iterator instance is returned each time this method is
+	 * called. Use the {@link Keys} constructor for nested or multithreaded iteration. */
+	public Keys<K> keys () {
+		if (keys1 == null) {
+			keys1 = new Keys(this);
+			keys2 = new Keys(this);
+		}
+		if (!keys1.valid) {
+			keys1.reset();
+			keys1.valid = true;
+			keys2.valid = false;
+			return keys1;
+		}
+		keys2.reset();
+		keys2.valid = true;
+		keys1.valid = false;
+		return keys2;
+	}
+
+	static private abstract class MapIterator<K, V, I> implements Iterable<I>, Iterator<I> {
+		public boolean hasNext;
+
+		final FrozenObjectMap<K, V> map;
+		int nextIndex;
+		boolean valid = true;
+
+		public MapIterator (FrozenObjectMap<K, V> map) {
+			this.map = map;
+			reset();
+		}
+
+		public void reset () {
+			nextIndex = 0;
+			hasNext = map.size > 0;
+		}
+
+		public boolean hasNext () {
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			return hasNext;
+		}
+
+		/** Returns the index of the next item, and advances. */
+		int advance () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			int i = nextIndex++;
+			hasNext = nextIndex < map.size;
+			return i;
+		}
+
+		/** Always throws; the map can't be changed. */
+		public void remove () {
+			throw new UnsupportedOperationException("FrozenObjectMap can't be changed.");
+		}
+	}
+
+	static public class Entries<K, V> extends MapIterator<K, V, ObjectMap.Entry<K, V>> {
+		ObjectMap.Entry<K, V> entry = new ObjectMap.Entry<K, V>();
+
+		public Entries (FrozenObjectMap<K, V> map) {
+			super(map);
+		}
+
+		/** Note the same entry instance is returned each time this method is called. */
+		public ObjectMap.Entry<K, V> next () {
+			int i = advance();
+			entry.key = map.keyTable[i];
+			entry.value = map.valueTable[i];
+			return entry;
+		}
+
+		public Entries<K, V> iterator () {
+			return this;
+		}
+	}
+
+	static public class Values<V> extends MapIterator<Object, V, V> {
+		public Values (FrozenObjectMap<?, V> map) {
+			super((FrozenObjectMap<Object, V>)map);
+		}
+
+		@Null
+		public V next () {
+			return map.valueTable[advance()];
+		}
+
+		public Values<V> iterator () {
+			return this;
+		}
+
+		/** Returns a new array containing the remaining values. */
+		public Array<V> toArray () {
+			return toArray(new Array(true, map.size));
+		}
+
+		/** Adds the remaining values to the specified array. */
+		public Array<V> toArray (Array<V> array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+
+	static public class Keys<K> extends MapIterator<K, Object, K> {
+		public Keys (FrozenObjectMap<K, ?> map) {
+			super((FrozenObjectMap<K, Object>)map);
+		}
+
+		public K next () {
+			return map.keyTable[advance()];
+		}
+
+		public Keys<K> iterator () {
+			return this;
+		}
+
+		/** Returns a new array containing the remaining keys. */
+		public Array<K> toArray () {
+			return toArray(new Array<K>(true, map.size));
+		}
+
+		/** Adds the remaining keys to the array. */
+		public Array<K> toArray (Array<K> array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/** An unordered map where the keys and values are objects, which is meant for keys that may be chosen by an attacker, such as
+ * Strings received by a server. Null keys are not allowed. No allocation is done except when growing or rehashing the table.
+ * <p>
+ * An {@link ObjectMap} always mixes hashCodes with the same constant, so someone who knows it can pick keys that all land in
+ * one long cluster, making every operation on the map take linear time. This map draws a random odd multiplier when it is
+ * created and again each time it resizes, so placement can't be predicted from outside. That doesn't help when the keys have
+ * identical hashCodes, which is easy to arrange for Strings, so this map also counts probes in each lookup; when one needs more
+ * than {@link #probeLimit()} probes, the map switches to a stronger hash and rehashes once. The stronger hash reads the chars of
+ * {@link CharSequence} keys directly, mixed with a random seed, ignoring their hashCode(); for other keys it can only mix
+ * their hashCode() with the seed, so keys whose class lets an attacker choose identical hashCodes still collide. Such keys
+ * should be wrapped in a class with a better hashCode(), or keyed by a String form.
+ * <p>
+ * Because a lookup can trigger the one-time rehash, {@link #get(Object)} and {@link #containsKey(Object)} may rearrange the
+ * table; they shouldn't be called while iterating over this map with an iterator that will be used afterwards. Iteration order
+ * differs between instances, even with the same keys. The stronger hash is slower than {@link String#hashCode()} (which
+ * String caches), so this map is somewhat slower than an ObjectMap in the common case where no attack is happening.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Load factors greater than 0.91 greatly increase the chances to resize to the
+ * next higher POT size.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal.
+ * @author Tommy Ettinger */
+public class HardenedMap<K, V> extends ObjectMap<K, V> {
+	/** A random odd number that hashCodes are multiplied by in {@link #place(Object)}. Redrawn on every resize. */
+	long multiplier;
+	/** Draws {@link #multiplier} and {@link #seed}. Each map has its own, seeded differently, so no generator is shared between
+	 * threads and one map's draws say nothing about another's. */
+	final RandomXS128 random = new RandomXS128();
+	/** Mixed into every key by the stronger hash. Redrawn on every resize. */
+	long seed;
+	/** True once a lookup has needed more than {@link #probeLimit()} probes. */
+	boolean strong;
+	/** Recomputed on every resize; see {@link #probeLimit()}. */
+	int probeLimit;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public HardenedMap () {
+		super();
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public HardenedMap (int initialCapacity) {
+		super(initialCapacity);
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public HardenedMap (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new map identical to the specified map. The new map shares the placement of the specified map until it resizes. */
+	public HardenedMap (HardenedMap<? extends K, ? extends V> map) {
+		super(map);
+		multiplier = map.multiplier;
+		seed = map.seed;
+		strong = map.strong;
+		probeLimit = map.probeLimit;
+	}
+
+	void reseed (int tableSize) {
+		multiplier = random.nextLong() | 1L;
+		seed = random.nextLong();
+		// With random placement, the longest probe in a table grows like log(size) / (a - 1 - log(a)) for load factor a.
+		probeLimit = Math.max(64, (int)(Math.log(tableSize) / (loadFactor - 1 - Math.log(loadFactor))));
+	}
+
+	/** Returns true if this map has switched to the stronger hash because a lookup needed too many probes. */
+	public boolean isStrong () {
+		return strong;
+	}
+
+	/** Returns how many probes a lookup can take before this map switches to the stronger hash. This depends on the table size and
+	 * load factor; it is the natural log of the table size divided by {@code a - 1 - log(a)} for load factor {@code a}, but at
+	 * least 64. That is about twice the longest probe seen with well-spread hashCodes, so the switch only happens when many keys
+	 * share a placement. At the default load factor, this is around 300 for a table of 1000 slots and 600 for a million slots;
+	 * lower load factors give much lower limits. */
+	public int probeLimit () {
+		return probeLimit;
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}, using
+	 * the random multiplier of this map on the item's hashCode, or on the stronger hash once {@link #isStrong()} is true, then
+	 * mixing the high bits into the low ones and finishing with Fibonacci hashing. */
+	protected int place (K item) {
+		long z = (strong ? strongHash(item, seed) : item.hashCode()) * multiplier;
+		// Multiplying by a random odd number alone leaves some multipliers that pile up keys with nearby hashCodes.
+		return (int)((z ^ z >>> 29) * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	/** Only used while the map isn't using its strong hash. */
+	protected int placeHash (int hashCode) {
+		long z = hashCode * multiplier;
+		return (int)((z ^ z >>> 29) * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	/** Once the map switches to its strong hash, which isn't derived from {@link String#hashCode()}, this has to allocate a String
+	 * of the chars and look that up. */
+	int locateChars (@Null CharSequence sequence, @Null char[] array, int start, int end, int hashCode) {
+		if (!strong) return super.locateChars(sequence, array, start, end, hashCode);
+		String key = array != null ? new String(array, start, end - start) : sequence.subSequence(start, end).toString();
+		return locateKey((K)key);
+	}
+
+	int locateKey (K key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		K[] keyTable = this.keyTable;
+		int limit = strong ? -1 : probeLimit;
+		for (int i = place(key), probes = 0;; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (other.equals(key)) return i; // Same key was found.
+			if (++probes == limit) { // Keys are piling up; rehash with the stronger hash and look again.
+				strong = true;
+				resize(keyTable.length);
+				return locateKey(key);
+			}
+		}
+	}
+
+	void resize (int newSize) {
+		reseed(newSize);
+		super.resize(newSize);
+	}
+
+	/** Hashes the chars of a {@link CharSequence} together with {@code seed}, or mixes the hashCode of any other item with it. */
+	static int strongHash (Object item, long seed) {
+		long h;
+		if (item instanceof CharSequence) {
+			CharSequence cs = (CharSequence)item;
+			int length = cs.length();
+			h = seed ^ length;
+			for (int i = 0; i < length; i++) {
+				h = (h + cs.charAt(i)) * 0xD1B54A32D192ED03L;
+				h ^= h >>> 29 ^ seed;
+			}
+		} else
+			h = (item.hashCode() ^ seed) * 0xD1B54A32D192ED03L;
+		h = (h ^ h >>> 32) * 0xAEF17502108EF2D9L;
+		return (int)(h ^ h >>> 29);
+	}
+}
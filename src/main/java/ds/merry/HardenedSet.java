@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import com.badlogic.gdx.math.RandomXS128;
+
+/** An unordered set where the keys are objects, which is meant for keys that may be chosen by an attacker, such as Strings
+ * received by a server. Null keys are not allowed. No allocation is done except when growing or rehashing the table.
+ * <p>
+ * This set draws a random odd multiplier for placement when it is created and on every resize, and switches to a stronger,
+ * seeded hash (reading the chars of {@link CharSequence} keys directly) once a lookup needs more than {@link #probeLimit()}
+ * probes. See {@link HardenedMap} for details and limits; the same caveats apply here, including that {@link #contains(Object)}
+ * may rehash the table once.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Load factors greater than 0.91 greatly increase the chances to resize to the
+ * next higher POT size.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal.
+ * @author Tommy Ettinger */
+public class HardenedSet<T> extends ObjectSet<T> {
+	/** A random odd number that hashCodes are multiplied by in {@link #place(Object)}. Redrawn on every resize. */
+	long multiplier;
+	/** Draws {@link #multiplier} and {@link #seed}. Each set has its own, seeded differently, so no generator is shared between
+	 * threads and one set's draws say nothing about another's. */
+	final RandomXS128 random = new RandomXS128();
+	/** Mixed into every key by the stronger hash. Redrawn on every resize. */
+	long seed;
+	/** True once a lookup has needed more than {@link #probeLimit()} probes. */
+	boolean strong;
+	/** Recomputed on every resize; see {@link #probeLimit()}. */
+	int probeLimit;
+
+	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
+	public HardenedSet () {
+		super();
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new set with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public HardenedSet (int initialCapacity) {
+		super(initialCapacity);
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public HardenedSet (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		reseed(keyTable.length);
+	}
+
+	/** Creates a new set identical to the specified set. The new set shares the placement of the specified set until it resizes. */
+	public HardenedSet (HardenedSet<? extends T> set) {
+		super(set);
+		multiplier = set.multiplier;
+		seed = set.seed;
+		strong = set.strong;
+		probeLimit = set.probeLimit;
+	}
+
+	void reseed (int tableSize) {
+		multiplier = random.nextLong() | 1L;
+		seed = random.nextLong();
+		// With random placement, the longest probe in a table grows like log(size) / (a - 1 - log(a)) for load factor a.
+		probeLimit = Math.max(64, (int)(Math.log(tableSize) / (loadFactor - 1 - Math.log(loadFactor))));
+	}
+
+	/** Returns true if this set has switched to the stronger hash because a lookup needed too many probes. */
+	public boolean isStrong () {
+		return strong;
+	}
+
+	/** Returns how many probes a lookup can take before this set switches to the stronger hash; see
+	 * {@link HardenedMap#probeLimit()}. */
+	public int probeLimit () {
+		return probeLimit;
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}, using
+	 * the random multiplier of this set on the item's hashCode, or on the stronger hash once {@link #isStrong()} is true, then
+	 * mixing the high bits into the low ones and finishing with Fibonacci hashing. */
+	protected int place (T item) {
+		long z = (strong ? HardenedMap.strongHash(item, seed) : item.hashCode()) * multiplier;
+		// Multiplying by a random odd number alone leaves some multipliers that pile up keys with nearby hashCodes.
+		return (int)((z ^ z >>> 29) * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	int locateKey (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		T[] keyTable = this.keyTable;
+		int limit = strong ? -1 : probeLimit;
+		for (int i = place(key), probes = 0;; i = i + 1 & mask) {
+			T other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (other.equals(key)) return i; // Same key was found.
+			if (++probes == limit) { // Keys are piling up; rehash with the stronger hash and look again.
+				strong = true;
+				resize(keyTable.length);
+				return locateKey(key);
+			}
+		}
+	}
+
+	void resize (int newSize) {
+		reseed(newSize);
+		super.resize(newSize);
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+/** A snapshot of how keys are laid out in the table of one of the linear-probing maps or sets, as returned by their
+ * {@code hashStats()} methods. The probe distance of a key is how many slots it sits past the index {@code place()} gave it;
+ * a key that landed where it was placed has distance 0, and a lookup for it checks {@code distance + 1} slots. A cluster is a
+ * run of occupied slots with no empty slot between them, possibly wrapping from the end of the table to the start; a miss that
+ * starts in a cluster has to scan to its end.
+ * <p>
+ * Keys that are stored outside the table, such as the 0 key of the int-keyed maps, are not counted here.
+ * <p>
+ * A table with a good {@code place()} for its keys has a mean probe distance well under 1 and a longest cluster of a few dozen
+ * slots at most, even at high load factors. A max probe distance or longest cluster that grows with the size usually means
+ * many keys share their hashCode() or their placement, and a custom {@code place()} (or other keys) would help.
+ * @author Tommy Ettinger */
+public class HashStats {
+	/** The length of the table, including empty slots. */
+	public int capacity;
+	/** How many keys are in the table. */
+	public int size;
+	/** The average probe distance of all keys in the table, or 0 if it is empty. */
+	public double meanProbe;
+	/** The largest probe distance of any key in the table. */
+	public int maxProbe;
+	/** How many clusters of occupied slots the table has. */
+	public int clusters;
+	/** The number of slots in the longest cluster. */
+	public int longestCluster;
+	/** Index {@code d} holds the number of keys with probe distance {@code d}; the length is {@link #maxProbe} + 1. */
+	public int[] histogram;
+
+	private long totalProbe;
+	private int run, firstRun;
+	private boolean sawEmpty;
+
+	HashStats (int capacity) {
+		this.capacity = capacity;
+		histogram = new int[8];
+	}
+
+	/** Returns {@link #size} divided by {@link #capacity}, which will be at most the load factor of the table. */
+	public float occupancy () {
+		return capacity == 0 ? 0f : size / (float)capacity;
+	}
+
+	/** Called for each occupied slot, in table order. */
+	void add (int distance) {
+		size++;
+		totalProbe += distance;
+		if (distance > maxProbe) maxProbe = distance;
+		if (distance >= histogram.length) {
+			int[] larger = new int[Math.max(histogram.length << 1, distance + 1)];
+			System.arraycopy(histogram, 0, larger, 0, histogram.length);
+			histogram = larger;
+		}
+		histogram[distance]++;
+		if (!sawEmpty) firstRun++;
+		run++;
+	}
+
+	/** Called for each empty slot, in table order. */
+	void empty () {
+		if (sawEmpty && run > 0) endCluster(run);
+		sawEmpty = true;
+		run = 0;
+	}
+
+	HashStats finish () {
+		// The run at the start of the table isn't closed until we know if the run at the end wraps around into it.
+		if (!sawEmpty)
+			endCluster(run);
+		else if (run + firstRun > 0) endCluster(run + firstRun);
+		meanProbe = size == 0 ? 0.0 : totalProbe / (double)size;
+		int[] trimmed = new int[maxProbe + 1];
+		System.arraycopy(histogram, 0, trimmed, 0, trimmed.length);
+		histogram = trimmed;
+		return this;
+	}
+
+	private void endCluster (int length) {
+		if (length == 0) return;
+		clusters++;
+		if (length > longestCluster) longestCluster = length;
+	}
+
+	public String toString () {
+		return "HashStats{size=" + size + ", capacity=" + capacity + ", occupancy=" + occupancy() + ", meanProbe=" + meanProbe
+			+ ", maxProbe=" + maxProbe + ", clusters=" + clusters + ", longestCluster=" + longestCluster + '}';
+	}
+}
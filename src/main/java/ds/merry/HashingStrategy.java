@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import java.util.Arrays;
+
+/** Decides how keys are hashed and compared, in place of their own {@link Object#hashCode()} and
+ * {@link Object#equals(Object)}. {@link ObjectMap}, {@link ObjectSet}, {@link OrderedMap}, {@link OrderedSet},
+ * {@link ObjectIntMap} and {@link ObjectFloatMap} can be given one when they are created, which lets them use keys that
+ * don't define equality the way it is needed, such as arrays, without a subclass for each combination. Keys that are equal
+ * by {@link #equals(Object, Object)} must have the same {@link #hash(Object)}. The strategy is used for hashing every key,
+ * so it should be fast and give well-spread hashes.
+ * @author Tommy Ettinger */
+public interface HashingStrategy<K> {
+	int hash (K item);
+
+	boolean equals (K a, K b);
+
+	/** Compares keys by identity, as {@link IdentityMap} does. */
+	HashingStrategy<Object> IDENTITY = new HashingStrategy<Object>() {
+		public int hash (Object item) {
+			return System.identityHashCode(item);
+		}
+
+		public boolean equals (Object a, Object b) {
+			return a == b;
+		}
+	};
+
+	/** Compares int arrays by their contents. The arrays must not be changed while they are keys. */
+	HashingStrategy<int[]> INT_ARRAY = new HashingStrategy<int[]>() {
+		public int hash (int[] item) {
+			return Arrays.hashCode(item);
+		}
+
+		public boolean equals (int[] a, int[] b) {
+			return Arrays.equals(a, b);
+		}
+	};
+
+	/** Compares char arrays by their contents. The arrays must not be changed while they are keys. */
+	HashingStrategy<char[]> CHAR_ARRAY = new HashingStrategy<char[]>() {
+		public int hash (char[] item) {
+			return Arrays.hashCode(item);
+		}
+
+		public boolean equals (char[] a, char[] b) {
+			return Arrays.equals(a, b);
+		}
+	};
+
+	/** Compares Strings and other CharSequences by their chars, ignoring case the same way
+	 * {@link String#equalsIgnoreCase(String)} does. A String and a StringBuilder with the same chars are equal. */
+	HashingStrategy<CharSequence> IGNORE_CASE = new HashingStrategy<CharSequence>() {
+		public int hash (CharSequence item) {
+			int h = 0;
+			for (int i = 0, n = item.length(); i < n; i++)
+				h = 31 * h + Character.toLowerCase(Character.toUpperCase(item.charAt(i)));
+			return h;
+		}
+
+		public boolean equals (CharSequence a, CharSequence b) {
+			int n = a.length();
+			if (b.length() != n) return false;
+			for (int i = 0; i < n; i++) {
+				char c = a.charAt(i), d = b.charAt(i);
+				if (c == d) continue;
+				c = Character.toUpperCase(c);
+				d = Character.toUpperCase(d);
+				if (c != d && Character.toLowerCase(c) != Character.toLowerCase(d)) return false;
+			}
+			return true;
+		}
+	};
+}
@@ -70,6 +70,25 @@ public class IdentityMap<K, V> extends ObjectMap<K, V> {
 		}
 	}
 
+	int locateFrom (K key, int i) {
+		K[] keyTable = this.keyTable;
+		for (;; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (other == key) return i; // Same key was found.
+		}
+	}
+
+	/** Always throws; a range of chars can't be identical to any key. */
+	int locateChars (@Null CharSequence sequence, @Null char[] array, int start, int end, int hashCode) {
+		throw new UnsupportedOperationException("IdentityMap can't be searched by chars.");
+	}
+
+	/** Always throws; a {@link FrozenObjectMap} compares keys with equals() rather than identity. */
+	public FrozenObjectMap<K, V> freeze () {
+		throw new UnsupportedOperationException("IdentityMap can't be frozen.");
+	}
+
 	public int hashCode () {
 		int h = size;
 		K[] keyTable = this.keyTable;
@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiFunction;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.Function;
+
+import static ds.merry.ObjectSet.checkBatch;
+import static ds.merry.ObjectSet.newOccupancy;
+
+/** An unordered map where the keys and values are objects, which grows its table a little at a time instead of all at once.
+ * Null keys are not allowed. No allocation is done except when growing the table size.
+ * <p>
+ * When a put makes an {@link ObjectMap} reach its threshold, that put allocates a table twice as large and moves every entry into
+ * it, which can take many milliseconds for a map with millions of entries. When this map reaches its threshold, it allocates the
+ * larger table but leaves the entries in the old one; each later {@link #put(Object, Object)}, {@link #get(Object)},
+ * {@link #containsKey(Object)} and {@link #remove(Object)} moves the entries in the next few slots of the old table (at least
+ * 16, more with a low load factor) into the new table, so no single call does much more work than usual. New keys always go in
+ * the new table, and lookups check the new table then the old one until the old one is empty and discarded. The old table is
+ * emptied well before the new table can fill up.
+ * <p>
+ * Entries are moved starting from an empty slot and walking backward through the old table, so the entry being moved is always
+ * the last one in its cluster; removing it can't cut off any other key from its placement, and the keys left in the old table
+ * can still be found the usual way.
+ * <p>
+ * Operations that look at every entry finish any resize in progress first, all at once: iteration, {@link #putAll(ObjectMap)},
+ * {@link #ensureCapacity(int)}, {@link #shrink(int)}, {@link #containsValue(Object, boolean)},
+ * {@link #findKey(Object, boolean)}, {@link #hashStats()}, equals(), hashCode() and toString(). Iterators should be obtained
+ * from {@link #entries()}, {@link #values()} or {@link #keys()} rather than their constructors, which don't know to do that.
+ * Because lookups move entries, a get() can change the table, though not the contents of the map. Lookups for missing keys
+ * are slower while a resize is in progress, since they probe both tables.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class IncrementalMap<K, V> extends ObjectMap<K, V> {
+	/** The table being emptied into {@link #keyTable}, or null if no resize is in progress. */
+	K[] oldKeyTable;
+	V[] oldValueTable;
+	int oldMask, oldShift;
+	/** The next index in the old table to move, and how many slots of the old table are left to check. */
+	int migrateIndex, migrateLeft;
+	/** How many slots of the old table each operation checks. */
+	final int migrateStep;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public IncrementalMap () {
+		this(51, 0.8f);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public IncrementalMap (int initialCapacity) {
+		this(initialCapacity, 0.8f);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public IncrementalMap (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		// The new table gets about loadFactor * oldCapacity more puts before it fills, so the old one must be done before then.
+		migrateStep = Math.max(16, (int)Math.ceil(2 / loadFactor));
+	}
+
+	/** Creates a new map identical to the specified map. This finishes any resize in progress in the specified map. */
+	public IncrementalMap (IncrementalMap<? extends K, ? extends V> map) {
+		super(finished(map));
+		migrateStep = map.migrateStep;
+	}
+
+	static private <K, V> IncrementalMap<K, V> finished (IncrementalMap<K, V> map) {
+		map.finishResize();
+		return map;
+	}
+
+	/** Returns true if entries are still being moved from the previous, smaller table. */
+	public boolean isResizing () {
+		return oldKeyTable != null;
+	}
+
+	/** Moves every entry that is still in the previous table, if a resize is in progress. */
+	public void finishResize () {
+		if (oldKeyTable != null) migrate(migrateLeft);
+	}
+
+	/** Like {@link #place(Object)}, but for the old table. */
+	int placeOld (K key) {
+		// place() is defined in terms of shift and mask, so they are swapped out to reuse it.
+		int shift = this.shift, mask = this.mask;
+		this.shift = oldShift;
+		this.mask = oldMask;
+		int placement = place(key);
+		this.shift = shift;
+		this.mask = mask;
+		return placement;
+	}
+
+	/** Returns the index of the key in the old table, or -1 if it isn't there. Only call this while a resize is in progress. */
+	int locateOld (K key) {
+		K[] oldKeyTable = this.oldKeyTable;
+		int mask = oldMask;
+		for (int i = placeOld(key);; i = i + 1 & mask) {
+			K other = oldKeyTable[i];
+			if (other == null) return -1;
+			if (other.equals(key)) return i;
+		}
+	}
+
+	/** Moves the entries in up to {@code slots} slots of the old table to the new one, then discards the old table if it is empty.
+	 * The walk goes backward from an empty slot, so each entry moved is the last one in its cluster and removing it doesn't need
+	 * to shift anything. */
+	void migrate (int slots) {
+		K[] oldKeyTable = this.oldKeyTable;
+		V[] oldValueTable = this.oldValueTable;
+		int mask = oldMask, i = migrateIndex, left = migrateLeft;
+		for (slots = Math.min(slots, left); slots > 0; slots--, left--, i = i - 1 & mask) {
+			K key = oldKeyTable[i];
+			if (key != null) {
+				putResize(key, oldValueTable[i]);
+				oldKeyTable[i] = null;
+				oldValueTable[i] = null;
+			}
+		}
+		migrateIndex = i;
+		migrateLeft = left;
+		if (left == 0) {
+			this.oldKeyTable = null;
+			this.oldValueTable = null;
+		}
+	}
+
+	/** Allocates a table of {@code newSize} and starts moving entries into it. Any resize in progress must be finished first. */
+	void beginResize (int newSize) {
+		K[] keyTable = this.keyTable;
+		int start = 0;
+		while (keyTable[start] != null)
+			start++;
+		oldKeyTable = keyTable;
+		oldValueTable = valueTable;
+		oldMask = mask;
+		oldShift = shift;
+		migrateIndex = start - 1 & mask;
+		migrateLeft = mask; // every slot but the empty one at start
+
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		this.keyTable = (K[])new Object[newSize];
+		valueTable = (V[])new Object[newSize];
+		if (occupancy != null) occupancy = newOccupancy(newSize);
+	}
+
+	@Null
+	public V put (K key, @Null V value) {
+		if (oldKeyTable != null) migrate(migrateStep);
+		int i = locateKey(key);
+		if (i >= 0) { // Existing key was found.
+			V oldValue = valueTable[i];
+			valueTable[i] = value;
+			return oldValue;
+		}
+		if (oldKeyTable != null) {
+			int o = locateOld(key);
+			if (o >= 0) { // Existing key was found in the old table.
+				V oldValue = oldValueTable[o];
+				oldValueTable[o] = value;
+				return oldValue;
+			}
+		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		valueTable[i] = value;
+		occupy(i);
+		if (++size >= threshold) {
+			finishResize(); // Only needed if the load factor is very close to 1.
+			beginResize(keyTable.length << 1);
+		}
+		return null;
+	}
+
+	void insert (int i, K key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		occupy(i);
+		if (++size >= threshold) {
+			finishResize(); // Only needed if the load factor is very close to 1.
+			beginResize(keyTable.length << 1);
+		}
+	}
+
+	/** Does a step of migration, as every operation does while a resize is in progress, then moves the key to the new table if it
+	 * is still in the old one. After this, {@link #locateKey(Object)} alone finds the key or the index to insert it at. */
+	void settle (K key) {
+		if (oldKeyTable == null) return;
+		migrate(migrateStep);
+		if (oldKeyTable == null) return;
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int o = locateOld(key);
+		if (o >= 0) moveOld(o);
+	}
+
+	/** Moves the entry at index {@code o} of the old table to the new table. */
+	void moveOld (int o) {
+		K key = oldKeyTable[o];
+		V value = oldValueTable[o];
+		removeOld(o);
+		putResize(key, value);
+		size++;
+	}
+
+	/** While a resize is in progress, this moves a matching key to the new table if it is still in the old one, then looks only in
+	 * the new table. */
+	int locateChars (@Null CharSequence sequence, @Null char[] array, int start, int end, int hashCode) {
+		if (oldKeyTable != null) migrate(migrateStep);
+		if (oldKeyTable != null) {
+			// Like placeOld(), this swaps in the old table so the usual search, and placeHash(), can be reused.
+			K[] keyTable = this.keyTable;
+			int shift = this.shift, mask = this.mask;
+			this.keyTable = oldKeyTable;
+			this.shift = oldShift;
+			this.mask = oldMask;
+			int o = super.locateChars(sequence, array, start, end, hashCode);
+			this.keyTable = keyTable;
+			this.shift = shift;
+			this.mask = mask;
+			if (o >= 0) moveOld(o);
+		}
+		return super.locateChars(sequence, array, start, end, hashCode);
+	}
+
+	/** While a resize is in progress, this moves the key to the new table if it is still in the old one, so the handle is for the
+	 * new table. */
+	public int indexOf (K key) {
+		settle(key);
+		return super.indexOf(key);
+	}
+
+	@Null
+	public V putIfAbsent (K key, @Null V value) {
+		settle(key);
+		return super.putIfAbsent(key, value);
+	}
+
+	@Null
+	public V computeIfAbsent (K key, Function<? super K, ? extends V> mappingFunction) {
+		settle(key);
+		return super.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Null
+	public V compute (K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		settle(key);
+		return super.compute(key, remappingFunction);
+	}
+
+	@Null
+	public V merge (K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		settle(key);
+		return super.merge(key, value, remappingFunction);
+	}
+
+	@Null
+	public <T extends K> V get (T key) {
+		return get(key, null);
+	}
+
+	public V get (K key, @Null V defaultValue) {
+		if (oldKeyTable != null) migrate(migrateStep);
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		if (oldKeyTable != null) {
+			int o = locateOld(key);
+			if (o >= 0) return oldValueTable[o];
+		}
+		return defaultValue;
+	}
+
+	/** While a resize is in progress, each key is looked up with {@link #get(Object)}, which also checks the old table. Otherwise
+	 * this batches lookups like the superclass does. */
+	public V[] getAll (K[] keys, V[] out) {
+		if (oldKeyTable == null) return super.getAll(keys, out);
+		checkBatch(keys.length, out.length);
+		for (int j = 0, n = keys.length; j < n; j++)
+			out[j] = get(keys[j]);
+		return out;
+	}
+
+	public boolean containsKey (K key) {
+		if (oldKeyTable != null) migrate(migrateStep);
+		return locateKey(key) >= 0 || oldKeyTable != null && locateOld(key) >= 0;
+	}
+
+	@Null
+	public V remove (K key) {
+		if (oldKeyTable != null) migrate(migrateStep);
+		int i = locateKey(key);
+		if (i >= 0) {
+			V oldValue = valueTable[i];
+			removeAt(i);
+			return oldValue;
+		}
+		if (oldKeyTable == null) return null;
+		i = locateOld(key);
+		if (i < 0) return null;
+		V oldValue = oldValueTable[i];
+		removeOld(i);
+		return oldValue;
+	}
+
+	/** Like {@link #removeAt(int)}, but for the old table. The slots that were already moved are all empty, so shifting never
+	 * moves an entry into them. */
+	void removeOld (int i) {
+		K[] oldKeyTable = this.oldKeyTable;
+		V[] oldValueTable = this.oldValueTable;
+		int mask = oldMask, next = i + 1 & mask;
+		K key;
+		int placement;
+		while ((key = oldKeyTable[next]) != null) {
+			placement = placeOld(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				oldKeyTable[i] = key;
+				oldValueTable[i] = oldValueTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		oldKeyTable[i] = null;
+		oldValueTable[i] = null;
+		size--;
+	}
+
+	/** Resizes all at once, after finishing any resize in progress. Only growth from {@link #put(Object, Object)} is done
+	 * incrementally. */
+	void resize (int newSize) {
+		finishResize();
+		super.resize(newSize);
+	}
+
+	public void clear (int maximumCapacity) {
+		oldKeyTable = null;
+		oldValueTable = null;
+		super.clear(maximumCapacity);
+	}
+
+	public void clear () {
+		oldKeyTable = null;
+		oldValueTable = null;
+		super.clear();
+	}
+
+	public boolean containsValue (@Null Object value, boolean identity) {
+		finishResize();
+		return super.containsValue(value, identity);
+	}
+
+	@Null
+	public K findKey (@Null Object value, boolean identity) {
+		finishResize();
+		return super.findKey(value, identity);
+	}
+
+	public HashStats hashStats () {
+		finishResize();
+		return super.hashStats();
+	}
+
+	/** Unlike most other methods that look at the whole map, this doesn't finish a resize in progress; the old table is counted
+	 * in {@link MemoryStats#extraBytes}, and its slots are included in {@link MemoryStats#capacity}. */
+	public MemoryStats memoryStats () {
+		MemoryStats stats = super.memoryStats();
+		if (oldKeyTable == null) return stats;
+		stats.capacity += oldKeyTable.length;
+		return stats.extra(MemoryStats.array(oldKeyTable.length, MemoryStats.REFERENCE_BYTES)
+			+ MemoryStats.array(oldValueTable.length, MemoryStats.REFERENCE_BYTES));
+	}
+
+	public int hashCode () {
+		finishResize();
+		return super.hashCode();
+	}
+
+	public boolean equals (Object obj) {
+		finishResize();
+		return super.equals(obj);
+	}
+
+	public boolean equalsIdentity (@Null Object obj) {
+		finishResize();
+		return super.equalsIdentity(obj);
+	}
+
+	protected String toString (String separator, boolean braces) {
+		finishResize();
+		return super.toString(separator, braces);
+	}
+
+	public void forEach (BiConsumer<? super K, ? super V> consumer) {
+		finishResize();
+		super.forEach(consumer);
+	}
+
+	public boolean forEachWhile (BiPredicate<? super K, ? super V> predicate) {
+		finishResize();
+		return super.forEachWhile(predicate);
+	}
+
+	public boolean removeIf (BiPredicate<? super K, ? super V> predicate) {
+		finishResize();
+		return super.removeIf(predicate);
+	}
+
+	public Entries<K, V> entries () {
+		finishResize();
+		return super.entries();
+	}
+
+	public Values<V> values () {
+		finishResize();
+		return super.values();
+	}
+
+	public Keys<K> keys () {
+		finishResize();
+		return super.keys();
+	}
+}
@@ -22,6 +22,12 @@ import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.NumberUtils;
 
+import ds.merry.function.FloatBinaryOperator;
+import ds.merry.function.IntFloatConsumer;
+import ds.merry.function.IntFloatPredicate;
+import ds.merry.function.IntFloatToFloatFunction;
+import ds.merry.function.IntToFloatFunction;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -53,8 +59,8 @@ public class IntFloatMap implements Iterable<IntFloatMap.Entry> {
 	float zeroValue;
 	boolean hasZeroValue;
 
-	private final float loadFactor;
-	private int threshold;
+	final float loadFactor;
+	int threshold;
 
 	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
 	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
@@ -219,6 +225,118 @@ public class IntFloatMap implements Iterable<IntFloatMap.Entry> {
 		return defaultValue;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(int)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, int key, float value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value and returns true if the key is not in the map; otherwise, returns false and changes nothing. The key is
+	 * located only once. */
+	public boolean putIfAbsent (int key, float value) {
+		if (key == 0) {
+			if (hasZeroValue) return false;
+			put(0, value);
+			return true;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return false;
+		insert(-(i + 1), key, value);
+		return true;
+	}
+
+	/** Returns the value for the key, first putting {@code mappingFunction.applyAsFloat(key)} if the key is not in the map. The
+	 * key is located only once, so the function must not change this map. */
+	public float computeIfAbsent (int key, IntToFloatFunction mappingFunction) {
+		if (key == 0) {
+			if (!hasZeroValue) put(0, mappingFunction.applyAsFloat(0));
+			return zeroValue;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		float value = mappingFunction.applyAsFloat(key);
+		insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.applyAsFloat(key, oldValue)}, where oldValue is defaultValue if the key is not
+	 * in the map, and returns it. The key is located only once, so the function must not change this map. */
+	public float compute (int key, float defaultValue, IntFloatToFloatFunction remappingFunction) {
+		if (key == 0) {
+			float value = remappingFunction.applyAsFloat(0, hasZeroValue ? zeroValue : defaultValue);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		float value = remappingFunction.applyAsFloat(key, i >= 0 ? valueTable[i] : defaultValue);
+		if (i >= 0)
+			valueTable[i] = value;
+		else
+			insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with
+	 * {@code remappingFunction.applyAsFloat(oldValue, value)}, and returns the key's new value. Merging with an operator that adds
+	 * its arguments keeps a running total for each key. The key is located only once, so the function must not change this map. */
+	public float merge (int key, float value, FloatBinaryOperator remappingFunction) {
+		if (key == 0) {
+			if (hasZeroValue) value = remappingFunction.applyAsFloat(zeroValue, value);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		value = remappingFunction.applyAsFloat(valueTable[i], value);
+		valueTable[i] = value;
+		return value;
+	}
+
+	/** Returns a handle for the key: its index in the table if it is in the map, else -(index + 1) for the index where
+	 * {@link #insertAt(int, int, float)} would put it. With a handle, a value can be read and written back after one lookup,
+	 * using {@link #keyAt(int)}, {@link #valueAt(int)} and {@link #setValueAt(int, float)}. Handles are only valid until a key
+	 * is put or removed; changing values doesn't affect them. The zero key isn't kept in the table, so its handle is one past
+	 * the last index, or -(that + 1) if it isn't in the map. */
+	public int indexOf (int key) {
+		if (key == 0) return hasZeroValue ? mask + 1 : -(mask + 2);
+		return locateKey(key);
+	}
+
+	/** Returns the key for a non-negative handle from {@link #indexOf(int)}. */
+	public int keyAt (int slot) {
+		return slot > mask ? 0 : keyTable[slot];
+	}
+
+	/** Returns the value for a non-negative handle from {@link #indexOf(int)}. */
+	public float valueAt (int slot) {
+		return slot > mask ? zeroValue : valueTable[slot];
+	}
+
+	/** Changes the value for a non-negative handle from {@link #indexOf(int)}. */
+	public void setValueAt (int slot, float value) {
+		if (slot > mask)
+			zeroValue = value;
+		else
+			valueTable[slot] = value;
+	}
+
+	/** Puts the key and value using the negative handle that {@link #indexOf(int)} just returned for the same key, without
+	 * locating the key again. This may grow the table, and like any insertion it makes other handles invalid.
+	 * @throws IllegalArgumentException if the handle is for a key that is already in the map */
+	public void insertAt (int slot, int key, float value) {
+		if (slot >= 0) throw new IllegalArgumentException("slot already has a key: " + slot);
+		if (key == 0) {
+			put(0, value);
+			return;
+		}
+		insert(-(slot + 1), key, value);
+	}
+
 	public float remove (int key, float defaultValue) {
 		if (key == 0) {
 			if (!hasZeroValue) return defaultValue;
@@ -322,7 +440,7 @@ public class IntFloatMap implements Iterable<IntFloatMap.Entry> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -342,6 +460,57 @@ public class IntFloatMap implements Iterable<IntFloatMap.Entry> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(int)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0 key
+	 * is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(int)} for every
+	 * key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		int[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(4).values(4)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (IntFloatConsumer consumer) {
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		int[] keyTable = this.keyTable;
+		float[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (IntFloatPredicate predicate) {
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		int[] keyTable = this.keyTable;
+		float[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0 && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		if (hasZeroValue) h += NumberUtils.floatToRawIntBits(zeroValue);
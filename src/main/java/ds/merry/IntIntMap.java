@@ -20,10 +20,17 @@ import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 
+import ds.merry.function.IntBinaryOperator;
+import ds.merry.function.IntIntConsumer;
+import ds.merry.function.IntIntPredicate;
+import ds.merry.function.IntUnaryOperator;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered map where the keys and values are unboxed ints. No allocation is done except when growing the table size.
@@ -50,8 +57,8 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 	int zeroValue;
 	boolean hasZeroValue;
 
-	private final float loadFactor;
-	private int threshold;
+	final float loadFactor;
+	int threshold;
 
 	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
 	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
@@ -216,6 +223,118 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 		return defaultValue;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(int)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, int key, int value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value and returns true if the key is not in the map; otherwise, returns false and changes nothing. The key is
+	 * located only once. */
+	public boolean putIfAbsent (int key, int value) {
+		if (key == 0) {
+			if (hasZeroValue) return false;
+			put(0, value);
+			return true;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return false;
+		insert(-(i + 1), key, value);
+		return true;
+	}
+
+	/** Returns the value for the key, first putting {@code mappingFunction.applyAsInt(key)} if the key is not in the map. The key
+	 * is located only once, so the function must not change this map. */
+	public int computeIfAbsent (int key, IntUnaryOperator mappingFunction) {
+		if (key == 0) {
+			if (!hasZeroValue) put(0, mappingFunction.applyAsInt(0));
+			return zeroValue;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		int value = mappingFunction.applyAsInt(key);
+		insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.applyAsInt(key, oldValue)}, where oldValue is defaultValue if the key is not in
+	 * the map, and returns it. The key is located only once, so the function must not change this map. */
+	public int compute (int key, int defaultValue, IntBinaryOperator remappingFunction) {
+		if (key == 0) {
+			int value = remappingFunction.applyAsInt(0, hasZeroValue ? zeroValue : defaultValue);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		int value = remappingFunction.applyAsInt(key, i >= 0 ? valueTable[i] : defaultValue);
+		if (i >= 0)
+			valueTable[i] = value;
+		else
+			insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with
+	 * {@code remappingFunction.applyAsInt(oldValue, value)}, and returns the key's new value. Merging with an operator that adds
+	 * its arguments keeps a running total for each key. The key is located only once, so the function must not change this map. */
+	public int merge (int key, int value, IntBinaryOperator remappingFunction) {
+		if (key == 0) {
+			if (hasZeroValue) value = remappingFunction.applyAsInt(zeroValue, value);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		value = remappingFunction.applyAsInt(valueTable[i], value);
+		valueTable[i] = value;
+		return value;
+	}
+
+	/** Returns a handle for the key: its index in the table if it is in the map, else -(index + 1) for the index where
+	 * {@link #insertAt(int, int, int)} would put it. With a handle, a value can be read and written back after one lookup,
+	 * using {@link #keyAt(int)}, {@link #valueAt(int)} and {@link #setValueAt(int, int)}. Handles are only valid until a key
+	 * is put or removed; changing values doesn't affect them. The zero key isn't kept in the table, so its handle is one past
+	 * the last index, or -(that + 1) if it isn't in the map. */
+	public int indexOf (int key) {
+		if (key == 0) return hasZeroValue ? mask + 1 : -(mask + 2);
+		return locateKey(key);
+	}
+
+	/** Returns the key for a non-negative handle from {@link #indexOf(int)}. */
+	public int keyAt (int slot) {
+		return slot > mask ? 0 : keyTable[slot];
+	}
+
+	/** Returns the value for a non-negative handle from {@link #indexOf(int)}. */
+	public int valueAt (int slot) {
+		return slot > mask ? zeroValue : valueTable[slot];
+	}
+
+	/** Changes the value for a non-negative handle from {@link #indexOf(int)}. */
+	public void setValueAt (int slot, int value) {
+		if (slot > mask)
+			zeroValue = value;
+		else
+			valueTable[slot] = value;
+	}
+
+	/** Puts the key and value using the negative handle that {@link #indexOf(int)} just returned for the same key, without
+	 * locating the key again. This may grow the table, and like any insertion it makes other handles invalid.
+	 * @throws IllegalArgumentException if the handle is for a key that is already in the map */
+	public void insertAt (int slot, int key, int value) {
+		if (slot >= 0) throw new IllegalArgumentException("slot already has a key: " + slot);
+		if (key == 0) {
+			put(0, value);
+			return;
+		}
+		insert(-(slot + 1), key, value);
+	}
+
 	public int remove (int key, int defaultValue) {
 		if (key == 0) {
 			if (!hasZeroValue) return defaultValue;
@@ -246,6 +365,47 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 		return oldValue;
 	}
 
+	/** Removes every entry for which the predicate returns true, and returns true if any were removed. The predicate is called
+	 * once for each entry, in no particular order, and must not change this map.
+	 * <p>
+	 * This is much faster than removing many entries with an iterator, which shifts later keys back after every removal. Here,
+	 * entries are removed in one sweep over the table that starts just after an empty slot, and each key that follows a removal
+	 * in its cluster moves back once, to the first empty slot at or after its placement. Clusters with no removals are left
+	 * alone. */
+	public boolean removeIf (IntIntPredicate predicate) {
+		int oldSize = size;
+		if (hasZeroValue && predicate.test(0, zeroValue)) {
+			hasZeroValue = false;
+			size--;
+		}
+		int[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		int mask = this.mask, start = 0;
+		while (keyTable[start] != 0) // There is always an empty slot, and no cluster crosses one.
+			start++;
+		boolean moving = false;
+		for (int i = start + 1 & mask; i != start; i = i + 1 & mask) {
+			int key = keyTable[i];
+			if (key == 0) // Slots ahead of i are untouched, so this one was empty before, and ends the cluster.
+				moving = false;
+			else if (predicate.test(key, valueTable[i])) {
+				keyTable[i] = 0;
+				size--;
+				moving = true;
+			} else if (moving) {
+				for (int p = place(key); p != i; p = p + 1 & mask) {
+					if (keyTable[p] == 0) {
+						keyTable[p] = key;
+						valueTable[p] = valueTable[i];
+						keyTable[i] = 0;
+						break;
+					}
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
 	/** Returns true if the map has one or more items. */
 	public boolean notEmpty () {
 		return size > 0;
@@ -300,6 +460,42 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 		return locateKey(key) >= 0;
 	}
 
+	/** Looks up each of the keys and stores its value at the same index in out, or defaultValue for keys not in the map. This gives
+	 * the same results as calling {@link #get(int, int)} for each key, but places a batch of keys and loads their first slots
+	 * before probing for any of them, so the cache misses of a large table overlap instead of being paid one at a time.
+	 * @param out must be at least as long as keys
+	 * @return out */
+	public int[] getAll (int[] keys, int[] out, int defaultValue) {
+		checkBatch(keys.length, out.length);
+		int[] keyTable = this.keyTable, valueTable = this.valueTable;
+		int mask = this.mask;
+		int[] places = new int[Math.min(keys.length, BATCH_SIZE)];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				int i = place(keys[j]);
+				places[j - start] = keyTable[i] == 0 ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				int key = keys[j], value = defaultValue;
+				if (key == 0) {
+					if (hasZeroValue) value = zeroValue;
+				} else {
+					for (int i = places[j - start]; i >= 0; i = i + 1 & mask) {
+						int other = keyTable[i];
+						if (other == key) {
+							value = valueTable[i];
+							break;
+						}
+						if (other == 0) break;
+					}
+				}
+				out[j] = value;
+			}
+		}
+		return out;
+	}
+
 	/** Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
 	 * every value, which may be an expensive operation. */
 	public int findKey (int value, int notFound) {
@@ -320,7 +516,7 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -340,6 +536,57 @@ public class IntIntMap implements Iterable<IntIntMap.Entry> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(int)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0 key
+	 * is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(int)} for every
+	 * key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		int[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(4).values(4)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (IntIntConsumer consumer) {
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		int[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (IntIntPredicate predicate) {
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		int[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0 && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		if (hasZeroValue) h += zeroValue;
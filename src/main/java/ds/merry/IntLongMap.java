@@ -0,0 +1,776 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import com.badlogic.gdx.utils.Collections;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+import ds.merry.function.IntLongConsumer;
+import ds.merry.function.IntLongPredicate;
+import ds.merry.function.IntLongToLongFunction;
+import ds.merry.function.IntToLongFunction;
+import ds.merry.function.LongBinaryOperator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static ds.merry.ObjectSet.tableSize;
+
+/** An unordered map where the keys are unboxed ints and values are unboxed longs. No allocation is done except when growing the
+ * table size.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Nathan Sweet
+ * @author Tommy Ettinger */
+public class IntLongMap implements Iterable<IntLongMap.Entry> {
+	public int size;
+
+	int[] keyTable;
+	long[] valueTable;
+
+	long zeroValue;
+	boolean hasZeroValue;
+
+	final float loadFactor;
+	int threshold;
+
+	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
+	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
+	 * number, a shift of -7 shifts the upper 7 bits into the lowest 7 positions. This class sets the shift &gt; 32 and &lt; 64,
+	 * which if used with an int will still move the upper bits of an int to the lower bits due to Java's implicit modulus on
+	 * shifts.
+	 * <p>
+	 * {@link #mask} can also be used to mask the low bits of a number, which may be faster for some hashcodes, if
+	 * {@link #place(int)} is overridden. */
+	protected int shift;
+
+	/** A bitmask used to confine hashcodes to the size of the table. Must be all 1 bits in its low positions, ie a power of two
+	 * minus 1. If {@link #place(int)} is overriden, this can be used instead of {@link #shift} to isolate usable bits of a
+	 * hash. */
+	protected int mask;
+
+	private Entries entries1, entries2;
+	private Values values1, values2;
+	private Keys keys1, keys2;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public IntLongMap () {
+		this(51, 0.8f);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public IntLongMap (int initialCapacity) {
+		this(initialCapacity, 0.8f);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public IntLongMap (int initialCapacity, float loadFactor) {
+		if (loadFactor <= 0f || loadFactor >= 1f)
+			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+		this.loadFactor = loadFactor;
+
+		int tableSize = tableSize(initialCapacity, loadFactor);
+		threshold = (int)(tableSize * loadFactor);
+		mask = tableSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		keyTable = new int[tableSize];
+		valueTable = new long[tableSize];
+	}
+
+	/** Creates a new map identical to the specified map. */
+	public IntLongMap (IntLongMap map) {
+		this((int)(map.keyTable.length * map.loadFactor), map.loadFactor);
+		System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
+		System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
+		size = map.size;
+		zeroValue = map.zeroValue;
+		hasZeroValue = map.hasZeroValue;
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}.
+	 * <p>
+	 * The default implementation uses Fibonacci hashing on the item's {@link Object#hashCode()}: the hashcode is multiplied by a
+	 * long constant (2 to the 64th, divided by the golden ratio) then the uppermost bits are shifted into the lowest positions to
+	 * obtain an index in the desired range. Multiplication by a long may be slower than int (eg on GWT) but greatly improves
+	 * rehashing, allowing even very poor hashcodes, such as those that only differ in their upper bits, to be used without high
+	 * collision rates. Fibonacci hashing has increased collision rates when all or most hashcodes are multiples of larger
+	 * Fibonacci numbers (see <a href=
+	 * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+	 * Skarupke's blog post</a>).
+	 * <p>
+	 * This method can be overriden to customizing hashing. This may be useful eg in the unlikely event that most hashcodes are
+	 * Fibonacci numbers, if keys provide poor or incorrect hashcodes, or to simplify hashing if keys provide high quality
+	 * hashcodes and don't need Fibonacci hashing: {@code return item.hashCode() & mask;} */
+	protected int place (int item) {
+		return (int)(item * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
+	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
+	int locateKey (int key) {
+		int[] keyTable = this.keyTable;
+		for (int i = place(key);; i = i + 1 & mask) {
+			int other = keyTable[i];
+			if (other == 0) return -(i + 1); // Empty space is available.
+			if (other == key) return i; // Same key was found.
+		}
+	}
+
+	/** Doesn't return a value, unlike other maps. */
+	public void put (int key, long value) {
+		if (key == 0) {
+			zeroValue = value;
+			if (!hasZeroValue) {
+				hasZeroValue = true;
+				size++;
+			}
+			return;
+		}
+		int i = locateKey(key);
+		if (i >= 0) { // Existing key was found.
+			valueTable[i] = value;
+			return;
+		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	public void putAll (IntLongMap map) {
+		ensureCapacity(map.size);
+		if (map.hasZeroValue) put(0, map.zeroValue);
+		int[] keyTable = map.keyTable;
+		long[] valueTable = map.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) put(key, valueTable[i]);
+		}
+	}
+
+	/** Skips checks for existing keys, doesn't increment size, doesn't need to handle key 0. */
+	void putResize (int key, long value) {
+		int[] keyTable = this.keyTable;
+		for (int i = place(key);; i = (i + 1) & mask) {
+			if (keyTable[i] == 0) {
+				keyTable[i] = key;
+				valueTable[i] = value;
+				return;
+			}
+		}
+	}
+
+	public long get (int key, long defaultValue) {
+		if (key == 0) return hasZeroValue ? zeroValue : defaultValue;
+		int i = locateKey(key);
+		return i >= 0 ? valueTable[i] : defaultValue;
+	}
+
+	/** Returns the key's current value and increments the stored value. If the key is not in the map, defaultValue + increment is
+	 * put into the map and defaultValue is returned. */
+	public long getAndIncrement (int key, long defaultValue, long increment) {
+		if (key == 0) {
+			if (!hasZeroValue) {
+				hasZeroValue = true;
+				zeroValue = defaultValue + increment;
+				size++;
+				return defaultValue;
+			}
+			long oldValue = zeroValue;
+			zeroValue += increment;
+			return oldValue;
+		}
+		int i = locateKey(key);
+		if (i >= 0) { // Existing key was found.
+			long oldValue = valueTable[i];
+			valueTable[i] += increment;
+			return oldValue;
+		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		valueTable[i] = defaultValue + increment;
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return defaultValue;
+	}
+
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(int)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, int key, long value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value and returns true if the key is not in the map; otherwise, returns false and changes nothing. The key is
+	 * located only once. */
+	public boolean putIfAbsent (int key, long value) {
+		if (key == 0) {
+			if (hasZeroValue) return false;
+			put(0, value);
+			return true;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return false;
+		insert(-(i + 1), key, value);
+		return true;
+	}
+
+	/** Returns the value for the key, first putting {@code mappingFunction.applyAsLong(key)} if the key is not in the map. The key
+	 * is located only once, so the function must not change this map. */
+	public long computeIfAbsent (int key, IntToLongFunction mappingFunction) {
+		if (key == 0) {
+			if (!hasZeroValue) put(0, mappingFunction.applyAsLong(0));
+			return zeroValue;
+		}
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		long value = mappingFunction.applyAsLong(key);
+		insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.applyAsLong(key, oldValue)}, where oldValue is defaultValue if the key is not
+	 * in the map, and returns it. The key is located only once, so the function must not change this map. */
+	public long compute (int key, long defaultValue, IntLongToLongFunction remappingFunction) {
+		if (key == 0) {
+			long value = remappingFunction.applyAsLong(0, hasZeroValue ? zeroValue : defaultValue);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		long value = remappingFunction.applyAsLong(key, i >= 0 ? valueTable[i] : defaultValue);
+		if (i >= 0)
+			valueTable[i] = value;
+		else
+			insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with
+	 * {@code remappingFunction.applyAsLong(oldValue, value)}, and returns the key's new value. Merging with an operator that adds
+	 * its arguments keeps a running total for each key. The key is located only once, so the function must not change this map. */
+	public long merge (int key, long value, LongBinaryOperator remappingFunction) {
+		if (key == 0) {
+			if (hasZeroValue) value = remappingFunction.applyAsLong(zeroValue, value);
+			put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		value = remappingFunction.applyAsLong(valueTable[i], value);
+		valueTable[i] = value;
+		return value;
+	}
+
+	public long remove (int key, long defaultValue) {
+		if (key == 0) {
+			if (!hasZeroValue) return defaultValue;
+			hasZeroValue = false;
+			size--;
+			return zeroValue;
+		}
+
+		int i = locateKey(key);
+		if (i < 0) return defaultValue;
+		long oldValue = valueTable[i];
+		removeAt(i);
+		return oldValue;
+	}
+
+	/** Removes the key and value at index {@code i} using the backward shift algorithm, and decrements size. Returns the index
+	 * that was left empty, which is not {@code i} if later entries were shifted back to fill it. */
+	int removeAt (int i) {
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		int mask = this.mask, next = i + 1 & mask, placement;
+		int key;
+		while ((key = keyTable[next]) != 0) {
+			placement = place(key);
+			if((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				valueTable[i] = valueTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = 0;
+		size--;
+		return i;
+	}
+
+	/** Returns true if the map has one or more items. */
+	public boolean notEmpty () {
+		return size > 0;
+	}
+
+	/** Returns true if the map is empty. */
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	/** Reduces the size of the backing arrays to be the specified capacity / loadFactor, or less. If the capacity is already less,
+	 * nothing is done. If the map contains more items than the specified capacity, the next highest power of two capacity is used
+	 * instead. */
+	public void shrink (int maximumCapacity) {
+		if (maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+		int tableSize = tableSize(maximumCapacity, loadFactor);
+		if (keyTable.length > tableSize) resize(tableSize);
+	}
+
+	/** Clears the map and reduces the size of the backing arrays to be the specified capacity / loadFactor, if they are larger. */
+	public void clear (int maximumCapacity) {
+		int tableSize = tableSize(maximumCapacity, loadFactor);
+		if (keyTable.length <= tableSize) {
+			clear();
+			return;
+		}
+		size = 0;
+		hasZeroValue = false;
+		resize(tableSize);
+	}
+
+	public void clear () {
+		if (size == 0) return;
+		Arrays.fill(keyTable, 0);
+		size = 0;
+		hasZeroValue = false;
+	}
+
+	/** Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+	 * be an expensive operation. */
+	public boolean containsValue (long value) {
+		if (hasZeroValue && zeroValue == value) return true;
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = valueTable.length - 1; i >= 0; i--)
+			if (keyTable[i] != 0 && valueTable[i] == value) return true;
+		return false;
+	}
+
+	public boolean containsKey (int key) {
+		if (key == 0) return hasZeroValue;
+		return locateKey(key) >= 0;
+	}
+
+	/** Returns the key for the specified value, or notFound if it is not in the map. Note this traverses the entire map and
+	 * compares every value, which may be an expensive operation. */
+	public int findKey (long value, int notFound) {
+		if (hasZeroValue && zeroValue == value) return 0;
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = valueTable.length - 1; i >= 0; i--) {
+			int key = keyTable[i];
+			if (key != 0 && valueTable[i] == value) return key;
+		}
+		return notFound;
+	}
+
+	/** Increases the size of the backing array to accommodate the specified number of additional items / loadFactor. Useful before
+	 * adding many items to avoid multiple backing array resizes. */
+	public void ensureCapacity (int additionalCapacity) {
+		int tableSize = tableSize(size + additionalCapacity, loadFactor);
+		if (keyTable.length < tableSize) resize(tableSize);
+	}
+
+	void resize (int newSize) {
+		int oldCapacity = keyTable.length;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		int[] oldKeyTable = keyTable;
+		long[] oldValueTable = valueTable;
+
+		keyTable = new int[newSize];
+		valueTable = new long[newSize];
+
+		if (size > 0) {
+			for (int i = 0; i < oldCapacity; i++) {
+				int key = oldKeyTable[i];
+				if (key != 0) putResize(key, oldValueTable[i]);
+			}
+		}
+	}
+
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(int)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0 key
+	 * is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(int)} for every
+	 * key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		int[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(4).values(8)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (IntLongConsumer consumer) {
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (IntLongPredicate predicate) {
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0 && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
+	public int hashCode () {
+		int h = size;
+		if (hasZeroValue) h += (int)(zeroValue ^ zeroValue >>> 32);
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) h += key * 31 + (int)(valueTable[i] ^ valueTable[i] >>> 32);
+		}
+		return h;
+	}
+
+	public boolean equals (Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof IntLongMap)) return false;
+		IntLongMap other = (IntLongMap)obj;
+		if (other.size != size) return false;
+		if (other.hasZeroValue != hasZeroValue) return false;
+		if (hasZeroValue) {
+			if (other.zeroValue != zeroValue) return false;
+		}
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) {
+				long otherValue = other.get(key, 0);
+				if (otherValue == 0 && !other.containsKey(key)) return false;
+				if (otherValue != valueTable[i]) return false;
+			}
+		}
+		return true;
+	}
+
+	public String toString () {
+		if (size == 0) return "[]";
+		StringBuilder buffer = new StringBuilder(32);
+		buffer.append('[');
+		int[] keyTable = this.keyTable;
+		long[] valueTable = this.valueTable;
+		int i = keyTable.length;
+		if (hasZeroValue) {
+			buffer.append("0=");
+			buffer.append(zeroValue);
+		} else {
+			while (i-- > 0) {
+				int key = keyTable[i];
+				if (key == 0) continue;
+				buffer.append(key);
+				buffer.append('=');
+				buffer.append(valueTable[i]);
+				break;
+			}
+		}
+		while (i-- > 0) {
+			int key = keyTable[i];
+			if (key == 0) continue;
+			buffer.append(", ");
+			buffer.append(key);
+			buffer.append('=');
+			buffer.append(valueTable[i]);
+		}
+		buffer.append(']');
+		return buffer.toString();
+	}
+
+	public Iterator<Entry> iterator () {
+		return entries();
+	}
+
+	/** Returns an iterator for the entries in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Entries entries () {
+		if (Collections.allocateIterators) return new Entries(this);
+		if (entries1 == null) {
+			entries1 = new Entries(this);
+			entries2 = new Entries(this);
+		}
+		if (!entries1.valid) {
+			entries1.reset();
+			entries1.valid = true;
+			entries2.valid = false;
+			return entries1;
+		}
+		entries2.reset();
+		entries2.valid = true;
+		entries1.valid = false;
+		return entries2;
+	}
+
+	/** Returns an iterator for the values in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Values values () {
+		if (Collections.allocateIterators) return new Values(this);
+		if (values1 == null) {
+			values1 = new Values(this);
+			values2 = new Values(this);
+		}
+		if (!values1.valid) {
+			values1.reset();
+			values1.valid = true;
+			values2.valid = false;
+			return values1;
+		}
+		values2.reset();
+		values2.valid = true;
+		values1.valid = false;
+		return values2;
+	}
+
+	/** Returns an iterator for the keys in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Keys keys () {
+		if (Collections.allocateIterators) return new Keys(this);
+		if (keys1 == null) {
+			keys1 = new Keys(this);
+			keys2 = new Keys(this);
+		}
+		if (!keys1.valid) {
+			keys1.reset();
+			keys1.valid = true;
+			keys2.valid = false;
+			return keys1;
+		}
+		keys2.reset();
+		keys2.valid = true;
+		keys1.valid = false;
+		return keys2;
+	}
+
+	static public class Entry {
+		public int key;
+		public long value;
+
+		public String toString () {
+			return key + "=" + value;
+		}
+	}
+
+	static private class MapIterator {
+		static private final int INDEX_ILLEGAL = -2;
+		static final int INDEX_ZERO = -1;
+
+		public boolean hasNext;
+
+		final IntLongMap map;
+		int nextIndex, currentIndex;
+		boolean valid = true;
+
+		public MapIterator (IntLongMap map) {
+			this.map = map;
+			reset();
+		}
+
+		public void reset () {
+			currentIndex = INDEX_ILLEGAL;
+			nextIndex = INDEX_ZERO;
+			if (map.hasZeroValue)
+				hasNext = true;
+			else
+				findNextIndex();
+		}
+
+		void findNextIndex () {
+			int[] keyTable = map.keyTable;
+			for (int n = keyTable.length; ++nextIndex < n;) {
+				if (keyTable[nextIndex] != 0) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
+		}
+
+		public void remove () {
+			int i = currentIndex;
+			if (i == INDEX_ZERO && map.hasZeroValue) {
+				map.hasZeroValue = false;
+				map.size--;
+			} else if (i < 0) {
+				throw new IllegalStateException("next must be called before remove.");
+			} else {
+				if (map.removeAt(i) != i) --nextIndex;
+			}
+			currentIndex = INDEX_ILLEGAL;
+		}
+	}
+
+	static public class Entries extends MapIterator implements Iterable<Entry>, Iterator<Entry> {
+		private final Entry entry = new Entry();
+
+		public Entries (IntLongMap map) {
+			super(map);
+		}
+
+		/** Note the same entry instance is returned each time this method is called. */
+		public Entry next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			int[] keyTable = map.keyTable;
+			if (nextIndex == INDEX_ZERO) {
+				entry.key = 0;
+				entry.value = map.zeroValue;
+			} else {
+				entry.key = keyTable[nextIndex];
+				entry.value = map.valueTable[nextIndex];
+			}
+			currentIndex = nextIndex;
+			findNextIndex();
+			return entry;
+		}
+
+		public boolean hasNext () {
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			return hasNext;
+		}
+
+		public Iterator<Entry> iterator () {
+			return this;
+		}
+	}
+
+	static public class Values extends MapIterator {
+		public Values (IntLongMap map) {
+			super(map);
+		}
+
+		public boolean hasNext () {
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			return hasNext;
+		}
+
+		public long next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			long value = nextIndex == INDEX_ZERO ? map.zeroValue : map.valueTable[nextIndex];
+			currentIndex = nextIndex;
+			findNextIndex();
+			return value;
+		}
+
+		public Values iterator () {
+			return this;
+		}
+
+		/** Returns a new array containing the remaining values. */
+		public LongArray toArray () {
+			LongArray array = new LongArray(true, map.size);
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+
+		/** Adds the remaining values to the specified array. */
+		public LongArray toArray (LongArray array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+
+	static public class Keys extends MapIterator {
+		public Keys (IntLongMap map) {
+			super(map);
+		}
+
+		public int next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			int key = nextIndex == INDEX_ZERO ? 0 : map.keyTable[nextIndex];
+			currentIndex = nextIndex;
+			findNextIndex();
+			return key;
+		}
+
+		/** Returns a new array containing the remaining keys. */
+		public IntArray toArray () {
+			IntArray array = new IntArray(true, map.size);
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+
+		/** Adds the remaining values to the specified array. */
+		public IntArray toArray (IntArray array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+}
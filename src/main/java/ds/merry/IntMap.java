@@ -21,10 +21,20 @@ import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 
+import ds.merry.function.BiFunction;
+import ds.merry.function.IntFunction;
+import ds.merry.function.IntObjConsumer;
+import ds.merry.function.IntObjFunction;
+import ds.merry.function.IntObjPredicate;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
+import static ds.merry.ObjectSet.newOccupancy;
+import static ds.merry.ObjectSet.nextOccupied;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered map where the keys are unboxed ints and values are objects. No allocation is done except when growing the table
@@ -52,8 +62,12 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 	V zeroValue;
 	boolean hasZeroValue;
 
-	private final float loadFactor;
-	private int threshold;
+	/** If non-null, has one bit for each slot of {@link #keyTable}, set when the slot holds a key. See
+	 * {@link #trackOccupancy(boolean)}. */
+	@Null long[] occupancy;
+
+	final float loadFactor;
+	int threshold;
 
 	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
 	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
@@ -111,6 +125,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		size = map.size;
 		zeroValue = map.zeroValue;
 		hasZeroValue = map.hasZeroValue;
+		if (map.occupancy != null) occupancy = map.occupancy.clone();
 	}
 
 	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}.
@@ -133,7 +148,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 
 	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
 	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
-	private int locateKey (int key) {
+	int locateKey (int key) {
 		int[] keyTable = this.keyTable;
 		for (int i = place(key);; i = i + 1 & mask) {
 			int other = keyTable[i];
@@ -162,10 +177,113 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		i = -(i + 1); // Empty space was found.
 		keyTable[i] = key;
 		valueTable[i] = value;
+		occupy(i);
 		if (++size >= threshold) resize(keyTable.length << 1);
 		return null;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(int)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, int key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, and returns null; otherwise, returns the key's value
+	 * and changes nothing. The key is located only once. */
+	@Null
+	public V putIfAbsent (int key, @Null V value) {
+		if (key == 0) {
+			V oldValue = hasZeroValue ? zeroValue : null;
+			if (oldValue == null) put(0, value);
+			return oldValue;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return null;
+		}
+		V oldValue = valueTable[i];
+		if (oldValue == null) valueTable[i] = value;
+		return oldValue;
+	}
+
+	/** Returns the value for the key, first putting the result of {@code mappingFunction} for the key if the key is not in the
+	 * map or is mapped to null. If the function returns null, nothing is put and null is returned. The key is located only
+	 * once, so the function must not change this map. */
+	@Null
+	public V computeIfAbsent (int key, IntFunction<? extends V> mappingFunction) {
+		if (key == 0) {
+			if (hasZeroValue && zeroValue != null) return zeroValue;
+			V value = mappingFunction.apply(0);
+			if (value != null) put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		if (i >= 0) {
+			if (valueTable[i] == null) valueTable[i] = mappingFunction.apply(key);
+			return valueTable[i];
+		}
+		V value = mappingFunction.apply(key);
+		if (value != null) insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.apply(key, oldValue)}, where oldValue is null if the key is not in the map,
+	 * and returns it. If the result is null, the key is removed instead. The key is located only once, so the function must not
+	 * change this map. */
+	@Null
+	public V compute (int key, IntObjFunction<? super V, ? extends V> remappingFunction) {
+		if (key == 0) {
+			V value = remappingFunction.apply(0, hasZeroValue ? zeroValue : null);
+			if (value == null)
+				remove(0);
+			else
+				put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		V value = remappingFunction.apply(key, i >= 0 ? valueTable[i] : null);
+		if (i < 0) {
+			if (value != null) insert(-(i + 1), key, value);
+		} else if (value == null)
+			removeAt(i);
+		else
+			valueTable[i] = value;
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, else replaces the key's value with the result of
+	 * {@code remappingFunction.apply(oldValue, value)}, removing the key if that is null. Returns the key's new value, or null if
+	 * it was removed. The key is located only once, so the function must not change this map. */
+	@Null
+	public V merge (int key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		if (key == 0) {
+			V oldValue = hasZeroValue ? zeroValue : null;
+			V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+			if (newValue == null)
+				remove(0);
+			else
+				put(0, newValue);
+			return newValue;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		V oldValue = valueTable[i];
+		V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+		if (newValue == null)
+			removeAt(i);
+		else
+			valueTable[i] = newValue;
+		return newValue;
+	}
+
 	public void putAll (IntMap<? extends V> map) {
 		ensureCapacity(map.size);
 		if (map.hasZeroValue) put(0, map.zeroValue);
@@ -178,12 +296,13 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 	}
 
 	/** Skips checks for existing keys, doesn't increment size, doesn't need to handle key 0. */
-	private void putResize (int key, @Null V value) {
+	void putResize (int key, @Null V value) {
 		int[] keyTable = this.keyTable;
 		for (int i = place(key);; i = (i + 1) & mask) {
 			if (keyTable[i] == 0) {
 				keyTable[i] = key;
 				valueTable[i] = value;
+				occupy(i);
 				return;
 			}
 		}
@@ -214,10 +333,17 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 
 		int i = locateKey(key);
 		if (i < 0) return null;
+		V oldValue = valueTable[i];
+		removeAt(i);
+		return oldValue;
+	}
+
+	/** Removes the key and value at index {@code i} using the backward shift algorithm, and decrements size. Returns the index
+	 * that was left empty, which is not {@code i} if later entries were shifted back to fill it. */
+	int removeAt (int i) {
 		int[] keyTable = this.keyTable;
 		V[] valueTable = this.valueTable;
-		V oldValue = valueTable[i];
-		int next = i + 1 & mask;
+		int mask = this.mask, next = i + 1 & mask, key;
 		int placement;
 		while ((key = keyTable[next]) != 0) {
 			placement = place(key);
@@ -230,8 +356,96 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		}
 
 		keyTable[i] = 0;
+		vacate(i);
 		size--;
-		return oldValue;
+		return i;
+	}
+
+	/** Removes every entry for which the predicate returns true, and returns true if any were removed. The predicate is called
+	 * once for each entry, in no particular order, and must not change this map.
+	 * <p>
+	 * This is much faster than removing many entries with an iterator, which shifts later keys back after every removal. Here,
+	 * entries are removed in one sweep over the table that starts just after an empty slot, and each key that follows a removal
+	 * in its cluster moves back once, to the first empty slot at or after its placement. Clusters with no removals are left
+	 * alone. */
+	public boolean removeIf (IntObjPredicate<? super V> predicate) {
+		int oldSize = size;
+		if (hasZeroValue && predicate.test(0, zeroValue)) {
+			hasZeroValue = false;
+			zeroValue = null;
+			size--;
+		}
+		int[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int mask = this.mask, start = 0;
+		while (keyTable[start] != 0) // There is always an empty slot, and no cluster crosses one.
+			start++;
+		boolean moving = false;
+		for (int i = start + 1 & mask; i != start; i = i + 1 & mask) {
+			int key = keyTable[i];
+			if (key == 0) // Slots ahead of i are untouched, so this one was empty before, and ends the cluster.
+				moving = false;
+			else if (predicate.test(key, valueTable[i])) {
+				keyTable[i] = 0;
+				valueTable[i] = null;
+				vacate(i);
+				size--;
+				moving = true;
+			} else if (moving) {
+				for (int p = place(key); p != i; p = p + 1 & mask) {
+					if (keyTable[p] == 0) {
+						keyTable[p] = key;
+						valueTable[p] = valueTable[i];
+						keyTable[i] = 0;
+						valueTable[i] = null;
+						occupy(p);
+						vacate(i);
+						break;
+					}
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	/** Sets the bit for index {@code i}, which was just filled, if occupancy is tracked. */
+	void occupy (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] |= 1L << i;
+	}
+
+	/** Clears the bit for index {@code i}, which was just emptied, if occupancy is tracked. */
+	void vacate (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] &= ~(1L << i);
+	}
+
+	/** Turns on or off a bitmap with one bit for each slot of the table, which lets the iterators and
+	 * {@link #forEach(IntObjConsumer)} skip 64 empty slots at a time instead of checking each one. This pays off for tables that
+	 * are mostly empty, such as one that grew large and then had most of its entries removed; for a table near its load factor
+	 * it only slows puts and removes a little. The bitmap takes 1 bit per slot and is off by default. */
+	public void trackOccupancy (boolean track) {
+		if (!track)
+			occupancy = null;
+		else if (occupancy == null) {
+			occupancy = newOccupancy(keyTable.length);
+			rebuildOccupancy();
+		}
+	}
+
+	/** Returns true if {@link #trackOccupancy(boolean)} turned on the occupancy bitmap. */
+	public boolean tracksOccupancy () {
+		return occupancy != null;
+	}
+
+	/** Sets the bitmap to match the key table, if occupancy is tracked; used when the key table is filled without put(). */
+	void rebuildOccupancy () {
+		long[] occupancy = this.occupancy;
+		if (occupancy == null) return;
+		Arrays.fill(occupancy, 0);
+		int[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (keyTable[i] != 0) occupancy[i >>> 6] |= 1L << i;
 	}
 
 	/** Returns true if the map has one or more items. */
@@ -271,6 +485,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		size = 0;
 		Arrays.fill(keyTable, 0);
 		Arrays.fill(valueTable, null);
+		if (occupancy != null) Arrays.fill(occupancy, 0);
 		zeroValue = null;
 		hasZeroValue = false;
 	}
@@ -304,6 +519,44 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		return locateKey(key) >= 0;
 	}
 
+	/** Looks up each of the keys and stores its value at the same index in out, or null for keys not in the map. This gives the
+	 * same results as calling {@link #get(int)} for each key, but places a batch of keys and loads their first slots before
+	 * probing for any of them, so the cache misses of a large table overlap instead of being paid one at a time.
+	 * @param out must be at least as long as keys
+	 * @return out */
+	public V[] getAll (int[] keys, V[] out) {
+		checkBatch(keys.length, out.length);
+		int[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int mask = this.mask;
+		int[] places = new int[Math.min(keys.length, BATCH_SIZE)];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				int i = place(keys[j]);
+				places[j - start] = keyTable[i] == 0 ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				int key = keys[j];
+				V value = null;
+				if (key == 0) {
+					if (hasZeroValue) value = zeroValue;
+				} else {
+					for (int i = places[j - start]; i >= 0; i = i + 1 & mask) {
+						int other = keyTable[i];
+						if (other == key) {
+							value = valueTable[i];
+							break;
+						}
+						if (other == 0) break;
+					}
+				}
+				out[j] = value;
+			}
+		}
+		return out;
+	}
+
 	/** Returns the key for the specified value, or <tt>notFound</tt> if it is not in the map. Note this traverses the entire map
 	 * and compares every value, which may be an expensive operation.
 	 * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
@@ -334,7 +587,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -345,6 +598,7 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 
 		keyTable = new int[newSize];
 		valueTable = (V[])new Object[newSize];
+		if (occupancy != null) occupancy = newOccupancy(newSize);
 
 		if (size > 0) {
 			for (int i = 0; i < oldCapacity; i++) {
@@ -354,6 +608,78 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(int)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0 key
+	 * is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(int)} for every
+	 * key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		int[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(4).values(MemoryStats.REFERENCE_BYTES)
+			.extra(occupancy == null ? 0 : MemoryStats.array(occupancy.length, 8))
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (IntObjConsumer<? super V> consumer) {
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		int[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					consumer.accept(keyTable[i], valueTable[i]);
+				}
+			}
+			return;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (IntObjPredicate<? super V> predicate) {
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		int[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					if (!predicate.test(keyTable[i], valueTable[i])) return false;
+				}
+			}
+			return true;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0 && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		if (hasZeroValue && zeroValue != null) h += zeroValue.hashCode();
@@ -553,6 +879,12 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 
 		void findNextIndex () {
 			int[] keyTable = map.keyTable;
+			long[] occupancy = map.occupancy;
+			if (occupancy != null) {
+				nextIndex = nextOccupied(occupancy, nextIndex + 1, keyTable.length);
+				hasNext = nextIndex < keyTable.length;
+				return;
+			}
 			for (int n = keyTable.length; ++nextIndex < n;) {
 				if (keyTable[nextIndex] != 0) {
 					hasNext = true;
@@ -566,27 +898,14 @@ public class IntMap<V> implements Iterable<IntMap.Entry<V>> {
 			int i = currentIndex;
 			if (i == INDEX_ZERO && map.hasZeroValue) {
 				map.hasZeroValue = false;
+				map.zeroValue = null;
+				map.size--;
 			} else if (i < 0) {
 				throw new IllegalStateException("next must be called before remove.");
 			} else {
-				int[] keyTable = map.keyTable;
-				V[] valueTable = map.valueTable;
-				int mask = map.mask, next = i + 1 & mask, key;
-				int placement;
-				while ((key = keyTable[next]) != 0) {
-					placement = map.place(key);
-					if((next - placement & mask) > (i - placement & mask)) {
-						keyTable[i] = key;
-						valueTable[i] = valueTable[next];
-						i = next;
-					}
-					next = next + 1 & mask;
-				}
-keyTable[i] = 0;
-				if (i != currentIndex) --nextIndex;
+				if (map.removeAt(i) != i) --nextIndex;
 			}
 			currentIndex = INDEX_ILLEGAL;
-			map.size--;
 		}
 	}
 
@@ -20,9 +20,14 @@ import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 
+import ds.merry.function.IntConsumer;
+import ds.merry.function.IntPredicate;
+
 import java.util.Arrays;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered set where the items are unboxed ints. No allocation is done except when growing the table size.
@@ -46,8 +51,8 @@ public class IntSet {
 	int[] keyTable;
 	boolean hasZeroValue;
 
-	private final float loadFactor;
-	private int threshold;
+	final float loadFactor;
+	int threshold;
 
 	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
 	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
@@ -257,6 +262,43 @@ public class IntSet {
 		return locateKey(key) >= 0;
 	}
 
+	/** Checks each of the keys and stores whether it is in the set at the same index in out. This gives the same results as calling
+	 * {@link #contains(int)} for each key, but places a batch of keys and loads their first slots before probing for any of them,
+	 * so the cache misses of a large table overlap instead of being paid one at a time.
+	 * @param out must be at least as long as keys
+	 * @return out */
+	public boolean[] containsAll (int[] keys, boolean[] out) {
+		checkBatch(keys.length, out.length);
+		int[] keyTable = this.keyTable;
+		int mask = this.mask;
+		int[] places = new int[Math.min(keys.length, BATCH_SIZE)];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				int i = place(keys[j]);
+				places[j - start] = keyTable[i] == 0 ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				int key = keys[j];
+				boolean found = false;
+				if (key == 0)
+					found = hasZeroValue;
+				else {
+					for (int i = places[j - start]; i >= 0; i = i + 1 & mask) {
+						int other = keyTable[i];
+						if (other == key) {
+							found = true;
+							break;
+						}
+						if (other == 0) break;
+					}
+				}
+				out[j] = found;
+			}
+		}
+		return out;
+	}
+
 	public int first () {
 		if (hasZeroValue) return 0;
 		int[] keyTable = this.keyTable;
@@ -272,7 +314,7 @@ public class IntSet {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -290,6 +332,54 @@ public class IntSet {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this set's table, which can be used to judge if
+	 * {@link #place(int)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0 key
+	 * is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(int)} for every
+	 * key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		int[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this set's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find sets that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(4).iterators(iterator1, iterator2);
+	}
+
+	/** Calls {@code consumer} with each item, in the same order as {@link #iterator()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this set. */
+	public void forEach (IntConsumer consumer) {
+		if (hasZeroValue) consumer.accept(0);
+		int[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0) consumer.accept(key);
+		}
+	}
+
+	/** Calls {@code predicate} with each item, in the same order as {@link #iterator()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every item. The predicate must not
+	 * add to or remove from this set. */
+	public boolean forEachWhile (IntPredicate predicate) {
+		if (hasZeroValue && !predicate.test(0)) return false;
+		int[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int key = keyTable[i];
+			if (key != 0 && !predicate.test(key)) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		int[] keyTable = this.keyTable;
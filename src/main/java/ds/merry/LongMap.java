@@ -21,10 +21,18 @@ import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.LongArray;
 
+import ds.merry.function.BiFunction;
+import ds.merry.function.LongFunction;
+import ds.merry.function.LongObjConsumer;
+import ds.merry.function.LongObjFunction;
+import ds.merry.function.LongObjPredicate;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.newOccupancy;
+import static ds.merry.ObjectSet.nextOccupied;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered map where the keys are unboxed longs and values are objects. No allocation is done except when growing the table
@@ -52,8 +60,12 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 	V zeroValue;
 	boolean hasZeroValue;
 
-	private final float loadFactor;
-	private int threshold;
+	/** If non-null, has one bit for each slot of {@link #keyTable}, set when the slot holds a key. See
+	 * {@link #trackOccupancy(boolean)}. */
+	@Null long[] occupancy;
+
+	final float loadFactor;
+	int threshold;
 
 	/** Used by {@link #place(long)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
 	 * {@link #mask}). The shift can be negative, which is convenient to match the number of bits in mask: if mask is a 7-bit
@@ -110,6 +122,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 		size = map.size;
 		zeroValue = map.zeroValue;
 		hasZeroValue = map.hasZeroValue;
+		if (map.occupancy != null) occupancy = map.occupancy.clone();
 	}
 
 	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}.
@@ -161,10 +174,154 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 		i = -(i + 1); // Empty space was found.
 		keyTable[i] = key;
 		valueTable[i] = value;
+		occupy(i);
 		if (++size >= threshold) resize(keyTable.length << 1);
 		return null;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(long)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, long key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, and returns null; otherwise, returns the key's value
+	 * and changes nothing. The key is located only once. */
+	@Null
+	public V putIfAbsent (long key, @Null V value) {
+		if (key == 0) {
+			V oldValue = hasZeroValue ? zeroValue : null;
+			if (oldValue == null) put(0, value);
+			return oldValue;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return null;
+		}
+		V oldValue = valueTable[i];
+		if (oldValue == null) valueTable[i] = value;
+		return oldValue;
+	}
+
+	/** Returns the value for the key, first putting the result of {@code mappingFunction} for the key if the key is not in the
+	 * map or is mapped to null. If the function returns null, nothing is put and null is returned. The key is located only
+	 * once, so the function must not change this map. */
+	@Null
+	public V computeIfAbsent (long key, LongFunction<? extends V> mappingFunction) {
+		if (key == 0) {
+			if (hasZeroValue && zeroValue != null) return zeroValue;
+			V value = mappingFunction.apply(0);
+			if (value != null) put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		if (i >= 0) {
+			if (valueTable[i] == null) valueTable[i] = mappingFunction.apply(key);
+			return valueTable[i];
+		}
+		V value = mappingFunction.apply(key);
+		if (value != null) insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.apply(key, oldValue)}, where oldValue is null if the key is not in the map,
+	 * and returns it. If the result is null, the key is removed instead. The key is located only once, so the function must not
+	 * change this map. */
+	@Null
+	public V compute (long key, LongObjFunction<? super V, ? extends V> remappingFunction) {
+		if (key == 0) {
+			V value = remappingFunction.apply(0, hasZeroValue ? zeroValue : null);
+			if (value == null)
+				remove(0);
+			else
+				put(0, value);
+			return value;
+		}
+		int i = locateKey(key);
+		V value = remappingFunction.apply(key, i >= 0 ? valueTable[i] : null);
+		if (i < 0) {
+			if (value != null) insert(-(i + 1), key, value);
+		} else if (value == null)
+			removeAt(i);
+		else
+			valueTable[i] = value;
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, else replaces the key's value with the result of
+	 * {@code remappingFunction.apply(oldValue, value)}, removing the key if that is null. Returns the key's new value, or null if
+	 * it was removed. The key is located only once, so the function must not change this map. */
+	@Null
+	public V merge (long key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		if (key == 0) {
+			V oldValue = hasZeroValue ? zeroValue : null;
+			V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+			if (newValue == null)
+				remove(0);
+			else
+				put(0, newValue);
+			return newValue;
+		}
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		V oldValue = valueTable[i];
+		V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+		if (newValue == null)
+			removeAt(i);
+		else
+			valueTable[i] = newValue;
+		return newValue;
+	}
+
+	/** Returns a handle for the key: its index in the table if it is in the map, else -(index + 1) for the index where
+	 * {@link #insertAt(int, long, Object)} would put it. With a handle, a value can be read and written back after one lookup,
+	 * using {@link #keyAt(int)}, {@link #valueAt(int)} and {@link #setValueAt(int, Object)}. Handles are only valid until a key
+	 * is put or removed; changing values doesn't affect them. The zero key isn't kept in the table, so its handle is one past
+	 * the last index, or -(that + 1) if it isn't in the map. */
+	public int indexOf (long key) {
+		if (key == 0) return hasZeroValue ? mask + 1 : -(mask + 2);
+		return locateKey(key);
+	}
+
+	/** Returns the key for a non-negative handle from {@link #indexOf(long)}. */
+	public long keyAt (int slot) {
+		return slot > mask ? 0 : keyTable[slot];
+	}
+
+	/** Returns the value for a non-negative handle from {@link #indexOf(long)}. */
+	@Null
+	public V valueAt (int slot) {
+		return slot > mask ? zeroValue : valueTable[slot];
+	}
+
+	/** Changes the value for a non-negative handle from {@link #indexOf(long)}. */
+	public void setValueAt (int slot, @Null V value) {
+		if (slot > mask)
+			zeroValue = value;
+		else
+			valueTable[slot] = value;
+	}
+
+	/** Puts the key and value using the negative handle that {@link #indexOf(long)} just returned for the same key, without
+	 * locating the key again. This may grow the table, and like any insertion it makes other handles invalid.
+	 * @throws IllegalArgumentException if the handle is for a key that is already in the map */
+	public void insertAt (int slot, long key, @Null V value) {
+		if (slot >= 0) throw new IllegalArgumentException("slot already has a key: " + slot);
+		if (key == 0) {
+			put(0, value);
+			return;
+		}
+		insert(-(slot + 1), key, value);
+	}
+
 	public void putAll (LongMap<? extends V> map) {
 		ensureCapacity(map.size);
 		if (map.hasZeroValue) put(0, map.zeroValue);
@@ -183,6 +340,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 			if (keyTable[i] == 0) {
 				keyTable[i] = key;
 				valueTable[i] = value;
+				occupy(i);
 				return;
 			}
 		}
@@ -214,10 +372,18 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 
 		int i = locateKey(key);
 		if (i < 0) return null;
+		V oldValue = valueTable[i];
+		removeAt(i);
+		return oldValue;
+	}
+
+	/** Removes the key and value at index {@code i} using the backward shift algorithm, and decrements size. Returns the index
+	 * that was left empty, which is not {@code i} if later entries were shifted back to fill it. */
+	int removeAt (int i) {
 		long[] keyTable = this.keyTable;
 		V[] valueTable = this.valueTable;
-		V oldValue = valueTable[i];
-		int next = i + 1 & mask;
+		int mask = this.mask, next = i + 1 & mask;
+		long key;
 		int placement;
 		while ((key = keyTable[next]) != 0) {
 			placement = place(key);
@@ -228,9 +394,98 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 			}
 			next = next + 1 & mask;
 		}
+
 		keyTable[i] = 0;
+		vacate(i);
 		size--;
-		return oldValue;
+		return i;
+	}
+
+	/** Removes every entry for which the predicate returns true, and returns true if any were removed. The predicate is called
+	 * once for each entry, in no particular order, and must not change this map.
+	 * <p>
+	 * This is much faster than removing many entries with an iterator, which shifts later keys back after every removal. Here,
+	 * entries are removed in one sweep over the table that starts just after an empty slot, and each key that follows a removal
+	 * in its cluster moves back once, to the first empty slot at or after its placement. Clusters with no removals are left
+	 * alone. */
+	public boolean removeIf (LongObjPredicate<? super V> predicate) {
+		int oldSize = size;
+		if (hasZeroValue && predicate.test(0, zeroValue)) {
+			hasZeroValue = false;
+			zeroValue = null;
+			size--;
+		}
+		long[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int mask = this.mask, start = 0;
+		while (keyTable[start] != 0) // There is always an empty slot, and no cluster crosses one.
+			start++;
+		boolean moving = false;
+		for (int i = start + 1 & mask; i != start; i = i + 1 & mask) {
+			long key = keyTable[i];
+			if (key == 0) // Slots ahead of i are untouched, so this one was empty before, and ends the cluster.
+				moving = false;
+			else if (predicate.test(key, valueTable[i])) {
+				keyTable[i] = 0;
+				valueTable[i] = null;
+				vacate(i);
+				size--;
+				moving = true;
+			} else if (moving) {
+				for (int p = place(key); p != i; p = p + 1 & mask) {
+					if (keyTable[p] == 0) {
+						keyTable[p] = key;
+						valueTable[p] = valueTable[i];
+						keyTable[i] = 0;
+						valueTable[i] = null;
+						occupy(p);
+						vacate(i);
+						break;
+					}
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	/** Sets the bit for index {@code i}, which was just filled, if occupancy is tracked. */
+	void occupy (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] |= 1L << i;
+	}
+
+	/** Clears the bit for index {@code i}, which was just emptied, if occupancy is tracked. */
+	void vacate (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] &= ~(1L << i);
+	}
+
+	/** Turns on or off a bitmap with one bit for each slot of the table, which lets the iterators and
+	 * {@link #forEach(LongObjConsumer)} skip 64 empty slots at a time instead of checking each one. This pays off for tables that
+	 * are mostly empty, such as one that grew large and then had most of its entries removed; for a table near its load factor
+	 * it only slows puts and removes a little. The bitmap takes 1 bit per slot and is off by default. */
+	public void trackOccupancy (boolean track) {
+		if (!track)
+			occupancy = null;
+		else if (occupancy == null) {
+			occupancy = newOccupancy(keyTable.length);
+			rebuildOccupancy();
+		}
+	}
+
+	/** Returns true if {@link #trackOccupancy(boolean)} turned on the occupancy bitmap. */
+	public boolean tracksOccupancy () {
+		return occupancy != null;
+	}
+
+	/** Sets the bitmap to match the key table, if occupancy is tracked; used when the key table is filled without put(). */
+	void rebuildOccupancy () {
+		long[] occupancy = this.occupancy;
+		if (occupancy == null) return;
+		Arrays.fill(occupancy, 0);
+		long[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (keyTable[i] != 0) occupancy[i >>> 6] |= 1L << i;
 	}
 
 	/** Returns true if the map has one or more items. */
@@ -270,6 +525,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 		size = 0;
 		Arrays.fill(keyTable, 0);
 		Arrays.fill(valueTable, null);
+		if (occupancy != null) Arrays.fill(occupancy, 0);
 		zeroValue = null;
 		hasZeroValue = false;
 	}
@@ -333,7 +589,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -344,6 +600,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 
 		keyTable = new long[newSize];
 		valueTable = (V[])new Object[newSize];
+		if (occupancy != null) occupancy = newOccupancy(newSize);
 
 		if (size > 0) {
 			for (int i = 0; i < oldCapacity; i++) {
@@ -353,6 +610,78 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(long)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. The 0
+	 * key is stored outside the table and is not counted. This traverses the whole table and calls {@link #place(long)} for
+	 * every key, so it is meant for occasional monitoring rather than for hot code. */
+	public HashStats hashStats () {
+		long[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			long key = keyTable[i];
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. The 0
+	 * key is stored outside the table and is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, hasZeroValue ? size - 1 : size).keys(8).values(MemoryStats.REFERENCE_BYTES)
+			.extra(occupancy == null ? 0 : MemoryStats.array(occupancy.length, 8))
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (LongObjConsumer<? super V> consumer) {
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		long[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					consumer.accept(keyTable[i], valueTable[i]);
+				}
+			}
+			return;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			long key = keyTable[i];
+			if (key != 0) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (LongObjPredicate<? super V> predicate) {
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		long[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					if (!predicate.test(keyTable[i], valueTable[i])) return false;
+				}
+			}
+			return true;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			long key = keyTable[i];
+			if (key != 0 && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		if (hasZeroValue && zeroValue != null) h += zeroValue.hashCode();
@@ -552,6 +881,12 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 
 		void findNextIndex () {
 			long[] keyTable = map.keyTable;
+			long[] occupancy = map.occupancy;
+			if (occupancy != null) {
+				nextIndex = nextOccupied(occupancy, nextIndex + 1, keyTable.length);
+				hasNext = nextIndex < keyTable.length;
+				return;
+			}
 			for (int n = keyTable.length; ++nextIndex < n;) {
 				if (keyTable[nextIndex] != 0) {
 					hasNext = true;
@@ -565,6 +900,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 			int i = currentIndex;
 			if (i == INDEX_ZERO && map.hasZeroValue) {
 				map.hasZeroValue = false;
+				map.zeroValue = null;
 			} else if (i < 0) {
 				throw new IllegalStateException("next must be called before remove.");
 			} else {
@@ -583,6 +919,7 @@ public class LongMap<V> implements Iterable<LongMap.Entry<V>> {
 					next = next + 1 & mask;
 				}
 				keyTable[i] = 0;
+				map.vacate(i);
 				if (i != currentIndex) --nextIndex;
 			}
 			currentIndex = INDEX_ILLEGAL;
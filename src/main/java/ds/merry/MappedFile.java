@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** A file holding the table of a memory-mapped map, such as {@link MappedIntIntMap}, behind a small header. The header takes
+ * the first {@link #HEADER_BYTES} bytes, and the table follows it; both are in the platform's native byte order.
+ * <p>
+ * The header holds, at these byte offsets: a magic number that identifies the kind of map ({@link #MAGIC}), the format version
+ * ({@link #VERSION}), the table's mask and shift, the size, whether the 0 key is present, the load factor, whether the file was
+ * closed cleanly since the last write ({@link #CLEAN}), and the 0 key's value ({@link #ZERO_VALUE}, an int or a long).
+ * @author Tommy Ettinger */
+final class MappedFile {
+	static final int HEADER_BYTES = 64, FORMAT = 1;
+	static final int MAGIC = 0, VERSION = 4, MASK = 8, SHIFT = 12, SIZE = 16, HAS_ZERO_VALUE = 20, LOAD_FACTOR = 24, CLEAN = 28,
+		ZERO_VALUE = 32;
+
+	final File file;
+	final MappedByteBuffer header;
+	final OffHeapTable table;
+	private final RandomAccessFile access;
+
+	private MappedFile (File file, RandomAccessFile access, MappedByteBuffer header, OffHeapTable table) {
+		this.file = file;
+		this.access = access;
+		this.header = header;
+		this.table = table;
+	}
+
+	/** Creates the file, or empties it if it exists, with an empty table of {@code capacity} slots. Only the magic number, version
+	 * and table layout are written to the header; the caller writes the rest. */
+	static MappedFile create (File file, int magic, int capacity, int slotBytes) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			access.setLength(0L);
+			access.setLength(HEADER_BYTES + (long)capacity * slotBytes);
+			FileChannel channel = access.getChannel();
+			MappedByteBuffer header = map(channel);
+			header.putInt(MAGIC, magic);
+			header.putInt(VERSION, FORMAT);
+			header.putInt(MASK, capacity - 1);
+			header.putInt(SHIFT, Long.numberOfLeadingZeros(capacity - 1));
+			return new MappedFile(file, access, header, new OffHeapTable(channel, HEADER_BYTES, capacity, slotBytes));
+		} catch (IOException ex) {
+			access.close();
+			throw ex;
+		}
+	}
+
+	/** Opens a file written by {@link #create(File, int, int, int)}, checking that it holds the expected kind of map. */
+	static MappedFile open (File file, int magic, int slotBytes) throws IOException {
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+		try {
+			if (access.length() < HEADER_BYTES) throw new IOException("File is too short to be a mapped map: " + file);
+			FileChannel channel = access.getChannel();
+			MappedByteBuffer header = map(channel);
+			if (header.getInt(MAGIC) != magic) {
+				OffHeapTable.release(header);
+				throw new IOException("File doesn't hold this kind of map, or was written with another byte order: " + file);
+			}
+			if (header.getInt(VERSION) != FORMAT) {
+				OffHeapTable.release(header);
+				throw new IOException("Unknown format version " + header.getInt(VERSION) + ": " + file);
+			}
+			int capacity = header.getInt(MASK) + 1;
+			if (access.length() < HEADER_BYTES + (long)capacity * slotBytes) {
+				OffHeapTable.release(header);
+				throw new IOException("File is shorter than its table: " + file);
+			}
+			return new MappedFile(file, access, header, new OffHeapTable(channel, HEADER_BYTES, capacity, slotBytes));
+		} catch (IOException ex) {
+			access.close();
+			throw ex;
+		}
+	}
+
+	static private MappedByteBuffer map (FileChannel channel) throws IOException {
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_BYTES);
+		header.order(ByteOrder.nativeOrder());
+		return header;
+	}
+
+	/** Returns this mapping under a new name, after the file was moved there. */
+	MappedFile renamed (File file) {
+		return new MappedFile(file, access, header, table);
+	}
+
+	/** Writes all changes out to the file, and waits until they are on the storage device. */
+	void force () {
+		table.force();
+		header.force();
+	}
+
+	/** Unmaps the header and the table and closes the file. Neither can be used after this. */
+	void close () throws IOException {
+		table.free();
+		OffHeapTable.release(header);
+		access.close();
+	}
+}
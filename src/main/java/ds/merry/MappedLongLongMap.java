@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static ds.merry.MappedFile.CLEAN;
+import static ds.merry.MappedFile.HAS_ZERO_VALUE;
+import static ds.merry.MappedFile.LOAD_FACTOR;
+import static ds.merry.MappedFile.MASK;
+import static ds.merry.MappedFile.SHIFT;
+import static ds.merry.MappedFile.SIZE;
+import static ds.merry.MappedFile.ZERO_VALUE;
+import static ds.merry.ObjectSet.tableSize;
+
+/** An {@link OffHeapLongLongMap} whose table is a memory-mapped file, so the map outlives the process. Opening an existing file
+ * only maps it; no entries are read or copied, and the operating system loads pages of the table as lookups touch them. Every
+ * put and remove writes straight to the mapping.
+ * <p>
+ * The table's layout, the size and the 0 key are kept in a small header at the start of the file, which is brought up to date
+ * by {@link #force()} and {@link #close()}. force() also waits until the file is on the storage device; without it, the
+ * operating system writes changed pages back whenever it chooses. If the process ends without closing the map, the next open
+ * counts the size again from the table, and the 0 key is as it was at the last force(). A crash in the middle of a write can
+ * leave the map in any state; use force() at points that must survive one.
+ * <p>
+ * When the map grows or shrinks, the new table is written to a file next to this one with ".resize" added to its name, which
+ * then replaces this file.
+ * <p>
+ * This class uses memory-mapped files, so it is not available on GWT.
+ * @author Tommy Ettinger */
+public class MappedLongLongMap extends OffHeapLongLongMap {
+	static private final int MAGIC = 0x4D4C4C4D; // "MLLM"
+
+	private MappedFile mapped;
+	private MappedFile resizing;
+
+	/** Opens the map stored in the file, or creates an empty one there with an initial capacity of 51 and a load factor of 0.8 if
+	 * the file doesn't exist or is empty. */
+	public MappedLongLongMap (File file) {
+		this(file, 51, 0.8f);
+	}
+
+	/** Opens the map stored in the file, or creates an empty one there if the file doesn't exist or is empty. The capacity and load
+	 * factor are only used to create a map; an existing one keeps its own.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public MappedLongLongMap (File file, int initialCapacity, float loadFactor) {
+		this(map(file, initialCapacity, loadFactor));
+	}
+
+	private MappedLongLongMap (MappedFile mapped) {
+		super(mapped.header.getFloat(LOAD_FACTOR), mapped.table);
+		this.mapped = mapped;
+		hasZeroValue = mapped.header.getInt(HAS_ZERO_VALUE) != 0;
+		zeroValue = mapped.header.getLong(ZERO_VALUE);
+		if (mapped.header.getInt(CLEAN) != 0)
+			size = mapped.header.getInt(SIZE);
+		else {
+			size = hasZeroValue ? 1 : 0;
+			for (int i = 0, n = table.capacity; i < n; i++)
+				if (table.getLong(i, 0) != 0) size++;
+		}
+		mapped.header.putInt(CLEAN, 0);
+	}
+
+	static private MappedFile map (File file, int initialCapacity, float loadFactor) {
+		try {
+			if (file.length() > 0L) return MappedFile.open(file, MAGIC, SLOT_BYTES);
+			if (loadFactor <= 0f || loadFactor >= 1f)
+				throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+			MappedFile mapped = MappedFile.create(file, MAGIC, tableSize(initialCapacity, loadFactor), SLOT_BYTES);
+			mapped.header.putFloat(LOAD_FACTOR, loadFactor);
+			return mapped;
+		} catch (IOException ex) {
+			throw new GdxRuntimeException("Couldn't map " + file, ex);
+		}
+	}
+
+	/** Returns the file this map is stored in. */
+	public File file () {
+		return mapped.file;
+	}
+
+	private void writeHeader (boolean clean) {
+		mapped.header.putInt(MASK, mask);
+		mapped.header.putInt(SHIFT, shift);
+		mapped.header.putInt(SIZE, size);
+		mapped.header.putInt(HAS_ZERO_VALUE, hasZeroValue ? 1 : 0);
+		mapped.header.putLong(ZERO_VALUE, zeroValue);
+		mapped.header.putInt(CLEAN, clean ? 1 : 0);
+	}
+
+	/** Brings the header up to date and waits until the header and table are written to the storage device. */
+	public void force () {
+		if (table == null) throw new IllegalStateException("The map has been freed.");
+		writeHeader(true);
+		mapped.force();
+		// Later writes aren't covered by this force(), so the size has to be counted again if the process ends without closing.
+		mapped.header.putInt(CLEAN, 0);
+	}
+
+	OffHeapTable newTable (int capacity) {
+		File file = new File(mapped.file.getPath() + ".resize");
+		try {
+			resizing = MappedFile.create(file, MAGIC, capacity, SLOT_BYTES);
+		} catch (IOException ex) {
+			throw new GdxRuntimeException("Couldn't map " + file, ex);
+		}
+		resizing.header.putFloat(LOAD_FACTOR, loadFactor);
+		return resizing.table;
+	}
+
+	void replaceTable (OffHeapTable oldTable) {
+		File file = mapped.file;
+		try {
+			mapped.close();
+			Files.move(resizing.file.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			throw new GdxRuntimeException("Couldn't replace " + file + " with " + resizing.file, ex);
+		}
+		mapped = resizing.renamed(file);
+		resizing = null;
+		writeHeader(false);
+	}
+
+	/** Brings the header up to date, then unmaps and closes the file. The map can't be used after this; the file can be opened
+	 * again with a new MappedLongLongMap. */
+	public void free () {
+		if (table == null) return;
+		writeHeader(true);
+		super.free();
+		try {
+			mapped.close();
+		} catch (IOException ex) {
+			throw new GdxRuntimeException("Couldn't close " + mapped.file, ex);
+		}
+	}
+}
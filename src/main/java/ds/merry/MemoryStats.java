@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry;
+
+/** An estimate of the memory one of the maps or sets in this package retains, as returned by their {@code memoryStats()}
+ * methods. It counts the backing arrays (the key and value tables, any parallel arrays such as cached hashCodes or ordering
+ * positions, the Array that keeps insertion order, and the old table of an incremental resize in progress) and the iterators
+ * the collection has cached, but not the keys and values themselves, which may be shared with other objects.
+ * <p>
+ * Sizes assume a 64-bit HotSpot JVM with compressed references (the default for heaps under 32GB): 16 bytes for an array
+ * header, 12 for an object header, 4 for a reference, and everything rounded up to a multiple of 8. Other JVMs and GWT will
+ * differ, but the estimate is good enough to compare collections and to find ones that are much larger than their contents
+ * need; those usually want {@code shrink()}, a higher load factor, or a smaller initial capacity.
+ * @author Tommy Ettinger */
+public class MemoryStats {
+	/** Bytes used by a reference stored in an array or field. */
+	static public final int REFERENCE_BYTES = 4;
+	static final int ARRAY_HEADER_BYTES = 16, OBJECT_HEADER_BYTES = 12;
+	/** About how much one cached iterator and the Entry it may hold take up. */
+	static final int ITERATOR_BYTES = 48;
+
+	/** The number of slots in the table, including empty slots. An incremental resize in progress counts both tables. */
+	public int capacity;
+	/** How many keys are in the table. Keys that are stored outside the table, such as the 0 key of the int-keyed maps, are not
+	 * counted here. */
+	public int size;
+	/** Bytes retained by the key table. */
+	public long keyBytes;
+	/** Bytes retained by the value table, or 0 for sets. */
+	public long valueBytes;
+	/** Bytes retained by any other arrays or objects the collection keeps its contents in. */
+	public long extraBytes;
+	/** Bytes retained by cached iterators. */
+	public long iteratorBytes;
+	/** Bytes taken by each slot in the table, summed over every array that has one element per slot. */
+	public int slotBytes;
+
+	MemoryStats (int capacity, int size) {
+		this.capacity = capacity;
+		this.size = size;
+	}
+
+	/** Returns the sum of all the byte counts. */
+	public long totalBytes () {
+		return keyBytes + valueBytes + extraBytes + iteratorBytes;
+	}
+
+	/** Returns the fraction of table slots that are empty, from 0 to 1. Linear probing needs some empty slots, so this is always
+	 * at least 1 minus the load factor; anything well beyond that means the table grew and later emptied out. */
+	public float wastedRatio () {
+		return capacity == 0 ? 0f : (capacity - size) / (float)capacity;
+	}
+
+	/** Returns how many bytes the empty slots take up, over all the arrays that have one element per slot. */
+	public long wastedBytes () {
+		return (long)slotBytes * (capacity - size);
+	}
+
+	/** Counts a key table of {@link #capacity} elements, each taking {@code elementBytes}. */
+	MemoryStats keys (int elementBytes) {
+		keyBytes += array(capacity, elementBytes);
+		slotBytes += elementBytes;
+		return this;
+	}
+
+	/** Counts a value table of {@link #capacity} elements, each taking {@code elementBytes}. */
+	MemoryStats values (int elementBytes) {
+		valueBytes += array(capacity, elementBytes);
+		slotBytes += elementBytes;
+		return this;
+	}
+
+	/** Counts an array with one element per slot that isn't the key or value table, such as cached hashCodes. */
+	MemoryStats parallel (int elementBytes) {
+		extraBytes += array(capacity, elementBytes);
+		slotBytes += elementBytes;
+		return this;
+	}
+
+	MemoryStats extra (long bytes) {
+		extraBytes += bytes;
+		return this;
+	}
+
+	/** Adds every count in {@code other} to this, for collections made of several tables. */
+	MemoryStats add (MemoryStats other) {
+		capacity += other.capacity;
+		size += other.size;
+		keyBytes += other.keyBytes;
+		valueBytes += other.valueBytes;
+		extraBytes += other.extraBytes;
+		iteratorBytes += other.iteratorBytes;
+		slotBytes = other.slotBytes;
+		return this;
+	}
+
+	/** Counts each non-null iterator. */
+	MemoryStats iterators (Object... cached) {
+		for (Object iterator : cached)
+			if (iterator != null) iteratorBytes += ITERATOR_BYTES;
+		return this;
+	}
+
+	/** Returns the bytes retained by an array with {@code length} elements of {@code elementBytes} each. */
+	static long array (int length, int elementBytes) {
+		return align(ARRAY_HEADER_BYTES + (long)length * elementBytes);
+	}
+
+	/** Returns the bytes retained by a libGDX Array, its backing array and its fields. */
+	static long gdxArray (int length) {
+		return align(OBJECT_HEADER_BYTES + REFERENCE_BYTES + 4 + 1) + array(length, REFERENCE_BYTES);
+	}
+
+	static long align (long bytes) {
+		return bytes + 7 & -8L;
+	}
+
+	public String toString () {
+		return "MemoryStats{capacity=" + capacity + ", size=" + size + ", wastedRatio=" + wastedRatio() + ", totalBytes="
+			+ totalBytes() + ", wastedBytes=" + wastedBytes() + ", keyBytes=" + keyBytes + ", valueBytes=" + valueBytes
+			+ ", extraBytes=" + extraBytes + ", iteratorBytes=" + iteratorBytes + '}';
+	}
+}
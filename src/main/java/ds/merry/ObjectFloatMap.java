@@ -21,6 +21,12 @@ import com.badlogic.gdx.utils.FloatArray;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.NumberUtils;
 
+import ds.merry.function.FloatBinaryOperator;
+import ds.merry.function.ObjFloatConsumer;
+import ds.merry.function.ObjFloatPredicate;
+import ds.merry.function.ObjFloatToFloatFunction;
+import ds.merry.function.ToFloatFunction;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -67,6 +73,10 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 	 * hash. */
 	protected int mask;
 
+	/** If non-null, this hashes and compares keys in place of their own {@link Object#hashCode()} and
+	 * {@link Object#equals(Object)}. */
+	@Null final HashingStrategy<? super K> strategy;
+
 	Entries entries1, entries2;
 	Values values1, values2;
 	Keys keys1, keys2;
@@ -86,6 +96,20 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 	 * growing the backing table.
 	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
 	public ObjectFloatMap (int initialCapacity, float loadFactor) {
+		this(initialCapacity, loadFactor, null);
+	}
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8, which hashes and compares keys with the
+	 * specified strategy. */
+	public ObjectFloatMap (HashingStrategy<? super K> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor, which hashes and compares keys with the specified
+	 * strategy, or with their own methods if it is null. This map will hold initialCapacity items before growing the backing
+	 * table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ObjectFloatMap (int initialCapacity, float loadFactor, @Null HashingStrategy<? super K> strategy) {
 		if (loadFactor <= 0f || loadFactor >= 1f)
 			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
 		this.loadFactor = loadFactor;
@@ -97,11 +121,12 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 
 		keyTable = (K[])new Object[tableSize];
 		valueTable = new float[tableSize];
+		this.strategy = strategy;
 	}
 
 	/** Creates a new map identical to the specified map. */
 	public ObjectFloatMap (ObjectFloatMap<? extends K> map) {
-		this((int)Math.floor(map.keyTable.length * map.loadFactor), map.loadFactor);
+		this((int)Math.floor(map.keyTable.length * map.loadFactor), map.loadFactor, (HashingStrategy)map.strategy);
 		System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
 		System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
 		size = map.size;
@@ -122,13 +147,15 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 	 * Fibonacci numbers, if keys provide poor or incorrect hashcodes, or to simplify hashing if keys provide high quality
 	 * hashcodes and don't need Fibonacci hashing: {@code return item.hashCode() & mask;} */
 	protected int place (K item) {
-		return (int)(item.hashCode() * 0x9E3779B97F4A7C15L >>> shift);
+		HashingStrategy<? super K> strategy = this.strategy;
+		return (int)((strategy == null ? item.hashCode() : strategy.hash(item)) * 0x9E3779B97F4A7C15L >>> shift);
 	}
 
 	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
 	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
 	int locateKey (K key) {
 		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		if (strategy != null) return locateStrategy(key, strategy);
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = i + 1 & mask) {
 			K other = keyTable[i];
@@ -137,6 +164,17 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 		}
 	}
 
+	/** Like {@link #locateKey(Object)}, but compares keys with a {@link HashingStrategy}. Keeping this out of locateKey() leaves
+	 * the usual path with calls to {@link Object#equals(Object)} only, which the JIT can often inline for a single key type. */
+	int locateStrategy (K key, HashingStrategy<? super K> strategy) {
+		K[] keyTable = this.keyTable;
+		for (int i = place(key);; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (strategy.equals(other, key)) return i; // Same key was found.
+		}
+	}
+
 	/** You can use {@link #get(Object, float)} with a defaultValue of {@link Float#NaN} if you want to tell with certainty that a
 	 * key is not present; comparing with NaN is tricky but {@link Float#isNaN(float)} makes it easy. If isNaN returns true, you
 	 * can generally act like another Map had returned null in the same situation (meaning the value is unusable). This works
@@ -166,7 +204,7 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 	}
 
 	/** Skips checks for existing keys, doesn't increment size. */
-	private void putResize (K key, float value) {
+	void putResize (K key, float value) {
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = (i + 1) & mask) {
 			if (keyTable[i] == null) {
@@ -199,6 +237,59 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 		return defaultValue;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(Object)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, K key, float value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value and returns true if the key is not in the map; otherwise, returns false and changes nothing. The key is
+	 * located only once. */
+	public boolean putIfAbsent (K key, float value) {
+		int i = locateKey(key);
+		if (i >= 0) return false;
+		insert(-(i + 1), key, value);
+		return true;
+	}
+
+	/** Returns the value for the key, first putting {@code mappingFunction.applyAsFloat(key)} if the key is not in the map. The
+	 * key is located only once, so the function must not change this map. */
+	public float computeIfAbsent (K key, ToFloatFunction<? super K> mappingFunction) {
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		float value = mappingFunction.applyAsFloat(key);
+		insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.applyAsFloat(key, oldValue)}, where oldValue is defaultValue if the key is not
+	 * in the map, and returns it. The key is located only once, so the function must not change this map. */
+	public float compute (K key, float defaultValue, ObjFloatToFloatFunction<? super K> remappingFunction) {
+		int i = locateKey(key);
+		float value = remappingFunction.applyAsFloat(key, i >= 0 ? valueTable[i] : defaultValue);
+		if (i >= 0)
+			valueTable[i] = value;
+		else
+			insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with
+	 * {@code remappingFunction.applyAsFloat(oldValue, value)}, and returns the key's new value. Merging with an operator that adds
+	 * its arguments keeps a running total for each key. The key is located only once, so the function must not change this map. */
+	public float merge (K key, float value, FloatBinaryOperator remappingFunction) {
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		value = remappingFunction.applyAsFloat(valueTable[i], value);
+		valueTable[i] = value;
+		return value;
+	}
+
 	public float remove (K key, float defaultValue) {
 		int i = locateKey(key);
 		if (i < 0) return defaultValue;
@@ -311,13 +402,63 @@ public class ObjectFloatMap<K> implements Iterable<ObjectFloatMap.Entry<K>> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(Object)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. This
+	 * traverses the whole table and calls {@link #place(Object)} for every key, so it is meant for occasional monitoring
+	 * rather than for hot code. */
+	public HashStats hashStats () {
+		K[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key == null)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, size).keys(MemoryStats.REFERENCE_BYTES).values(4)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (ObjFloatConsumer<? super K> consumer) {
+		K[] keyTable = this.keyTable;
+		float[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (ObjFloatPredicate<? super K> predicate) {
+		K[] keyTable = this.keyTable;
+		float[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		K[] keyTable = this.keyTable;
+		HashingStrategy<? super K> strategy = this.strategy;
 		float[] valueTable = this.valueTable;
 		for (int i = 0, n = keyTable.length; i < n; i++) {
 			K key = keyTable[i];
-			if (key != null) h += key.hashCode() + NumberUtils.floatToRawIntBits(valueTable[i]);
+			if (key != null)
+				h += (strategy == null ? key.hashCode() : strategy.hash(key)) + NumberUtils.floatToRawIntBits(valueTable[i]);
 		}
 		return h;
 	}
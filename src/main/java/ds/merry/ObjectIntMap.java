@@ -20,10 +20,18 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.IntArray;
 
+import ds.merry.function.IntBinaryOperator;
+import ds.merry.function.ObjIntConsumer;
+import ds.merry.function.ObjIntPredicate;
+import ds.merry.function.ObjIntToIntFunction;
+import ds.merry.function.ToIntFunction;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered map where the keys are objects and the values are unboxed ints. Null keys are not allowed. No allocation is done
@@ -66,6 +74,10 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 	 * hash. */
 	protected int mask;
 
+	/** If non-null, this hashes and compares keys in place of their own {@link Object#hashCode()} and
+	 * {@link Object#equals(Object)}. */
+	@Null final HashingStrategy<? super K> strategy;
+
 	Entries entries1, entries2;
 	Values values1, values2;
 	Keys keys1, keys2;
@@ -85,6 +97,20 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 	 * growing the backing table.
 	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
 	public ObjectIntMap (int initialCapacity, float loadFactor) {
+		this(initialCapacity, loadFactor, null);
+	}
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8, which hashes and compares keys with the
+	 * specified strategy. */
+	public ObjectIntMap (HashingStrategy<? super K> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor, which hashes and compares keys with the specified
+	 * strategy, or with their own methods if it is null. This map will hold initialCapacity items before growing the backing
+	 * table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ObjectIntMap (int initialCapacity, float loadFactor, @Null HashingStrategy<? super K> strategy) {
 		if (loadFactor <= 0f || loadFactor >= 1f)
 			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
 		this.loadFactor = loadFactor;
@@ -96,11 +122,12 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 
 		keyTable = (K[])new Object[tableSize];
 		valueTable = new int[tableSize];
+		this.strategy = strategy;
 	}
 
 	/** Creates a new map identical to the specified map. */
 	public ObjectIntMap (ObjectIntMap<? extends K> map) {
-		this((int)(map.keyTable.length * map.loadFactor), map.loadFactor);
+		this((int)(map.keyTable.length * map.loadFactor), map.loadFactor, (HashingStrategy)map.strategy);
 		System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
 		System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
 		size = map.size;
@@ -121,13 +148,15 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 	 * Fibonacci numbers, if keys provide poor or incorrect hashcodes, or to simplify hashing if keys provide high quality
 	 * hashcodes and don't need Fibonacci hashing: {@code return item.hashCode() & mask;} */
 	protected int place (K item) {
-		return (int)(item.hashCode() * 0x9E3779B97F4A7C15L >>> shift);
+		HashingStrategy<? super K> strategy = this.strategy;
+		return (int)((strategy == null ? item.hashCode() : strategy.hash(item)) * 0x9E3779B97F4A7C15L >>> shift);
 	}
 
 	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
 	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
 	int locateKey (K key) {
 		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		if (strategy != null) return locateStrategy(key, strategy);
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = i + 1 & mask) {
 			K other = keyTable[i];
@@ -136,6 +165,17 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 		}
 	}
 
+	/** Like {@link #locateKey(Object)}, but compares keys with a {@link HashingStrategy}. Keeping this out of locateKey() leaves
+	 * the usual path with calls to {@link Object#equals(Object)} only, which the JIT can often inline for a single key type. */
+	int locateStrategy (K key, HashingStrategy<? super K> strategy) {
+		K[] keyTable = this.keyTable;
+		for (int i = place(key);; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (strategy.equals(other, key)) return i; // Same key was found.
+		}
+	}
+
 	/** Doesn't return a value, unlike other maps. */
 	public void put (K key, int value) {
 		int i = locateKey(key);
@@ -161,7 +201,7 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 	}
 
 	/** Skips checks for existing keys, doesn't increment size. */
-	private void putResize (K key, int value) {
+	void putResize (K key, int value) {
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = (i + 1) & mask) {
 			if (keyTable[i] == null) {
@@ -194,6 +234,91 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 		return defaultValue;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(Object)} just returned as
+	 * -(i + 1), and grows the table if needed. */
+	void insert (int i, K key, int value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Puts the value and returns true if the key is not in the map; otherwise, returns false and changes nothing. The key is
+	 * located only once. */
+	public boolean putIfAbsent (K key, int value) {
+		int i = locateKey(key);
+		if (i >= 0) return false;
+		insert(-(i + 1), key, value);
+		return true;
+	}
+
+	/** Returns the value for the key, first putting {@code mappingFunction.applyAsInt(key)} if the key is not in the map. The key
+	 * is located only once, so the function must not change this map. */
+	public int computeIfAbsent (K key, ToIntFunction<? super K> mappingFunction) {
+		int i = locateKey(key);
+		if (i >= 0) return valueTable[i];
+		int value = mappingFunction.applyAsInt(key);
+		insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.applyAsInt(key, oldValue)}, where oldValue is defaultValue if the key is not in
+	 * the map, and returns it. The key is located only once, so the function must not change this map. */
+	public int compute (K key, int defaultValue, ObjIntToIntFunction<? super K> remappingFunction) {
+		int i = locateKey(key);
+		int value = remappingFunction.applyAsInt(key, i >= 0 ? valueTable[i] : defaultValue);
+		if (i >= 0)
+			valueTable[i] = value;
+		else
+			insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map, else replaces the key's value with
+	 * {@code remappingFunction.applyAsInt(oldValue, value)}, and returns the key's new value. Merging with an operator that adds
+	 * its arguments keeps a running total for each key. The key is located only once, so the function must not change this map. */
+	public int merge (K key, int value, IntBinaryOperator remappingFunction) {
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		value = remappingFunction.applyAsInt(valueTable[i], value);
+		valueTable[i] = value;
+		return value;
+	}
+
+	/** Returns a handle for the key: its index in the table if it is in the map, else -(index + 1) for the index where
+	 * {@link #insertAt(int, Object, int)} would put it. With a handle, a value can be read and written back after one lookup,
+	 * using {@link #keyAt(int)}, {@link #valueAt(int)} and {@link #setValueAt(int, int)}. Handles are only valid until a key
+	 * is put or removed; changing values doesn't affect them. */
+	public int indexOf (K key) {
+		return locateKey(key);
+	}
+
+	/** Returns the key for a non-negative handle from {@link #indexOf(Object)}. */
+	public K keyAt (int slot) {
+		return keyTable[slot];
+	}
+
+	/** Returns the value for a non-negative handle from {@link #indexOf(Object)}. */
+	public int valueAt (int slot) {
+		return valueTable[slot];
+	}
+
+	/** Changes the value for a non-negative handle from {@link #indexOf(Object)}. */
+	public void setValueAt (int slot, int value) {
+		valueTable[slot] = value;
+	}
+
+	/** Puts the key and value using the negative handle that {@link #indexOf(Object)} just returned for the same key, without
+	 * locating the key again. This may grow the table, and like any insertion it makes other handles invalid.
+	 * @throws IllegalArgumentException if the handle is for a key that is already in the map */
+	public void insertAt (int slot, K key, int value) {
+		if (slot >= 0) throw new IllegalArgumentException("slot already has a key: " + slot);
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		insert(-(slot + 1), key, value);
+	}
+
 	public int remove (K key, int defaultValue) {
 		int i = locateKey(key);
 		if (i < 0) return defaultValue;
@@ -266,6 +391,43 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 		return locateKey(key) >= 0;
 	}
 
+	/** Looks up each of the keys and stores its value at the same index in out, or defaultValue for keys not in the map. This gives
+	 * the same results as calling {@link #get(Object, int)} for each key, but places a batch of keys and loads their first slots
+	 * before probing for any of them, so the cache misses of a large table overlap instead of being paid one at a time.
+	 * @param out must be at least as long as keys
+	 * @return out */
+	public int[] getAll (K[] keys, int[] out, int defaultValue) {
+		checkBatch(keys.length, out.length);
+		K[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		int mask = this.mask;
+		HashingStrategy<? super K> strategy = this.strategy;
+		int[] places = new int[Math.min(keys.length, BATCH_SIZE)];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				K key = keys[j];
+				if (key == null) throw new IllegalArgumentException("key cannot be null.");
+				int i = place(key);
+				places[j - start] = keyTable[i] == null ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				K key = keys[j];
+				int value = defaultValue;
+				for (int i = places[j - start]; i >= 0; i = i + 1 & mask) {
+					K other = keyTable[i];
+					if (other == null) break;
+					if (strategy == null ? other.equals(key) : strategy.equals(other, key)) {
+						value = valueTable[i];
+						break;
+					}
+				}
+				out[j] = value;
+			}
+		}
+		return out;
+	}
+
 	/** Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
 	 * every value, which may be an expensive operation. */
 	@Null
@@ -306,13 +468,62 @@ public class ObjectIntMap<K> implements Iterable<ObjectIntMap.Entry<K>> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(Object)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. This
+	 * traverses the whole table and calls {@link #place(Object)} for every key, so it is meant for occasional monitoring
+	 * rather than for hot code. */
+	public HashStats hashStats () {
+		K[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key == null)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, size).keys(MemoryStats.REFERENCE_BYTES).values(4)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (ObjIntConsumer<? super K> consumer) {
+		K[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (ObjIntPredicate<? super K> predicate) {
+		K[] keyTable = this.keyTable;
+		int[] valueTable = this.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		K[] keyTable = this.keyTable;
+		HashingStrategy<? super K> strategy = this.strategy;
 		int[] valueTable = this.valueTable;
 		for (int i = 0, n = keyTable.length; i < n; i++) {
 			K key = keyTable[i];
-			if (key != null) h += key.hashCode() + valueTable[i];
+			if (key != null) h += (strategy == null ? key.hashCode() : strategy.hash(key)) + valueTable[i];
 		}
 		return h;
 	}
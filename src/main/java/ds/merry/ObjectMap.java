@@ -19,10 +19,19 @@ package ds.merry;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiFunction;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.Function;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+import static ds.merry.ObjectSet.BATCH_SIZE;
+import static ds.merry.ObjectSet.checkBatch;
+import static ds.merry.ObjectSet.newOccupancy;
+import static ds.merry.ObjectSet.nextOccupied;
 import static ds.merry.ObjectSet.tableSize;
 
 /** An unordered map where the keys and values are objects. Null keys are not allowed. No allocation is done except when growing
@@ -67,6 +76,14 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 	 * hash. */
 	protected int mask;
 
+	/** If non-null, this hashes and compares keys in place of their own {@link Object#hashCode()} and
+	 * {@link Object#equals(Object)}. */
+	@Null final HashingStrategy<? super K> strategy;
+
+	/** If non-null, has one bit for each slot of {@link #keyTable}, set when the slot holds a key. See
+	 * {@link #trackOccupancy(boolean)}. */
+	@Null long[] occupancy;
+
 	Entries entries1, entries2;
 	Values values1, values2;
 	Keys keys1, keys2;
@@ -86,6 +103,20 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 	 * growing the backing table.
 	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
 	public ObjectMap (int initialCapacity, float loadFactor) {
+		this(initialCapacity, loadFactor, null);
+	}
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8, which hashes and compares keys with the
+	 * specified strategy. */
+	public ObjectMap (HashingStrategy<? super K> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor, which hashes and compares keys with the specified
+	 * strategy, or with their own methods if it is null. This map will hold initialCapacity items before growing the backing
+	 * table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ObjectMap (int initialCapacity, float loadFactor, @Null HashingStrategy<? super K> strategy) {
 		if (loadFactor <= 0f || loadFactor >= 1f)
 			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
 		this.loadFactor = loadFactor;
@@ -97,14 +128,16 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 
 		keyTable = (K[])new Object[tableSize];
 		valueTable = (V[])new Object[tableSize];
+		this.strategy = strategy;
 	}
 
 	/** Creates a new map identical to the specified map. */
 	public ObjectMap (ObjectMap<? extends K, ? extends V> map) {
-		this((int)(map.keyTable.length * map.loadFactor), map.loadFactor);
+		this((int)(map.keyTable.length * map.loadFactor), map.loadFactor, (HashingStrategy)map.strategy);
 		System.arraycopy(map.keyTable, 0, keyTable, 0, map.keyTable.length);
 		System.arraycopy(map.valueTable, 0, valueTable, 0, map.valueTable.length);
 		size = map.size;
+		if (map.occupancy != null) occupancy = map.occupancy.clone();
 	}
 
 	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}.
@@ -122,13 +155,15 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 	 * Fibonacci numbers, if keys provide poor or incorrect hashcodes, or to simplify hashing if keys provide high quality
 	 * hashcodes and don't need Fibonacci hashing: {@code return item.hashCode() & mask;} */
 	protected int place (K item) {
-		return (int)(item.hashCode() * 0x9E3779B97F4A7C15L >>> shift);
+		HashingStrategy<? super K> strategy = this.strategy;
+		return (int)((strategy == null ? item.hashCode() : strategy.hash(item)) * 0x9E3779B97F4A7C15L >>> shift);
 	}
 
 	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
 	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
 	int locateKey (K key) {
 		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		if (strategy != null) return locateStrategy(key, strategy);
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = i + 1 & mask) {
 			K other = keyTable[i];
@@ -137,6 +172,17 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		}
 	}
 
+	/** Like {@link #locateKey(Object)}, but compares keys with a {@link HashingStrategy}. Keeping this out of locateKey() leaves
+	 * the usual path with calls to {@link Object#equals(Object)} only, which the JIT can often inline for a single key type. */
+	int locateStrategy (K key, HashingStrategy<? super K> strategy) {
+		K[] keyTable = this.keyTable;
+		for (int i = place(key);; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (strategy.equals(other, key)) return i; // Same key was found.
+		}
+	}
+
 	/** Returns the old value associated with the specified key, or null. */
 	@Null
 	public V put (K key, @Null V value) {
@@ -149,10 +195,124 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		i = -(i + 1); // Empty space was found.
 		keyTable[i] = key;
 		valueTable[i] = value;
+		occupy(i);
 		if (++size >= threshold) resize(keyTable.length << 1);
 		return null;
 	}
 
+	/** Puts the key and value at index {@code i}, which must be the empty index that {@link #locateKey(Object)} just returned as
+	 * -(i + 1), and grows the table if needed. Subclasses that keep more for each slot override this, so that the methods which
+	 * locate a key once and then insert it work for them too. */
+	void insert (int i, K key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	/** Removes the entry at index {@code i} of the table, along with anything a subclass keeps for it. */
+	void removeEntry (int i) {
+		removeAt(i);
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, and returns null; otherwise, returns the key's value
+	 * and changes nothing. The key is located only once. */
+	@Null
+	public V putIfAbsent (K key, @Null V value) {
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return null;
+		}
+		V oldValue = valueTable[i];
+		if (oldValue == null) valueTable[i] = value;
+		return oldValue;
+	}
+
+	/** Returns the value for the key, first putting the result of {@code mappingFunction} for the key if the key is not in the
+	 * map or is mapped to null. If the function returns null, nothing is put and null is returned. The key is located only
+	 * once, so the function must not change this map. */
+	@Null
+	public V computeIfAbsent (K key, Function<? super K, ? extends V> mappingFunction) {
+		int i = locateKey(key);
+		if (i >= 0) {
+			if (valueTable[i] == null) valueTable[i] = mappingFunction.apply(key);
+			return valueTable[i];
+		}
+		V value = mappingFunction.apply(key);
+		if (value != null) insert(-(i + 1), key, value);
+		return value;
+	}
+
+	/** Puts the result of {@code remappingFunction.apply(key, oldValue)}, where oldValue is null if the key is not in the map,
+	 * and returns it. If the result is null, the key is removed instead. The key is located only once, so the function must not
+	 * change this map. */
+	@Null
+	public V compute (K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		int i = locateKey(key);
+		V value = remappingFunction.apply(key, i >= 0 ? valueTable[i] : null);
+		if (i < 0) {
+			if (value != null) insert(-(i + 1), key, value);
+		} else if (value == null)
+			removeEntry(i);
+		else
+			valueTable[i] = value;
+		return value;
+	}
+
+	/** Puts the value if the key is not in the map or is mapped to null, else replaces the key's value with the result of
+	 * {@code remappingFunction.apply(oldValue, value)}, removing the key if that is null. Returns the key's new value, or null if
+	 * it was removed. The key is located only once, so the function must not change this map. */
+	@Null
+	public V merge (K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if (value == null) throw new IllegalArgumentException("value cannot be null.");
+		int i = locateKey(key);
+		if (i < 0) {
+			insert(-(i + 1), key, value);
+			return value;
+		}
+		V oldValue = valueTable[i];
+		V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+		if (newValue == null)
+			removeEntry(i);
+		else
+			valueTable[i] = newValue;
+		return newValue;
+	}
+
+	/** Returns a handle for the key: its index in the table if it is in the map, else -(index + 1) for the index where
+	 * {@link #insertAt(int, Object, Object)} would put it. With a handle, a value can be read and written back after one lookup,
+	 * using {@link #keyAt(int)}, {@link #valueAt(int)} and {@link #setValueAt(int, Object)}. Handles are only valid until a key
+	 * is put or removed; changing values doesn't affect them. */
+	public int indexOf (K key) {
+		return locateKey(key);
+	}
+
+	/** Returns the key for a non-negative handle from {@link #indexOf(Object)}. */
+	public K keyAt (int slot) {
+		return keyTable[slot];
+	}
+
+	/** Returns the value for a non-negative handle from {@link #indexOf(Object)}. */
+	@Null
+	public V valueAt (int slot) {
+		return valueTable[slot];
+	}
+
+	/** Changes the value for a non-negative handle from {@link #indexOf(Object)}. */
+	public void setValueAt (int slot, @Null V value) {
+		valueTable[slot] = value;
+	}
+
+	/** Puts the key and value using the negative handle that {@link #indexOf(Object)} just returned for the same key, without
+	 * locating the key again. This may grow the table, and like any insertion it makes other handles invalid.
+	 * @throws IllegalArgumentException if the handle is for a key that is already in the map */
+	public void insertAt (int slot, K key, @Null V value) {
+		if (slot >= 0) throw new IllegalArgumentException("slot already has a key: " + slot);
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		insert(-(slot + 1), key, value);
+	}
+
 	public void putAll (ObjectMap<? extends K, ? extends V> map) {
 		ensureCapacity(map.size);
 		K[] keyTable = map.keyTable;
@@ -165,12 +325,13 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 	}
 
 	/** Skips checks for existing keys, doesn't increment size. */
-	private void putResize (K key, @Null V value) {
+	void putResize (K key, @Null V value) {
 		K[] keyTable = this.keyTable;
 		for (int i = place(key);; i = (i + 1) & mask) {
 			if (keyTable[i] == null) {
 				keyTable[i] = key;
 				valueTable[i] = value;
+				occupy(i);
 				return;
 			}
 		}
@@ -193,10 +354,18 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 	public V remove (K key) {
 		int i = locateKey(key);
 		if (i < 0) return null;
+		V oldValue = valueTable[i];
+		removeAt(i);
+		return oldValue;
+	}
+
+	/** Removes the key and value at index {@code i} using the backward shift algorithm, and decrements size. Returns the index
+	 * that was left empty, which is not {@code i} if later entries were shifted back to fill it. */
+	int removeAt (int i) {
 		K[] keyTable = this.keyTable;
 		V[] valueTable = this.valueTable;
-		V oldValue = valueTable[i];
-		int next = i + 1 & mask;
+		int mask = this.mask, next = i + 1 & mask;
+		K key;
 		int placement;
 		while ((key = keyTable[next]) != null) {
 			placement = place(key);
@@ -209,8 +378,106 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		}
 		keyTable[i] = null;
 		valueTable[i] = null;
+		vacate(i);
 		size--;
-		return oldValue;
+		return i;
+	}
+
+	/** Removes every entry for which the predicate returns true, and returns true if any were removed. The predicate is called
+	 * once for each entry, in no particular order, and must not change this map.
+	 * <p>
+	 * This is much faster than removing many entries with an iterator, which shifts later keys back after every removal. Here,
+	 * entries are removed in one sweep over the table that starts just after an empty slot, and each key that follows a removal
+	 * in its cluster moves back once, to the first empty slot at or after its placement. Clusters with no removals are left
+	 * alone. */
+	public boolean removeIf (BiPredicate<? super K, ? super V> predicate) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int mask = this.mask, oldSize = size, start = 0;
+		while (keyTable[start] != null) // There is always an empty slot, and no cluster crosses one.
+			start++;
+		boolean moving = false;
+		for (int i = start + 1 & mask; i != start; i = i + 1 & mask) {
+			K key = keyTable[i];
+			if (key == null) // Slots ahead of i are untouched, so this one was empty before, and ends the cluster.
+				moving = false;
+			else if (predicate.test(key, valueTable[i])) {
+				clearSlot(i);
+				moving = true;
+			} else if (moving) {
+				for (int p = placeSlot(i); p != i; p = p + 1 & mask) {
+					if (keyTable[p] == null) {
+						moveSlot(i, p);
+						break;
+					}
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	/** Empties index {@code i} and decrements size, without moving any other entries; used by
+	 * {@link #removeIf(BiPredicate)}. */
+	void clearSlot (int i) {
+		keyTable[i] = null;
+		valueTable[i] = null;
+		vacate(i);
+		size--;
+	}
+
+	/** Moves the entry at index {@code from} to the empty index {@code to}, leaving {@code from} empty. */
+	void moveSlot (int from, int to) {
+		keyTable[to] = keyTable[from];
+		valueTable[to] = valueTable[from];
+		keyTable[from] = null;
+		valueTable[from] = null;
+		occupy(to);
+		vacate(from);
+	}
+
+	/** Returns the placement of the key at index {@code i}, which must not be empty. */
+	int placeSlot (int i) {
+		return place(keyTable[i]);
+	}
+
+	/** Sets the bit for index {@code i}, which was just filled, if occupancy is tracked. */
+	void occupy (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] |= 1L << i;
+	}
+
+	/** Clears the bit for index {@code i}, which was just emptied, if occupancy is tracked. */
+	void vacate (int i) {
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) occupancy[i >>> 6] &= ~(1L << i);
+	}
+
+	/** Turns on or off a bitmap with one bit for each slot of the table, which lets the iterators and {@link #forEach(BiConsumer)}
+	 * skip 64 empty slots at a time instead of checking each one. This pays off for tables that are mostly empty, such as one that
+	 * grew large and then had most of its entries removed; for a table near its load factor it only slows puts and removes a
+	 * little. The bitmap takes 1 bit per slot and is off by default. */
+	public void trackOccupancy (boolean track) {
+		if (!track)
+			occupancy = null;
+		else if (occupancy == null) {
+			occupancy = newOccupancy(keyTable.length);
+			rebuildOccupancy();
+		}
+	}
+
+	/** Returns true if {@link #trackOccupancy(boolean)} turned on the occupancy bitmap. */
+	public boolean tracksOccupancy () {
+		return occupancy != null;
+	}
+
+	/** Sets the bitmap to match the key table, if occupancy is tracked; used when the key table is filled without put(). */
+	void rebuildOccupancy () {
+		long[] occupancy = this.occupancy;
+		if (occupancy == null) return;
+		Arrays.fill(occupancy, 0);
+		K[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (keyTable[i] != null) occupancy[i >>> 6] |= 1L << i;
 	}
 
 	/** Returns true if the map has one or more items. */
@@ -248,6 +515,7 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		size = 0;
 		Arrays.fill(keyTable, null);
 		Arrays.fill(valueTable, null);
+		if (occupancy != null) Arrays.fill(occupancy, 0);
 	}
 
 	/** Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
@@ -274,6 +542,139 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		return locateKey(key) >= 0;
 	}
 
+	/** Returns the value for the key equal to the chars of {@code chars} from {@code start} (inclusive) to {@code end}
+	 * (exclusive), or null if there is no such key. Only keys that are CharSequences, such as Strings, can match. This lets a
+	 * slice of a reused buffer be looked up without allocating a String for it. */
+	@Null
+	public V getChars (CharSequence chars, int start, int end) {
+		return getChars(chars, start, end, hashChars(chars, start, end));
+	}
+
+	/** Like {@link #getChars(CharSequence, int, int)}, but with the hash already computed, as
+	 * {@link #hashChars(CharSequence, int, int)} would, for example while the chars were being read. */
+	@Null
+	public V getChars (CharSequence chars, int start, int end, int hashCode) {
+		int i = locateChars(chars, null, start, end, hashCode);
+		return i >= 0 ? valueTable[i] : null;
+	}
+
+	/** Like {@link #getChars(CharSequence, int, int)}, but for a range of a char array. */
+	@Null
+	public V getChars (char[] chars, int start, int end) {
+		return getChars(chars, start, end, hashChars(chars, start, end));
+	}
+
+	/** Like {@link #getChars(char[], int, int)}, but with the hash already computed, as {@link #hashChars(char[], int, int)}
+	 * would. */
+	@Null
+	public V getChars (char[] chars, int start, int end, int hashCode) {
+		int i = locateChars(null, chars, start, end, hashCode);
+		return i >= 0 ? valueTable[i] : null;
+	}
+
+	/** Returns true if a key is equal to the chars of {@code chars} from {@code start} (inclusive) to {@code end} (exclusive). */
+	public boolean containsChars (CharSequence chars, int start, int end) {
+		return locateChars(chars, null, start, end, hashChars(chars, start, end)) >= 0;
+	}
+
+	/** Returns true if a key is equal to the chars of {@code chars} from {@code start} (inclusive) to {@code end} (exclusive). */
+	public boolean containsChars (char[] chars, int start, int end) {
+		return locateChars(null, chars, start, end, hashChars(chars, start, end)) >= 0;
+	}
+
+	/** Returns the same hash that {@link String#hashCode()} gives for a String of the chars from {@code start} (inclusive) to
+	 * {@code end} (exclusive). */
+	public static int hashChars (CharSequence chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + chars.charAt(i);
+		return h;
+	}
+
+	/** Returns the same hash that {@link String#hashCode()} gives for a String of the chars from {@code start} (inclusive) to
+	 * {@code end} (exclusive). */
+	public static int hashChars (char[] chars, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++)
+			h = 31 * h + chars[i];
+		return h;
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for a key with the specified
+	 * hashCode, the same one {@link #place(Object)} gives that key. The char lookups use this, so a subclass that overrides
+	 * place() needs to override this to match. */
+	protected int placeHash (int hashCode) {
+		return (int)(hashCode * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	/** Returns the index of the CharSequence key that has the chars of either {@code sequence} or {@code array} from start to
+	 * end, else -(index + 1) for the next empty index. */
+	int locateChars (@Null CharSequence sequence, @Null char[] array, int start, int end, int hashCode) {
+		if (strategy != null) throw new UnsupportedOperationException("A map with a HashingStrategy can't be searched by chars.");
+		K[] keyTable = this.keyTable;
+		for (int i = placeHash(hashCode);; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (other instanceof CharSequence && charsEqual((CharSequence)other, sequence, array, start, end, hashCode))
+				return i; // Same key was found.
+		}
+	}
+
+	static boolean charsEqual (CharSequence key, @Null CharSequence sequence, @Null char[] array, int start, int end,
+		int hashCode) {
+		// A String caches its hash, so this rules out most keys without looking at their chars.
+		if (key instanceof String && key.hashCode() != hashCode) return false;
+		if (key.length() != end - start) return false;
+		if (array != null) {
+			for (int i = start; i < end; i++)
+				if (key.charAt(i - start) != array[i]) return false;
+		} else {
+			for (int i = start; i < end; i++)
+				if (key.charAt(i - start) != sequence.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/** Looks up each of the keys and stores its value at the same index in out, or null for keys not in the map. This gives the
+	 * same results as calling {@link #get(Object)} for each key, but places a batch of keys and loads their first slots before
+	 * probing for any of them, so the cache misses of a large table overlap instead of being paid one at a time. Each key then
+	 * finishes its probe from the saved placement with {@link #locateFrom(Object, int)}.
+	 * @param out must be at least as long as keys
+	 * @return out */
+	public V[] getAll (K[] keys, V[] out) {
+		checkBatch(keys.length, out.length);
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int[] places = new int[Math.min(keys.length, BATCH_SIZE)];
+		for (int start = 0, n = keys.length; start < n; start += BATCH_SIZE) {
+			int end = Math.min(start + BATCH_SIZE, n);
+			for (int j = start; j < end; j++) {
+				K key = keys[j];
+				if (key == null) throw new IllegalArgumentException("key cannot be null.");
+				int i = place(key);
+				places[j - start] = keyTable[i] == null ? -1 : i; // An empty first slot is a miss.
+			}
+			for (int j = start; j < end; j++) {
+				int i = places[j - start];
+				if (i >= 0) i = locateFrom(keys[j], i);
+				out[j] = i >= 0 ? valueTable[i] : null;
+			}
+		}
+		return out;
+	}
+
+	/** Like {@link #locateKey(Object)}, but starts probing at index {@code i}, which must be the key's placement, so a caller that
+	 * already placed the key doesn't place it again. Subclasses that compare keys differently override this. */
+	int locateFrom (K key, int i) {
+		K[] keyTable = this.keyTable;
+		HashingStrategy<? super K> strategy = this.strategy;
+		for (;; i = i + 1 & mask) {
+			K other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (strategy == null ? other.equals(key) : strategy.equals(other, key)) return i; // Same key was found.
+		}
+	}
+
 	/** Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
 	 * every value, which may be an expensive operation.
 	 * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
@@ -302,7 +703,14 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	final void resize (int newSize) {
+	/** Returns an immutable copy of this map where each {@link FrozenObjectMap#get(Object) get} takes one probe and one call to
+	 * equals(). Later changes to this map don't affect the copy. */
+	public FrozenObjectMap<K, V> freeze () {
+		if (strategy != null) throw new UnsupportedOperationException("A map with a HashingStrategy can't be frozen.");
+		return new FrozenObjectMap<K, V>(this);
+	}
+
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -313,6 +721,7 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 
 		keyTable = (K[])new Object[newSize];
 		valueTable = (V[])new Object[newSize];
+		if (occupancy != null) occupancy = newOccupancy(newSize);
 
 		if (size > 0) {
 			for (int i = 0; i < oldCapacity; i++) {
@@ -322,14 +731,84 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this map's table, which can be used to judge if
+	 * {@link #place(Object)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. This
+	 * traverses the whole table and calls {@link #place(Object)} for every key, so it is meant for occasional monitoring
+	 * rather than for hot code. */
+	public HashStats hashStats () {
+		K[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key == null)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find maps that have grown much larger than their contents need. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, size).keys(MemoryStats.REFERENCE_BYTES).values(MemoryStats.REFERENCE_BYTES)
+			.extra(occupancy == null ? 0 : MemoryStats.array(occupancy.length, 8))
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (BiConsumer<? super K, ? super V> consumer) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					consumer.accept(keyTable[i], valueTable[i]);
+				}
+			}
+			return;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null) consumer.accept(key, valueTable[i]);
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (BiPredicate<? super K, ? super V> predicate) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] occupancy = this.occupancy;
+		if (occupancy != null) {
+			for (int w = 0, n = occupancy.length; w < n; w++) {
+				for (long bits = occupancy[w]; bits != 0; bits &= bits - 1) {
+					int i = w << 6 | Long.numberOfTrailingZeros(bits);
+					if (!predicate.test(keyTable[i], valueTable[i])) return false;
+				}
+			}
+			return true;
+		}
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			K key = keyTable[i];
+			if (key != null && !predicate.test(key, valueTable[i])) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		K[] keyTable = this.keyTable;
+		HashingStrategy<? super K> strategy = this.strategy;
 		V[] valueTable = this.valueTable;
 		for (int i = 0, n = keyTable.length; i < n; i++) {
 			K key = keyTable[i];
 			if (key != null) {
-				h += key.hashCode();
+				h += (strategy == null ? key.hashCode() : strategy.hash(key));
 				V value = valueTable[i];
 				if (value != null) h += value.hashCode();
 			}
@@ -500,6 +979,12 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 
 		void findNextIndex () {
 			K[] keyTable = map.keyTable;
+			long[] occupancy = map.occupancy;
+			if (occupancy != null) {
+				nextIndex = nextOccupied(occupancy, nextIndex + 1, keyTable.length);
+				hasNext = nextIndex < keyTable.length;
+				return;
+			}
 			for (int n = keyTable.length; ++nextIndex < n;) {
 				if (keyTable[nextIndex] != null) {
 					hasNext = true;
@@ -512,24 +997,7 @@ public class ObjectMap<K, V> implements Iterable<ObjectMap.Entry<K, V>> {
 		public void remove () {
 			int i = currentIndex;
 			if (i < 0) throw new IllegalStateException("next must be called before remove.");
-			K[] keyTable = map.keyTable;
-			V[] valueTable = map.valueTable;
-			int mask = map.mask, next = i + 1 & mask;
-			K key;
-			int placement;
-			while ((key = keyTable[next]) != null) {
-				placement = map.place(key);
-				if((next - placement & mask) > (i - placement & mask)) {
-					keyTable[i] = key;
-					valueTable[i] = valueTable[next];
-					i = next;
-				}
-				next = next + 1 & mask;
-			}
-			keyTable[i] = null;
-			valueTable[i] = null;
-			map.size--;
-			if (i != currentIndex) --nextIndex;
+			if (map.removeAt(i) != i) --nextIndex;
 			currentIndex = -1;
 		}
 	}
@@ -21,6 +21,9 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import ds.merry.function.Consumer;
+import ds.merry.function.Predicate;
+
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -64,6 +67,10 @@ public class ObjectSet<T> implements Iterable<T> {
 	 * hash. */
 	protected int mask;
 
+	/** If non-null, this hashes and compares keys in place of their own {@link Object#hashCode()} and
+	 * {@link Object#equals(Object)}. */
+	@Null final HashingStrategy<? super T> strategy;
+
 	private ObjectSetIterator iterator1, iterator2;
 
 	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
@@ -81,6 +88,20 @@ public class ObjectSet<T> implements Iterable<T> {
 	 * growing the backing table.
 	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
 	public ObjectSet (int initialCapacity, float loadFactor) {
+		this(initialCapacity, loadFactor, null);
+	}
+
+	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8, which hashes and compares items with the
+	 * specified strategy. */
+	public ObjectSet (HashingStrategy<? super T> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	/** Creates a new set with the specified initial capacity and load factor, which hashes and compares items with the specified
+	 * strategy, or with their own methods if it is null. This set will hold initialCapacity items before growing the backing
+	 * table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public ObjectSet (int initialCapacity, float loadFactor, @Null HashingStrategy<? super T> strategy) {
 		if (loadFactor <= 0f || loadFactor >= 1f)
 			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
 		this.loadFactor = loadFactor;
@@ -91,11 +112,12 @@ public class ObjectSet<T> implements Iterable<T> {
 		shift = Long.numberOfLeadingZeros(mask);
 
 		keyTable = (T[])new Object[tableSize];
+		this.strategy = strategy;
 	}
 
 	/** Creates a new set identical to the specified set. */
 	public ObjectSet (ObjectSet<? extends T> set) {
-		this((int)(set.keyTable.length * set.loadFactor), set.loadFactor);
+		this((int)(set.keyTable.length * set.loadFactor), set.loadFactor, (HashingStrategy)set.strategy);
 		System.arraycopy(set.keyTable, 0, keyTable, 0, set.keyTable.length);
 		size = set.size;
 	}
@@ -115,13 +137,15 @@ public class ObjectSet<T> implements Iterable<T> {
 	 * Fibonacci numbers, if keys provide poor or incorrect hashcodes, or to simplify hashing if keys provide high quality
 	 * hashcodes and don't need Fibonacci hashing: {@code return item.hashCode() & mask;} */
 	protected int place (T item) {
-		return (int)(item.hashCode() * 0x9E3779B97F4A7C15L >>> shift);
+		HashingStrategy<? super T> strategy = this.strategy;
+		return (int)((strategy == null ? item.hashCode() : strategy.hash(item)) * 0x9E3779B97F4A7C15L >>> shift);
 	}
 
 	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. This can be overridden in this
 	 * pacakge to compare for equality differently than {@link Object#equals(Object)}. */
 	int locateKey (T key) {
 		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		if (strategy != null) return locateStrategy(key, strategy);
 		T[] keyTable = this.keyTable;
 		for (int i = place(key);; i = i + 1 & mask) {
 			T other = keyTable[i];
@@ -130,6 +154,17 @@ public class ObjectSet<T> implements Iterable<T> {
 		}
 	}
 
+	/** Like {@link #locateKey(Object)}, but compares keys with a {@link HashingStrategy}. Keeping this out of locateKey() leaves
+	 * the usual path with calls to {@link Object#equals(Object)} only, which the JIT can often inline for a single key type. */
+	int locateStrategy (T key, HashingStrategy<? super T> strategy) {
+		T[] keyTable = this.keyTable;
+		for (int i = place(key);; i = i + 1 & mask) {
+			T other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			if (strategy.equals(other, key)) return i; // Same key was found.
+		}
+	}
+
 	/** Returns true if the key was not already in the set. If this set already contains the key, the call leaves the set unchanged
 	 * and returns false. */
 	public boolean add (T key) {
@@ -173,7 +208,7 @@ public class ObjectSet<T> implements Iterable<T> {
 	}
 
 	/** Skips checks for existing keys, doesn't increment size. */
-	private void addResize (T key) {
+	void addResize (T key) {
 		T[] keyTable = this.keyTable;
 		for (int i = place(key);; i = (i + 1) & mask) {
 			if (keyTable[i] == null) {
@@ -187,8 +222,16 @@ public class ObjectSet<T> implements Iterable<T> {
 	public boolean remove (T key) {
 		int i = locateKey(key);
 		if (i < 0) return false;
+		removeAt(i);
+		return true;
+	}
+
+	/** Removes the key at index {@code i} using the backward shift algorithm, and decrements size. Returns the index that was left
+	 * empty, which is not {@code i} if later keys were shifted back to fill it. */
+	int removeAt (int i) {
 		T[] keyTable = this.keyTable;
-		int next = i + 1 & mask;
+		int mask = this.mask, next = i + 1 & mask;
+		T key;
 		int placement;
 		while ((key = keyTable[next]) != null) {
 			placement = place(key);
@@ -200,7 +243,66 @@ public class ObjectSet<T> implements Iterable<T> {
 		}
 		keyTable[i] = null;
 		size--;
-		return true;
+		return i;
+	}
+
+	/** Removes every item for which the predicate returns true, and returns true if any were removed. The predicate is called
+	 * once for each item, in no particular order, and must not change this set.
+	 * <p>
+	 * This is much faster than removing many items with an iterator, which shifts later keys back after every removal. Here,
+	 * items are removed in one sweep over the table that starts just after an empty slot, and each key that follows a removal
+	 * in its cluster moves back once, to the first empty slot at or after its placement. Clusters with no removals are left
+	 * alone. */
+	public boolean removeIf (Predicate<? super T> predicate) {
+		T[] keyTable = this.keyTable;
+		int mask = this.mask, oldSize = size, start = 0;
+		while (keyTable[start] != null) // There is always an empty slot, and no cluster crosses one.
+			start++;
+		boolean moving = false;
+		for (int i = start + 1 & mask; i != start; i = i + 1 & mask) {
+			T key = keyTable[i];
+			if (key == null) // Slots ahead of i are untouched, so this one was empty before, and ends the cluster.
+				moving = false;
+			else if (predicate.test(key)) {
+				clearSlot(i);
+				moving = true;
+			} else if (moving) {
+				for (int p = placeSlot(i); p != i; p = p + 1 & mask) {
+					if (keyTable[p] == null) {
+						moveSlot(i, p);
+						break;
+					}
+				}
+			}
+		}
+		return size != oldSize;
+	}
+
+	/** Removes every item that is not in the specified set, and returns true if any were removed. This uses
+	 * {@link #removeIf(Predicate)}. */
+	public boolean retainAll (final ObjectSet<? super T> set) {
+		return removeIf(new Predicate<T>() {
+			public boolean test (T item) {
+				return !set.contains(item);
+			}
+		});
+	}
+
+	/** Empties index {@code i} and decrements size, without moving any other keys; used by {@link #removeIf(Predicate)}. */
+	void clearSlot (int i) {
+		keyTable[i] = null;
+		size--;
+	}
+
+	/** Moves the key at index {@code from} to the empty index {@code to}, leaving {@code from} empty. */
+	void moveSlot (int from, int to) {
+		keyTable[to] = keyTable[from];
+		keyTable[from] = null;
+	}
+
+	/** Returns the placement of the key at index {@code i}, which must not be empty. */
+	int placeSlot (int i) {
+		return place(keyTable[i]);
 	}
 
 	/** Returns true if the set has one or more items. */
@@ -267,7 +369,7 @@ public class ObjectSet<T> implements Iterable<T> {
 		if (keyTable.length < tableSize) resize(tableSize);
 	}
 
-	private void resize (int newSize) {
+	void resize (int newSize) {
 		int oldCapacity = keyTable.length;
 		threshold = (int)(newSize * loadFactor);
 		mask = newSize - 1;
@@ -284,12 +386,59 @@ public class ObjectSet<T> implements Iterable<T> {
 		}
 	}
 
+	/** Returns a snapshot of the probe distances and clusters in this set's table, which can be used to judge if
+	 * {@link #place(Object)} is working well for the keys in use, or to notice when a set of keys is degrading lookups. This
+	 * traverses the whole table and calls {@link #place(Object)} for every key, so it is meant for occasional monitoring
+	 * rather than for hot code. */
+	public HashStats hashStats () {
+		T[] keyTable = this.keyTable;
+		HashStats stats = new HashStats(keyTable.length);
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			T key = keyTable[i];
+			if (key == null)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this set's backing arrays and cached iterators, along with how many of its
+	 * table slots are empty, which can be used to find sets that have grown much larger than their contents need. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(keyTable.length, size).keys(MemoryStats.REFERENCE_BYTES).iterators(iterator1, iterator2);
+	}
+
+	/** Calls {@code consumer} with each item, in the same order as {@link #iterator()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this set. This isn't named forEach, so that
+	 * passing a lambda to {@code Iterable.forEach()} on Java 8 isn't ambiguous. */
+	public void forEachItem (Consumer<? super T> consumer) {
+		T[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			T key = keyTable[i];
+			if (key != null) consumer.accept(key);
+		}
+	}
+
+	/** Calls {@code predicate} with each item, in the same order as {@link #iterator()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every item. The predicate must not
+	 * add to or remove from this set. */
+	public boolean forEachWhile (Predicate<? super T> predicate) {
+		T[] keyTable = this.keyTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			T key = keyTable[i];
+			if (key != null && !predicate.test(key)) return false;
+		}
+		return true;
+	}
+
 	public int hashCode () {
 		int h = size;
 		T[] keyTable = this.keyTable;
+		HashingStrategy<? super T> strategy = this.strategy;
 		for (int i = 0, n = keyTable.length; i < n; i++) {
 			T key = keyTable[i];
-			if (key != null) h += key.hashCode();
+			if (key != null) h += (strategy == null ? key.hashCode() : strategy.hash(key));
 		}
 		return h;
 	}
@@ -363,6 +512,34 @@ public class ObjectSet<T> implements Iterable<T> {
 		return tableSize;
 	}
 
+	/** How many keys the batched lookups, such as {@link IntIntMap#getAll(int[], int[], int)}, place before they probe for any of
+	 * them. The loads of the first slot for each key in a batch don't depend on each other, so the CPU can wait on their cache
+	 * misses at the same time instead of one after another. */
+	static final int BATCH_SIZE = 16;
+
+	static void checkBatch (int keys, int out) {
+		if (out < keys) throw new IllegalArgumentException("out is shorter than keys: " + out + " < " + keys);
+	}
+
+	/** Returns an occupancy bitmap for a table of {@code tableSize} slots, with every bit clear. Slot i is bit (i &amp; 63) of
+	 * word (i &gt;&gt;&gt; 6). */
+	static long[] newOccupancy (int tableSize) {
+		return new long[tableSize + 63 >>> 6];
+	}
+
+	/** Returns the first slot at or after {@code from} whose bit is set in {@code occupancy}, or {@code end} if there is none.
+	 * Each word that is all zero skips 64 empty slots at once, so this is fast even when a table is mostly empty. */
+	static int nextOccupied (long[] occupancy, int from, int end) {
+		int word = from >>> 6;
+		if (word >= occupancy.length) return end;
+		long bits = occupancy[word] & -1L << from;
+		while (bits == 0) {
+			if (++word == occupancy.length) return end;
+			bits = occupancy[word];
+		}
+		return word << 6 | Long.numberOfTrailingZeros(bits);
+	}
+
 	static public class ObjectSetIterator<K> implements Iterable<K>, Iterator<K> {
 		public boolean hasNext;
 
@@ -395,21 +572,7 @@ public class ObjectSet<T> implements Iterable<T> {
 		public void remove () {
 			int i = currentIndex;
 			if (i < 0) throw new IllegalStateException("next must be called before remove.");
-			K[] keyTable = set.keyTable;
-			int mask = set.mask, next = i + 1 & mask;
-			K key;
-			int placement;
-			while ((key = keyTable[next]) != null) {
-				placement = set.place(key);
-				if((next - placement & mask) > (i - placement & mask)) {
-					keyTable[i] = key;
-					i = next;
-				}
-				next = next + 1 & mask;
-			}
-			keyTable[i] = null;
-			set.size--;
-			if (i != currentIndex) --nextIndex;
+			if (set.removeAt(i) != i) --nextIndex;
 			currentIndex = -1;
 		}
 
@@ -0,0 +1,709 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import com.badlogic.gdx.utils.Collections;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.LongArray;
+
+import ds.merry.function.LongLongConsumer;
+import ds.merry.function.LongLongPredicate;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static ds.merry.ObjectSet.tableSize;
+
+/** An unordered map where the keys and values are unboxed longs, like {@link LongLongMap}, but with its table kept off the Java
+ * heap in direct ByteBuffers. Each slot holds a key and its value next to each other, so a lookup touches one cache line. The
+ * garbage collector never scans or copies the table, which matters for maps with many millions of entries; only a few small
+ * objects stay on the heap.
+ * <p>
+ * The native memory is released by {@link #free()} (or {@link #close()}, so this can be used in try-with-resources), and the
+ * map can't be used after that. If neither is called, the memory is released some time after the map is garbage collected.
+ * A resize allocates the new table before freeing the old one, so it briefly needs both.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal, and Fibonacci hashing, the same as
+ * LongLongMap. The 0 key is stored outside the table.
+ * <p>
+ * This class uses direct ByteBuffers, so it is not available on GWT.
+ * @author Tommy Ettinger */
+public class OffHeapLongLongMap implements Iterable<OffHeapLongLongMap.Entry>, AutoCloseable {
+	static final int SLOT_BYTES = 16, VALUE = 8;
+
+	public int size;
+
+	OffHeapTable table;
+
+	long zeroValue;
+	boolean hasZeroValue;
+
+	final float loadFactor;
+	private int threshold;
+
+	/** Used by {@link #place(int)} to bit shift the upper bits of a {@code long} into a usable range (&gt;= 0 and &lt;=
+	 * {@link #mask}). See {@link LongLongMap#shift}. */
+	protected int shift;
+
+	/** A bitmask used to confine hashcodes to the size of the table. Must be all 1 bits in its low positions, ie a power of two
+	 * minus 1. */
+	protected int mask;
+
+	private Entries entries1, entries2;
+	private Values values1, values2;
+	private Keys keys1, keys2;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public OffHeapLongLongMap () {
+		this(51, 0.8f);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public OffHeapLongLongMap (int initialCapacity) {
+		this(initialCapacity, 0.8f);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public OffHeapLongLongMap (int initialCapacity, float loadFactor) {
+		if (loadFactor <= 0f || loadFactor >= 1f)
+			throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+		this.loadFactor = loadFactor;
+
+		int tableSize = tableSize(initialCapacity, loadFactor);
+		threshold = (int)(tableSize * loadFactor);
+		mask = tableSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		table = new OffHeapTable(tableSize, SLOT_BYTES);
+	}
+
+	/** Creates a new off-heap map with a load factor of 0.8 and the same entries as the specified map. */
+	public OffHeapLongLongMap (LongLongMap map) {
+		this(map.size);
+		putAll(map);
+	}
+
+	/** Creates a map around an existing table, which already holds its keys and values. */
+	OffHeapLongLongMap (float loadFactor, OffHeapTable table) {
+		this.loadFactor = loadFactor;
+		threshold = (int)(table.capacity * loadFactor);
+		mask = table.capacity - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		this.table = table;
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for the specified {@code item}, using
+	 * Fibonacci hashing on both halves of the item. This method can be overriden to customize hashing; see
+	 * {@link LongLongMap#place(long)}. */
+	protected int place (long item) {
+		return (int)((item ^ item >>> 32) * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	private OffHeapTable open () {
+		if (table == null) throw new IllegalStateException("The map has been freed.");
+		return table;
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the next empty index. */
+	private int locateKey (long key) {
+		OffHeapTable table = open();
+		for (int i = place(key);; i = i + 1 & mask) {
+			long other = table.getLong(i, 0);
+			if (other == 0) return -(i + 1); // Empty space is available.
+			if (other == key) return i; // Same key was found.
+		}
+	}
+
+	/** Doesn't return a value, unlike other maps. */
+	public void put (long key, long value) {
+		if (key == 0) {
+			open();
+			zeroValue = value;
+			if (!hasZeroValue) {
+				hasZeroValue = true;
+				size++;
+			}
+			return;
+		}
+		int i = locateKey(key);
+		if (i < 0) { // Empty space was found.
+			i = -(i + 1);
+			table.putLong(i, 0, key);
+			table.putLong(i, VALUE, value);
+			if (++size >= threshold) resize(mask + 1 << 1);
+			return;
+		}
+		table.putLong(i, VALUE, value); // Existing key was found.
+	}
+
+	public void putAll (LongLongMap map) {
+		ensureCapacity(map.size);
+		if (map.hasZeroValue) put(0, map.zeroValue);
+		long[] keyTable = map.keyTable;
+		long[] valueTable = map.valueTable;
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			long key = keyTable[i];
+			if (key != 0) put(key, valueTable[i]);
+		}
+	}
+
+	/** Skips checks for existing keys, doesn't increment size, doesn't need to handle key 0. */
+	private void putResize (long key, long value) {
+		OffHeapTable table = this.table;
+		for (int i = place(key);; i = i + 1 & mask) {
+			if (table.getLong(i, 0) == 0) {
+				table.putLong(i, 0, key);
+				table.putLong(i, VALUE, value);
+				return;
+			}
+		}
+	}
+
+	public long get (long key, long defaultValue) {
+		if (key == 0) {
+			open();
+			return hasZeroValue ? zeroValue : defaultValue;
+		}
+		int i = locateKey(key);
+		return i >= 0 ? table.getLong(i, VALUE) : defaultValue;
+	}
+
+	/** Returns the key's current value and increments the stored value. If the key is not in the map, defaultValue + increment is
+	 * put into the map and defaultValue is returned. */
+	public long getAndIncrement (long key, long defaultValue, long increment) {
+		if (key == 0) {
+			open();
+			if (!hasZeroValue) {
+				hasZeroValue = true;
+				zeroValue = defaultValue + increment;
+				size++;
+				return defaultValue;
+			}
+			long oldValue = zeroValue;
+			zeroValue += increment;
+			return oldValue;
+		}
+		int i = locateKey(key);
+		if (i >= 0) { // Existing key was found.
+			long oldValue = table.getLong(i, VALUE);
+			table.putLong(i, VALUE, oldValue + increment);
+			return oldValue;
+		}
+		i = -(i + 1); // Empty space was found.
+		table.putLong(i, 0, key);
+		table.putLong(i, VALUE, defaultValue + increment);
+		if (++size >= threshold) resize(mask + 1 << 1);
+		return defaultValue;
+	}
+
+	public long remove (long key, long defaultValue) {
+		if (key == 0) {
+			open();
+			if (!hasZeroValue) return defaultValue;
+			hasZeroValue = false;
+			size--;
+			return zeroValue;
+		}
+		int i = locateKey(key);
+		if (i < 0) return defaultValue;
+		long oldValue = table.getLong(i, VALUE);
+		removeAt(i);
+		return oldValue;
+	}
+
+	/** Removes the key and value at index {@code i} using the backward shift algorithm, and decrements size. Returns the index
+	 * that was left empty, which is not {@code i} if later entries were shifted back to fill it. */
+	int removeAt (int i) {
+		OffHeapTable table = this.table;
+		int mask = this.mask, next = i + 1 & mask, placement;
+		long key;
+		while ((key = table.getLong(next, 0)) != 0) {
+			placement = place(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				table.putLong(i, 0, key);
+				table.putLong(i, VALUE, table.getLong(next, VALUE));
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		table.putLong(i, 0, 0L);
+		size--;
+		return i;
+	}
+
+	/** Returns true if the map has one or more items. */
+	public boolean notEmpty () {
+		return size > 0;
+	}
+
+	/** Returns true if the map is empty. */
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	/** Reduces the size of the backing table to be the specified capacity / loadFactor, or less. If the capacity is already
+	 * less, nothing is done. If the map contains more items than the specified capacity, the next highest power of two capacity
+	 * is used instead. */
+	public void shrink (int maximumCapacity) {
+		if (maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+		int tableSize = tableSize(maximumCapacity, loadFactor);
+		if (open().capacity > tableSize) resize(tableSize);
+	}
+
+	/** Clears the map and reduces the size of the backing table to be the specified capacity / loadFactor, if it is larger. */
+	public void clear (int maximumCapacity) {
+		int tableSize = tableSize(maximumCapacity, loadFactor);
+		if (open().capacity <= tableSize) {
+			clear();
+			return;
+		}
+		size = 0;
+		hasZeroValue = false;
+		resize(tableSize);
+	}
+
+	public void clear () {
+		OffHeapTable table = open();
+		if (size == 0) return;
+		table.clear();
+		size = 0;
+		hasZeroValue = false;
+	}
+
+	/** Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+	 * be an expensive operation. */
+	public boolean containsValue (long value) {
+		OffHeapTable table = open();
+		if (hasZeroValue && zeroValue == value) return true;
+		for (int i = table.capacity - 1; i >= 0; i--)
+			if (table.getLong(i, 0) != 0 && table.getLong(i, VALUE) == value) return true;
+		return false;
+	}
+
+	public boolean containsKey (long key) {
+		if (key == 0) {
+			open();
+			return hasZeroValue;
+		}
+		return locateKey(key) >= 0;
+	}
+
+	/** Returns the key for the specified value, or notFound if it is not in the map. Note this traverses the entire map and
+	 * compares every value, which may be an expensive operation. */
+	public long findKey (long value, long notFound) {
+		OffHeapTable table = open();
+		if (hasZeroValue && zeroValue == value) return 0;
+		for (int i = table.capacity - 1; i >= 0; i--) {
+			long key = table.getLong(i, 0);
+			if (key != 0 && table.getLong(i, VALUE) == value) return key;
+		}
+		return notFound;
+	}
+
+	/** Increases the size of the backing table to accommodate the specified number of additional items / loadFactor. Useful
+	 * before adding many items to avoid multiple backing table resizes. */
+	public void ensureCapacity (int additionalCapacity) {
+		int tableSize = tableSize(size + additionalCapacity, loadFactor);
+		if (open().capacity < tableSize) resize(tableSize);
+	}
+
+	void resize (int newSize) {
+		OffHeapTable oldTable = table;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		table = newTable(newSize);
+
+		if (size > 0) {
+			for (int i = 0, n = oldTable.capacity; i < n; i++) {
+				long key = oldTable.getLong(i, 0);
+				if (key != 0) putResize(key, oldTable.getLong(i, VALUE));
+			}
+		}
+		replaceTable(oldTable);
+	}
+
+	/** Returns an empty table with {@code capacity} slots, for {@link #resize(int)} to move the entries into. */
+	OffHeapTable newTable (int capacity) {
+		return new OffHeapTable(capacity, SLOT_BYTES);
+	}
+
+	/** Called at the end of {@link #resize(int)}, once every entry has been moved out of the old table. */
+	void replaceTable (OffHeapTable oldTable) {
+		oldTable.free();
+	}
+
+	/** Releases the off-heap table right away. After this, the map can't be used; anything but {@link #free()} and
+	 * {@link #close()} throws an IllegalStateException. */
+	public void free () {
+		if (table == null) return;
+		table.free();
+		table = null;
+		size = 0;
+		hasZeroValue = false;
+	}
+
+	/** The same as {@link #free()}. */
+	public void close () {
+		free();
+	}
+
+	/** Returns a snapshot of the probe distances and clusters in this map's table; see {@link IntIntMap#hashStats()}. */
+	public HashStats hashStats () {
+		OffHeapTable table = open();
+		HashStats stats = new HashStats(table.capacity);
+		for (int i = 0, n = table.capacity; i < n; i++) {
+			long key = table.getLong(i, 0);
+			if (key == 0)
+				stats.empty();
+			else
+				stats.add(i - place(key) & mask);
+		}
+		return stats.finish();
+	}
+
+	/** Returns an estimate of the memory retained by this map, along with how many of its table slots are empty. The off-heap
+	 * table is counted in the key and value bytes, even though the GC doesn't see it. The 0 key is stored outside the table and
+	 * is not counted. */
+	public MemoryStats memoryStats () {
+		return new MemoryStats(open().capacity, hasZeroValue ? size - 1 : size).keys(8).values(8)
+			.iterators(entries1, entries2, values1, values2, keys1, keys2);
+	}
+
+	/** Calls {@code consumer} with each key and value, in the same order as {@link #entries()}. Unlike the iterators, this can
+	 * be nested and never allocates. The consumer must not add to or remove from this map. */
+	public void forEach (LongLongConsumer consumer) {
+		OffHeapTable table = open();
+		if (hasZeroValue) consumer.accept(0, zeroValue);
+		for (int i = 0, n = table.capacity; i < n; i++) {
+			long key = table.getLong(i, 0);
+			if (key != 0) consumer.accept(key, table.getLong(i, VALUE));
+		}
+	}
+
+	/** Calls {@code predicate} with each key and value, in the same order as {@link #entries()}, until it returns false.
+	 * Returns false if it stopped early, or true if the predicate returned true for every entry. The predicate must not
+	 * add to or remove from this map. */
+	public boolean forEachWhile (LongLongPredicate predicate) {
+		OffHeapTable table = open();
+		if (hasZeroValue && !predicate.test(0, zeroValue)) return false;
+		for (int i = 0, n = table.capacity; i < n; i++) {
+			long key = table.getLong(i, 0);
+			if (key != 0 && !predicate.test(key, table.getLong(i, VALUE))) return false;
+		}
+		return true;
+	}
+
+	public int hashCode () {
+		OffHeapTable table = open();
+		int h = size;
+		if (hasZeroValue) h += (int)(zeroValue ^ zeroValue >>> 32);
+		for (int i = 0, n = table.capacity; i < n; i++) {
+			long key = table.getLong(i, 0);
+			if (key != 0) {
+				long value = table.getLong(i, VALUE);
+				h += (int)(key ^ key >>> 32) * 31 + (int)(value ^ value >>> 32);
+			}
+		}
+		return h;
+	}
+
+	public boolean equals (Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof OffHeapLongLongMap)) return false;
+		OffHeapLongLongMap other = (OffHeapLongLongMap)obj;
+		OffHeapTable table = open();
+		if (other.size != size) return false;
+		if (other.hasZeroValue != hasZeroValue) return false;
+		if (hasZeroValue) {
+			if (other.zeroValue != zeroValue) return false;
+		}
+		for (int i = 0, n = table.capacity; i < n; i++) {
+			long key = table.getLong(i, 0);
+			if (key != 0) {
+				long otherValue = other.get(key, 0L);
+				if (otherValue == 0 && !other.containsKey(key)) return false;
+				if (otherValue != table.getLong(i, VALUE)) return false;
+			}
+		}
+		return true;
+	}
+
+	public String toString () {
+		if (table == null) return "[freed]";
+		if (size == 0) return "[]";
+		StringBuilder buffer = new StringBuilder(32);
+		buffer.append('[');
+		int i = table.capacity;
+		if (hasZeroValue) {
+			buffer.append("0=");
+			buffer.append(zeroValue);
+		} else {
+			while (i-- > 0) {
+				long key = table.getLong(i, 0);
+				if (key == 0) continue;
+				buffer.append(key);
+				buffer.append('=');
+				buffer.append(table.getLong(i, VALUE));
+				break;
+			}
+		}
+		while (i-- > 0) {
+			long key = table.getLong(i, 0);
+			if (key == 0) continue;
+			buffer.append(", ");
+			buffer.append(key);
+			buffer.append('=');
+			buffer.append(table.getLong(i, VALUE));
+		}
+		buffer.append(']');
+		return buffer.toString();
+	}
+
+	public Iterator<Entry> iterator () {
+		return entries();
+	}
+
+	/** Returns an iterator for the entries in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Entries entries () {
+		if (Collections.allocateIterators) return new Entries(this);
+		if (entries1 == null) {
+			entries1 = new Entries(this);
+			entries2 = new Entries(this);
+		}
+		if (!entries1.valid) {
+			entries1.reset();
+			entries1.valid = true;
+			entries2.valid = false;
+			return entries1;
+		}
+		entries2.reset();
+		entries2.valid = true;
+		entries1.valid = false;
+		return entries2;
+	}
+
+	/** Returns an iterator for the values in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Values values () {
+		if (Collections.allocateIterators) return new Values(this);
+		if (values1 == null) {
+			values1 = new Values(this);
+			values2 = new Values(this);
+		}
+		if (!values1.valid) {
+			values1.reset();
+			values1.valid = true;
+			values2.valid = false;
+			return values1;
+		}
+		values2.reset();
+		values2.valid = true;
+		values1.valid = false;
+		return values2;
+	}
+
+	/** Returns an iterator for the keys in the map. Remove is supported.
+	 * <p>
+	 * If {@link Collections#allocateIterators} is false, the same iterator instance is returned each time this method is called.
+	 * Use the {@link Entries} constructor for nested or multithreaded iteration. */
+	public Keys keys () {
+		if (Collections.allocateIterators) return new Keys(this);
+		if (keys1 == null) {
+			keys1 = new Keys(this);
+			keys2 = new Keys(this);
+		}
+		if (!keys1.valid) {
+			keys1.reset();
+			keys1.valid = true;
+			keys2.valid = false;
+			return keys1;
+		}
+		keys2.reset();
+		keys2.valid = true;
+		keys1.valid = false;
+		return keys2;
+	}
+
+	static public class Entry {
+		public long key;
+		public long value;
+
+		public String toString () {
+			return key + "=" + value;
+		}
+	}
+
+	static private class MapIterator {
+		static private final int INDEX_ILLEGAL = -2;
+		static final int INDEX_ZERO = -1;
+
+		public boolean hasNext;
+
+		final OffHeapLongLongMap map;
+		int nextIndex, currentIndex;
+		boolean valid = true;
+
+		public MapIterator (OffHeapLongLongMap map) {
+			this.map = map;
+			reset();
+		}
+
+		public void reset () {
+			currentIndex = INDEX_ILLEGAL;
+			nextIndex = INDEX_ZERO;
+			if (map.hasZeroValue)
+				hasNext = true;
+			else
+				findNextIndex();
+		}
+
+		void findNextIndex () {
+			OffHeapTable table = map.open();
+			for (int n = table.capacity; ++nextIndex < n;) {
+				if (table.getLong(nextIndex, 0) != 0) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
+		}
+
+		public void remove () {
+			int i = currentIndex;
+			if (i == INDEX_ZERO && map.hasZeroValue) {
+				map.hasZeroValue = false;
+				map.size--;
+			} else if (i < 0) {
+				throw new IllegalStateException("next must be called before remove.");
+			} else if (map.removeAt(i) != i) --nextIndex;
+			currentIndex = INDEX_ILLEGAL;
+		}
+	}
+
+	static public class Entries extends MapIterator implements Iterable<Entry>, Iterator<Entry> {
+		private final Entry entry = new Entry();
+
+		public Entries (OffHeapLongLongMap map) {
+			super(map);
+		}
+
+		/** Note the same entry instance is returned each time this method is called. */
+		public Entry next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			if (nextIndex == INDEX_ZERO) {
+				entry.key = 0;
+				entry.value = map.zeroValue;
+			} else {
+				OffHeapTable table = map.open();
+				entry.key = table.getLong(nextIndex, 0);
+				entry.value = table.getLong(nextIndex, VALUE);
+			}
+			currentIndex = nextIndex;
+			findNextIndex();
+			return entry;
+		}
+
+		public boolean hasNext () {
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			return hasNext;
+		}
+
+		public Iterator<Entry> iterator () {
+			return this;
+		}
+	}
+
+	static public class Values extends MapIterator {
+		public Values (OffHeapLongLongMap map) {
+			super(map);
+		}
+
+		public boolean hasNext () {
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			return hasNext;
+		}
+
+		public long next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			long value = nextIndex == INDEX_ZERO ? map.zeroValue : map.open().getLong(nextIndex, VALUE);
+			currentIndex = nextIndex;
+			findNextIndex();
+			return value;
+		}
+
+		public Values iterator () {
+			return this;
+		}
+
+		/** Returns a new array containing the remaining values. */
+		public LongArray toArray () {
+			LongArray array = new LongArray(true, map.size);
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+
+		/** Adds the remaining values to the specified array. */
+		public LongArray toArray (LongArray array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+
+	static public class Keys extends MapIterator {
+		public Keys (OffHeapLongLongMap map) {
+			super(map);
+		}
+
+		public long next () {
+			if (!hasNext) throw new NoSuchElementException();
+			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
+			long key = nextIndex == INDEX_ZERO ? 0 : map.open().getLong(nextIndex, 0);
+			currentIndex = nextIndex;
+			findNextIndex();
+			return key;
+		}
+
+		/** Returns a new array containing the remaining keys. */
+		public LongArray toArray () {
+			LongArray array = new LongArray(true, map.size);
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+
+		/** Adds the remaining values to the specified array. */
+		public LongArray toArray (LongArray array) {
+			while (hasNext)
+				array.add(next());
+			return array;
+		}
+	}
+}
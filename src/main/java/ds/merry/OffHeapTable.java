@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/** The table of an off-heap map, such as {@link OffHeapIntIntMap}: a power of two number of fixed-size slots, with each slot's
+ * key and value next to each other in native memory held by direct ByteBuffers. A ByteBuffer can only hold 2GB, so tables
+ * larger than 1GB are split into pages of 1GB each; slots never cross pages.
+ * <p>
+ * The memory is released by {@link #free()}, or by the garbage collector some time after the table is unreachable if free() is
+ * never called. Either way, the GC never has to scan or copy the table itself. A table can also be mapped from a file, for
+ * maps such as {@link MappedIntIntMap} that outlive the process; freeing it unmaps the file.
+ * @author Tommy Ettinger */
+final class OffHeapTable {
+	static private final int PAGE_BYTES = 1 << 30;
+
+	private ByteBuffer[] pages;
+	/** The number of slots. */
+	final int capacity;
+	private final int slotShift, pageShift, pageMask;
+
+	/** @param capacity a power of two
+	 * @param slotBytes a power of two, at most 1GB */
+	OffHeapTable (int capacity, int slotBytes) {
+		this(capacity, slotBytes, PAGE_BYTES);
+	}
+
+	/** @param pageBytes a power of two, at least slotBytes and at most 1GB */
+	OffHeapTable (int capacity, int slotBytes, int pageBytes) {
+		this.capacity = capacity;
+		slotShift = Integer.numberOfTrailingZeros(slotBytes);
+		int pageSlots = Math.min(capacity, pageBytes >>> slotShift);
+		pageShift = Integer.numberOfTrailingZeros(pageSlots);
+		pageMask = pageSlots - 1;
+		pages = new ByteBuffer[capacity >>> pageShift];
+		try {
+			for (int i = 0; i < pages.length; i++)
+				pages[i] = ByteBuffer.allocateDirect(pageSlots << slotShift).order(ByteOrder.nativeOrder());
+		} catch (OutOfMemoryError ex) {
+			// Don't leave the pages that were allocated waiting on the GC.
+			free();
+			throw ex;
+		}
+	}
+
+	/** Maps a table of {@code capacity} slots from the channel's file, starting at {@code position}. The file is extended if it
+	 * is too short, and the new slots read as 0.
+	 * @param capacity a power of two
+	 * @param slotBytes a power of two, at most 1GB */
+	OffHeapTable (FileChannel channel, long position, int capacity, int slotBytes) throws IOException {
+		this.capacity = capacity;
+		slotShift = Integer.numberOfTrailingZeros(slotBytes);
+		int pageSlots = Math.min(capacity, PAGE_BYTES >>> slotShift);
+		pageShift = Integer.numberOfTrailingZeros(pageSlots);
+		pageMask = pageSlots - 1;
+		pages = new ByteBuffer[capacity >>> pageShift];
+		long pageBytes = (long)pageSlots << slotShift;
+		try {
+			for (int i = 0; i < pages.length; i++)
+				pages[i] = channel.map(FileChannel.MapMode.READ_WRITE, position + i * pageBytes, pageBytes)
+					.order(ByteOrder.nativeOrder());
+		} catch (IOException ex) {
+			free();
+			throw ex;
+		}
+	}
+
+	/** Returns the number of bytes of native memory held. */
+	long bytes () {
+		return (long)capacity << slotShift;
+	}
+
+	boolean isFreed () {
+		return pages == null;
+	}
+
+	int getInt (int slot, int offset) {
+		return pages[slot >>> pageShift].getInt(((slot & pageMask) << slotShift) + offset);
+	}
+
+	void putInt (int slot, int offset, int value) {
+		pages[slot >>> pageShift].putInt(((slot & pageMask) << slotShift) + offset, value);
+	}
+
+	long getLong (int slot, int offset) {
+		return pages[slot >>> pageShift].getLong(((slot & pageMask) << slotShift) + offset);
+	}
+
+	void putLong (int slot, int offset, long value) {
+		pages[slot >>> pageShift].putLong(((slot & pageMask) << slotShift) + offset, value);
+	}
+
+	float getFloat (int slot, int offset) {
+		return pages[slot >>> pageShift].getFloat(((slot & pageMask) << slotShift) + offset);
+	}
+
+	void putFloat (int slot, int offset, float value) {
+		pages[slot >>> pageShift].putFloat(((slot & pageMask) << slotShift) + offset, value);
+	}
+
+	/** Sets every byte to 0. */
+	void clear () {
+		for (ByteBuffer page : pages)
+			for (int i = 0, n = page.capacity(); i < n; i += 8)
+				page.putLong(i, 0L);
+	}
+
+	/** Writes any changes to a mapped table out to its file, and waits until they are on the storage device. Does nothing for a
+	 * table that isn't mapped. */
+	void force () {
+		for (ByteBuffer page : pages)
+			if (page instanceof MappedByteBuffer) ((MappedByteBuffer)page).force();
+	}
+
+	/** Releases the native memory now, instead of when the GC gets to it. The table must not be used after this. */
+	void free () {
+		if (pages == null) return;
+		for (ByteBuffer page : pages)
+			if (page != null) release(page);
+		pages = null;
+	}
+
+	// Direct buffers have no public way to release their memory, so this looks up the internal one for the running JVM.
+	static private Object unsafe;
+	static private Method invokeCleaner, cleaner, clean;
+	static private boolean looked;
+
+	static private synchronized void lookUp (ByteBuffer buffer) {
+		if (looked) return;
+		looked = true;
+		try {
+			// Java 9 and later.
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Method method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = method;
+			return;
+		} catch (Exception ignored) {
+		}
+		try {
+			// Java 8 and earlier.
+			Method method = buffer.getClass().getMethod("cleaner");
+			method.setAccessible(true);
+			Method cleanMethod = method.getReturnType().getMethod("clean");
+			cleanMethod.setAccessible(true);
+			cleaner = method;
+			clean = cleanMethod;
+		} catch (Exception ignored) {
+		}
+	}
+
+	/** Releases the memory of a direct buffer, if the running JVM allows it. If it doesn't, the GC releases it later. */
+	static void release (ByteBuffer buffer) {
+		lookUp(buffer);
+		try {
+			if (invokeCleaner != null)
+				invokeCleaner.invoke(unsafe, buffer);
+			else if (cleaner != null) {
+				Object c = cleaner.invoke(buffer);
+				if (c != null) clean.invoke(c);
+			}
+		} catch (Exception ignored) {
+		}
+	}
+}
@@ -20,6 +20,9 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiPredicate;
+
 import java.util.NoSuchElementException;
 
 /** An {@link ObjectMap} that also stores keys in an {@link Array} using the insertion order. Null keys are not allowed. No
@@ -27,13 +30,18 @@ import java.util.NoSuchElementException;
  * <p>
  * Iteration over the {@link #entries()}, {@link #keys()}, and {@link #values()} is ordered and faster than an unordered map. Keys
  * can also be accessed and the order changed using {@link #orderedKeys()}. There is some additional overhead for put and remove.
- * When used for faster iteration versus ObjectMap and the order does not actually matter, copying during remove can be greatly
- * reduced by setting {@link Array#ordered} to false for {@link OrderedMap#orderedKeys()}.
  * <p>
- * This class performs fast contains (typically O(1), worst case O(n) but that is rare in practice). Remove is somewhat slower due
- * to {@link #orderedKeys()}. Add may be slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce
- * collisions and the need to resize. Load factors greater than 0.91 greatly increase the chances to resize to the next higher POT
- * size.
+ * Each slot of the hash table also stores the position of its key in the Array, so {@link #remove(Object)} and
+ * {@link #alter(Object, Object)} find a key's place in the order in constant time instead of searching the Array. Removing
+ * leaves a null in the Array, which iteration skips, instead of shifting every later key down; once there are more of those
+ * gaps than keys, the Array is compacted in one pass, so removal stays constant time on average. {@link #orderedKeys()},
+ * {@link #removeIndex(int)} and {@link #alterIndex(int, Object)} work with indices in the order, so they compact the Array first
+ * if it has any gaps. If the Array returned by {@link #orderedKeys()} is reordered or changed, the stored positions are rebuilt
+ * the next time one is found to be wrong.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
  * <p>
  * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
  * OrderedMap.
@@ -45,25 +53,46 @@ import java.util.NoSuchElementException;
  * @author Nathan Sweet
  * @author Tommy Ettinger */
 public class OrderedMap<K, V> extends ObjectMap<K, V> {
+	/** The keys in order, with null where a key was removed since the last compaction. */
 	final Array<K> keys;
+	/** Holds the position in {@link #keys} of the key at the same index in {@link #keyTable}. */
+	int[] indexTable;
+	/** How many nulls are in {@link #keys}. */
+	int tombstones;
 
 	public OrderedMap () {
 		keys = new Array();
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedMap (int initialCapacity) {
 		super(initialCapacity);
 		keys = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedMap (int initialCapacity, float loadFactor) {
 		super(initialCapacity, loadFactor);
 		keys = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
+	}
+
+	public OrderedMap (HashingStrategy<? super K> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	public OrderedMap (int initialCapacity, float loadFactor, @Null HashingStrategy<? super K> strategy) {
+		super(initialCapacity, loadFactor, strategy);
+		keys = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedMap (OrderedMap<? extends K, ? extends V> map) {
 		super(map);
 		keys = new Array(map.keys);
+		indexTable = new int[keyTable.length];
+		System.arraycopy(map.indexTable, 0, indexTable, 0, map.indexTable.length);
+		tombstones = map.tombstones;
 	}
 
 	public V put (K key, V value) {
@@ -76,72 +105,272 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 		i = -(i + 1); // Empty space was found.
 		keyTable[i] = key;
 		valueTable[i] = value;
+		indexTable[i] = keys.size;
 		keys.add(key);
 		if (++size >= threshold) resize(keyTable.length << 1);
 		return null;
 	}
 
+	void insert (int i, K key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		indexTable[i] = keys.size;
+		keys.add(key);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	void removeEntry (int i) {
+		removeSlot(i);
+		if (tombstones > size) compact();
+	}
+
 	public <T extends K> void putAll (OrderedMap<T, ? extends V> map) {
 		ensureCapacity(map.size);
 		K[] keys = map.keys.items;
 		for (int i = 0, n = map.keys.size; i < n; i++) {
 			K key = keys[i];
-			put(key, map.get((T)key));
+			if (key != null) put(key, map.get((T)key));
+		}
+	}
+
+	/** Skips checks for existing keys, doesn't increment size. */
+	void putResize (K key, @Null V value, int position) {
+		K[] keyTable = this.keyTable;
+		for (int i = place(key);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				valueTable[i] = value;
+				indexTable[i] = position;
+				return;
+			}
 		}
 	}
 
 	public V remove (K key) {
-		keys.removeValue(key, false);
-		return super.remove(key);
+		int i = locateKey(key);
+		if (i < 0) return null;
+		V oldValue = valueTable[i];
+		removeSlot(i);
+		if (tombstones > size) compact();
+		return oldValue;
 	}
 
 	public V removeIndex (int index) {
-		return super.remove(keys.removeIndex(index));
+		if (tombstones > 0) compact();
+		if (index >= keys.size) throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + keys.size);
+		V oldValue = removePosition(index);
+		if (tombstones > size) compact();
+		return oldValue;
+	}
+
+	/** Removes the key at {@code position} in {@link #keys}, which must not be null, and returns its value. Doesn't compact. */
+	V removePosition (int position) {
+		int i = locateKey(keys.items[position]);
+		V oldValue = valueTable[i];
+		removeSlot(i);
+		return oldValue;
+	}
+
+	/** Removes the key at index {@code i} of the table from the table and from {@link #keys}. Doesn't compact. */
+	void removeSlot (int i) {
+		int position = position(i);
+		Array<K> keys = this.keys;
+		if (position == keys.size - 1) {
+			// Removing the last key needs no gap, and any gaps right before it can go too.
+			K[] items = keys.items;
+			items[position] = null;
+			while (position > 0 && items[position - 1] == null) {
+				position--;
+				tombstones--;
+			}
+			keys.size = position;
+		} else {
+			keys.items[position] = null;
+			tombstones++;
+		}
+		removeAt(i);
+	}
+
+	int removeAt (int i) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		int[] indexTable = this.indexTable;
+		int mask = this.mask, next = i + 1 & mask;
+		K key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = place(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				valueTable[i] = valueTable[next];
+				indexTable[i] = indexTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		valueTable[i] = null;
+		size--;
+		return i;
+	}
+
+	public boolean removeIf (BiPredicate<? super K, ? super V> predicate) {
+		int oldSize = size, oldTombstones = tombstones;
+		if (!super.removeIf(predicate)) return false;
+		// If orderedKeys() was changed, some removed keys may not have been found at their stored positions; compact() drops them.
+		if (tombstones - oldTombstones != oldSize - size || tombstones > size) compact();
+		return true;
+	}
+
+	/** Also leaves a gap at the key's position in {@link #keys}, if the stored position is right. */
+	void clearSlot (int i) {
+		int position = indexTable[i];
+		if (position < keys.size && keys.items[position] == keyTable[i]) {
+			keys.items[position] = null;
+			tombstones++;
+		}
+		super.clearSlot(i);
+	}
+
+	void moveSlot (int from, int to) {
+		indexTable[to] = indexTable[from];
+		super.moveSlot(from, to);
+	}
+
+	/** Returns the position in {@link #keys} of the key at index {@code i} of the table. If {@link #orderedKeys()} was changed so
+	 * the stored position is wrong, every position is rebuilt first. */
+	int position (int i) {
+		int position = indexTable[i];
+		if (position >= keys.size || keys.items[position] != keyTable[i]) {
+			compact();
+			position = indexTable[i];
+		}
+		return position;
+	}
+
+	/** Removes the nulls from {@link #keys} and stores the position of every key in {@link #indexTable}. */
+	void compact () {
+		K[] items = keys.items;
+		int n = keys.size, live = 0;
+		for (int p = 0; p < n; p++) {
+			K key = items[p];
+			if (key == null) continue;
+			int i = locateKey(key);
+			if (i < 0) continue; // Only removeIf() leaves keys here that aren't in the table.
+			items[live] = key;
+			indexTable[i] = live++;
+		}
+		keys.truncate(live);
+		tombstones = 0;
 	}
 
 	/** Changes the key {@code before} to {@code after} without changing its position in the order or its value. Returns true if
 	 * {@code after} has been added to the OrderedMap and {@code before} has been removed; returns false if {@code after} is
-	 * already present or {@code before} is not present. If you are iterating over an OrderedMap and have an index, you should
-	 * prefer {@link #alterIndex(int, Object)}, which doesn't need to search for an index like this does and so can be faster.
+	 * already present or {@code before} is not present. This runs in constant time, like {@link #alterIndex(int, Object)}.
 	 * @param before a key that must be present for this to succeed
 	 * @param after a key that must not be in this map for this to succeed
 	 * @return true if {@code before} was removed and {@code after} was added, false otherwise */
 	public boolean alter (K before, K after) {
 		if (containsKey(after)) return false;
-		int index = keys.indexOf(before, false);
-		if (index == -1) return false;
-		super.put(after, super.remove(before));
-		keys.set(index, after);
+		int i = locateKey(before);
+		if (i < 0) return false;
+		alterSlot(i, position(i), after);
 		return true;
 	}
 
 	/** Changes the key at the given {@code index} in the order to {@code after}, without changing the ordering of other entries or
 	 * any values. If {@code after} is already present, this returns false; it will also return false if {@code index} is invalid
-	 * for the size of this map. Otherwise, it returns true. Unlike {@link #alter(Object, Object)}, this operates in constant time.
+	 * for the size of this map. Otherwise, it returns true. This operates in constant time, unless the order has gaps from
+	 * removals that must be compacted first.
 	 * @param index the index in the order of the key to change; must be non-negative and less than {@link #size}
 	 * @param after the key that will replace the contents at {@code index}; this key must not be present for this to succeed
 	 * @return true if {@code after} successfully replaced the key at {@code index}, false otherwise */
 	public boolean alterIndex (int index, K after) {
 		if (index < 0 || index >= size || containsKey(after)) return false;
-		super.put(after, super.remove(keys.get(index)));
-		keys.set(index, after);
+		if (tombstones > 0) compact();
+		alterSlot(locateKey(keys.items[index]), index, after);
 		return true;
 	}
 
+	/** Replaces the key at index {@code i} of the table, which is at {@code position} in {@link #keys}, with {@code after}, which
+	 * must not be present. */
+	void alterSlot (int i, int position, K after) {
+		V value = valueTable[i];
+		removeAt(i);
+		i = -(locateKey(after) + 1);
+		keyTable[i] = after;
+		valueTable[i] = value;
+		indexTable[i] = position;
+		keys.items[position] = after;
+		size++;
+	}
+
+	/** Does nothing, so {@link #tracksOccupancy()} stays false. This map iterates over {@link #keys} instead of its table, and
+	 * compaction keeps no more removed keys in {@link #keys} than live ones, so a bitmap of the table wouldn't help. */
+	public void trackOccupancy (boolean track) {
+	}
+
+	void resize (int newSize) {
+		int oldCapacity = keyTable.length;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+
+		K[] oldKeyTable = keyTable;
+		V[] oldValueTable = valueTable;
+		int[] oldIndexTable = indexTable;
+
+		keyTable = (K[])new Object[newSize];
+		valueTable = (V[])new Object[newSize];
+		indexTable = new int[newSize];
+
+		if (size > 0) {
+			for (int i = 0; i < oldCapacity; i++) {
+				K key = oldKeyTable[i];
+				if (key != null) putResize(key, oldValueTable[i], oldIndexTable[i]);
+			}
+		}
+	}
+
 	public void clear (int maximumCapacity) {
 		keys.clear();
+		tombstones = 0;
 		super.clear(maximumCapacity);
 	}
 
 	public void clear () {
 		keys.clear();
+		tombstones = 0;
 		super.clear();
 	}
 
+	/** Returns the keys in order, which can be changed to change the order. Any gaps left by removals are compacted first. */
 	public Array<K> orderedKeys () {
+		if (tombstones > 0) compact();
 		return keys;
 	}
 
+	public void forEach (BiConsumer<? super K, ? super V> consumer) {
+		K[] items = keys.items;
+		for (int i = 0, n = keys.size; i < n; i++) {
+			K key = items[i];
+			if (key != null) consumer.accept(key, get(key));
+		}
+	}
+
+	public boolean forEachWhile (BiPredicate<? super K, ? super V> predicate) {
+		K[] items = keys.items;
+		for (int i = 0, n = keys.size; i < n; i++) {
+			K key = items[i];
+			if (key != null && !predicate.test(key, get(key))) return false;
+		}
+		return true;
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(4).extra(MemoryStats.gdxArray(keys.items.length));
+	}
+
 	public Entries<K, V> iterator () {
 		return entries();
 	}
@@ -216,10 +445,13 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 		if (size == 0) return braces ? "{}" : "";
 		java.lang.StringBuilder buffer = new java.lang.StringBuilder(32);
 		if (braces) buffer.append('{');
-		Array<K> keys = this.keys;
-		for (int i = 0, n = keys.size; i < n; i++) {
-			K key = keys.get(i);
-			if (i > 0) buffer.append(separator);
+		K[] keys = this.keys.items;
+		boolean first = true;
+		for (int i = 0, n = this.keys.size; i < n; i++) {
+			K key = keys[i];
+			if (key == null) continue;
+			if (!first) buffer.append(separator);
+			first = false;
 			buffer.append(key == this ? "(this)" : key);
 			buffer.append('=');
 			V value = get(key);
@@ -239,8 +471,22 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 
 		public void reset () {
 			currentIndex = -1;
-			nextIndex = 0;
-			hasNext = map.size > 0;
+			nextIndex = -1;
+			findNext();
+		}
+
+		/** Advances nextIndex past any gaps left by removals. */
+		void findNext () {
+			// This is called by the super constructor, before the keys field is set.
+			Array<K> keys = ((OrderedMap)map).keys;
+			K[] items = keys.items;
+			for (int n = keys.size; ++nextIndex < n;) {
+				if (items[nextIndex] != null) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
 		}
 
 		public Entry next () {
@@ -249,15 +495,13 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 			currentIndex = nextIndex;
 			entry.key = keys.get(nextIndex);
 			entry.value = map.get(entry.key);
-			nextIndex++;
-			hasNext = nextIndex < map.size;
+			findNext();
 			return entry;
 		}
 
 		public void remove () {
 			if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
-			map.remove(entry.key);
-			nextIndex--;
+			((OrderedMap)map).removePosition(currentIndex);
 			currentIndex = -1;
 		}
 	}
@@ -272,8 +516,22 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 
 		public void reset () {
 			currentIndex = -1;
-			nextIndex = 0;
-			hasNext = map.size > 0;
+			nextIndex = -1;
+			findNext();
+		}
+
+		/** Advances nextIndex past any gaps left by removals. */
+		void findNext () {
+			// This is called by the super constructor, before the keys field is set.
+			Array<K> keys = ((OrderedMap)map).keys;
+			K[] items = keys.items;
+			for (int n = keys.size; ++nextIndex < n;) {
+				if (items[nextIndex] != null) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
 		}
 
 		public K next () {
@@ -281,27 +539,26 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
 			K key = keys.get(nextIndex);
 			currentIndex = nextIndex;
-			nextIndex++;
-			hasNext = nextIndex < map.size;
+			findNext();
 			return key;
 		}
 
 		public void remove () {
 			if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
-			((OrderedMap)map).removeIndex(currentIndex);
-			nextIndex = currentIndex;
+			((OrderedMap)map).removePosition(currentIndex);
 			currentIndex = -1;
 		}
 
 		public Array<K> toArray (Array<K> array) {
-			array.addAll(keys, nextIndex, keys.size - nextIndex);
-			nextIndex = keys.size;
+			K[] items = keys.items;
+			for (int n = keys.size; nextIndex < n; nextIndex++)
+				if (items[nextIndex] != null) array.add(items[nextIndex]);
 			hasNext = false;
 			return array;
 		}
 
 		public Array<K> toArray () {
-			return toArray(new Array(true, keys.size - nextIndex));
+			return toArray(new Array(true, map.size));
 		}
 	}
 
@@ -315,8 +572,22 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 
 		public void reset () {
 			currentIndex = -1;
-			nextIndex = 0;
-			hasNext = map.size > 0;
+			nextIndex = -1;
+			findNext();
+		}
+
+		/** Advances nextIndex past any gaps left by removals. */
+		void findNext () {
+			// This is called by the super constructor, before the keys field is set.
+			Array keys = ((OrderedMap)map).keys;
+			Object[] items = keys.items;
+			for (int n = keys.size; ++nextIndex < n;) {
+				if (items[nextIndex] != null) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
 		}
 
 		public V next () {
@@ -324,15 +595,13 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
 			V value = map.get(keys.get(nextIndex));
 			currentIndex = nextIndex;
-			nextIndex++;
-			hasNext = nextIndex < map.size;
+			findNext();
 			return value;
 		}
 
 		public void remove () {
 			if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
-			((OrderedMap)map).removeIndex(currentIndex);
-			nextIndex = currentIndex;
+			((OrderedMap)map).removePosition(currentIndex);
 			currentIndex = -1;
 		}
 
@@ -341,7 +610,7 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 			array.ensureCapacity(n - nextIndex);
 			Object[] keys = this.keys.items;
 			for (int i = nextIndex; i < n; i++)
-				array.add(map.get(keys[i]));
+				if (keys[i] != null) array.add(map.get(keys[i]));
 			currentIndex = n - 1;
 			nextIndex = n;
 			hasNext = false;
@@ -349,7 +618,7 @@ public class OrderedMap<K, V> extends ObjectMap<K, V> {
 		}
 
 		public Array<V> toArray () {
-			return toArray(new Array(true, keys.size - nextIndex));
+			return toArray(new Array(true, map.size));
 		}
 	}
 }
@@ -20,20 +20,28 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Collections;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 
+import ds.merry.function.Consumer;
+import ds.merry.function.Predicate;
+
 import java.util.NoSuchElementException;
 
 /** A {@link ObjectSet} that also stores keys in an {@link Array} using the insertion order. Null keys are not allowed. No
  * allocation is done except when growing the table size.
  * <p>
  * {@link #iterator() Iteration} is ordered and faster than an unordered set. Keys can also be accessed and the order changed
- * using {@link #orderedItems()}. There is some additional overhead for put and remove. When used for faster iteration versus
- * ObjectSet and the order does not actually matter, copying during remove can be greatly reduced by setting {@link Array#ordered}
- * to false for {@link OrderedSet#orderedItems()}.
+ * using {@link #orderedItems()}. There is some additional overhead for put and remove.
+ * <p>
+ * Each slot of the hash table also stores the position of its key in the Array. Removing a key leaves a null in the Array,
+ * which iteration skips, instead of shifting every later key down, and {@link #alter(Object, Object)} finds the key's position
+ * without searching. The Array is compacted in one pass once more than {@link #getDeadRatio()} of it is gaps, so a set with many
+ * removals stays linear overall instead of quadratic. {@link #orderedItems()}, {@link #removeIndex(int)},
+ * {@link #alterIndex(int, Object)} and {@link #add(Object, int)} work with indices in the order, so they compact first if the
+ * Array has any gaps. If the Array returned by {@link #orderedItems()} is reordered or changed, the stored positions are
+ * rebuilt the next time one is found to be wrong.
  * <p>
- * This class performs fast contains (typically O(1), worst case O(n) but that is rare in practice). Remove is somewhat slower due
- * to {@link #orderedItems()}. Add may be slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce
- * collisions and the need to resize. Load factors greater than 0.91 greatly increase the chances to resize to the next higher POT
- * size.
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
  * <p>
  * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
  * OrderedMap.
@@ -45,43 +53,97 @@ import java.util.NoSuchElementException;
  * @author Nathan Sweet
  * @author Tommy Ettinger */
 public class OrderedSet<T> extends ObjectSet<T> {
+	/** The keys in order, with null where a key was removed since the last compaction. */
 	final Array<T> items;
+	/** Holds the position in {@link #items} of the key at the same index in {@link #keyTable}. */
+	int[] indexTable;
+	/** How many nulls are in {@link #items}. */
+	int tombstones;
+	float deadRatio = 0.5f;
 	OrderedSetIterator iterator1, iterator2;
 
 	public OrderedSet () {
 		items = new Array();
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedSet (int initialCapacity, float loadFactor) {
 		super(initialCapacity, loadFactor);
 		items = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
+	}
+
+	public OrderedSet (HashingStrategy<? super T> strategy) {
+		this(51, 0.8f, strategy);
+	}
+
+	public OrderedSet (int initialCapacity, float loadFactor, @Null HashingStrategy<? super T> strategy) {
+		super(initialCapacity, loadFactor, strategy);
+		items = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedSet (int initialCapacity) {
 		super(initialCapacity);
 		items = new Array(initialCapacity);
+		indexTable = new int[keyTable.length];
 	}
 
 	public OrderedSet (OrderedSet<? extends T> set) {
 		super(set);
 		items = new Array(set.items);
+		indexTable = new int[keyTable.length];
+		System.arraycopy(set.indexTable, 0, indexTable, 0, set.indexTable.length);
+		tombstones = set.tombstones;
+		deadRatio = set.deadRatio;
+	}
+
+	/** Returns the fraction of {@link #orderedItems()} that can be gaps left by removal before it is compacted. */
+	public float getDeadRatio () {
+		return deadRatio;
+	}
+
+	/** Sets the fraction of {@link #orderedItems()} that can be gaps left by removal before it is compacted. The default is 0.5,
+	 * which compacts once there are more gaps than items. Higher ratios compact less often but make iteration skip more gaps; 0
+	 * compacts on every removal, which keeps the Array dense like a plain Array with ordered removal, at the same linear cost.
+	 * @param deadRatio must be &gt;= 0 and &lt; 1 */
+	public void setDeadRatio (float deadRatio) {
+		if (deadRatio < 0f || deadRatio >= 1f)
+			throw new IllegalArgumentException("deadRatio must be >= 0 and < 1: " + deadRatio);
+		this.deadRatio = deadRatio;
+		if (tombstones > items.size * deadRatio) compact();
 	}
 
 	public boolean add (T key) {
-		if (!super.add(key)) return false;
+		int i = locateKey(key);
+		if (i >= 0) return false; // Existing key was found.
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		indexTable[i] = items.size;
 		items.add(key);
+		if (++size >= threshold) resize(keyTable.length << 1);
 		return true;
 	}
 
 	/** Sets the key at the specfied index. Returns true if the key was not already in the set. If this set already contains the
-	 * key, the existing key's index is changed if needed and false is returned. */
+	 * key, the existing key's index is changed if needed and false is returned. This takes time proportional to the size of the
+	 * set, because the position of every key after {@code index} changes. */
 	public boolean add (T key, int index) {
-		if (!super.add(key)) {
-			int oldIndex = items.indexOf(key, true);
-			if (oldIndex != index) items.insert(index, items.removeIndex(oldIndex));
+		if (tombstones > 0) compact();
+		int i = locateKey(key);
+		if (i >= 0) {
+			int oldIndex = indexTable[i];
+			if (oldIndex != index) {
+				items.insert(index, items.removeIndex(oldIndex));
+				compact();
+			}
 			return false;
 		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
 		items.insert(index, key);
+		if (++size >= threshold) resize(keyTable.length << 1);
+		compact();
 		return true;
 	}
 
@@ -89,64 +151,229 @@ public class OrderedSet<T> extends ObjectSet<T> {
 		ensureCapacity(set.size);
 		T[] keys = set.items.items;
 		for (int i = 0, n = set.items.size; i < n; i++)
-			add(keys[i]);
+			if (keys[i] != null) add(keys[i]);
+	}
+
+	/** Skips checks for existing keys, doesn't increment size. */
+	void addResize (T key, int position) {
+		T[] keyTable = this.keyTable;
+		for (int i = place(key);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				indexTable[i] = position;
+				return;
+			}
+		}
 	}
 
 	public boolean remove (T key) {
-		if (!super.remove(key)) return false;
-		items.removeValue(key, false);
+		int i = locateKey(key);
+		if (i < 0) return false;
+		removeSlot(i);
+		if (tombstones > items.size * deadRatio) compact();
 		return true;
 	}
 
 	public T removeIndex (int index) {
-		T key = items.removeIndex(index);
-		super.remove(key);
+		if (tombstones > 0) compact();
+		T key = items.get(index);
+		removeSlot(locateKey(key));
+		if (tombstones > items.size * deadRatio) compact();
 		return key;
 	}
 
+	/** Removes the key at {@code position} in {@link #items}, which must not be null. Doesn't compact. */
+	void removePosition (int position) {
+		removeSlot(locateKey(items.items[position]));
+	}
+
+	/** Removes the key at index {@code i} of the table from the table and from {@link #items}. Doesn't compact. */
+	void removeSlot (int i) {
+		int position = position(i);
+		Array<T> items = this.items;
+		if (position == items.size - 1) {
+			// Removing the last key needs no gap, and any gaps right before it can go too.
+			T[] keys = items.items;
+			keys[position] = null;
+			while (position > 0 && keys[position - 1] == null) {
+				position--;
+				tombstones--;
+			}
+			items.size = position;
+		} else {
+			items.items[position] = null;
+			tombstones++;
+		}
+		removeAt(i);
+	}
+
+	int removeAt (int i) {
+		T[] keyTable = this.keyTable;
+		int[] indexTable = this.indexTable;
+		int mask = this.mask, next = i + 1 & mask;
+		T key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = place(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				indexTable[i] = indexTable[next];
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		size--;
+		return i;
+	}
+
+	public boolean removeIf (Predicate<? super T> predicate) {
+		int oldSize = size, oldTombstones = tombstones;
+		if (!super.removeIf(predicate)) return false;
+		// If orderedItems() was changed, some removed keys may not have been found at their stored positions; compact() drops them.
+		if (tombstones - oldTombstones != oldSize - size || tombstones > items.size * deadRatio) compact();
+		return true;
+	}
+
+	/** Also leaves a gap at the key's position in {@link #items}, if the stored position is right. */
+	void clearSlot (int i) {
+		int position = indexTable[i];
+		if (position < items.size && items.items[position] == keyTable[i]) {
+			items.items[position] = null;
+			tombstones++;
+		}
+		super.clearSlot(i);
+	}
+
+	void moveSlot (int from, int to) {
+		indexTable[to] = indexTable[from];
+		super.moveSlot(from, to);
+	}
+
+	/** Returns the position in {@link #items} of the key at index {@code i} of the table. If {@link #orderedItems()} was changed
+	 * so the stored position is wrong, every position is rebuilt first. */
+	int position (int i) {
+		int position = indexTable[i];
+		if (position >= items.size || items.items[position] != keyTable[i]) {
+			compact();
+			position = indexTable[i];
+		}
+		return position;
+	}
+
+	/** Removes the nulls from {@link #items} and stores the position of every key in {@link #indexTable}. */
+	void compact () {
+		T[] keys = items.items;
+		int n = items.size, live = 0;
+		for (int p = 0; p < n; p++) {
+			T key = keys[p];
+			if (key == null) continue;
+			int i = locateKey(key);
+			if (i < 0) continue; // Only removeIf() leaves keys here that aren't in the table.
+			keys[live] = key;
+			indexTable[i] = live++;
+		}
+		items.truncate(live);
+		tombstones = 0;
+	}
+
 	/** Changes the item {@code before} to {@code after} without changing its position in the order. Returns true if {@code after}
 	 * has been added to the OrderedSet and {@code before} has been removed; returns false if {@code after} is already present or
-	 * {@code before} is not present. If you are iterating over an OrderedSet and have an index, you should prefer
-	 * {@link #alterIndex(int, Object)}, which doesn't need to search for an index like this does and so can be faster.
+	 * {@code before} is not present. This runs in constant time, like {@link #alterIndex(int, Object)}.
 	 * @param before an item that must be present for this to succeed
 	 * @param after an item that must not be in this set for this to succeed
 	 * @return true if {@code before} was removed and {@code after} was added, false otherwise */
 	public boolean alter (T before, T after) {
 		if (contains(after)) return false;
-		if (!super.remove(before)) return false;
-		super.add(after);
-		items.set(items.indexOf(before, false), after);
+		int i = locateKey(before);
+		if (i < 0) return false;
+		alterSlot(i, position(i), after);
 		return true;
 	}
 
 	/** Changes the item at the given {@code index} in the order to {@code after}, without changing the ordering of other items. If
 	 * {@code after} is already present, this returns false; it will also return false if {@code index} is invalid for the size of
-	 * this set. Otherwise, it returns true. Unlike {@link #alter(Object, Object)}, this operates in constant time.
+	 * this set. Otherwise, it returns true. This operates in constant time, unless the order has gaps from removals that must be
+	 * compacted first.
 	 * @param index the index in the order of the item to change; must be non-negative and less than {@link #size}
 	 * @param after the item that will replace the contents at {@code index}; this item must not be present for this to succeed
 	 * @return true if {@code after} successfully replaced the contents at {@code index}, false otherwise */
 	public boolean alterIndex (int index, T after) {
 		if (index < 0 || index >= size || contains(after)) return false;
-		super.remove(items.get(index));
-		super.add(after);
-		items.set(index, after);
+		if (tombstones > 0) compact();
+		alterSlot(locateKey(items.items[index]), index, after);
 		return true;
 	}
 
+	/** Replaces the key at index {@code i} of the table, which is at {@code position} in {@link #items}, with {@code after}, which
+	 * must not be present. */
+	void alterSlot (int i, int position, T after) {
+		removeAt(i);
+		i = -(locateKey(after) + 1);
+		keyTable[i] = after;
+		indexTable[i] = position;
+		items.items[position] = after;
+		size++;
+	}
+
+	void resize (int newSize) {
+		int oldCapacity = keyTable.length;
+		threshold = (int)(newSize * loadFactor);
+		mask = newSize - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		T[] oldKeyTable = keyTable;
+		int[] oldIndexTable = indexTable;
+
+		keyTable = (T[])(new Object[newSize]);
+		indexTable = new int[newSize];
+
+		if (size > 0) {
+			for (int i = 0; i < oldCapacity; i++) {
+				T key = oldKeyTable[i];
+				if (key != null) addResize(key, oldIndexTable[i]);
+			}
+		}
+	}
+
 	public void clear (int maximumCapacity) {
 		items.clear();
+		tombstones = 0;
 		super.clear(maximumCapacity);
 	}
 
 	public void clear () {
 		items.clear();
+		tombstones = 0;
 		super.clear();
 	}
 
+	/** Returns the items in order, which can be changed to change the order. Any gaps left by removals are compacted first. */
 	public Array<T> orderedItems () {
+		if (tombstones > 0) compact();
 		return items;
 	}
 
+	public void forEachItem (Consumer<? super T> consumer) {
+		T[] keys = items.items;
+		for (int i = 0, n = items.size; i < n; i++) {
+			T key = keys[i];
+			if (key != null) consumer.accept(key);
+		}
+	}
+
+	public boolean forEachWhile (Predicate<? super T> predicate) {
+		T[] keys = items.items;
+		for (int i = 0, n = items.size; i < n; i++) {
+			T key = keys[i];
+			if (key != null && !predicate.test(key)) return false;
+		}
+		return true;
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(4).extra(MemoryStats.gdxArray(items.items.length)).iterators(iterator1, iterator2);
+	}
+
 	public OrderedSetIterator<T> iterator () {
 		if (Collections.allocateIterators) return new OrderedSetIterator(this);
 		if (iterator1 == null) {
@@ -167,20 +394,11 @@ public class OrderedSet<T> extends ObjectSet<T> {
 
 	public String toString () {
 		if (size == 0) return "{}";
-		T[] items = this.items.items;
-		StringBuilder buffer = new StringBuilder(32);
-		buffer.append('{');
-		buffer.append(items[0]);
-		for (int i = 1; i < size; i++) {
-			buffer.append(", ");
-			buffer.append(items[i]);
-		}
-		buffer.append('}');
-		return buffer.toString();
+		return '{' + toString(", ") + '}';
 	}
 
 	public String toString (String separator) {
-		return items.toString(separator);
+		return orderedItems().toString(separator);
 	}
 
 	static public class OrderedSetIterator<K> extends ObjectSetIterator<K> {
@@ -192,34 +410,50 @@ public class OrderedSet<T> extends ObjectSet<T> {
 		}
 
 		public void reset () {
-			nextIndex = 0;
-			hasNext = set.size > 0;
+			currentIndex = -1;
+			nextIndex = -1;
+			findNext();
+		}
+
+		/** Advances nextIndex past any gaps left by removals. */
+		void findNext () {
+			// This is called by the super constructor, before the items field is set.
+			Array<K> items = ((OrderedSet)set).items;
+			K[] keys = items.items;
+			for (int n = items.size; ++nextIndex < n;) {
+				if (keys[nextIndex] != null) {
+					hasNext = true;
+					return;
+				}
+			}
+			hasNext = false;
 		}
 
 		public K next () {
 			if (!hasNext) throw new NoSuchElementException();
 			if (!valid) throw new GdxRuntimeException("#iterator() cannot be used nested.");
 			K key = items.get(nextIndex);
-			nextIndex++;
-			hasNext = nextIndex < set.size;
+			currentIndex = nextIndex;
+			findNext();
 			return key;
 		}
 
 		public void remove () {
-			if (nextIndex < 0) throw new IllegalStateException("next must be called before remove.");
-			nextIndex--;
-			((OrderedSet)set).removeIndex(nextIndex);
+			if (currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
+			((OrderedSet)set).removePosition(currentIndex);
+			currentIndex = -1;
 		}
 
 		public Array<K> toArray (Array<K> array) {
-			array.addAll(items, nextIndex, items.size - nextIndex);
-			nextIndex = items.size;
+			K[] keys = items.items;
+			for (int n = items.size; nextIndex < n; nextIndex++)
+				if (keys[nextIndex] != null) array.add(keys[nextIndex]);
 			hasNext = false;
 			return array;
 		}
 
 		public Array<K> toArray () {
-			return toArray(new Array(true, set.size - nextIndex));
+			return toArray(new Array(true, set.size));
 		}
 	}
 
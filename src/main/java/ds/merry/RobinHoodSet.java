@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+/** An unordered set where the keys are objects, which uses Robin Hood insertion to keep probe lengths short and even. Null keys
+ * are not allowed. No allocation is done except when growing the table size.
+ * <p>
+ * When a key is added, it walks forward from the index {@link #place(Object)} gives it, and whenever it finds a resident key
+ * that is closer to that resident's own placement than the new key is to its placement, the new key takes the slot and the
+ * resident continues forward in its place. This keeps keys in each cluster sorted by placement, which bounds the variance of
+ * probe lengths and lets {@link #contains(Object)} stop as soon as it passes the point where a missing key would have been,
+ * instead of scanning to the end of the cluster. That makes misses much cheaper in large or crowded sets, at the cost of calling
+ * {@link #place(Object)} on resident keys during lookups and insertions; keys with slow {@link Object#hashCode()} methods may
+ * be better off in an {@link ObjectSet}. Removal uses the same backward shift algorithm as ObjectSet, which keeps the order
+ * intact.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class RobinHoodSet<T> extends ObjectSet<T> {
+	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
+	public RobinHoodSet () {
+		super();
+	}
+
+	/** Creates a new set with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public RobinHoodSet (int initialCapacity) {
+		super(initialCapacity);
+	}
+
+	/** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public RobinHoodSet (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+	}
+
+	/** Creates a new set identical to the specified set. */
+	public RobinHoodSet (RobinHoodSet<? extends T> set) {
+		super(set);
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the index where the key should be inserted. That
+	 * index may hold a key that is closer to its placement, which must be moved forward by {@link #displace(int, Object)} rather
+	 * than overwritten. */
+	int locateKey (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		T[] keyTable = this.keyTable;
+		int mask = this.mask;
+		for (int i = place(key), distance = 0;; i = i + 1 & mask, distance++) {
+			T other = keyTable[i];
+			if (other == null) return -(i + 1); // Empty space is available.
+			// If other is closer to its placement than key would be here, key would have taken this spot; it isn't present.
+			if ((i - place(other) & mask) < distance) return -(i + 1);
+			if (other.equals(key)) return i; // Same key was found.
+		}
+	}
+
+	public boolean add (T key) {
+		int i = locateKey(key);
+		if (i >= 0) return false; // Existing key was found.
+		displace(-(i + 1), key);
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return true;
+	}
+
+	void addResize (T key) {
+		displace(place(key), key);
+	}
+
+	/** Stores key at index {@code i}, which must be at or after the key's placement and not past where Robin Hood order would put
+	 * it. Each resident from there on that is closer to its own placement is swapped out and carried forward, until an empty slot
+	 * is reached. Doesn't change size. */
+	void displace (int i, T key) {
+		T[] keyTable = this.keyTable;
+		int mask = this.mask;
+		for (int distance = i - place(key) & mask;; i = i + 1 & mask, distance++) {
+			T other = keyTable[i];
+			if (other == null) {
+				keyTable[i] = key;
+				return;
+			}
+			int otherDistance = i - place(other) & mask;
+			if (otherDistance < distance) {
+				keyTable[i] = key;
+				key = other;
+				distance = otherDistance;
+			}
+		}
+	}
+}
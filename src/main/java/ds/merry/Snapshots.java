@@ -0,0 +1,692 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import com.badlogic.gdx.utils.NumberUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/** Writes the maps and sets in this library to a compact binary form, and reads them back, as a much faster alternative to
+ * libGDX's Json for large collections. Each write method has a matching read method, and both work with any
+ * {@link DataOutput} and {@link DataInput}, such as a DataOutputStream over a BufferedOutputStream.
+ * <p>
+ * For maps and sets with primitive keys, the whole table is written as it is, empty slots included, along with the load factor,
+ * size and the 0 key. Reading it back into a collection of exactly the written class copies the table in bulk, with no
+ * rehashing. Other subclasses, which may place keys differently, are filled with put() or add() instead.
+ * <p>
+ * For maps and sets with object keys, the table can't be copied, because a key's hashCode() may differ in another process.
+ * The entries are written in iteration order, each key and value through a {@link Codec}, and read back in a single pass that
+ * inserts into a table already sized to hold them all. Null values are allowed; keys are never null.
+ * <p>
+ * Every read method clears the collection it is given before filling it, or creates a new one of the written class with the
+ * written load factor when given null. Ordered collections can be written and read as well: read into a new OrderedMap or
+ * OrderedSet to keep the order.
+ * @author Tommy Ettinger */
+public final class Snapshots {
+	static private final int MAGIC = 0x4D525259; // "MRRY"
+	static private final byte INT_INT_MAP = 1, INT_FLOAT_MAP = 2, INT_LONG_MAP = 3, LONG_INT_MAP = 4, LONG_LONG_MAP = 5,
+		INT_SET = 6, LONG_SET = 7, INT_MAP = 8, LONG_MAP = 9, OBJECT_MAP = 10, OBJECT_SET = 11, OBJECT_INT_MAP = 12,
+		OBJECT_FLOAT_MAP = 13, OBJECT_LONG_MAP = 14, OBJECT_DOUBLE_MAP = 15;
+	/** Bytes packed at a time by the bulk array methods. */
+	static private final int CHUNK = 8192;
+
+	private Snapshots () {
+	}
+
+	/** Writes the map's table as it is, so {@link #readIntIntMap(DataInput, IntIntMap)} can copy it back without rehashing. */
+	static public void write (DataOutput out, IntIntMap map) throws IOException {
+		writeHeader(out, INT_INT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		out.writeInt(map.zeroValue);
+		writeInts(out, map.keyTable);
+		writeInts(out, map.valueTable);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, IntIntMap)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public IntIntMap readIntIntMap (DataInput in, @Null IntIntMap into) throws IOException {
+		float loadFactor = readHeader(in, INT_INT_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		int zeroValue = in.readInt();
+		if (into == null) into = new IntIntMap(0, loadFactor);
+		into.clear();
+		if (into.getClass() == IntIntMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readInts(in, into.keyTable);
+			readInts(in, into.valueTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			int[] keys = readInts(in, new int[length]);
+			int[] values = readInts(in, new int[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], values[i]);
+		}
+		return into;
+	}
+
+	/** Writes the map's table as it is, so {@link #readIntFloatMap(DataInput, IntFloatMap)} can copy it back without rehashing. */
+	static public void write (DataOutput out, IntFloatMap map) throws IOException {
+		writeHeader(out, INT_FLOAT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		out.writeFloat(map.zeroValue);
+		writeInts(out, map.keyTable);
+		writeFloats(out, map.valueTable);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, IntFloatMap)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public IntFloatMap readIntFloatMap (DataInput in, @Null IntFloatMap into) throws IOException {
+		float loadFactor = readHeader(in, INT_FLOAT_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		float zeroValue = in.readFloat();
+		if (into == null) into = new IntFloatMap(0, loadFactor);
+		into.clear();
+		if (into.getClass() == IntFloatMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readInts(in, into.keyTable);
+			readFloats(in, into.valueTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			int[] keys = readInts(in, new int[length]);
+			float[] values = readFloats(in, new float[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], values[i]);
+		}
+		return into;
+	}
+
+	/** Writes the map's table as it is, so {@link #readIntLongMap(DataInput, IntLongMap)} can copy it back without rehashing. */
+	static public void write (DataOutput out, IntLongMap map) throws IOException {
+		writeHeader(out, INT_LONG_MAP, map.loadFactor, map.keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		out.writeLong(map.zeroValue);
+		writeInts(out, map.keyTable);
+		writeLongs(out, map.valueTable);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, IntLongMap)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public IntLongMap readIntLongMap (DataInput in, @Null IntLongMap into) throws IOException {
+		float loadFactor = readHeader(in, INT_LONG_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		long zeroValue = in.readLong();
+		if (into == null) into = new IntLongMap(0, loadFactor);
+		into.clear();
+		if (into.getClass() == IntLongMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readInts(in, into.keyTable);
+			readLongs(in, into.valueTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			int[] keys = readInts(in, new int[length]);
+			long[] values = readLongs(in, new long[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], values[i]);
+		}
+		return into;
+	}
+
+	/** Writes the map's table as it is, so {@link #readLongIntMap(DataInput, LongIntMap)} can copy it back without rehashing. */
+	static public void write (DataOutput out, LongIntMap map) throws IOException {
+		writeHeader(out, LONG_INT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		out.writeInt(map.zeroValue);
+		writeLongs(out, map.keyTable);
+		writeInts(out, map.valueTable);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, LongIntMap)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public LongIntMap readLongIntMap (DataInput in, @Null LongIntMap into) throws IOException {
+		float loadFactor = readHeader(in, LONG_INT_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		int zeroValue = in.readInt();
+		if (into == null) into = new LongIntMap(0, loadFactor);
+		into.clear();
+		if (into.getClass() == LongIntMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readLongs(in, into.keyTable);
+			readInts(in, into.valueTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			long[] keys = readLongs(in, new long[length]);
+			int[] values = readInts(in, new int[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], values[i]);
+		}
+		return into;
+	}
+
+	/** Writes the map's table as it is, so {@link #readLongLongMap(DataInput, LongLongMap)} can copy it back without rehashing. */
+	static public void write (DataOutput out, LongLongMap map) throws IOException {
+		writeHeader(out, LONG_LONG_MAP, map.loadFactor, map.keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		out.writeLong(map.zeroValue);
+		writeLongs(out, map.keyTable);
+		writeLongs(out, map.valueTable);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, LongLongMap)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public LongLongMap readLongLongMap (DataInput in, @Null LongLongMap into) throws IOException {
+		float loadFactor = readHeader(in, LONG_LONG_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		long zeroValue = in.readLong();
+		if (into == null) into = new LongLongMap(0, loadFactor);
+		into.clear();
+		if (into.getClass() == LongLongMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readLongs(in, into.keyTable);
+			readLongs(in, into.valueTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			long[] keys = readLongs(in, new long[length]);
+			long[] values = readLongs(in, new long[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], values[i]);
+		}
+		return into;
+	}
+
+	/** Writes the set's table as it is, so {@link #readIntSet(DataInput, IntSet)} can copy it back without rehashing. */
+	static public void write (DataOutput out, IntSet set) throws IOException {
+		writeHeader(out, INT_SET, set.loadFactor, set.keyTable.length, set.size);
+		out.writeBoolean(set.hasZeroValue);
+		writeInts(out, set.keyTable);
+	}
+
+	/** Reads a set written by {@link #write(DataOutput, IntSet)}.
+	 * @param into cleared and filled, or null to create a new set
+	 * @return into, or the new set */
+	static public IntSet readIntSet (DataInput in, @Null IntSet into) throws IOException {
+		float loadFactor = readHeader(in, INT_SET);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		if (into == null) into = new IntSet(0, loadFactor);
+		into.clear();
+		if (into.getClass() == IntSet.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readInts(in, into.keyTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			int[] keys = readInts(in, new int[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.add(0);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.add(keys[i]);
+		}
+		return into;
+	}
+
+	/** Writes the set's table as it is, so {@link #readLongSet(DataInput, LongSet)} can copy it back without rehashing. */
+	static public void write (DataOutput out, LongSet set) throws IOException {
+		writeHeader(out, LONG_SET, set.loadFactor, set.keyTable.length, set.size);
+		out.writeBoolean(set.hasZeroValue);
+		writeLongs(out, set.keyTable);
+	}
+
+	/** Reads a set written by {@link #write(DataOutput, LongSet)}.
+	 * @param into cleared and filled, or null to create a new set
+	 * @return into, or the new set */
+	static public LongSet readLongSet (DataInput in, @Null LongSet into) throws IOException {
+		float loadFactor = readHeader(in, LONG_SET);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		if (into == null) into = new LongSet(0, loadFactor);
+		into.clear();
+		if (into.getClass() == LongSet.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			readLongs(in, into.keyTable);
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			long[] keys = readLongs(in, new long[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.add(0);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.add(keys[i]);
+		}
+		return into;
+	}
+
+	/** Writes the map's keys in table order, so {@link #readIntMap(DataInput, IntMap, Codec)} can copy them back without
+	 * rehashing, followed by each value through the codec. An {@link IncrementalIntMap} finishes its resize first. */
+	static public <V> void write (DataOutput out, IntMap<V> map, Codec<? super V> valueCodec) throws IOException {
+		if (map instanceof IncrementalIntMap) ((IncrementalIntMap<V>)map).finishResize();
+		int[] keyTable = map.keyTable;
+		V[] valueTable = map.valueTable;
+		writeHeader(out, INT_MAP, map.loadFactor, keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		if (map.hasZeroValue) writeValue(out, map.zeroValue, valueCodec);
+		writeInts(out, keyTable);
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (keyTable[i] != 0) writeValue(out, valueTable[i], valueCodec);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, IntMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <V> IntMap<V> readIntMap (DataInput in, @Null IntMap<V> into, Codec<? extends V> valueCodec) throws IOException {
+		float loadFactor = readHeader(in, INT_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		V zeroValue = hasZeroValue ? readValue(in, valueCodec) : null;
+		if (into == null) into = new IntMap<V>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == IntMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			int[] keyTable = readInts(in, into.keyTable);
+			V[] valueTable = into.valueTable;
+			for (int i = 0; i < length; i++)
+				if (keyTable[i] != 0) valueTable[i] = readValue(in, valueCodec);
+			into.rebuildOccupancy();
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			int[] keys = readInts(in, new int[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], readValue(in, valueCodec));
+		}
+		return into;
+	}
+
+	/** Writes the map's keys in table order, so {@link #readLongMap(DataInput, LongMap, Codec)} can copy them back without
+	 * rehashing, followed by each value through the codec. */
+	static public <V> void write (DataOutput out, LongMap<V> map, Codec<? super V> valueCodec) throws IOException {
+		long[] keyTable = map.keyTable;
+		V[] valueTable = map.valueTable;
+		writeHeader(out, LONG_MAP, map.loadFactor, keyTable.length, map.size);
+		out.writeBoolean(map.hasZeroValue);
+		if (map.hasZeroValue) writeValue(out, map.zeroValue, valueCodec);
+		writeLongs(out, keyTable);
+		for (int i = 0, n = keyTable.length; i < n; i++)
+			if (keyTable[i] != 0) writeValue(out, valueTable[i], valueCodec);
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, LongMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <V> LongMap<V> readLongMap (DataInput in, @Null LongMap<V> into, Codec<? extends V> valueCodec)
+		throws IOException {
+		float loadFactor = readHeader(in, LONG_MAP);
+		int length = readLength(in), size = in.readInt();
+		boolean hasZeroValue = in.readBoolean();
+		V zeroValue = hasZeroValue ? readValue(in, valueCodec) : null;
+		if (into == null) into = new LongMap<V>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == LongMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			long[] keyTable = readLongs(in, into.keyTable);
+			V[] valueTable = into.valueTable;
+			for (int i = 0; i < length; i++)
+				if (keyTable[i] != 0) valueTable[i] = readValue(in, valueCodec);
+			into.rebuildOccupancy();
+			into.size = size;
+			into.hasZeroValue = hasZeroValue;
+			into.zeroValue = zeroValue;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			long[] keys = readLongs(in, new long[length]);
+			into.ensureCapacity(size);
+			if (hasZeroValue) into.put(0, zeroValue);
+			for (int i = 0; i < length; i++)
+				if (keys[i] != 0) into.put(keys[i], readValue(in, valueCodec));
+		}
+		return into;
+	}
+
+	/** Writes the map's entries in iteration order, each key and value through its codec. */
+	static public <K, V> void write (DataOutput out, ObjectMap<K, V> map, Codec<? super K> keyCodec, Codec<? super V> valueCodec)
+		throws IOException {
+		writeHeader(out, OBJECT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		for (ObjectMap.Entry<K, V> entry : map.entries()) {
+			keyCodec.write(out, entry.key);
+			writeValue(out, entry.value, valueCodec);
+		}
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, ObjectMap, Codec, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <K, V> ObjectMap<K, V> readObjectMap (DataInput in, @Null ObjectMap<K, V> into, Codec<? extends K> keyCodec,
+		Codec<? extends V> valueCodec) throws IOException {
+		float loadFactor = readHeader(in, OBJECT_MAP);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectMap<K, V>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.putResize(keyCodec.read(in), readValue(in, valueCodec));
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.put(keyCodec.read(in), readValue(in, valueCodec));
+		}
+		return into;
+	}
+
+	/** Writes the set's items in iteration order, each through the codec. */
+	static public <T> void write (DataOutput out, ObjectSet<T> set, Codec<? super T> codec) throws IOException {
+		writeHeader(out, OBJECT_SET, set.loadFactor, set.keyTable.length, set.size);
+		for (T item : set)
+			codec.write(out, item);
+	}
+
+	/** Reads a set written by {@link #write(DataOutput, ObjectSet, Codec)}.
+	 * @param into cleared and filled, or null to create a new set
+	 * @return into, or the new set */
+	static public <T> ObjectSet<T> readObjectSet (DataInput in, @Null ObjectSet<T> into, Codec<? extends T> codec)
+		throws IOException {
+		float loadFactor = readHeader(in, OBJECT_SET);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectSet<T>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectSet.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.addResize(codec.read(in));
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.add(codec.read(in));
+		}
+		return into;
+	}
+
+	/** Writes the map's entries in iteration order, each key through the codec. */
+	static public <K> void write (DataOutput out, ObjectIntMap<K> map, Codec<? super K> keyCodec) throws IOException {
+		writeHeader(out, OBJECT_INT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		for (ObjectIntMap.Entry<K> entry : map.entries()) {
+			keyCodec.write(out, entry.key);
+			out.writeInt(entry.value);
+		}
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, ObjectIntMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <K> ObjectIntMap<K> readObjectIntMap (DataInput in, @Null ObjectIntMap<K> into, Codec<? extends K> keyCodec)
+		throws IOException {
+		float loadFactor = readHeader(in, OBJECT_INT_MAP);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectIntMap<K>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectIntMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.putResize(keyCodec.read(in), in.readInt());
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.put(keyCodec.read(in), in.readInt());
+		}
+		return into;
+	}
+
+	/** Writes the map's entries in iteration order, each key through the codec. */
+	static public <K> void write (DataOutput out, ObjectFloatMap<K> map, Codec<? super K> keyCodec) throws IOException {
+		writeHeader(out, OBJECT_FLOAT_MAP, map.loadFactor, map.keyTable.length, map.size);
+		for (ObjectFloatMap.Entry<K> entry : map.entries()) {
+			keyCodec.write(out, entry.key);
+			out.writeFloat(entry.value);
+		}
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, ObjectFloatMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <K> ObjectFloatMap<K> readObjectFloatMap (DataInput in, @Null ObjectFloatMap<K> into,
+		Codec<? extends K> keyCodec) throws IOException {
+		float loadFactor = readHeader(in, OBJECT_FLOAT_MAP);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectFloatMap<K>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectFloatMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.putResize(keyCodec.read(in), in.readFloat());
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.put(keyCodec.read(in), in.readFloat());
+		}
+		return into;
+	}
+
+	/** Writes the map's entries in iteration order, each key through the codec. */
+	static public <K> void write (DataOutput out, ObjectLongMap<K> map, Codec<? super K> keyCodec) throws IOException {
+		writeHeader(out, OBJECT_LONG_MAP, map.loadFactor, map.keyTable.length, map.size);
+		for (ObjectLongMap.Entry<K> entry : map.entries()) {
+			keyCodec.write(out, entry.key);
+			out.writeLong(entry.value);
+		}
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, ObjectLongMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <K> ObjectLongMap<K> readObjectLongMap (DataInput in, @Null ObjectLongMap<K> into, Codec<? extends K> keyCodec)
+		throws IOException {
+		float loadFactor = readHeader(in, OBJECT_LONG_MAP);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectLongMap<K>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectLongMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.putResize(keyCodec.read(in), in.readLong());
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.put(keyCodec.read(in), in.readLong());
+		}
+		return into;
+	}
+
+	/** Writes the map's entries in iteration order, each key through the codec. */
+	static public <K> void write (DataOutput out, ObjectDoubleMap<K> map, Codec<? super K> keyCodec) throws IOException {
+		writeHeader(out, OBJECT_DOUBLE_MAP, map.loadFactor, map.keyTable.length, map.size);
+		for (ObjectDoubleMap.Entry<K> entry : map.entries()) {
+			keyCodec.write(out, entry.key);
+			out.writeDouble(entry.value);
+		}
+	}
+
+	/** Reads a map written by {@link #write(DataOutput, ObjectDoubleMap, Codec)}.
+	 * @param into cleared and filled, or null to create a new map
+	 * @return into, or the new map */
+	static public <K> ObjectDoubleMap<K> readObjectDoubleMap (DataInput in, @Null ObjectDoubleMap<K> into,
+		Codec<? extends K> keyCodec) throws IOException {
+		float loadFactor = readHeader(in, OBJECT_DOUBLE_MAP);
+		int length = readLength(in), size = in.readInt();
+		if (into == null) into = new ObjectDoubleMap<K>(0, loadFactor);
+		into.clear();
+		if (into.getClass() == ObjectDoubleMap.class) {
+			if (into.keyTable.length != length) into.resize(length);
+			for (int i = 0; i < size; i++)
+				into.putResize(keyCodec.read(in), in.readDouble());
+			into.size = size;
+			if (size >= into.threshold) into.resize(length << 1);
+		} else {
+			into.ensureCapacity(size);
+			for (int i = 0; i < size; i++)
+				into.put(keyCodec.read(in), in.readDouble());
+		}
+		return into;
+	}
+
+	static private void writeHeader (DataOutput out, byte kind, float loadFactor, int length, int size) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(kind);
+		out.writeFloat(loadFactor);
+		out.writeInt(length);
+		out.writeInt(size);
+	}
+
+	/** Checks the magic number and kind, and returns the load factor. */
+	static private float readHeader (DataInput in, byte kind) throws IOException {
+		if (in.readInt() != MAGIC) throw new IOException("Not a snapshot.");
+		byte written = in.readByte();
+		if (written != kind) throw new IOException("Snapshot holds another kind of collection: " + written + " != " + kind);
+		float loadFactor = in.readFloat();
+		if (loadFactor <= 0f || loadFactor >= 1f) throw new IOException("Corrupt snapshot, load factor: " + loadFactor);
+		return loadFactor;
+	}
+
+	static private int readLength (DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 2 || length > 1 << 30 || (length & length - 1) != 0)
+			throw new IOException("Corrupt snapshot, table length: " + length);
+		return length;
+	}
+
+	static private <V> void writeValue (DataOutput out, @Null V value, Codec<? super V> codec) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) codec.write(out, value);
+	}
+
+	@Null
+	static private <V> V readValue (DataInput in, Codec<? extends V> codec) throws IOException {
+		return in.readBoolean() ? codec.read(in) : null;
+	}
+
+	// The bulk array methods pack many items into a byte array and write it at once, instead of writing each item separately,
+	// which for most DataOutputs means one call per byte. The byte order is big-endian, the same as DataOutput's.
+
+	static private void writeInts (DataOutput out, int[] items) throws IOException {
+		byte[] bytes = new byte[Math.min(items.length << 2, CHUNK)];
+		for (int i = 0, n = items.length; i < n;) {
+			int b = 0;
+			for (; i < n && b < bytes.length; i++, b += 4) {
+				int item = items[i];
+				bytes[b] = (byte)(item >>> 24);
+				bytes[b + 1] = (byte)(item >>> 16);
+				bytes[b + 2] = (byte)(item >>> 8);
+				bytes[b + 3] = (byte)item;
+			}
+			out.write(bytes, 0, b);
+		}
+	}
+
+	static private int[] readInts (DataInput in, int[] items) throws IOException {
+		byte[] bytes = new byte[Math.min(items.length << 2, CHUNK)];
+		for (int i = 0, n = items.length; i < n;) {
+			int count = Math.min(n - i, bytes.length >>> 2);
+			in.readFully(bytes, 0, count << 2);
+			for (int b = 0; count > 0; count--, i++, b += 4)
+				items[i] = bytes[b] << 24 | (bytes[b + 1] & 0xFF) << 16 | (bytes[b + 2] & 0xFF) << 8 | bytes[b + 3] & 0xFF;
+		}
+		return items;
+	}
+
+	static private void writeLongs (DataOutput out, long[] items) throws IOException {
+		byte[] bytes = new byte[Math.min(items.length << 3, CHUNK)];
+		for (int i = 0, n = items.length; i < n;) {
+			int b = 0;
+			for (; i < n && b < bytes.length; i++, b += 8) {
+				long item = items[i];
+				for (int shift = 56, j = b; shift >= 0; shift -= 8, j++)
+					bytes[j] = (byte)(item >>> shift);
+			}
+			out.write(bytes, 0, b);
+		}
+	}
+
+	static private long[] readLongs (DataInput in, long[] items) throws IOException {
+		byte[] bytes = new byte[Math.min(items.length << 3, CHUNK)];
+		for (int i = 0, n = items.length; i < n;) {
+			int count = Math.min(n - i, bytes.length >>> 3);
+			in.readFully(bytes, 0, count << 3);
+			for (int b = 0; count > 0; count--, i++, b += 8) {
+				long item = 0L;
+				for (int j = b; j < b + 8; j++)
+					item = item << 8 | bytes[j] & 0xFFL;
+				items[i] = item;
+			}
+		}
+		return items;
+	}
+
+	static private void writeFloats (DataOutput out, float[] items) throws IOException {
+		int[] bits = new int[items.length];
+		for (int i = 0; i < bits.length; i++)
+			bits[i] = NumberUtils.floatToRawIntBits(items[i]);
+		writeInts(out, bits);
+	}
+
+	static private float[] readFloats (DataInput in, float[] items) throws IOException {
+		int[] bits = readInts(in, new int[items.length]);
+		for (int i = 0; i < bits.length; i++)
+			items[i] = NumberUtils.intBitsToFloat(bits[i]);
+		return items;
+	}
+}
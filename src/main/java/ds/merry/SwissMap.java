@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import static ds.merry.SwissSet.EMPTY;
+import static ds.merry.SwissSet.clearControl;
+import static ds.merry.SwissSet.getControl;
+import static ds.merry.SwissSet.locate;
+import static ds.merry.SwissSet.newControl;
+import static ds.merry.SwissSet.setControl;
+import static ds.merry.SwissSet.tag;
+
+/** An unordered map where the keys and values are objects, which keeps a control byte with 7 bits of each key's hash beside the
+ * key table, so lookups can skip most keys without touching them. Null keys are not allowed. No allocation is done except when
+ * growing the table size.
+ * <p>
+ * Lookups compare the control bytes of 8 slots at once using SWAR arithmetic, and only read and call
+ * {@link Object#equals(Object)} on keys whose control byte matches; see {@link SwissSet} for how this works and when it helps.
+ * This costs 1 byte per slot in the table. Because the control byte and placement are both computed from the hashCode,
+ * {@link #place(Object)} can't be overridden here; override {@link #placeHash(int)} to change how a hashCode is mixed into an
+ * index.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class SwissMap<K, V> extends ObjectMap<K, V> {
+	/** The control bytes, packed as in {@link SwissSet#control}. */
+	long[] control;
+
+	/** Creates a new map with an initial capacity of 51 and a load factor of 0.8. */
+	public SwissMap () {
+		super();
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new map with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public SwissMap (int initialCapacity) {
+		super(initialCapacity);
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public SwissMap (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new map identical to the specified map. */
+	public SwissMap (SwissMap<? extends K, ? extends V> map) {
+		super(map);
+		control = map.control.clone();
+	}
+
+	/** Calls {@link #placeHash(int)} with the item's hashCode. This is final so placement always agrees with the control bytes. */
+	protected final int place (K item) {
+		return placeHash(item.hashCode());
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for a key with the given hashCode. The
+	 * default implementation uses Fibonacci hashing, like {@link ObjectMap#place(Object)}. */
+	protected int placeHash (int hashCode) {
+		return (int)(hashCode * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	int locateKey (K key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		return locate(key, tag(hashCode), placeHash(hashCode), keyTable, control);
+	}
+
+	@Null
+	public V put (K key, @Null V value) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		int i = locate(key, tag(hashCode), placeHash(hashCode), keyTable, control);
+		if (i >= 0) { // Existing key was found.
+			V oldValue = valueTable[i];
+			valueTable[i] = value;
+			return oldValue;
+		}
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		valueTable[i] = value;
+		setControl(control, i, tag(hashCode));
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return null;
+	}
+
+	void insert (int i, K key, @Null V value) {
+		keyTable[i] = key;
+		valueTable[i] = value;
+		setControl(control, i, tag(key.hashCode()));
+		occupy(i);
+		if (++size >= threshold) resize(keyTable.length << 1);
+	}
+
+	void putResize (K key, @Null V value) {
+		K[] keyTable = this.keyTable;
+		int hashCode = key.hashCode();
+		for (int i = placeHash(hashCode);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				valueTable[i] = value;
+				setControl(control, i, tag(hashCode));
+				occupy(i);
+				return;
+			}
+		}
+	}
+
+	int removeAt (int i) {
+		K[] keyTable = this.keyTable;
+		V[] valueTable = this.valueTable;
+		long[] control = this.control;
+		int mask = this.mask, next = i + 1 & mask;
+		K key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = place(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				valueTable[i] = valueTable[next];
+				setControl(control, i, getControl(control, next));
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		valueTable[i] = null;
+		setControl(control, i, EMPTY);
+		vacate(i);
+		size--;
+		return i;
+	}
+
+	void clearSlot (int i) {
+		setControl(control, i, EMPTY);
+		super.clearSlot(i);
+	}
+
+	void moveSlot (int from, int to) {
+		setControl(control, to, getControl(control, from));
+		setControl(control, from, EMPTY);
+		super.moveSlot(from, to);
+	}
+
+	public void clear () {
+		if (size == 0) return;
+		super.clear();
+		clearControl(control, keyTable.length);
+	}
+
+	void resize (int newSize) {
+		control = newControl(newSize);
+		super.resize(newSize);
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(1);
+	}
+}
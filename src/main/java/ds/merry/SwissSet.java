@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+package ds.merry;
+
+import java.util.Arrays;
+
+/** An unordered set where the keys are objects, which keeps a control byte with 7 bits of each key's hash beside the key table,
+ * so lookups can skip most keys without touching them. Null keys are not allowed. No allocation is done except when growing
+ * the table size.
+ * <p>
+ * An {@link ObjectSet} lookup reads every key in the cluster it probes and calls {@link Object#equals(Object)} on each one
+ * until it finds the key or an empty slot. With keys like Strings, each of those reads is a cache miss once the set is larger
+ * than the CPU cache. This set packs the control bytes of 8 slots into each long, and compares all 8 with the looked-up key's
+ * byte at once using SWAR (SIMD within a register) arithmetic, finding empty slots the same way. Only keys whose control byte
+ * matches are read and compared with equals(), which is about 1 in 128 of the others. This costs 1 byte per slot in the table,
+ * and pays off most for large sets of keys with costly equals() methods; small sets of Strings or boxed numbers are usually
+ * as fast in an ObjectSet.
+ * <p>
+ * Slots are probed in the same order as in an ObjectSet, 8 at a time, and removal uses the same backward shift algorithm, so
+ * there are no tombstones. Because the control byte and placement are both computed from the hashCode, {@link #place(Object)}
+ * can't be overridden here; override {@link #placeHash(int)} to change how a hashCode is mixed into an index.
+ * <p>
+ * This class performs fast contains and remove (typically O(1), worst case O(n) but that is rare in practice). Add may be
+ * slightly slower, depending on hash collisions. Hashcodes are rehashed to reduce collisions and the need to resize. Load factors
+ * greater than 0.91 greatly increase the chances to resize to the next higher POT size.
+ * <p>
+ * Unordered sets and maps are not designed to provide especially fast iteration. Iteration is faster with OrderedSet and
+ * OrderedMap.
+ * <p>
+ * This implementation uses linear probing with the backward shift algorithm for removal. Hashcodes are rehashed using Fibonacci
+ * hashing, instead of the more common power-of-two mask, to better distribute poor hashCodes (see <a href=
+ * "https://probablydance.com/2018/06/16/fibonacci-hashing-the-optimization-that-the-world-forgot-or-a-better-alternative-to-integer-modulo/">Malte
+ * Skarupke's blog post</a>). Linear probing continues to work even when all hashCodes collide, just more slowly.
+ * @author Tommy Ettinger */
+public class SwissSet<T> extends ObjectSet<T> {
+	static private final long LOWS = 0x0101010101010101L, SEVENS = 0x7F7F7F7F7F7F7F7FL;
+	/** The control byte of an empty slot. Full slots have the high bit set; see {@link #tag(int)}. */
+	static final int EMPTY = 0;
+	/** The control byte after the end of a table with fewer than 8 slots; it is neither empty nor ever matched. */
+	static final int PADDING = 1;
+
+	/** The control bytes, 8 to a long with slot {@code i} in bits {@code (i & 7) * 8} to {@code (i & 7) * 8 + 7} of
+	 * {@code control[i >>> 3]}. */
+	long[] control;
+
+	/** Creates a new set with an initial capacity of 51 and a load factor of 0.8. */
+	public SwissSet () {
+		super();
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new set with a load factor of 0.8.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public SwissSet (int initialCapacity) {
+		super(initialCapacity);
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new set with the specified initial capacity and load factor. This set will hold initialCapacity items before
+	 * growing the backing table.
+	 * @param initialCapacity If not a power of two, it is increased to the next nearest power of two. */
+	public SwissSet (int initialCapacity, float loadFactor) {
+		super(initialCapacity, loadFactor);
+		control = newControl(keyTable.length);
+	}
+
+	/** Creates a new set identical to the specified set. */
+	public SwissSet (SwissSet<? extends T> set) {
+		super(set);
+		control = set.control.clone();
+	}
+
+	/** Returns the control words for a table of {@code tableSize} slots, all empty. */
+	static long[] newControl (int tableSize) {
+		long[] control = new long[Math.max(1, tableSize >>> 3)];
+		clearControl(control, tableSize);
+		return control;
+	}
+
+	/** Marks every slot empty in the control words for a table of {@code tableSize} slots. */
+	static void clearControl (long[] control, int tableSize) {
+		Arrays.fill(control, tableSize >= 8 ? 0L : PADDING * LOWS << (tableSize << 3));
+	}
+
+	/** Returns the control byte of a key with the given hashCode: the high bit is set, and the low 7 bits come from the middle of
+	 * the hash, which {@link #placeHash(int)} doesn't use for tables of up to 2 to the 32 slots. */
+	static int tag (int hashCode) {
+		return 0x80 | (int)(hashCode * 0x9E3779B97F4A7C15L >>> 25) & 0x7F;
+	}
+
+	static void setControl (long[] control, int i, int tag) {
+		int bit = (i & 7) << 3;
+		control[i >>> 3] = control[i >>> 3] & ~(0xFFL << bit) | (long)tag << bit;
+	}
+
+	static int getControl (long[] control, int i) {
+		return (int)(control[i >>> 3] >>> ((i & 7) << 3)) & 0xFF;
+	}
+
+	/** Returns a long with the high bit set in each byte that is 0 in {@code x}, and every other bit clear. */
+	static long zeroBytes (long x) {
+		return ~((x & SEVENS) + SEVENS | x | SEVENS);
+	}
+
+	/** Returns the index of the key if already present, else -(index + 1) for the next empty index, probing from index {@code i}
+	 * 8 slots at a time and only comparing keys whose control byte is {@code tag}. */
+	static int locate (Object key, int tag, int i, Object[] keyTable, long[] control) {
+		long pattern = tag * LOWS;
+		int wordMask = control.length - 1;
+		long valid = -1L << ((i & 7) << 3); // Ignores the slots before i in the first word.
+		for (int w = i >>> 3;; w = w + 1 & wordMask, valid = -1L) {
+			long word = control[w];
+			long empty = zeroBytes(word) & valid;
+			long match = zeroBytes(word ^ pattern) & valid;
+			if (empty != 0) match &= (empty & -empty) - 1; // Slots after the first empty one aren't in this cluster.
+			for (; match != 0; match &= match - 1) {
+				int slot = w << 3 | Long.numberOfTrailingZeros(match) >>> 3;
+				if (keyTable[slot].equals(key)) return slot; // Same key was found.
+			}
+			if (empty != 0) return -((w << 3 | Long.numberOfTrailingZeros(empty) >>> 3) + 1); // Empty space is available.
+		}
+	}
+
+	/** Calls {@link #placeHash(int)} with the item's hashCode. This is final so placement always agrees with the control bytes. */
+	protected final int place (T item) {
+		return placeHash(item.hashCode());
+	}
+
+	/** Returns an index greater than or equal to 0 and less than or equal to {@link #mask} for a key with the given hashCode. The
+	 * default implementation uses Fibonacci hashing, like {@link ObjectSet#place(Object)}. */
+	protected int placeHash (int hashCode) {
+		return (int)(hashCode * 0x9E3779B97F4A7C15L >>> shift);
+	}
+
+	int locateKey (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		return locate(key, tag(hashCode), placeHash(hashCode), keyTable, control);
+	}
+
+	public boolean add (T key) {
+		if (key == null) throw new IllegalArgumentException("key cannot be null.");
+		int hashCode = key.hashCode();
+		int i = locate(key, tag(hashCode), placeHash(hashCode), keyTable, control);
+		if (i >= 0) return false; // Existing key was found.
+		i = -(i + 1); // Empty space was found.
+		keyTable[i] = key;
+		setControl(control, i, tag(hashCode));
+		if (++size >= threshold) resize(keyTable.length << 1);
+		return true;
+	}
+
+	/** Skips checks for existing keys, doesn't increment size. */
+	void addResize (T key) {
+		T[] keyTable = this.keyTable;
+		int hashCode = key.hashCode();
+		for (int i = placeHash(hashCode);; i = (i + 1) & mask) {
+			if (keyTable[i] == null) {
+				keyTable[i] = key;
+				setControl(control, i, tag(hashCode));
+				return;
+			}
+		}
+	}
+
+	int removeAt (int i) {
+		T[] keyTable = this.keyTable;
+		long[] control = this.control;
+		int mask = this.mask, next = i + 1 & mask;
+		T key;
+		int placement;
+		while ((key = keyTable[next]) != null) {
+			placement = place(key);
+			if ((next - placement & mask) > (i - placement & mask)) {
+				keyTable[i] = key;
+				setControl(control, i, getControl(control, next));
+				i = next;
+			}
+			next = next + 1 & mask;
+		}
+		keyTable[i] = null;
+		setControl(control, i, EMPTY);
+		size--;
+		return i;
+	}
+
+	void clearSlot (int i) {
+		setControl(control, i, EMPTY);
+		super.clearSlot(i);
+	}
+
+	void moveSlot (int from, int to) {
+		setControl(control, to, getControl(control, from));
+		setControl(control, from, EMPTY);
+		super.moveSlot(from, to);
+	}
+
+	public void clear () {
+		if (size == 0) return;
+		super.clear();
+		clearControl(control, keyTable.length);
+	}
+
+	void resize (int newSize) {
+		control = newControl(newSize);
+		super.resize(newSize);
+	}
+
+	public MemoryStats memoryStats () {
+		return super.memoryStats().parallel(1);
+	}
+}
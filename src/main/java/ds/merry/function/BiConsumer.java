@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry.function;
+
+/** Takes two arguments and returns nothing. This is the same shape as {@code java.util.function.BiConsumer}; see
+ * {@link Function} for why this library has its own.
+ * @author Tommy Ettinger */
+public interface BiConsumer<T, U> {
+	void accept (T t, U u);
+}
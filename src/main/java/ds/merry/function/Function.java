@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry.function;
+
+/** Takes one argument and produces a result. This is the same shape as {@code java.util.function.Function}, which isn't
+ * available at the Java 7 language level this library targets or on all libGDX backends; on Java 8 and up, a lambda or method
+ * reference can be passed wherever this is expected.
+ * @author Tommy Ettinger */
+public interface Function<T, R> {
+	R apply (T t);
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright 2011 See AUTHORS file.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+
+
+package ds.merry.function;
+
+/** Takes an object and a double and returns a boolean. There is no such type in {@code java.util.function}; this one lets
+ * {@link ds.merry.ObjectDoubleMap#forEachWhile(ObjDoublePredicate)} avoid boxing.
+ * @author Tommy Ettinger */
+public interface ObjDoublePredicate<T> {
+	boolean test (T t, double value);
+}
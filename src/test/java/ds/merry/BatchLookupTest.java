@@ -0,0 +1,140 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchLookupTest {
+	/** Every int from -count to count; with multiples of 3 in the map, about two thirds of these miss, and 0 is included. */
+	private static int[] keys (int count) {
+		int[] keys = new int[count * 2 + 1];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = i - count;
+		return keys;
+	}
+
+	@Test public void testIntIntMap () {
+		IntIntMap map = new IntIntMap();
+		for (int i = -3000; i <= 3000; i += 3)
+			map.put(i, i * 7);
+		int[] keys = keys(3100);
+		int[] out = map.getAll(keys, new int[keys.length + 5], -1);
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals(map.get(keys[i], -1), out[i]);
+		Assert.assertEquals(0, out[keys.length]);
+		map.remove(0, 0);
+		Assert.assertEquals(-2, map.getAll(new int[] {0}, new int[1], -2)[0]);
+	}
+
+	@Test public void testIntSet () {
+		IntSet set = new IntSet(4);
+		for (int i = -3000; i <= 3000; i += 3)
+			set.add(i);
+		int[] keys = keys(3100);
+		boolean[] out = set.containsAll(keys, new boolean[keys.length]);
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals(set.contains(keys[i]), out[i]);
+	}
+
+	@Test public void testIntMap () {
+		IntMap<String> map = new IntMap<>();
+		IncrementalIntMap<String> incremental = new IncrementalIntMap<>(4);
+		for (int i = -3000; i <= 3000; i += 3) {
+			map.put(i, "v" + i);
+			incremental.put(i, "v" + i);
+		}
+		int[] keys = keys(3100);
+		String[] out = map.getAll(keys, new String[keys.length]);
+		String[] incrementalOut = incremental.getAll(keys, new String[keys.length]);
+		for (int i = 0; i < keys.length; i++) {
+			Assert.assertEquals(map.get(keys[i]), out[i]);
+			Assert.assertEquals(map.get(keys[i]), incrementalOut[i]);
+		}
+	}
+
+	@Test public void testObjectMaps () {
+		ObjectMap<String, Integer> map = new ObjectMap<>();
+		ObjectIntMap<String> intMap = new ObjectIntMap<>();
+		IncrementalMap<String, Integer> incremental = new IncrementalMap<>(4);
+		for (int i = 0; i < 5000; i += 3) {
+			map.put("k" + i, i);
+			intMap.put("k" + i, i);
+			incremental.put("k" + i, i);
+		}
+		// Equal but not identical Strings, so lookups can't just compare references.
+		String[] keys = new String[5100];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new String("k" + i);
+		Integer[] out = map.getAll(keys, new Integer[keys.length]);
+		Integer[] incrementalOut = incremental.getAll(keys, new Integer[keys.length]);
+		int[] intOut = intMap.getAll(keys, new int[keys.length], -1);
+		for (int i = 0; i < keys.length; i++) {
+			Integer expected = i % 3 == 0 && i < 5000 ? i : null;
+			Assert.assertEquals(expected, out[i]);
+			Assert.assertEquals(expected, incrementalOut[i]);
+			Assert.assertEquals(expected == null ? -1 : expected, intOut[i]);
+		}
+	}
+
+	/** Equal but not identical String keys, so every lookup finishes its probe with equals(). */
+	private static void checkStrings (ObjectMap<String, Integer> map) {
+		for (int i = 0; i < 5000; i += 3)
+			map.put("k" + i, i);
+		String[] keys = new String[5100];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new String("k" + i);
+		Integer[] out = map.getAll(keys, new Integer[keys.length]);
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals(map.getClass().getSimpleName(), i % 3 == 0 && i < 5000 ? (Integer)i : null, out[i]);
+	}
+
+	@Test public void testObjectMapSubclasses () {
+		checkStrings(new CachedHashMap<String, Integer>());
+		checkStrings(new RobinHoodMap<String, Integer>());
+		checkStrings(new SwissMap<String, Integer>());
+		checkStrings(new HardenedMap<String, Integer>());
+		checkStrings(new OrderedMap<String, Integer>());
+		checkStrings(new ObjectMap<String, Integer>(HashingStrategy.IGNORE_CASE));
+	}
+
+	@Test public void testIncrementalWhileResizing () {
+		IncrementalMap<String, Integer> map = new IncrementalMap<>(4);
+		IncrementalIntMap<String> intMap = new IncrementalIntMap<>(4);
+		int n = 0;
+		while (!map.isResizing() || n < 1000) {
+			map.put("k" + n, n);
+			n++;
+		}
+		String[] keys = new String[n + 10];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new String("k" + i);
+		Integer[] out = map.getAll(keys, new Integer[keys.length]);
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals(i < n ? (Integer)i : null, out[i]);
+		n = 0;
+		while (!intMap.isResizing() || n < 1000) {
+			intMap.put(n, "v" + n);
+			n++;
+		}
+		int[] intKeys = keys(n + 10);
+		String[] intOut = intMap.getAll(intKeys, new String[intKeys.length]);
+		for (int i = 0; i < intKeys.length; i++)
+			Assert.assertEquals(intKeys[i] >= 0 && intKeys[i] < n ? "v" + intKeys[i] : null, intOut[i]);
+	}
+
+	@Test public void testIdentityMap () {
+		IdentityMap<String, Integer> map = new IdentityMap<>();
+		String[] keys = new String[200];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new String("same");
+			if ((i & 1) == 0) map.put(keys[i], i);
+		}
+		Integer[] out = map.getAll(keys, new Integer[keys.length]);
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals((i & 1) == 0 ? (Integer)i : null, out[i]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortOut () {
+		new IntIntMap().getAll(new int[3], new int[2], 0);
+	}
+}
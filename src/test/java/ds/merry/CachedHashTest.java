@@ -0,0 +1,114 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class CachedHashTest {
+	/** Counts every call to hashCode() and equals(), so tests can check the table doesn't call them. */
+	static final class Counted {
+		static int hashes, equalities;
+		final int a, b;
+
+		Counted (int a, int b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		public boolean equals (Object o) {
+			equalities++;
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			Counted other = (Counted)o;
+			return a == other.a && b == other.b;
+		}
+
+		public int hashCode () {
+			hashes++;
+			return 31 * a + b;
+		}
+	}
+
+	@Test public void testNoRehashing () {
+		CachedHashMap<Counted, Integer> map = new CachedHashMap<>(4);
+		Counted.hashes = 0;
+		for (int i = 0; i < 1000; i++)
+			map.put(new Counted(i, -i), i);
+		// One hashCode() per put, none while resizing.
+		Assert.assertEquals(1000, Counted.hashes);
+		Counted.hashes = 0;
+		for (int i = 0; i < 1000; i += 2)
+			Assert.assertEquals(Integer.valueOf(i), map.remove(new Counted(i, -i)));
+		// One hashCode() per remove, none while shifting entries back.
+		Assert.assertEquals(500, Counted.hashes);
+		Counted.hashes = 0;
+		ObjectMap.Entries<Counted, Integer> entries = map.entries();
+		while (entries.hasNext) {
+			if (entries.next().value % 3 == 1) entries.remove();
+		}
+		Assert.assertEquals(0, Counted.hashes);
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals(i % 2 == 1 && i % 3 != 1, map.containsKey(new Counted(i, -i)));
+		Counted.hashes = 0;
+		for (int i = 0; i < 1000; i++)
+			map.putIfAbsent(new Counted(i, -i), -i);
+		// One hashCode() per putIfAbsent, including the ones that insert.
+		Assert.assertEquals(1000, Counted.hashes);
+		for (int i = 0; i < 1000; i++)
+			Assert.assertTrue(map.containsKey(new Counted(i, -i)));
+	}
+
+	@Test public void testHashComparedFirst () {
+		CachedHashSet<Counted> set = new CachedHashSet<>();
+		for (int i = 0; i < 100; i++)
+			set.add(new Counted(i, 0));
+		Counted.equalities = 0;
+		// None of these have a hashCode in the set, so equals() is never needed.
+		for (int i = 100; i < 200; i++)
+			Assert.assertFalse(set.contains(new Counted(i, 0)));
+		Assert.assertEquals(0, Counted.equalities);
+	}
+
+	@Test public void testMapMix () {
+		CachedHashMap<Integer, Integer> merryMap = new CachedHashMap<>();
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item;
+		for (int i = 0; i < 0x40000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0xFFFF;
+			if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if (jdkMap.remove(item) == null) jdkMap.put(item, i);
+			Assert.assertEquals(jdkMap.size(), merryMap.size);
+		}
+		for (Integer k : jdkMap.keySet())
+			Assert.assertEquals(jdkMap.get(k), merryMap.get(k));
+		CachedHashMap<Integer, Integer> copy = new CachedHashMap<>(merryMap);
+		for (int k = 0; k < 0x10000; k++)
+			Assert.assertEquals(jdkMap.containsKey(k), copy.containsKey(k));
+	}
+
+	@Test public void testSetCollidingKeys () {
+		CachedHashSet<ExtremeCaseTest.Malice> set = new CachedHashSet<>();
+		HashSet<ExtremeCaseTest.Malice> jdkSet = new HashSet<>();
+		for (int i = -500; i < 500; i++) {
+			set.add(new ExtremeCaseTest.Malice(i));
+			jdkSet.add(new ExtremeCaseTest.Malice(i));
+		}
+		ObjectSet.ObjectSetIterator<ExtremeCaseTest.Malice> it = set.iterator();
+		while (it.hasNext) {
+			ExtremeCaseTest.Malice m = it.next();
+			if ((m.e & 3) == 0) {
+				it.remove();
+				jdkSet.remove(m);
+			}
+		}
+		Assert.assertEquals(jdkSet.size(), set.size);
+		set.shrink(set.size);
+		for (int i = -600; i < 600; i++)
+			Assert.assertEquals(jdkSet.contains(new ExtremeCaseTest.Malice(i)), set.contains(new ExtremeCaseTest.Malice(i)));
+	}
+}
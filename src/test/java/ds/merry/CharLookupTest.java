@@ -0,0 +1,91 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CharLookupTest {
+	/** Fills the map with words, then looks each one up as a slice of a longer buffer, both as a CharSequence and a char array. */
+	private static void check (ObjectMap<String, Integer> map, String[] words) {
+		for (int i = 0; i < words.length; i++)
+			map.put(words[i], i);
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < words.length; i++) {
+			buffer.setLength(0);
+			buffer.append("<<").append(words[i]).append(">>");
+			char[] array = buffer.toString().toCharArray();
+			int end = buffer.length() - 2;
+			Assert.assertEquals(map.getClass().getSimpleName(), Integer.valueOf(i), map.getChars(buffer, 2, end));
+			Assert.assertEquals(Integer.valueOf(i), map.getChars(array, 2, end));
+			Assert.assertEquals(Integer.valueOf(i), map.getChars(array, 2, end, words[i].hashCode()));
+			Assert.assertTrue(map.containsChars(buffer, 2, end));
+			Assert.assertTrue(map.containsChars(array, 2, end));
+			// Dropping the last char gives a key that isn't there, or is a different word.
+			Integer shorter = map.getChars(buffer, 2, end - 1);
+			Assert.assertTrue(shorter == null || !words[shorter].equals(words[i]));
+		}
+		Assert.assertNull(map.getChars("<>", 1, 1));
+	}
+
+	private static String[] words (int count) {
+		String[] words = new String[count];
+		for (int i = 0; i < count; i++)
+			words[i] = "w" + Integer.toString(i * 7919, 36);
+		return words;
+	}
+
+	@Test public void testObjectMaps () {
+		String[] words = words(3000);
+		check(new ObjectMap<String, Integer>(4), words);
+		check(new CachedHashMap<String, Integer>(4), words);
+		check(new SwissMap<String, Integer>(4), words);
+		check(new RobinHoodMap<String, Integer>(4), words);
+		check(new OrderedMap<String, Integer>(4), words);
+		check(new HardenedMap<String, Integer>(4), words);
+	}
+
+	@Test public void testHashChars () {
+		String s = "The quick brown fox";
+		Assert.assertEquals(s.substring(4, 9).hashCode(), ObjectMap.hashChars(s, 4, 9));
+		Assert.assertEquals(s.substring(4, 9).hashCode(), ObjectMap.hashChars(s.toCharArray(), 4, 9));
+		Assert.assertEquals(0, ObjectMap.hashChars(s, 3, 3));
+	}
+
+	@Test public void testMixedKeys () {
+		ObjectMap<Object, String> map = new ObjectMap<>();
+		map.put(51, "fifty-one");
+		map.put("ab", "string");
+		// Only CharSequence keys can match, so the Integer isn't found by the chars "3", which have the same hashCode.
+		Assert.assertEquals("3".hashCode(), Integer.valueOf(51).hashCode());
+		Assert.assertNull(map.getChars("3", 0, 1));
+		Assert.assertEquals("string", map.getChars("xaby", 1, 3));
+	}
+
+	@Test public void testStrongHardened () {
+		String[] words = HardenedTest.collidingStrings(10);
+		HardenedMap<String, Integer> map = new HardenedMap<>();
+		check(map, words);
+		Assert.assertTrue(map.isStrong());
+	}
+
+	@Test public void testIncrementalMidResize () {
+		IncrementalMap<String, Integer> map = new IncrementalMap<>(64);
+		int n = 0;
+		while (!map.isResizing())
+			map.put("k" + n, n++);
+		char[] buffer = new char[16];
+		for (int i = 0; i < n; i++) {
+			String key = "k" + i;
+			key.getChars(0, key.length(), buffer, 0);
+			Assert.assertEquals(Integer.valueOf(i), map.getChars(buffer, 0, key.length()));
+		}
+		Assert.assertEquals(n, map.size);
+		map.finishResize();
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals(Integer.valueOf(i), map.get("k" + i));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIdentity () {
+		new IdentityMap<String, String>().getChars("a", 0, 1);
+	}
+}
@@ -0,0 +1,391 @@
+package ds.merry;
+
+import ds.merry.function.BiFunction;
+import ds.merry.function.DoubleBinaryOperator;
+import ds.merry.function.FloatBinaryOperator;
+import ds.merry.function.Function;
+import ds.merry.function.IntBinaryOperator;
+import ds.merry.function.IntFloatToFloatFunction;
+import ds.merry.function.IntFunction;
+import ds.merry.function.IntLongToLongFunction;
+import ds.merry.function.IntObjFunction;
+import ds.merry.function.IntToFloatFunction;
+import ds.merry.function.IntUnaryOperator;
+import ds.merry.function.LongBinaryOperator;
+import ds.merry.function.LongFunction;
+import ds.merry.function.LongIntToIntFunction;
+import ds.merry.function.LongUnaryOperator;
+import ds.merry.function.ObjDoubleToDoubleFunction;
+import ds.merry.function.ObjIntToIntFunction;
+import ds.merry.function.ToFloatFunction;
+import ds.merry.function.ToIntFunction;
+import ds.merry.function.ToLongFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+public class ComputeTest {
+	static final BiFunction<Integer, Integer, Integer> SUM = new BiFunction<Integer, Integer, Integer>() {
+		public Integer apply (Integer a, Integer b) {
+			return a + b;
+		}
+	};
+	static final Function<Integer, Integer> NEGATE = new Function<Integer, Integer>() {
+		public Integer apply (Integer key) {
+			return -key;
+		}
+	};
+	/** Removes keys with odd values, and doubles the rest; absent keys get 1. */
+	static final BiFunction<Integer, Integer, Integer> FLIP = new BiFunction<Integer, Integer, Integer>() {
+		public Integer apply (Integer key, Integer value) {
+			if (value == null) return 1;
+			return (value & 1) != 0 ? null : value * 2;
+		}
+	};
+	static final IntBinaryOperator ADD = new IntBinaryOperator() {
+		public int applyAsInt (int left, int right) {
+			return left + right;
+		}
+	};
+
+	/** Runs the same mix of putIfAbsent, computeIfAbsent, compute and merge on the map and on a HashMap, then compares them. */
+	private static void check (ObjectMap<Integer, Integer> map) {
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long state = 1L;
+		for (int n = 0; n < 20000; n++) {
+			state = state * 0xD1342543DE82EF95L + 1L;
+			int key = (int)(state >>> 53), op = (int)(state >>> 40) & 3;
+			Integer expected, actual;
+			switch (op) {
+			case 0:
+				actual = map.putIfAbsent(key, n);
+				expected = jdkMap.containsKey(key) ? jdkMap.get(key) : null;
+				if (expected == null) jdkMap.put(key, n);
+				break;
+			case 1:
+				actual = map.computeIfAbsent(key, NEGATE);
+				if (!jdkMap.containsKey(key)) jdkMap.put(key, -key);
+				expected = jdkMap.get(key);
+				break;
+			case 2:
+				actual = map.compute(key, FLIP);
+				expected = FLIP.apply(key, jdkMap.get(key));
+				if (expected == null)
+					jdkMap.remove(key);
+				else
+					jdkMap.put(key, expected);
+				break;
+			default:
+				actual = map.merge(key, n, SUM);
+				expected = jdkMap.containsKey(key) ? jdkMap.get(key) + n : n;
+				jdkMap.put(key, expected);
+			}
+			Assert.assertEquals(map.getClass().getSimpleName(), expected, actual);
+			Assert.assertEquals(jdkMap.size(), map.size);
+		}
+		for (int key = 0; key < 2048; key++)
+			Assert.assertEquals(jdkMap.get(key), map.get(key));
+	}
+
+	@Test public void testObjectMaps () {
+		check(new ObjectMap<Integer, Integer>(4));
+		check(new CachedHashMap<Integer, Integer>(4));
+		check(new SwissMap<Integer, Integer>(4));
+		check(new RobinHoodMap<Integer, Integer>(4));
+		check(new HardenedMap<Integer, Integer>(4));
+		check(new IncrementalMap<Integer, Integer>(4));
+		check(new OrderedMap<Integer, Integer>(4));
+	}
+
+	@Test public void testSingleProbe () {
+		final int[] located = new int[1];
+		ObjectMap<String, Integer> map = new ObjectMap<String, Integer>() {
+			int locateKey (String key) {
+				located[0]++;
+				return super.locateKey(key);
+			}
+		};
+		map.computeIfAbsent("a", new Function<String, Integer>() {
+			public Integer apply (String key) {
+				return 1;
+			}
+		});
+		map.merge("b", 2, SUM);
+		map.merge("b", 3, SUM);
+		map.putIfAbsent("c", 4);
+		map.compute("c", new BiFunction<String, Integer, Integer>() {
+			public Integer apply (String key, Integer value) {
+				return null;
+			}
+		});
+		Assert.assertEquals(5, located[0]);
+		Assert.assertEquals(5, (int)map.get("b"));
+		Assert.assertFalse(map.containsKey("c"));
+	}
+
+	@Test public void testNullValues () {
+		ObjectMap<String, String> map = new ObjectMap<>();
+		map.put("a", null);
+		// A key mapped to null counts as absent, as in java.util.Map.
+		Assert.assertNull(map.putIfAbsent("a", "x"));
+		Assert.assertEquals("x", map.get("a"));
+		Assert.assertNull(map.computeIfAbsent("b", new Function<String, String>() {
+			public String apply (String key) {
+				return null;
+			}
+		}));
+		Assert.assertFalse(map.containsKey("b"));
+	}
+
+	@Test public void testIncrementalMidResize () {
+		IncrementalMap<Integer, Integer> map = new IncrementalMap<>(64);
+		int n = 0;
+		while (!map.isResizing())
+			map.put(n, n++);
+		// These keys are still in the old table, so they have to be found there rather than inserted twice.
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals(i + 1, (int)map.merge(i, 1, SUM));
+		Assert.assertEquals(n, map.size);
+		map.finishResize();
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals(i + 1, (int)map.get(i));
+
+		IncrementalIntMap<String> intMap = new IncrementalIntMap<>(64);
+		n = 0;
+		while (!intMap.isResizing())
+			intMap.put(n, "v" + n++);
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals("v" + i, intMap.putIfAbsent(i, "x"));
+		Assert.assertEquals(n, intMap.size);
+	}
+
+	@Test public void testOrdered () {
+		OrderedMap<Integer, Integer> map = new OrderedMap<>();
+		LinkedHashMap<Integer, Integer> jdkMap = new LinkedHashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			int key = i * 37 % 500;
+			Integer value = map.compute(key, FLIP);
+			if (value == null)
+				jdkMap.remove(key);
+			else
+				jdkMap.put(key, value);
+		}
+		Assert.assertEquals(jdkMap.size(), map.size);
+		int i = 0;
+		for (Integer key : jdkMap.keySet())
+			Assert.assertEquals(key, map.orderedKeys().get(i++));
+	}
+
+	@Test public void testIntMaps () {
+		IntMap<String> intMap = new IntMap<>();
+		LongMap<String> longMap = new LongMap<>();
+		for (int i = -100; i <= 100; i++) {
+			Assert.assertEquals("v" + i, intMap.computeIfAbsent(i, new IntFunction<String>() {
+				public String apply (int key) {
+					return "v" + key;
+				}
+			}));
+			longMap.computeIfAbsent(i, new LongFunction<String>() {
+				public String apply (long key) {
+					return "v" + key;
+				}
+			});
+		}
+		Assert.assertEquals("v0", intMap.putIfAbsent(0, "x"));
+		Assert.assertNull(longMap.merge(0, "!", new BiFunction<String, String, String>() {
+			public String apply (String a, String b) {
+				return null;
+			}
+		}));
+		Assert.assertFalse(longMap.containsKey(0));
+		IntObjFunction<String, String> dropEven = new IntObjFunction<String, String>() {
+			public String apply (int key, String value) {
+				return (key & 1) == 0 ? null : value + "!";
+			}
+		};
+		for (int i = -100; i <= 100; i++)
+			intMap.compute(i, dropEven);
+		Assert.assertEquals(100, intMap.size);
+		Assert.assertEquals(200, longMap.size);
+		for (int i = -100; i <= 100; i++) {
+			Assert.assertEquals((i & 1) == 0 ? null : "v" + i + "!", intMap.get(i));
+			Assert.assertEquals(i == 0 ? null : "v" + i, longMap.get(i));
+		}
+	}
+
+	@Test public void testZeroKeyRemovedByIterator () {
+		IntMap<String> intMap = new IntMap<>();
+		intMap.put(0, "old");
+		IntMap.Entries<String> intEntries = intMap.entries();
+		intEntries.next();
+		intEntries.remove();
+		Assert.assertNull(intMap.putIfAbsent(0, "new"));
+		Assert.assertEquals("new", intMap.get(0));
+		Assert.assertEquals(1, intMap.size);
+		intEntries = intMap.entries();
+		intEntries.next();
+		intEntries.remove();
+		Assert.assertEquals("null!", intMap.compute(0, new IntObjFunction<String, String>() {
+			public String apply (int key, String value) {
+				return value + "!";
+			}
+		}));
+		intEntries = intMap.entries();
+		intEntries.next();
+		intEntries.remove();
+		Assert.assertEquals("b", intMap.merge(0, "b", new BiFunction<String, String, String>() {
+			public String apply (String a, String b) {
+				return a + b;
+			}
+		}));
+		Assert.assertEquals(1, intMap.size);
+
+		LongMap<String> longMap = new LongMap<>();
+		longMap.put(0, "old");
+		LongMap.Entries<String> longEntries = longMap.entries();
+		longEntries.next();
+		longEntries.remove();
+		Assert.assertEquals("v0", longMap.computeIfAbsent(0, new LongFunction<String>() {
+			public String apply (long key) {
+				return "v" + key;
+			}
+		}));
+		Assert.assertEquals("v0", longMap.get(0));
+		Assert.assertEquals(1, longMap.size);
+	}
+
+	@Test public void testPrimitiveValues () {
+		IntIntMap counts = new IntIntMap();
+		ObjectIntMap<String> names = new ObjectIntMap<>();
+		for (int i = -1000; i < 1000; i++) {
+			counts.merge(i % 10, 1, ADD);
+			names.merge("k" + i % 10, 1, ADD);
+		}
+		for (int i = -9; i < 10; i++) {
+			Assert.assertEquals(i == 0 ? 200 : 100, counts.get(i, -1));
+			Assert.assertEquals(i == 0 ? 200 : 100, names.get("k" + i, -1));
+		}
+		Assert.assertFalse(counts.putIfAbsent(0, 5));
+		Assert.assertTrue(counts.putIfAbsent(50, 5));
+		Assert.assertFalse(names.putIfAbsent("k0", 5));
+		Assert.assertEquals(7, counts.computeIfAbsent(70, new IntUnaryOperator() {
+			public int applyAsInt (int key) {
+				return key / 10;
+			}
+		}));
+		Assert.assertEquals(2, names.computeIfAbsent("zz", new ToIntFunction<String>() {
+			public int applyAsInt (String key) {
+				return key.length();
+			}
+		}));
+		// The operator is given the key and the old value, or the default if the key is absent.
+		Assert.assertEquals(81, counts.compute(40, 41, ADD));
+		Assert.assertEquals(109, counts.compute(9, -1, ADD));
+		Assert.assertEquals(200, counts.compute(0, -1, ADD));
+		Assert.assertEquals(4, names.compute("new", 1, new ObjIntToIntFunction<String>() {
+			public int applyAsInt (String key, int value) {
+				return key.length() + value;
+			}
+		}));
+		Assert.assertEquals(109, counts.get(9, -1));
+		Assert.assertEquals(4, names.get("new", -1));
+	}
+
+	@Test public void testOtherPrimitiveValues () {
+		FloatBinaryOperator addFloats = new FloatBinaryOperator() {
+			public float applyAsFloat (float left, float right) {
+				return left + right;
+			}
+		};
+		LongBinaryOperator addLongs = new LongBinaryOperator() {
+			public long applyAsLong (long left, long right) {
+				return left + right;
+			}
+		};
+		IntFloatMap intFloats = new IntFloatMap();
+		ObjectFloatMap<String> objectFloats = new ObjectFloatMap<>();
+		LongLongMap longLongs = new LongLongMap();
+		LongIntMap longInts = new LongIntMap();
+		IntLongMap intLongs = new IntLongMap();
+		ObjectLongMap<String> objectLongs = new ObjectLongMap<>();
+		ObjectDoubleMap<String> objectDoubles = new ObjectDoubleMap<>();
+		for (int i = -1000; i < 1000; i++) {
+			intFloats.merge(i % 10, 0.5f, addFloats);
+			objectFloats.merge("k" + i % 10, 0.5f, addFloats);
+			longLongs.merge(i % 10, 1L << 32, addLongs);
+			longInts.merge(i % 10, 1, ADD);
+			intLongs.merge(i % 10, 1L << 32, addLongs);
+			objectLongs.merge("k" + i % 10, 1L << 32, addLongs);
+			objectDoubles.merge("k" + i % 10, 0.25, new DoubleBinaryOperator() {
+				public double applyAsDouble (double left, double right) {
+					return left + right;
+				}
+			});
+		}
+		for (int i = -9; i < 10; i++) {
+			int count = i == 0 ? 200 : 100;
+			Assert.assertEquals(count * 0.5f, intFloats.get(i, -1), 0f);
+			Assert.assertEquals(count * 0.5f, objectFloats.get("k" + i, -1), 0f);
+			Assert.assertEquals((long)count << 32, longLongs.get(i, -1));
+			Assert.assertEquals(count, longInts.get(i, -1));
+			Assert.assertEquals((long)count << 32, intLongs.get(i, -1));
+			Assert.assertEquals((long)count << 32, objectLongs.get("k" + i, -1));
+			Assert.assertEquals(count * 0.25, objectDoubles.get("k" + i, -1), 0.0);
+		}
+		Assert.assertFalse(intFloats.putIfAbsent(0, 5f));
+		Assert.assertTrue(longLongs.putIfAbsent(50, 5L));
+		Assert.assertFalse(objectDoubles.putIfAbsent("k0", 5.0));
+		Assert.assertEquals(7f, intFloats.computeIfAbsent(70, new IntToFloatFunction() {
+			public float applyAsFloat (int key) {
+				return key / 10;
+			}
+		}), 0f);
+		Assert.assertEquals(100f, intFloats.computeIfAbsent(0, new IntToFloatFunction() {
+			public float applyAsFloat (int key) {
+				throw new AssertionError("The zero key is already present.");
+			}
+		}), 0f);
+		Assert.assertEquals(-50L, longLongs.computeIfAbsent(-50, new LongUnaryOperator() {
+			public long applyAsLong (long key) {
+				return key;
+			}
+		}));
+		Assert.assertEquals(2f, objectFloats.computeIfAbsent("zz", new ToFloatFunction<String>() {
+			public float applyAsFloat (String key) {
+				return key.length();
+			}
+		}), 0f);
+		Assert.assertEquals(3L, objectLongs.computeIfAbsent("new", new ToLongFunction<String>() {
+			public long applyAsLong (String key) {
+				return key.length();
+			}
+		}));
+		// The function is given the key and the old value, or the default if the key is absent.
+		Assert.assertEquals(41.5f, intFloats.compute(40, 1.5f, new IntFloatToFloatFunction() {
+			public float applyAsFloat (int key, float value) {
+				return key + value;
+			}
+		}), 0f);
+		Assert.assertEquals(201, longInts.compute(0, -1, new LongIntToIntFunction() {
+			public int applyAsInt (long key, int value) {
+				return value + 1;
+			}
+		}));
+		Assert.assertEquals(-1L, intLongs.compute(77, -1L, new IntLongToLongFunction() {
+			public long applyAsLong (int key, long value) {
+				return value;
+			}
+		}));
+		Assert.assertEquals(4.5, objectDoubles.compute("new", 1.5, new ObjDoubleToDoubleFunction<String>() {
+			public double applyAsDouble (String key, double value) {
+				return key.length() + value;
+			}
+		}), 0.0);
+		Assert.assertEquals(41.5f, intFloats.get(40, -1), 0f);
+		Assert.assertEquals(21, intFloats.size);
+		Assert.assertEquals(21, longLongs.size);
+		Assert.assertEquals(20, intLongs.size);
+	}
+}
@@ -0,0 +1,176 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentIntIntMapTest {
+	/** Runs the task on several threads at once, and rethrows the first thing any of them threw. */
+	static private void runThreads (int count, final Runnable task) throws InterruptedException {
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[count];
+		for (int i = 0; i < count; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run () {
+					try {
+						task.run();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+	}
+
+	@Test public void testSingleThreadedMix () {
+		ConcurrentIntIntMap map = new ConcurrentIntIntMap(4);
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long state = 1L;
+		for (int i = 0; i < 0x20000; i++) {
+			state = state * 0xD1342543DE82EF95L + 1L;
+			int key = (int)(state >>> 52) - 2048;
+			if (jdkMap.containsKey(key)) {
+				Assert.assertEquals((int)jdkMap.remove(key), map.remove(key, -1));
+			} else {
+				jdkMap.put(key, i);
+				Assert.assertEquals(-1, map.put(key, i, -1));
+			}
+			Assert.assertEquals(jdkMap.size(), map.size());
+		}
+		for (int k = -2048; k < 2048; k++) {
+			Assert.assertEquals(jdkMap.containsKey(k), map.containsKey(k));
+			if (jdkMap.containsKey(k)) Assert.assertEquals((int)jdkMap.get(k), map.get(k, -1));
+		}
+		IntIntMap copy = map.snapshot();
+		Assert.assertEquals(jdkMap.size(), copy.size);
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test public void testUpdates () {
+		ConcurrentIntIntMap map = new ConcurrentIntIntMap();
+		Assert.assertEquals(10, map.getAndIncrement(0, 10, 5));
+		Assert.assertEquals(15, map.get(0, -1));
+		Assert.assertEquals(3, map.addAndGet(7, 3));
+		Assert.assertEquals(5, map.addAndGet(7, 2));
+		Assert.assertEquals(5, map.putIfAbsent(7, 100));
+		Assert.assertEquals(100, map.putIfAbsent(8, 100));
+		Assert.assertEquals(5, map.put(7, 6, -1));
+		Assert.assertEquals(3, map.size());
+		Assert.assertEquals(-1, map.remove(9, -1));
+		Assert.assertEquals(15, map.remove(0, -1));
+		Assert.assertFalse(map.containsKey(0));
+		Assert.assertEquals(2, map.size());
+	}
+
+	@Test public void testConcurrentCounters () throws InterruptedException {
+		final ConcurrentIntIntMap map = new ConcurrentIntIntMap(4);
+		// Starting small forces many resizes while all threads increment.
+		runThreads(8, new Runnable() {
+			public void run () {
+				for (int round = 0; round < 20; round++)
+					for (int i = -1000; i < 1000; i++)
+						map.getAndIncrement(i * 7919, 0, 1);
+			}
+		});
+		Assert.assertEquals(2000, map.size());
+		for (int i = -1000; i < 1000; i++)
+			Assert.assertEquals(8 * 20, map.get(i * 7919, -1));
+	}
+
+	@Test public void testConcurrentPutRemove () throws InterruptedException {
+		final ConcurrentIntIntMap map = new ConcurrentIntIntMap(4);
+		final AtomicInteger next = new AtomicInteger();
+		runThreads(6, new Runnable() {
+			public void run () {
+				int base = next.getAndIncrement() * 100000;
+				for (int i = 0; i < 20000; i++)
+					Assert.assertEquals(i, map.putIfAbsent(base + i, i));
+				for (int i = 0; i < 20000; i += 2)
+					Assert.assertEquals(i, map.remove(base + i, -1));
+			}
+		});
+		Assert.assertEquals(6 * 10000, map.size());
+		for (int t = 0; t < 6; t++)
+			for (int i = 0; i < 20000; i++)
+				Assert.assertEquals((i & 1) == 1, map.containsKey(t * 100000 + i));
+	}
+
+	@Test public void testReadsDuringResizes () throws InterruptedException {
+		final ConcurrentIntIntMap map = new ConcurrentIntIntMap(4);
+		for (int i = 1; i <= 100; i++)
+			map.put(-i, i, 0);
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicInteger turn = new AtomicInteger();
+		runThreads(4, new Runnable() {
+			public void run () {
+				if ((turn.getAndIncrement() & 1) == 0) {
+					for (int i = 1; i <= 50000; i++)
+						map.put(i, i, 0);
+				} else {
+					// These keys never change, so every read must find them, even mid-resize.
+					for (int round = 0; round < 500; round++)
+						for (int i = 1; i <= 100; i++)
+							if (map.get(-i, 0) != i) failures.incrementAndGet();
+				}
+			}
+		});
+		Assert.assertEquals(0, failures.get());
+		Assert.assertEquals(50100, map.size());
+	}
+
+	@Test(timeout = 20000)
+	public void testWritesWaitForStalledCopy () throws InterruptedException {
+		final ConcurrentIntIntMap map = new ConcurrentIntIntMap(1637);
+		for (int i = 1; i <= 1637; i++)
+			map.put(i, i, 0);
+		ConcurrentIntIntMap.Table t = map.table;
+		int length = t.mask + 1, chunk = ConcurrentIntIntMap.TRANSFER_CHUNK;
+		Assert.assertEquals(2048, length);
+		// Start a resize and copy one chunk, as a thread that then stalls would.
+		ConcurrentIntIntMap.Table next = new ConcurrentIntIntMap.Table(4096, 0.8f);
+		t.next.set(next);
+		int start = t.transferIndex.getAndAdd(chunk);
+		for (int i = start; i < start + chunk; i++)
+			map.transfer(t, i, next);
+		// Each of these keys would end its probe at an empty slot in the copied chunk, so it isn't found in t.
+		final int[] keys = new int[3225];
+		for (int k = 1000000, n = 0; n < keys.length; k++) {
+			int i = map.place(k, t.shift);
+			while (t.keys.get(i) != 0)
+				i = i + 1 & t.mask;
+			if (i < chunk) keys[n++] = k;
+		}
+		Thread writer = new Thread(new Runnable() {
+			public void run () {
+				for (int i = 0; i < keys.length; i++)
+					map.put(keys[i], i, -1);
+			}
+		});
+		writer.start();
+		// The writer copies the other chunks, then has to wait for the stalled one instead of writing into next.
+		while (t.transferred.get() < length - chunk)
+			Thread.yield();
+		Thread.sleep(50);
+		Assert.assertSame(t, map.table);
+		for (int i = 0; i < next.mask + 1; i++)
+			Assert.assertTrue(next.keys.get(i) < 1000000);
+		Assert.assertEquals(5, map.get(5, -1));
+		// The stalled thread finishes its chunk.
+		if (t.transferred.addAndGet(chunk) == length) map.table = next;
+		writer.join();
+		Assert.assertEquals(1637 + keys.length, map.size());
+		for (int i = 1; i <= 1637; i++)
+			Assert.assertEquals(i, map.get(i, -1));
+		for (int i = 0; i < keys.length; i++)
+			Assert.assertEquals(i, map.get(keys[i], -1));
+	}
+}
@@ -0,0 +1,129 @@
+package ds.merry;
+
+import ds.merry.function.BiFunction;
+import ds.merry.function.Function;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentObjectMapTest {
+	static private final BiFunction<Integer, Integer, Integer> SUM = new BiFunction<Integer, Integer, Integer>() {
+		public Integer apply (Integer a, Integer b) {
+			return a + b;
+		}
+	};
+
+	/** Runs the task on several threads at once, and rethrows the first thing any of them threw. */
+	static private void runThreads (int count, final Runnable task) throws InterruptedException {
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread[] threads = new Thread[count];
+		for (int i = 0; i < count; i++) {
+			threads[i] = new Thread(new Runnable() {
+				public void run () {
+					try {
+						task.run();
+					} catch (Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		if (failure.get() != null) throw new AssertionError(failure.get());
+	}
+
+	@Test public void testSingleThreaded () {
+		ConcurrentObjectMap<String, Integer> map = new ConcurrentObjectMap<>(4, 0.8f, 3);
+		Assert.assertEquals(4, map.segmentCount());
+		for (int i = 0; i < 1000; i++)
+			Assert.assertNull(map.put("k" + i, i));
+		Assert.assertEquals(1000, map.size());
+		Assert.assertEquals(Integer.valueOf(5), map.put("k5", 50));
+		Assert.assertEquals(Integer.valueOf(50), map.putIfAbsent("k5", 500));
+		Assert.assertEquals(Integer.valueOf(51), map.merge("k5", 1, SUM));
+		Assert.assertEquals(Integer.valueOf(7), map.remove("k7"));
+		Assert.assertNull(map.get("k7"));
+		Assert.assertEquals(Integer.valueOf(-1), map.get("k7", -1));
+		ObjectMap<String, Integer> copy = map.snapshot();
+		Assert.assertEquals(999, copy.size);
+		Assert.assertEquals(Integer.valueOf(51), copy.get("k5"));
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+	}
+
+	@Test public void testMergeRemovesOnNull () {
+		ConcurrentObjectMap<String, Integer> map = new ConcurrentObjectMap<>();
+		map.put("a", 1);
+		Assert.assertNull(map.merge("a", 1, new BiFunction<Integer, Integer, Integer>() {
+			public Integer apply (Integer a, Integer b) {
+				return null;
+			}
+		}));
+		Assert.assertFalse(map.containsKey("a"));
+	}
+
+	@Test public void testSegmentsUseWholeTable () {
+		ConcurrentObjectMap<Integer, Integer> map = new ConcurrentObjectMap<>(0, 0.8f, 16);
+		for (int i = 0; i < 100000; i++)
+			map.put(i, i);
+		for (ConcurrentObjectMap.Segment<Integer, Integer> segment : map.segments) {
+			// Keys in a segment share their top hash bits; place() has to skip those or clusters would be enormous.
+			Assert.assertTrue(segment.hashStats().longestCluster < 100);
+		}
+	}
+
+	@Test public void testConcurrentMerge () throws InterruptedException {
+		final ConcurrentObjectMap<Integer, Integer> map = new ConcurrentObjectMap<>(16, 0.8f, 8);
+		runThreads(8, new Runnable() {
+			public void run () {
+				for (int i = 0; i < 20000; i++)
+					map.merge(i % 1000, 1, SUM);
+			}
+		});
+		Assert.assertEquals(1000, map.size());
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals(Integer.valueOf(8 * 20), map.get(i));
+	}
+
+	@Test public void testComputeIfAbsentRunsOncePerKey () throws InterruptedException {
+		final ConcurrentObjectMap<Integer, String> map = new ConcurrentObjectMap<>();
+		final AtomicInteger calls = new AtomicInteger();
+		final Function<Integer, String> create = new Function<Integer, String>() {
+			public String apply (Integer key) {
+				calls.incrementAndGet();
+				return "v" + key;
+			}
+		};
+		runThreads(8, new Runnable() {
+			public void run () {
+				for (int i = 0; i < 5000; i++)
+					Assert.assertEquals("v" + i, map.computeIfAbsent(i, create));
+			}
+		});
+		Assert.assertEquals(5000, calls.get());
+		Assert.assertEquals(5000, map.size());
+	}
+
+	@Test public void testConcurrentPutRemove () throws InterruptedException {
+		final ConcurrentObjectMap<Integer, Integer> map = new ConcurrentObjectMap<>();
+		final AtomicInteger next = new AtomicInteger();
+		runThreads(6, new Runnable() {
+			public void run () {
+				int base = next.getAndIncrement() * 100000;
+				for (int i = 0; i < 20000; i++)
+					map.put(base + i, i);
+				for (int i = 0; i < 20000; i += 2)
+					Assert.assertEquals(Integer.valueOf(i), map.remove(base + i));
+			}
+		});
+		Assert.assertEquals(6 * 10000, map.size());
+		for (int t = 0; t < 6; t++)
+			for (int i = 0; i < 20000; i++)
+				Assert.assertEquals((i & 1) == 1, map.containsKey(t * 100000 + i));
+	}
+}
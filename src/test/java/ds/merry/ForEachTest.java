@@ -0,0 +1,174 @@
+package ds.merry;
+
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.Consumer;
+import ds.merry.function.IntConsumer;
+import ds.merry.function.IntIntConsumer;
+import ds.merry.function.IntIntPredicate;
+import ds.merry.function.IntObjConsumer;
+import ds.merry.function.LongLongConsumer;
+import ds.merry.function.ObjIntConsumer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class ForEachTest {
+	@Test public void testIntIntMap () {
+		final IntIntMap map = new IntIntMap();
+		for (int i = -100; i <= 100; i++)
+			map.put(i * 3, i);
+		final IntIntMap seen = new IntIntMap();
+		map.forEach(new IntIntConsumer() {
+			public void accept (int key, int value) {
+				seen.put(key, value);
+			}
+		});
+		Assert.assertEquals(map, seen);
+
+		// The zero key comes first, as with entries(), and returning false stops the loop there.
+		final int[] calls = new int[1];
+		Assert.assertFalse(map.forEachWhile(new IntIntPredicate() {
+			public boolean test (int key, int value) {
+				calls[0]++;
+				return key != 0;
+			}
+		}));
+		Assert.assertEquals(1, calls[0]);
+		calls[0] = 0;
+		Assert.assertTrue(map.forEachWhile(new IntIntPredicate() {
+			public boolean test (int key, int value) {
+				calls[0]++;
+				return true;
+			}
+		}));
+		Assert.assertEquals(map.size, calls[0]);
+	}
+
+	@Test public void testNested () {
+		// The shared iterators throw when nested; forEach doesn't use them.
+		final ObjectMap<String, Integer> map = new ObjectMap<>();
+		for (int i = 0; i < 30; i++)
+			map.put("k" + i, i);
+		final int[] pairs = new int[1];
+		map.forEach(new BiConsumer<String, Integer>() {
+			public void accept (String a, final Integer x) {
+				map.forEach(new BiConsumer<String, Integer>() {
+					public void accept (String b, Integer y) {
+						if (x < y) pairs[0]++;
+					}
+				});
+			}
+		});
+		Assert.assertEquals(30 * 29 / 2, pairs[0]);
+	}
+
+	@Test public void testOrdered () {
+		OrderedMap<String, Integer> map = new OrderedMap<>();
+		OrderedSet<String> set = new OrderedSet<>();
+		for (int i = 0; i < 50; i++) {
+			map.put("k" + i, i);
+			set.add("k" + i);
+		}
+		for (int i = 0; i < 50; i += 4) {
+			map.remove("k" + i);
+			set.remove("k" + i);
+		}
+		final ArrayList<String> order = new ArrayList<>();
+		map.forEach(new BiConsumer<String, Integer>() {
+			public void accept (String key, Integer value) {
+				Assert.assertEquals(key, "k" + value);
+				order.add(key);
+			}
+		});
+		Assert.assertEquals(map.keys().toArray().toString(", "), join(order));
+		order.clear();
+		set.forEachItem(new Consumer<String>() {
+			public void accept (String item) {
+				order.add(item);
+			}
+		});
+		Assert.assertEquals(set.iterator().toArray().toString(", "), join(order));
+		Assert.assertFalse(map.forEachWhile(new BiPredicate<String, Integer>() {
+			public boolean test (String key, Integer value) {
+				return value < 10;
+			}
+		}));
+	}
+
+	@Test public void testMidResize () {
+		IncrementalMap<Integer, Integer> map = new IncrementalMap<>(4);
+		IncrementalIntMap<Integer> intMap = new IncrementalIntMap<>(4);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+			intMap.put(i, i);
+		}
+		final int[] sums = new int[2];
+		map.forEach(new BiConsumer<Integer, Integer>() {
+			public void accept (Integer key, Integer value) {
+				sums[0] += value;
+			}
+		});
+		intMap.forEach(new IntObjConsumer<Integer>() {
+			public void accept (int key, Integer value) {
+				sums[1] += value;
+			}
+		});
+		Assert.assertEquals(999 * 1000 / 2, sums[0]);
+		Assert.assertEquals(999 * 1000 / 2, sums[1]);
+	}
+
+	@Test public void testOthers () {
+		final long[] sums = new long[5];
+		IntSet set = IntSet.with(0, 5, -7, 100);
+		set.forEach(new IntConsumer() {
+			public void accept (int value) {
+				sums[0] += value;
+			}
+		});
+		ObjectIntMap<String> objectIntMap = new ObjectIntMap<>();
+		objectIntMap.put("a", 1);
+		objectIntMap.put("b", 2);
+		objectIntMap.forEach(new ObjIntConsumer<String>() {
+			public void accept (String key, int value) {
+				sums[1] += value;
+			}
+		});
+		ObjectMap<String, Integer> map = new ObjectMap<>();
+		map.put("x", 10);
+		map.put("y", 20);
+		map.freeze().forEach(new BiConsumer<String, Integer>() {
+			public void accept (String key, Integer value) {
+				sums[2] += value;
+			}
+		});
+		ConcurrentObjectMap<String, Integer> concurrent = new ConcurrentObjectMap<>();
+		for (int i = 1; i <= 100; i++)
+			concurrent.put("c" + i, i);
+		concurrent.forEach(new BiConsumer<String, Integer>() {
+			public void accept (String key, Integer value) {
+				sums[3] += value;
+			}
+		});
+		try (OffHeapLongLongMap offHeap = new OffHeapLongLongMap()) {
+			offHeap.put(0, 1);
+			offHeap.put(1L << 40, 2);
+			offHeap.forEach(new LongLongConsumer() {
+				public void accept (long key, long value) {
+					sums[4] += key + value;
+				}
+			});
+		}
+		Assert.assertArrayEquals(new long[] {98, 3, 30, 5050, (1L << 40) + 3}, sums);
+	}
+
+	private static String join (ArrayList<String> list) {
+		StringBuilder sb = new StringBuilder();
+		for (String s : list) {
+			if (sb.length() > 0) sb.append(", ");
+			sb.append(s);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,96 @@
+package ds.merry;
+
+import com.badlogic.gdx.utils.Array;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+public class FrozenObjectMapTest {
+	@Test public void testStrings () {
+		ObjectMap<String, Integer> map = new ObjectMap<>();
+		for (int i = 0; i < 10000; i++)
+			map.put("key" + i, i);
+		FrozenObjectMap<String, Integer> frozen = map.freeze();
+		Assert.assertEquals(map.size, frozen.size);
+		Assert.assertEquals(map.size, frozen.hashed);
+		for (int i = 0; i < 12000; i++) {
+			String key = new String("key" + i);
+			Assert.assertEquals(map.get(key), frozen.get(key));
+			Assert.assertEquals(map.containsKey(key), frozen.containsKey(key));
+		}
+		Assert.assertEquals(-1, (int)frozen.get("missing", -1));
+		Assert.assertEquals("key77", frozen.findKey(77, false));
+		Assert.assertTrue(frozen.containsValue(9999, false));
+		Assert.assertFalse(frozen.containsValue(10000, false));
+		Assert.assertEquals(map.hashCode(), frozen.hashCode());
+		Assert.assertEquals(frozen, new FrozenObjectMap<>(map));
+		// Later changes to the source map don't reach the frozen copy.
+		map.put("key0", -5);
+		Assert.assertEquals(0, (int)frozen.get("key0"));
+	}
+
+	@Test public void testCollidingHashCodes () {
+		// "Aa" and "BB" have the same hashCode(), as do all 2^n strings made of them.
+		ObjectMap<String, String> map = new ObjectMap<>();
+		String[] parts = {"Aa", "BB"};
+		for (int i = 0; i < 64; i++) {
+			StringBuilder sb = new StringBuilder();
+			for (int b = 0; b < 6; b++)
+				sb.append(parts[i >>> b & 1]);
+			map.put(sb.toString(), "v" + i);
+		}
+		for (int i = 0; i < 500; i++)
+			map.put("x" + i, "w" + i);
+		FrozenObjectMap<String, String> frozen = map.freeze();
+		Assert.assertEquals(map.size, frozen.size);
+		Assert.assertEquals(map.size - 63, frozen.hashed);
+		for (ObjectMap.Entry<String, String> entry : map)
+			Assert.assertEquals(entry.value, frozen.get(entry.key));
+		Assert.assertEquals("v0", frozen.get("AaAaAaAaAaAa"));
+		Assert.assertNull(frozen.get("AaAa"));
+
+		ObjectMap<ExtremeCaseTest.Malice, Integer> malice = new ObjectMap<>();
+		for (int i = 0; i < 100; i++)
+			malice.put(new ExtremeCaseTest.Malice(i), i);
+		FrozenObjectMap<ExtremeCaseTest.Malice, Integer> frozenMalice = malice.freeze();
+		Assert.assertEquals(1, frozenMalice.hashed);
+		for (int i = -10; i < 110; i++)
+			Assert.assertEquals(malice.get(new ExtremeCaseTest.Malice(i)), frozenMalice.get(new ExtremeCaseTest.Malice(i)));
+	}
+
+	@Test public void testIteration () {
+		ObjectMap<Integer, String> map = new ObjectMap<>();
+		for (int i = 0; i < 300; i++)
+			map.put(i * 31, i % 7 == 0 ? null : "v" + i);
+		FrozenObjectMap<Integer, String> frozen = map.freeze();
+		HashSet<Integer> seen = new HashSet<>();
+		for (ObjectMap.Entry<Integer, String> entry : frozen) {
+			Assert.assertTrue(seen.add(entry.key));
+			Assert.assertEquals(map.get(entry.key), entry.value);
+		}
+		Assert.assertEquals(map.size, seen.size());
+		Array<Integer> keys = frozen.keys().toArray();
+		Assert.assertEquals(map.size, keys.size);
+		Assert.assertEquals(map.size, frozen.values().toArray().size);
+		Assert.assertNull(frozen.get(0));
+		Assert.assertTrue(frozen.containsKey(0));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIteratorRemove () {
+		ObjectMap<String, String> map = new ObjectMap<>();
+		map.put("a", "b");
+		FrozenObjectMap.Keys<String> keys = map.freeze().keys();
+		keys.next();
+		keys.remove();
+	}
+
+	@Test public void testEmpty () {
+		FrozenObjectMap<String, String> frozen = new ObjectMap<String, String>().freeze();
+		Assert.assertTrue(frozen.isEmpty());
+		Assert.assertNull(frozen.get("a"));
+		Assert.assertFalse(frozen.entries().hasNext());
+		Assert.assertEquals("{}", frozen.toString());
+	}
+}
@@ -0,0 +1,79 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+
+public class HardenedTest {
+	/** Returns 2 to the {@code bits} distinct Strings that all have the same hashCode(), built from "Aa" and "BB". */
+	static String[] collidingStrings (int bits) {
+		String[] strings = new String[1 << bits];
+		for (int n = 0; n < strings.length; n++) {
+			StringBuilder sb = new StringBuilder(bits << 1);
+			for (int b = 0; b < bits; b++)
+				sb.append((n >>> b & 1) == 0 ? "Aa" : "BB");
+			strings[n] = sb.toString();
+		}
+		return strings;
+	}
+
+	@Test public void testCollidingStrings () {
+		String[] strings = collidingStrings(11);
+		HardenedSet<String> set = new HardenedSet<>();
+		ObjectSet<String> plain = new ObjectSet<>();
+		for (String s : strings) {
+			set.add(s);
+			plain.add(s);
+		}
+		Assert.assertEquals(strings.length, set.size);
+		Assert.assertTrue(set.isStrong());
+		Assert.assertEquals(strings.length - 1, plain.hashStats().maxProbe);
+		Assert.assertTrue(set.hashStats().maxProbe < set.probeLimit());
+		for (String s : strings)
+			Assert.assertTrue(set.contains(s));
+		Assert.assertFalse(set.contains("AaAa"));
+	}
+
+	@Test public void testMapStaysWeakWithGoodKeys () {
+		HardenedMap<String, Integer> map = new HardenedMap<>();
+		for (int i = 0; i < 100000; i++)
+			map.put("key" + i, i);
+		Assert.assertFalse(map.isStrong());
+		for (int i = 0; i < 100000; i += 2)
+			Assert.assertEquals(Integer.valueOf(i), map.remove("key" + i));
+		for (int i = 0; i < 100000; i++)
+			Assert.assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get("key" + i));
+	}
+
+	@Test public void testMapCollidingStrings () {
+		String[] strings = collidingStrings(10);
+		HardenedMap<String, Integer> map = new HardenedMap<>();
+		for (int i = 0; i < strings.length; i++)
+			map.put(strings[i], i);
+		Assert.assertTrue(map.isStrong());
+		HardenedMap<String, Integer> copy = new HardenedMap<>(map);
+		for (int i = 0; i < strings.length; i += 3)
+			Assert.assertEquals(Integer.valueOf(i), copy.remove(strings[i]));
+		for (int i = 0; i < strings.length; i++) {
+			Assert.assertEquals(Integer.valueOf(i), map.get(strings[i]));
+			Assert.assertEquals(i % 3 == 0 ? null : Integer.valueOf(i), copy.get(strings[i]));
+		}
+	}
+
+	@Test public void testCollidingObjectsStillWork () {
+		HardenedSet<ExtremeCaseTest.Malice> set = new HardenedSet<>();
+		HashSet<ExtremeCaseTest.Malice> jdkSet = new HashSet<>();
+		for (int i = -300; i < 300; i++) {
+			set.add(new ExtremeCaseTest.Malice(i));
+			jdkSet.add(new ExtremeCaseTest.Malice(i));
+		}
+		for (int i = -300; i < 300; i += 4) {
+			Assert.assertTrue(set.remove(new ExtremeCaseTest.Malice(i)));
+			jdkSet.remove(new ExtremeCaseTest.Malice(i));
+		}
+		Assert.assertEquals(jdkSet.size(), set.size);
+		for (int i = -400; i < 400; i++)
+			Assert.assertEquals(jdkSet.contains(new ExtremeCaseTest.Malice(i)), set.contains(new ExtremeCaseTest.Malice(i)));
+	}
+}
@@ -0,0 +1,62 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HashStatsTest {
+	@Test public void testEmpty () {
+		HashStats stats = new ObjectMap<String, String>().hashStats();
+		Assert.assertEquals(0, stats.size);
+		Assert.assertEquals(0, stats.maxProbe);
+		Assert.assertEquals(0, stats.longestCluster);
+		Assert.assertEquals(0, stats.clusters);
+		Assert.assertEquals(1, stats.histogram.length);
+		Assert.assertEquals(0.0, stats.meanProbe, 0.0);
+	}
+
+	@Test public void testCollidingKeys () {
+		ObjectSet<ExtremeCaseTest.Malice> set = new ObjectSet<>(512);
+		for (int i = 0; i < 200; i++)
+			set.add(new ExtremeCaseTest.Malice(i));
+		HashStats stats = set.hashStats();
+		// Every key has the same placement, so they form one cluster with distances 0 to 199.
+		Assert.assertEquals(200, stats.size);
+		Assert.assertEquals(1, stats.clusters);
+		Assert.assertEquals(200, stats.longestCluster);
+		Assert.assertEquals(199, stats.maxProbe);
+		Assert.assertEquals(99.5, stats.meanProbe, 0.0001);
+		for (int d = 0; d < 200; d++)
+			Assert.assertEquals(1, stats.histogram[d]);
+	}
+
+	@Test public void testHistogramMatchesSize () {
+		IntIntMap map = new IntIntMap();
+		for (int i = -500; i < 500; i++)
+			map.put(i * 3, i);
+		HashStats stats = map.hashStats();
+		// The 0 key isn't in the table.
+		Assert.assertEquals(map.size - 1, stats.size);
+		int total = 0;
+		for (int count : stats.histogram)
+			total += count;
+		Assert.assertEquals(stats.size, total);
+		Assert.assertEquals(stats.maxProbe + 1, stats.histogram.length);
+		Assert.assertTrue(stats.longestCluster >= stats.maxProbe + 1);
+		Assert.assertTrue(stats.occupancy() <= 0.8f);
+	}
+
+	@Test public void testWrappingCluster () {
+		ObjectSet<Integer> set = new ObjectSet<Integer>(4, 0.9f) {
+			protected int place (Integer item) {
+				return mask; // everything starts at the last slot and wraps
+			}
+		};
+		set.add(1);
+		set.add(2);
+		set.add(3);
+		HashStats stats = set.hashStats();
+		Assert.assertEquals(1, stats.clusters);
+		Assert.assertEquals(3, stats.longestCluster);
+		Assert.assertEquals(2, stats.maxProbe);
+	}
+}
@@ -0,0 +1,100 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HashingStrategyTest {
+	private static int[] array (int i) {
+		return new int[] {i, i * 3, -i};
+	}
+
+	@Test public void testArrayKeys () {
+		ObjectMap<int[], Integer> map = new ObjectMap<>(HashingStrategy.INT_ARRAY);
+		ObjectSet<int[]> set = new ObjectSet<>(4, 0.8f, HashingStrategy.INT_ARRAY);
+		OrderedMap<int[], Integer> orderedMap = new OrderedMap<>(HashingStrategy.INT_ARRAY);
+		OrderedSet<int[]> orderedSet = new OrderedSet<>(HashingStrategy.INT_ARRAY);
+		ObjectIntMap<int[]> intMap = new ObjectIntMap<>(HashingStrategy.INT_ARRAY);
+		ObjectFloatMap<int[]> floatMap = new ObjectFloatMap<>(HashingStrategy.INT_ARRAY);
+		for (int i = 0; i < 1000; i++) {
+			map.put(array(i), i);
+			set.add(array(i));
+			orderedMap.put(array(i), i);
+			orderedSet.add(array(i));
+			intMap.put(array(i), i);
+			floatMap.put(array(i), i);
+		}
+		// Putting equal arrays again changes nothing but the values.
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertFalse(set.add(array(i)));
+			Assert.assertEquals(i, (int)map.put(array(i), -i));
+		}
+		Assert.assertEquals(1000, map.size);
+		Assert.assertEquals(1000, set.size);
+		for (int i = 0; i < 1000; i += 2) {
+			map.remove(array(i));
+			set.remove(array(i));
+			orderedMap.remove(array(i));
+			orderedSet.remove(array(i));
+			intMap.remove(array(i), 0);
+			floatMap.remove(array(i), 0f);
+		}
+		int[][] keys = new int[1200][];
+		for (int i = 0; i < 1200; i++) {
+			keys[i] = array(i);
+			boolean present = (i & 1) != 0 && i < 1000;
+			Assert.assertEquals(present ? (Integer)(-i) : null, map.get(array(i)));
+			Assert.assertEquals(present, set.contains(array(i)));
+			Assert.assertEquals(present ? (Integer)i : null, orderedMap.get(array(i)));
+			Assert.assertEquals(present, orderedSet.contains(array(i)));
+			Assert.assertEquals(present ? i : -1, intMap.get(array(i), -1));
+			Assert.assertEquals(present ? i : -1f, floatMap.get(array(i), -1f), 0f);
+		}
+		int[] out = intMap.getAll(keys, new int[keys.length], -1);
+		for (int i = 0; i < 1200; i++)
+			Assert.assertEquals((i & 1) != 0 && i < 1000 ? i : -1, out[i]);
+		Assert.assertEquals(1, orderedMap.orderedKeys().get(0)[0]);
+		Assert.assertEquals(999, orderedSet.orderedItems().peek()[0]);
+	}
+
+	@Test public void testCopiesAndEquality () {
+		ObjectSet<int[]> set = new ObjectSet<>(HashingStrategy.INT_ARRAY), other = new ObjectSet<>(HashingStrategy.INT_ARRAY);
+		for (int i = 0; i < 100; i++) {
+			set.add(array(i));
+			other.add(array(99 - i));
+		}
+		ObjectSet<int[]> copy = new ObjectSet<>(set);
+		Assert.assertTrue(copy.contains(array(50)));
+		Assert.assertEquals(set, other);
+		Assert.assertEquals(set.hashCode(), other.hashCode());
+		Assert.assertEquals(set.hashCode(), copy.hashCode());
+	}
+
+	@Test public void testIgnoreCase () {
+		ObjectIntMap<String> map = new ObjectIntMap<>(HashingStrategy.IGNORE_CASE);
+		map.put("Hello", 1);
+		map.put("HELLO", 2);
+		map.put("stra\u00dfe", 3);
+		Assert.assertEquals(2, map.size);
+		Assert.assertEquals(2, map.get("hello", 0));
+		Assert.assertEquals(3, map.get("STRA\u00dfE", 0));
+		Assert.assertEquals(0, map.get("hell", 0));
+		ObjectSet<CharSequence> set = new ObjectSet<>(HashingStrategy.IGNORE_CASE);
+		set.add("Merry");
+		Assert.assertTrue(set.contains(new StringBuilder("mERRY")));
+	}
+
+	@Test public void testIdentity () {
+		ObjectSet<String> set = new ObjectSet<>(HashingStrategy.IDENTITY);
+		String a = new String("same"), b = new String("same");
+		set.add(a);
+		Assert.assertTrue(set.contains(a));
+		Assert.assertFalse(set.contains(b));
+		Assert.assertTrue(set.add(b));
+		Assert.assertEquals(2, set.size);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testNoFreeze () {
+		new ObjectMap<String, String>(HashingStrategy.IGNORE_CASE).freeze();
+	}
+}
@@ -0,0 +1,88 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+public class IncrementalTest {
+	@Test public void testMapMix () {
+		IncrementalMap<Integer, Integer> merryMap = new IncrementalMap<>(4);
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item, resizing = 0;
+		for (int i = 0; i < 0x40000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0xFFFF;
+			if ((i & 3) == 0)
+				Assert.assertEquals(jdkMap.get(item), merryMap.get(item));
+			else if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if ((i & 3) != 0 && jdkMap.remove(item) == null) jdkMap.put(item, i);
+			Assert.assertEquals(jdkMap.size(), merryMap.size);
+			if (merryMap.isResizing()) resizing++;
+		}
+		Assert.assertTrue(resizing > 0);
+		for (Integer k : jdkMap.keySet())
+			Assert.assertEquals(jdkMap.get(k), merryMap.get(k));
+		for (int k = 0; k < 0x10000; k++)
+			Assert.assertEquals(jdkMap.containsKey(k), merryMap.containsKey(k));
+	}
+
+	@Test public void testGrowsGradually () {
+		IncrementalMap<String, Integer> map = new IncrementalMap<>(1000);
+		int capacity = map.mask + 1, i = 0;
+		while (map.mask + 1 == capacity) {
+			map.put("k" + i, i);
+			i++;
+		}
+		// The put that crossed the threshold only allocated; nothing has moved yet.
+		Assert.assertTrue(map.isResizing());
+		Assert.assertEquals(capacity - 1, map.migrateLeft);
+		for (int j = 0; j < i; j++)
+			Assert.assertEquals(Integer.valueOf(j), map.get("k" + j));
+		Assert.assertFalse(map.isResizing());
+		Assert.assertEquals(i, map.size);
+	}
+
+	@Test public void testIterationFinishesResize () {
+		IncrementalMap<Integer, Integer> map = new IncrementalMap<>(8);
+		for (int i = 0; i < 52; i++)
+			map.put(i, -i);
+		int sum = 0, count = 0;
+		for (ObjectMap.Entry<Integer, Integer> e : map) {
+			Assert.assertEquals(-e.key, e.value.intValue());
+			sum += e.key;
+			count++;
+		}
+		Assert.assertFalse(map.isResizing());
+		Assert.assertEquals(52, count);
+		Assert.assertEquals(51 * 52 / 2, sum);
+		IncrementalMap<Integer, Integer> copy = new IncrementalMap<>(map);
+		Assert.assertEquals(map, copy);
+	}
+
+	@Test public void testIntMapMix () {
+		IncrementalIntMap<Integer> merryMap = new IncrementalIntMap<>(4);
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item, resizing = 0;
+		for (int i = 0; i < 0x40000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0xFFFF;
+			if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if (jdkMap.remove(item) == null) jdkMap.put(item, i);
+			Assert.assertEquals(jdkMap.size(), merryMap.size);
+			if (merryMap.isResizing()) resizing++;
+		}
+		Assert.assertTrue(resizing > 0);
+		for (int k = 0; k < 0x10000; k++)
+			Assert.assertEquals(jdkMap.get(k), merryMap.get(k));
+		IntMap.Entries<Integer> entries = merryMap.entries();
+		while (entries.hasNext) {
+			IntMap.Entry<Integer> e = entries.next();
+			Assert.assertEquals(jdkMap.get(e.key), e.value);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package ds.merry;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MappedMapTest {
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test public void testReopen () throws IOException {
+		File file = new File(folder.getRoot(), "ids.map");
+		IntIntMap expected = new IntIntMap();
+		MappedIntIntMap map = new MappedIntIntMap(file, 4, 0.75f);
+		for (int i = -3000; i < 3000; i += 2) {
+			map.put(i * 11, i);
+			expected.put(i * 11, i);
+		}
+		for (int i = -3000; i < 3000; i += 6)
+			Assert.assertEquals(expected.remove(i * 11, -1), map.remove(i * 11, -1));
+		Assert.assertFalse(new File(file.getPath() + ".resize").exists());
+		map.close();
+
+		MappedIntIntMap reopened = new MappedIntIntMap(file, 51, 0.5f);
+		Assert.assertEquals(expected.size, reopened.size);
+		Assert.assertEquals(0.75f, reopened.loadFactor, 0f);
+		Assert.assertEquals(expected.get(0, -1), reopened.get(0, -1));
+		for (int i = -33000; i < 33000; i++)
+			Assert.assertEquals(expected.get(i, -1), reopened.get(i, -1));
+		reopened.free();
+	}
+
+	@Test public void testUncleanReopen () {
+		File file = new File(folder.getRoot(), "counts.map");
+		MappedLongLongMap map = new MappedLongLongMap(file);
+		map.put(0L, 99L);
+		for (long i = 1; i <= 100; i++)
+			map.put(i << 40, i);
+		map.force();
+		for (long i = 101; i <= 120; i++)
+			map.put(i << 40, i);
+		// Open the file again without closing it first, as if the process had ended.
+		MappedLongLongMap other = new MappedLongLongMap(file);
+		Assert.assertEquals(121, other.size);
+		Assert.assertEquals(99L, other.get(0L, -1L));
+		Assert.assertEquals(120L, other.get(120L << 40, -1L));
+		other.free();
+		map.free();
+	}
+
+	@Test(expected = GdxRuntimeException.class)
+	public void testWrongKind () {
+		File file = new File(folder.getRoot(), "ints.map");
+		new MappedIntIntMap(file).close();
+		new MappedLongLongMap(file);
+	}
+}
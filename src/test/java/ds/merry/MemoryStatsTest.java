@@ -0,0 +1,69 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MemoryStatsTest {
+	@Test public void testArraySizes () {
+		Assert.assertEquals(16, MemoryStats.array(0, 4));
+		Assert.assertEquals(24, MemoryStats.array(1, 4));
+		Assert.assertEquals(16 + 64 * 8, MemoryStats.array(64, 8));
+	}
+
+	@Test public void testIntIntMap () {
+		IntIntMap map = new IntIntMap(100);
+		for (int i = 0; i < 100; i++)
+			map.put(i, i);
+		MemoryStats stats = map.memoryStats();
+		// 0 is held outside the table.
+		Assert.assertEquals(99, stats.size);
+		Assert.assertEquals(128, stats.capacity);
+		Assert.assertEquals(MemoryStats.array(128, 4), stats.keyBytes);
+		Assert.assertEquals(MemoryStats.array(128, 4), stats.valueBytes);
+		Assert.assertEquals(0, stats.iteratorBytes);
+		Assert.assertEquals(8 * 29, stats.wastedBytes());
+		map.keys();
+		Assert.assertEquals(2 * MemoryStats.ITERATOR_BYTES, map.memoryStats().iteratorBytes);
+	}
+
+	@Test public void testShrinkAfterRemoval () {
+		ObjectMap<String, String> map = new ObjectMap<>();
+		for (int i = 0; i < 10000; i++)
+			map.put("k" + i, "v");
+		for (int i = 10; i < 10000; i++)
+			map.remove("k" + i);
+		MemoryStats before = map.memoryStats();
+		Assert.assertTrue(before.wastedRatio() > 0.99f);
+		map.shrink(map.size);
+		MemoryStats after = map.memoryStats();
+		Assert.assertTrue(after.wastedRatio() < 0.5f);
+		Assert.assertTrue(after.totalBytes() * 100 < before.totalBytes());
+	}
+
+	@Test public void testSubclassesCountExtraArrays () {
+		ObjectSet<Integer> plain = new ObjectSet<>();
+		OrderedSet<Integer> ordered = new OrderedSet<>();
+		CachedHashSet<Integer> cached = new CachedHashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			plain.add(i);
+			ordered.add(i);
+			cached.add(i);
+		}
+		long plainBytes = plain.memoryStats().totalBytes();
+		Assert.assertEquals(plainBytes + MemoryStats.array(plain.mask + 1, 4), cached.memoryStats().totalBytes());
+		Assert.assertTrue(ordered.memoryStats().totalBytes() > cached.memoryStats().totalBytes());
+		Assert.assertEquals(8, ordered.memoryStats().slotBytes);
+	}
+
+	@Test public void testIncrementalCountsOldTable () {
+		IncrementalMap<Integer, Integer> map = new IncrementalMap<>(16);
+		int i = 0;
+		while (!map.isResizing())
+			map.put(i++, i);
+		MemoryStats stats = map.memoryStats();
+		Assert.assertTrue(map.isResizing());
+		int oldLength = map.oldMask + 1;
+		Assert.assertEquals(map.mask + 1 + oldLength, stats.capacity);
+		Assert.assertEquals(MemoryStats.array(oldLength, 4) * 2, stats.extraBytes);
+	}
+}
@@ -0,0 +1,202 @@
+package ds.merry;
+
+import ds.merry.function.BiConsumer;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.IntObjPredicate;
+import ds.merry.function.LongObjPredicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+public class OccupancyTest {
+	static final BiPredicate<Integer, Integer> KEY_MULTIPLE_OF_5 = new BiPredicate<Integer, Integer>() {
+		public boolean test (Integer key, Integer value) {
+			return key % 5 == 0;
+		}
+	};
+
+	private static boolean bit (long[] occupancy, int i) {
+		return (occupancy[i >>> 6] >>> i & 1) != 0;
+	}
+
+	private static <K> void assertOccupancy (ObjectMap<K, ?> map) {
+		Assert.assertTrue(map.tracksOccupancy());
+		for (int i = 0; i < map.keyTable.length; i++)
+			Assert.assertEquals(map.getClass().getSimpleName() + " slot " + i, map.keyTable[i] != null, bit(map.occupancy, i));
+	}
+
+	private static void assertOccupancy (IntMap<?> map) {
+		for (int i = 0; i < map.keyTable.length; i++)
+			Assert.assertEquals("slot " + i, map.keyTable[i] != 0, bit(map.occupancy, i));
+	}
+
+	private static void assertOccupancy (LongMap<?> map) {
+		for (int i = 0; i < map.keyTable.length; i++)
+			Assert.assertEquals("slot " + i, map.keyTable[i] != 0, bit(map.occupancy, i));
+	}
+
+	private static void assertSame (HashMap<Integer, Integer> jdkMap, ObjectMap<Integer, Integer> map) {
+		Assert.assertEquals(jdkMap.size(), map.size);
+		final HashMap<Integer, Integer> seen = new HashMap<>();
+		for (ObjectMap.Entry<Integer, Integer> entry : map.entries())
+			Assert.assertNull(seen.put(entry.key, entry.value));
+		Assert.assertEquals(jdkMap, seen);
+		seen.clear();
+		map.forEach(new BiConsumer<Integer, Integer>() {
+			public void accept (Integer key, Integer value) {
+				seen.put(key, value);
+			}
+		});
+		Assert.assertEquals(jdkMap, seen);
+	}
+
+	/** Fills the map, then empties most of it through every kind of removal, checking the bitmap and iteration along the way. */
+	private static void check (ObjectMap<Integer, Integer> map) {
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		map.trackOccupancy(true);
+		for (int i = 0; i < 4000; i++) {
+			map.put(i * 7, i);
+			jdkMap.put(i * 7, i);
+		}
+		assertOccupancy(map);
+		for (int i = 0; i < 4000; i += 2) {
+			map.remove(i * 7);
+			jdkMap.remove(i * 7);
+		}
+		for (Iterator<Integer> it = map.keys(); it.hasNext();) {
+			if (it.next() % 3 == 0) it.remove();
+		}
+		for (Iterator<Integer> it = jdkMap.keySet().iterator(); it.hasNext();) {
+			if (it.next() % 3 == 0) it.remove();
+		}
+		map.removeIf(KEY_MULTIPLE_OF_5);
+		for (Iterator<Integer> it = jdkMap.keySet().iterator(); it.hasNext();) {
+			if (it.next() % 5 == 0) it.remove();
+		}
+		assertOccupancy(map);
+		assertSame(jdkMap, map);
+		for (int i = 0; i < 100; i++) {
+			map.putIfAbsent(i * 11, -i);
+			if (!jdkMap.containsKey(i * 11)) jdkMap.put(i * 11, -i);
+		}
+		assertOccupancy(map);
+		assertSame(jdkMap, map);
+		map.shrink(map.size);
+		assertOccupancy(map);
+		assertSame(jdkMap, map);
+		map.clear();
+		assertOccupancy(map);
+		Assert.assertFalse(map.entries().hasNext());
+	}
+
+	@Test public void testObjectMaps () {
+		check(new ObjectMap<Integer, Integer>());
+		check(new CachedHashMap<Integer, Integer>());
+		check(new SwissMap<Integer, Integer>());
+		check(new RobinHoodMap<Integer, Integer>());
+		check(new IncrementalMap<Integer, Integer>(4));
+		check(new HardenedMap<Integer, Integer>());
+	}
+
+	@Test public void testTrackingLater () {
+		ObjectMap<String, Integer> map = new ObjectMap<>();
+		for (int i = 0; i < 1000; i++)
+			map.put("k" + i, i);
+		Assert.assertFalse(map.tracksOccupancy());
+		map.trackOccupancy(true);
+		assertOccupancy(map);
+		ObjectMap<String, Integer> copy = new ObjectMap<>(map);
+		assertOccupancy(copy);
+		int count = 0;
+		for (ObjectMap.Entry<String, Integer> entry : copy)
+			count++;
+		Assert.assertEquals(1000, count);
+		map.trackOccupancy(false);
+		Assert.assertFalse(map.tracksOccupancy());
+		Assert.assertEquals(1000, map.keys().toArray().size);
+	}
+
+	@Test public void testIntMaps () {
+		IntMap<String> map = new IntMap<>();
+		IncrementalIntMap<String> incremental = new IncrementalIntMap<>(4);
+		map.trackOccupancy(true);
+		incremental.trackOccupancy(true);
+		HashSet<Integer> expected = new HashSet<>();
+		for (int i = -2000; i < 2000; i++) {
+			map.put(i * 5, "v");
+			incremental.put(i * 5, "v");
+			if (i % 4 == 0) expected.add(i * 5);
+		}
+		IntObjPredicate<String> unexpected = new IntObjPredicate<String>() {
+			public boolean test (int key, String value) {
+				return key % 20 != 0 && key % 3 == 0;
+			}
+		};
+		map.removeIf(unexpected);
+		incremental.removeIf(unexpected);
+		for (int i = -2000; i < 2000; i++) {
+			if (i % 4 != 0) {
+				map.remove(i * 5);
+				incremental.remove(i * 5);
+			}
+		}
+		assertOccupancy(map);
+		assertOccupancy(incremental);
+		HashSet<Integer> keys = new HashSet<>(), incrementalKeys = new HashSet<>();
+		for (IntMap.Keys it = map.keys(); it.hasNext;)
+			keys.add(it.next());
+		for (IntMap.Keys it = incremental.keys(); it.hasNext;)
+			incrementalKeys.add(it.next());
+		Assert.assertEquals(expected, keys);
+		Assert.assertEquals(expected, incrementalKeys);
+		map.clear();
+		assertOccupancy(map);
+		Assert.assertFalse(map.keys().hasNext);
+	}
+
+	@Test public void testLongMap () {
+		LongMap<String> map = new LongMap<>();
+		map.trackOccupancy(true);
+		HashSet<Long> expected = new HashSet<>();
+		for (long i = -2000; i < 2000; i++) {
+			map.put(i << 33, "v");
+			if (i % 10 == 0) expected.add(i << 33);
+		}
+		for (LongMap.Keys it = map.keys(); it.hasNext;) {
+			long key = it.next();
+			if ((key >> 33) % 2 != 0) it.remove();
+		}
+		map.removeIf(new LongObjPredicate<String>() {
+			public boolean test (long key, String value) {
+				return (key >> 33) % 10 != 0;
+			}
+		});
+		assertOccupancy(map);
+		HashSet<Long> keys = new HashSet<>();
+		for (LongMap.Keys it = map.keys(); it.hasNext;)
+			keys.add(it.next());
+		Assert.assertEquals(expected, keys);
+		map.shrink(map.size);
+		assertOccupancy(map);
+		Assert.assertEquals(expected.size(), map.keys().toArray().size);
+	}
+
+	@Test public void testOrderedMap () {
+		OrderedMap<String, String> map = new OrderedMap<>();
+		map.trackOccupancy(true);
+		Assert.assertFalse(map.tracksOccupancy());
+		for (int i = 0; i < 100; i++)
+			map.put("k" + i, "v" + i);
+		for (int i = 0; i < 100; i += 3)
+			map.remove("k" + i);
+		int i = 1;
+		for (ObjectMap.Entry<String, String> entry : map.entries()) {
+			Assert.assertEquals("k" + i, entry.key);
+			i += i % 3 == 1 ? 1 : 2;
+		}
+		Assert.assertEquals(100, i);
+	}
+}
@@ -0,0 +1,129 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapMapTest {
+	@Test public void testIntIntMix () {
+		OffHeapIntIntMap map = new OffHeapIntIntMap(4);
+		IntIntMap heap = new IntIntMap(4);
+		long state = 1L;
+		for (int i = 0; i < 0x20000; i++) {
+			state = state * 0xD1342543DE82EF95L + 1L;
+			int key = (int)(state >>> 50) - 0x2000;
+			if ((state & 0x100000L) == 0) {
+				map.put(key, i);
+				heap.put(key, i);
+			} else {
+				Assert.assertEquals(heap.remove(key, -1), map.remove(key, -1));
+			}
+			Assert.assertEquals(heap.size, map.size);
+		}
+		for (int key = -0x2000; key < 0x2000; key++)
+			Assert.assertEquals(heap.get(key, -1), map.get(key, -1));
+		Assert.assertEquals(map, new OffHeapIntIntMap(heap));
+		map.free();
+	}
+
+	@Test public void testIntFloatIterators () {
+		OffHeapIntFloatMap map = new OffHeapIntFloatMap();
+		for (int i = -500; i < 500; i++)
+			map.put(i * 7, i * 0.5f);
+		Assert.assertEquals(1000, map.size);
+		Assert.assertEquals(0f, map.getAndIncrement(0, 5f, 1f), 0f);
+		Assert.assertEquals(1f, map.get(0, 5f), 0f);
+		float sum = 0f;
+		OffHeapIntFloatMap.Entries entries = map.entries();
+		while (entries.hasNext()) {
+			OffHeapIntFloatMap.Entry entry = entries.next();
+			Assert.assertEquals(map.get(entry.key, Float.NaN), entry.value, 0f);
+			if ((entry.key & 1) == 0) entries.remove();
+			else sum += entry.value;
+		}
+		for (int i = -500; i < 500; i++)
+			Assert.assertEquals((i * 7 & 1) != 0, map.containsKey(i * 7));
+		float valueSum = 0f;
+		OffHeapIntFloatMap.Values values = map.values();
+		while (values.hasNext)
+			valueSum += values.next();
+		Assert.assertEquals(sum, valueSum, 0.001f);
+		Assert.assertEquals(map.size, map.keys().toArray().size);
+		map.close();
+	}
+
+	@Test public void testLongLongKeys () {
+		OffHeapLongLongMap map = new OffHeapLongLongMap(4);
+		LongLongMap heap = new LongLongMap(4);
+		for (int i = 0; i < 5000; i++) {
+			// Keys that differ only in their upper half.
+			long key = (long)i << 32;
+			map.put(key, -i);
+			heap.put(key, -i);
+			Assert.assertEquals(heap.getAndIncrement(key ^ 1, 0L, i), map.getAndIncrement(key ^ 1, 0L, i));
+		}
+		Assert.assertEquals(heap.size, map.size);
+		for (int i = 0; i < 5000; i += 3)
+			Assert.assertEquals(heap.remove((long)i << 32, 1L), map.remove((long)i << 32, 1L));
+		OffHeapLongLongMap.Keys keys = map.keys();
+		while (keys.hasNext) {
+			long key = keys.next();
+			Assert.assertEquals(heap.get(key, 1L), map.get(key, 1L));
+		}
+		Assert.assertEquals(heap.size, map.size);
+		Assert.assertTrue(map.hashStats().meanProbe < 1.0);
+		map.free();
+	}
+
+	@Test public void testFree () {
+		OffHeapIntIntMap map = new OffHeapIntIntMap();
+		map.put(1, 2);
+		map.free();
+		map.free();
+		Assert.assertEquals(0, map.size);
+		Assert.assertEquals("[freed]", map.toString());
+		try {
+			map.get(1, 0);
+			Assert.fail();
+		} catch (IllegalStateException expected) {
+		}
+		try (OffHeapLongLongMap longs = new OffHeapLongLongMap()) {
+			longs.put(1L, 2L);
+			Assert.assertEquals(2L, longs.get(1L, 0L));
+		}
+	}
+
+	@Test public void testShrinkAndClear () {
+		OffHeapIntIntMap map = new OffHeapIntIntMap();
+		for (int i = 0; i < 10000; i++)
+			map.put(i, i);
+		for (int i = 100; i < 10000; i++)
+			map.remove(i, 0);
+		map.shrink(100);
+		Assert.assertEquals(128, map.mask + 1);
+		for (int i = 0; i < 100; i++)
+			Assert.assertEquals(i, map.get(i, -1));
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertFalse(map.containsKey(5));
+		Assert.assertEquals(1f, map.memoryStats().wastedRatio(), 0f);
+		map.free();
+	}
+
+	@Test public void testPages () {
+		// Small pages, so slots are spread over several buffers.
+		OffHeapTable table = new OffHeapTable(64, 16, 128);
+		for (int i = 0; i < 64; i++) {
+			table.putLong(i, 0, i * 3L);
+			table.putInt(i, 8, -i);
+		}
+		for (int i = 0; i < 64; i++) {
+			Assert.assertEquals(i * 3L, table.getLong(i, 0));
+			Assert.assertEquals(-i, table.getInt(i, 8));
+		}
+		Assert.assertEquals(1024, table.bytes());
+		table.clear();
+		Assert.assertEquals(0L, table.getLong(63, 0));
+		table.free();
+		Assert.assertTrue(table.isFreed());
+	}
+}
@@ -0,0 +1,183 @@
+package ds.merry;
+
+import com.badlogic.gdx.utils.Array;
+import ds.merry.function.Predicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+public class OrderedRemovalTest {
+	private static void assertSameOrder (LinkedHashMap<Integer, Integer> expected, OrderedMap<Integer, Integer> actual) {
+		Assert.assertEquals(expected.size(), actual.size);
+		Iterator<Map.Entry<Integer, Integer>> it = expected.entrySet().iterator();
+		for (ObjectMap.Entry<Integer, Integer> e : actual) {
+			Map.Entry<Integer, Integer> x = it.next();
+			Assert.assertEquals(x.getKey(), e.key);
+			Assert.assertEquals(x.getValue(), e.value);
+		}
+		Assert.assertFalse(it.hasNext());
+	}
+
+	@Test public void testMapMix () {
+		OrderedMap<Integer, Integer> merryMap = new OrderedMap<>();
+		LinkedHashMap<Integer, Integer> jdkMap = new LinkedHashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item;
+		for (int i = 0; i < 0x20000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0x3FFF;
+			if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if (jdkMap.remove(item) == null) jdkMap.put(item, i);
+			// The gaps left by removal are compacted before they outnumber the keys.
+			Assert.assertTrue(merryMap.tombstones <= merryMap.size);
+		}
+		assertSameOrder(jdkMap, merryMap);
+		Assert.assertEquals(jdkMap.keySet().iterator().next(), merryMap.orderedKeys().first());
+		Assert.assertEquals(merryMap.size, merryMap.orderedKeys().size);
+	}
+
+	@Test public void testRemoveOldest () {
+		// Removing from the front, as an LRU registry would, must not shift the whole order every time.
+		OrderedMap<Integer, Integer> map = new OrderedMap<>();
+		LinkedHashMap<Integer, Integer> jdkMap = new LinkedHashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			map.put(i, i);
+			jdkMap.put(i, i);
+			if (i >= 1000) {
+				Assert.assertEquals(Integer.valueOf(i - 1000), map.remove(i - 1000));
+				jdkMap.remove(i - 1000);
+			}
+		}
+		assertSameOrder(jdkMap, map);
+		Assert.assertTrue(map.keys.size <= 2001);
+	}
+
+	@Test public void testAlter () {
+		OrderedMap<String, Integer> map = new OrderedMap<>();
+		for (int i = 0; i < 100; i++)
+			map.put("k" + i, i);
+		for (int i = 0; i < 100; i += 3)
+			map.remove("k" + i);
+		Assert.assertTrue(map.alter("k50", "fifty"));
+		Assert.assertFalse(map.alter("k50", "x"));
+		Assert.assertFalse(map.alter("k49", "k52"));
+		Assert.assertTrue(map.alterIndex(0, "first"));
+		Assert.assertEquals(Integer.valueOf(50), map.get("fifty"));
+		Assert.assertEquals(Integer.valueOf(1), map.get("first"));
+		Array<String> order = map.orderedKeys();
+		Assert.assertEquals("first", order.first());
+		Assert.assertEquals("fifty", order.get(order.indexOf("k49", false) + 1));
+		Assert.assertFalse(map.containsKey("k50"));
+	}
+
+	@Test public void testChangedOrderedKeys () {
+		OrderedMap<Integer, Integer> map = new OrderedMap<>();
+		for (int i = 0; i < 50; i++)
+			map.put(i, -i);
+		map.remove(10);
+		map.orderedKeys().reverse();
+		// The stored positions are stale now, and must be rebuilt rather than trusted.
+		Assert.assertEquals(Integer.valueOf(-20), map.remove(20));
+		Assert.assertTrue(map.alter(30, 300));
+		Array<Integer> order = map.orderedKeys();
+		Assert.assertEquals(48, order.size);
+		Assert.assertEquals(Integer.valueOf(49), order.first());
+		Assert.assertEquals(Integer.valueOf(0), order.peek());
+		Assert.assertEquals(Integer.valueOf(300), order.get(19));
+	}
+
+	@Test public void testIteratorRemove () {
+		OrderedMap<Integer, Integer> map = new OrderedMap<>();
+		for (int i = 0; i < 1000; i++)
+			map.put(i, i);
+		ObjectMap.Keys<Integer> keys = map.keys();
+		while (keys.hasNext) {
+			if (keys.next() % 3 != 0) keys.remove();
+		}
+		Assert.assertEquals(334, map.size);
+		Array<Integer> rest = map.values().toArray();
+		for (int i = 0; i < rest.size; i++)
+			Assert.assertEquals(Integer.valueOf(i * 3), rest.get(i));
+		Assert.assertEquals(Integer.valueOf(3), map.removeIndex(1));
+		Assert.assertEquals(Integer.valueOf(6), map.orderedKeys().get(1));
+	}
+
+	@Test public void testSetMix () {
+		OrderedSet<Integer> merrySet = new OrderedSet<>();
+		LinkedHashSet<Integer> jdkSet = new LinkedHashSet<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item;
+		for (int i = 0; i < 0x20000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0x3FFF;
+			if (!merrySet.remove(item)) merrySet.add(item);
+			if (!jdkSet.remove(item)) jdkSet.add(item);
+			Assert.assertTrue(merrySet.tombstones <= merrySet.items.size * merrySet.getDeadRatio());
+		}
+		Assert.assertEquals(jdkSet.size(), merrySet.size);
+		Iterator<Integer> it = jdkSet.iterator();
+		for (Integer k : merrySet)
+			Assert.assertEquals(it.next(), k);
+		Assert.assertFalse(it.hasNext());
+	}
+
+	@Test public void testSetDeadRatio () {
+		OrderedSet<String> set = new OrderedSet<>();
+		for (int i = 0; i < 100; i++)
+			set.add("s" + i);
+		set.setDeadRatio(0.9f);
+		for (int i = 0; i < 80; i++)
+			set.remove("s" + i);
+		// 80 of 100 is under the ratio, so nothing has moved yet.
+		Assert.assertEquals(80, set.tombstones);
+		Assert.assertEquals(100, set.items.size);
+		Assert.assertEquals("{s80, s81, s82, s83, s84, s85, s86, s87, s88, s89, s90, s91, s92, s93, s94, s95, s96, s97, s98, s99}",
+			set.toString());
+		Assert.assertEquals(20, set.orderedItems().size);
+		set.setDeadRatio(0f);
+		set.remove("s90");
+		Assert.assertEquals(0, set.tombstones);
+		Assert.assertEquals("s91", set.orderedItems().get(10));
+		// removeIf() compacts by the same ratio as remove().
+		Predicate<String> under95 = new Predicate<String>() {
+			public boolean test (String item) {
+				return item.compareTo("s95") < 0;
+			}
+		};
+		set.removeIf(under95);
+		Assert.assertEquals(0, set.tombstones);
+		Assert.assertEquals("{s95, s96, s97, s98, s99}", set.toString());
+		set.setDeadRatio(0.9f);
+		set.removeIf(new Predicate<String>() {
+			public boolean test (String item) {
+				return !item.equals("s99");
+			}
+		});
+		Assert.assertEquals(4, set.tombstones);
+		Assert.assertEquals("{s99}", set.toString());
+	}
+
+	@Test public void testSetOrderOperations () {
+		OrderedSet<Integer> set = new OrderedSet<>();
+		for (int i = 0; i < 20; i++)
+			set.add(i);
+		set.remove(3);
+		set.remove(7);
+		Assert.assertTrue(set.add(100, 1));
+		Assert.assertFalse(set.add(19, 0));
+		Assert.assertTrue(set.alter(10, 1000));
+		Assert.assertEquals(Integer.valueOf(2), set.removeIndex(4));
+		OrderedSet.OrderedSetIterator<Integer> it = set.iterator();
+		while (it.hasNext)
+			if (it.next() % 2 == 1) it.remove();
+		Assert.assertEquals("[0, 100, 4, 6, 8, 1000, 12, 14, 16, 18]", set.iterator().toArray().toString());
+		Assert.assertTrue(set.contains(1000));
+		Assert.assertFalse(set.contains(10));
+	}
+}
@@ -0,0 +1,135 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class PrimitiveMapsTest {
+	/** Distinct longs where half differ only in their upper 32 bits, so place() has to mix those in. */
+	private static long longKey (int i) {
+		return (long)(i >> 1) << 32 | ((i & 1) == 0 ? 0L : i & 0xFFFFFFFFL);
+	}
+
+	@Test public void testLongSetMix () {
+		LongSet set = new LongSet();
+		HashSet<Long> jdkSet = new HashSet<>();
+		long state = 1L;
+		for (int i = 0; i < 0x20000; i++) {
+			state = state * 0xD1342543DE82EF95L + 1L;
+			long item = longKey((int)(state >>> 52));
+			if (!set.remove(item)) set.add(item);
+			if (!jdkSet.remove(item)) jdkSet.add(item);
+			Assert.assertEquals(jdkSet.size(), set.size);
+		}
+		for (int i = 0; i < 0x1000; i++)
+			Assert.assertEquals(jdkSet.contains(longKey(i)), set.contains(longKey(i)));
+		Assert.assertEquals(set, new LongSet(set));
+	}
+
+	@Test public void testLongSetIteratorRemove () {
+		LongSet set = new LongSet(4);
+		for (int i = -300; i < 300; i++)
+			set.add(longKey(i));
+		Assert.assertTrue(set.contains(0L));
+		int removed = 0;
+		LongSet.LongSetIterator it = set.iterator();
+		while (it.hasNext) {
+			if ((it.next() & 3) == 0) {
+				it.remove();
+				removed++;
+			}
+		}
+		Assert.assertEquals(600 - removed, set.size);
+		Assert.assertFalse(set.contains(0L));
+		for (int i = -300; i < 300; i++)
+			Assert.assertEquals((longKey(i) & 3) != 0, set.contains(longKey(i)));
+	}
+
+	@Test public void testLongLongMapMix () {
+		LongLongMap map = new LongLongMap();
+		HashMap<Long, Long> jdkMap = new HashMap<>();
+		long state = 1L;
+		for (int i = 0; i < 0x20000; i++) {
+			state = state * 0xD1342543DE82EF95L + 1L;
+			long key = longKey((int)(state >>> 52));
+			if (map.containsKey(key)) map.remove(key, 0L);
+			else map.put(key, state);
+			if (jdkMap.remove(key) == null) jdkMap.put(key, state);
+			Assert.assertEquals(jdkMap.size(), map.size);
+		}
+		for (Long k : jdkMap.keySet())
+			Assert.assertEquals((long)jdkMap.get(k), map.get(k, -1L));
+		Assert.assertEquals(map, new LongLongMap(map));
+	}
+
+	@Test public void testLongIntMapZeroKey () {
+		LongIntMap map = new LongIntMap();
+		map.put(0L, 7);
+		map.put(1L << 40, 8);
+		Assert.assertEquals(2, map.size);
+		Assert.assertEquals(7, map.get(0L, -1));
+		Assert.assertEquals(8, map.getAndIncrement(1L << 40, 0, 2));
+		Assert.assertEquals(10, map.get(1L << 40, -1));
+		Assert.assertEquals(0L, map.findKey(7, -1L));
+		// The zero key's value is included when iterating values.
+		com.badlogic.gdx.utils.IntArray values = map.values().toArray();
+		Assert.assertEquals(2, values.size);
+		Assert.assertTrue(values.contains(7));
+		Assert.assertEquals(7, map.remove(0L, -1));
+		Assert.assertFalse(map.containsKey(0L));
+		Assert.assertEquals(1, map.size);
+	}
+
+	@Test public void testIntLongMapIteratorRemove () {
+		IntLongMap map = new IntLongMap(4);
+		for (int i = -300; i < 300; i++)
+			map.put(i * 5, (long)i << 33);
+		IntLongMap.Entries entries = map.entries();
+		while (entries.hasNext()) {
+			IntLongMap.Entry e = entries.next();
+			if ((e.key & 1) == 0) entries.remove();
+		}
+		Assert.assertEquals(300, map.size);
+		for (int i = -300; i < 300; i++)
+			Assert.assertEquals((i & 1) == 0 ? -1L : (long)i << 33, map.get(i * 5, -1L));
+	}
+
+	@Test public void testObjectLongMap () {
+		ObjectLongMap<String> map = new ObjectLongMap<>(4);
+		HashMap<String, Long> jdkMap = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			map.put("k" + i, (long)i << 35);
+			jdkMap.put("k" + i, (long)i << 35);
+		}
+		ObjectLongMap.Keys<String> keys = map.keys();
+		while (keys.hasNext()) {
+			String k = keys.next();
+			if (k.hashCode() % 3 == 0) {
+				keys.remove();
+				jdkMap.remove(k);
+			}
+		}
+		Assert.assertEquals(jdkMap.size(), map.size);
+		for (int i = 0; i < 2000; i++) {
+			Long v = jdkMap.get("k" + i);
+			Assert.assertEquals(v == null ? -1L : v, map.get("k" + i, -1L));
+		}
+		Assert.assertEquals(map, new ObjectLongMap<>(map));
+		Assert.assertEquals(map.hashCode(), new ObjectLongMap<>(map).hashCode());
+	}
+
+	@Test public void testObjectDoubleMap () {
+		ObjectDoubleMap<Integer> map = new ObjectDoubleMap<>();
+		for (int i = 0; i < 1000; i++)
+			map.put(i, i * 0.5);
+		Assert.assertEquals(0.5, map.getAndIncrement(1, 0.0, 0.25), 0.0);
+		Assert.assertEquals(0.75, map.get(1, Double.NaN), 0.0);
+		Assert.assertTrue(Double.isNaN(map.get(-1, Double.NaN)));
+		Assert.assertEquals(3.0, map.remove(6, Double.NaN), 0.0);
+		Assert.assertEquals(999, map.size);
+		Assert.assertEquals(999, map.values().toArray().length);
+		Assert.assertEquals(Integer.valueOf(8), map.findKey(4.0));
+	}
+}
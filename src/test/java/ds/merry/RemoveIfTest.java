@@ -0,0 +1,206 @@
+package ds.merry;
+
+import com.badlogic.gdx.utils.Array;
+import ds.merry.function.BiPredicate;
+import ds.merry.function.IntIntPredicate;
+import ds.merry.function.IntObjPredicate;
+import ds.merry.function.LongObjPredicate;
+import ds.merry.function.Predicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class RemoveIfTest {
+	static final BiPredicate<Integer, Integer> ODD_VALUE = new BiPredicate<Integer, Integer>() {
+		public boolean test (Integer key, Integer value) {
+			return (value & 1) != 0;
+		}
+	};
+
+	/** Fills the map with keys that form long clusters, removes every entry with an odd value, and checks the rest are found. */
+	private static void check (ObjectMap<Integer, Integer> map) {
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		for (int i = 0; i < 3000; i++) {
+			int key = i * 7919 % 5000;
+			map.put(key, i);
+			jdkMap.put(key, i);
+		}
+		Assert.assertTrue(map.removeIf(ODD_VALUE));
+		Assert.assertFalse(map.removeIf(ODD_VALUE));
+		for (Map.Entry<Integer, Integer> e : new HashMap<>(jdkMap).entrySet())
+			if ((e.getValue() & 1) != 0) jdkMap.remove(e.getKey());
+		Assert.assertEquals(jdkMap.size(), map.size);
+		for (int k = 0; k < 5000; k++)
+			Assert.assertEquals(map.getClass().getSimpleName(), jdkMap.get(k), map.get(k));
+	}
+
+	@Test public void testObjectMaps () {
+		check(new ObjectMap<Integer, Integer>(16, 0.9f));
+		check(new CachedHashMap<Integer, Integer>(16, 0.9f));
+		check(new SwissMap<Integer, Integer>(16, 0.9f));
+		check(new RobinHoodMap<Integer, Integer>(16, 0.9f));
+		check(new HardenedMap<Integer, Integer>(16, 0.9f));
+		check(new IncrementalMap<Integer, Integer>(16, 0.9f));
+		check(new OrderedMap<Integer, Integer>(16, 0.9f));
+		// Every key in one cluster that wraps past the end of the table.
+		check(new ObjectMap<Integer, Integer>(4096, 0.9f) {
+			protected int place (Integer item) {
+				return mask - 10;
+			}
+		});
+	}
+
+	private static <K> void assertControl (SwissMap<K, ?> map) {
+		for (int i = 0; i <= map.mask; i++) {
+			K key = map.keyTable[i];
+			Assert.assertEquals(key == null ? SwissSet.EMPTY : SwissSet.tag(key.hashCode()), SwissSet.getControl(map.control, i));
+		}
+	}
+
+	private static <K> void assertOrdered (RobinHoodMap<K, ?> map) {
+		// Robin Hood order has to hold after compaction, or lookups for missing keys would stop too early.
+		for (int i = 0; i <= map.mask; i++) {
+			int next = i + 1 & map.mask;
+			if (map.keyTable[i] != null && map.keyTable[next] != null) Assert.assertTrue(
+				(next - map.place(map.keyTable[next]) & map.mask) <= (i - map.place(map.keyTable[i]) & map.mask) + 1);
+		}
+	}
+
+	@Test public void testSwissControl () {
+		SwissMap<Integer, Integer> map = new SwissMap<>();
+		check(map);
+		assertControl(map);
+	}
+
+	@Test public void testRobinHoodOrder () {
+		RobinHoodMap<Integer, Integer> map = new RobinHoodMap<>(16, 0.9f);
+		check(map);
+		assertOrdered(map);
+	}
+
+	@Test public void testOrdered () {
+		OrderedMap<Integer, Integer> map = new OrderedMap<>();
+		OrderedSet<Integer> set = new OrderedSet<>();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i * 31, i);
+			set.add(i * 31);
+		}
+		map.removeIf(ODD_VALUE);
+		set.removeIf(new Predicate<Integer>() {
+			public boolean test (Integer item) {
+				return (item & 1) != 0;
+			}
+		});
+		Array<Integer> keys = map.orderedKeys(), items = set.orderedItems();
+		Assert.assertEquals(500, keys.size);
+		Assert.assertEquals(500, items.size);
+		for (int i = 0; i < 500; i++) {
+			Assert.assertEquals(i * 62, (int)keys.get(i));
+			Assert.assertEquals(i * 62, (int)items.get(i));
+		}
+
+		// Reordering orderedKeys() makes the stored positions wrong; removeIf() still has to drop the keys from the order.
+		map.orderedKeys().reverse();
+		map.removeIf(new BiPredicate<Integer, Integer>() {
+			public boolean test (Integer key, Integer value) {
+				return value % 4 == 0;
+			}
+		});
+		keys = map.orderedKeys();
+		Assert.assertEquals(250, map.size);
+		Assert.assertEquals(250, keys.size);
+		for (int i = 0; i < 250; i++) {
+			int key = keys.get(i);
+			Assert.assertEquals(998 - i * 4, key / 31);
+			Assert.assertEquals(key / 31, (int)map.get(key));
+		}
+	}
+
+	@Test public void testSetsAndCounts () {
+		final int[] placed = new int[1];
+		ObjectSet<String> set = new ObjectSet<String>(16, 0.9f) {
+			protected int place (String item) {
+				placed[0]++;
+				return super.place(item);
+			}
+		};
+		CachedHashSet<String> cached = new CachedHashSet<>();
+		SwissSet<String> swiss = new SwissSet<>();
+		for (int i = 0; i < 20000; i++) {
+			set.add("s" + i);
+			cached.add("s" + i);
+			swiss.add("s" + i);
+		}
+		final int[] tested = new int[1];
+		Predicate<String> tens = new Predicate<String>() {
+			public boolean test (String item) {
+				tested[0]++;
+				return item.endsWith("0");
+			}
+		};
+		placed[0] = 0;
+		set.removeIf(tens);
+		// Each item is tested once, and only the survivors can be placed again.
+		Assert.assertEquals(20000, tested[0]);
+		Assert.assertTrue(placed[0] <= set.size);
+		cached.removeIf(tens);
+		swiss.removeIf(tens);
+		for (int i = 0; i < 20000; i++) {
+			Assert.assertEquals(i % 10 != 0, set.contains("s" + i));
+			Assert.assertEquals(i % 10 != 0, cached.contains("s" + i));
+			Assert.assertEquals(i % 10 != 0, swiss.contains("s" + i));
+		}
+
+		ObjectSet<String> keep = ObjectSet.with("s1", "s2", "s10", "nope");
+		Assert.assertTrue(set.retainAll(keep));
+		Assert.assertEquals(2, set.size);
+		Assert.assertTrue(set.contains("s1") && set.contains("s2"));
+	}
+
+	@Test public void testPrimitiveKeys () {
+		IntIntMap intIntMap = new IntIntMap();
+		IntMap<String> intMap = new IntMap<>();
+		LongMap<String> longMap = new LongMap<>();
+		for (int i = -2000; i <= 2000; i++) {
+			intIntMap.put(i * 3, i);
+			intMap.put(i * 3, "v" + i);
+			longMap.put(i * 3L << 20, "v" + i);
+		}
+		intIntMap.removeIf(new IntIntPredicate() {
+			public boolean test (int key, int value) {
+				return value % 3 == 0;
+			}
+		});
+		intMap.removeIf(new IntObjPredicate<String>() {
+			public boolean test (int key, String value) {
+				return key % 9 == 0;
+			}
+		});
+		longMap.removeIf(new LongObjPredicate<String>() {
+			public boolean test (long key, String value) {
+				return (key >> 20) % 9 == 0;
+			}
+		});
+		Assert.assertFalse(intIntMap.containsKey(0));
+		Assert.assertEquals(2668, intIntMap.size);
+		Assert.assertEquals(2668, intMap.size);
+		Assert.assertEquals(2668, longMap.size);
+		for (int i = -2000; i <= 2000; i++) {
+			Assert.assertEquals(i % 3 == 0 ? -1 : i, intIntMap.get(i * 3, -1));
+			Assert.assertEquals(i % 3 == 0 ? null : "v" + i, intMap.get(i * 3));
+			Assert.assertEquals(i % 3 == 0 ? null : "v" + i, longMap.get(i * 3L << 20));
+		}
+	}
+
+	@Test public void testConcurrent () {
+		ConcurrentObjectMap<Integer, Integer> map = new ConcurrentObjectMap<>();
+		for (int i = 0; i < 1000; i++)
+			map.put(i, i);
+		Assert.assertTrue(map.removeIf(ODD_VALUE));
+		Assert.assertEquals(500, map.size());
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals((i & 1) == 0, map.containsKey(i));
+	}
+}
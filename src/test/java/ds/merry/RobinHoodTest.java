@@ -0,0 +1,104 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class RobinHoodTest {
+	/** In Robin Hood order, a key can be at most one slot further from its placement than the key right before it. */
+	private static void assertOrdered (Object[] keyTable, int[] distances) {
+		for (int i = 0, n = keyTable.length; i < n; i++) {
+			int next = i + 1 & n - 1;
+			if (keyTable[i] != null && keyTable[next] != null)
+				Assert.assertTrue("Robin Hood order broken at " + next, distances[next] <= distances[i] + 1);
+			if (keyTable[i] == null && keyTable[next] != null)
+				Assert.assertEquals("Key after an empty slot isn't at its placement", 0, distances[next]);
+		}
+	}
+
+	private static <K> void assertOrdered (RobinHoodMap<K, ?> map) {
+		int[] distances = new int[map.keyTable.length];
+		for (int i = 0; i < distances.length; i++)
+			if (map.keyTable[i] != null) distances[i] = i - map.place(map.keyTable[i]) & map.mask;
+		assertOrdered(map.keyTable, distances);
+	}
+
+	private static <T> void assertOrdered (RobinHoodSet<T> set) {
+		int[] distances = new int[set.keyTable.length];
+		for (int i = 0; i < distances.length; i++)
+			if (set.keyTable[i] != null) distances[i] = i - set.place(set.keyTable[i]) & set.mask;
+		assertOrdered(set.keyTable, distances);
+	}
+
+	@Test public void testMapMix () {
+		RobinHoodMap<Integer, Integer> merryMap = new RobinHoodMap<>();
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item;
+		for (int i = 0; i < 0x40000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0xFFFF;
+			if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if (jdkMap.remove(item) == null) jdkMap.put(item, i);
+			Assert.assertEquals(jdkMap.size(), merryMap.size);
+		}
+		assertOrdered(merryMap);
+		for (Integer k : jdkMap.keySet())
+			Assert.assertEquals(jdkMap.get(k), merryMap.get(k));
+		for (int k = 0; k < 0x10000; k++)
+			Assert.assertEquals(jdkMap.containsKey(k), merryMap.containsKey(k));
+	}
+
+	@Test public void testSetCollidingKeys () {
+		RobinHoodSet<ExtremeCaseTest.Malice> set = new RobinHoodSet<>();
+		HashSet<ExtremeCaseTest.Malice> jdkSet = new HashSet<>();
+		for (int i = -500; i < 500; i++) {
+			set.add(new ExtremeCaseTest.Malice(i));
+			jdkSet.add(new ExtremeCaseTest.Malice(i));
+		}
+		for (int i = -500; i < 500; i += 3) {
+			Assert.assertTrue(set.remove(new ExtremeCaseTest.Malice(i)));
+			jdkSet.remove(new ExtremeCaseTest.Malice(i));
+		}
+		Assert.assertEquals(jdkSet.size(), set.size);
+		assertOrdered(set);
+		for (int i = -600; i < 600; i++)
+			Assert.assertEquals(jdkSet.contains(new ExtremeCaseTest.Malice(i)), set.contains(new ExtremeCaseTest.Malice(i)));
+	}
+
+	@Test public void testSetIteratorRemove () {
+		RobinHoodSet<String> set = new RobinHoodSet<>(8);
+		for (int i = 0; i < 1000; i++)
+			set.add("item" + i);
+		ObjectSet.ObjectSetIterator<String> it = set.iterator();
+		int removed = 0;
+		while (it.hasNext) {
+			String s = it.next();
+			if (s.hashCode() % 3 == 0) {
+				it.remove();
+				removed++;
+			}
+		}
+		Assert.assertEquals(1000 - removed, set.size);
+		assertOrdered(set);
+		for (int i = 0; i < 1000; i++) {
+			String s = "item" + i;
+			Assert.assertEquals(s.hashCode() % 3 != 0, set.contains(s));
+		}
+	}
+
+	@Test public void testShorterProbes () {
+		ObjectSet<String> plain = new ObjectSet<>(16, 0.9f);
+		RobinHoodSet<String> robin = new RobinHoodSet<>(16, 0.9f);
+		for (int i = 0; i < 50000; i++) {
+			plain.add("s" + i * 7);
+			robin.add("s" + i * 7);
+		}
+		// The mean probe length is the same either way, but Robin Hood keeps the longest one down.
+		Assert.assertEquals(plain.hashStats().meanProbe, robin.hashStats().meanProbe, 0.0001);
+		Assert.assertTrue(robin.hashStats().maxProbe <= plain.hashStats().maxProbe);
+	}
+}
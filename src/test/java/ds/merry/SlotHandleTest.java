@@ -0,0 +1,106 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+public class SlotHandleTest {
+	/** Counts each key with a handle: one lookup, then either a write back or an insert. */
+	private static void count (ObjectMap<String, Integer> map, String[] words) {
+		for (String word : words) {
+			int slot = map.indexOf(word);
+			if (slot >= 0) {
+				Assert.assertEquals(word, map.keyAt(slot));
+				map.setValueAt(slot, map.valueAt(slot) + 1);
+			} else
+				map.insertAt(slot, word, 1);
+		}
+	}
+
+	@Test public void testObjectMaps () {
+		String[] words = new String[5000];
+		HashMap<String, Integer> jdkMap = new HashMap<>();
+		for (int i = 0; i < words.length; i++) {
+			words[i] = "w" + (i * 31 % 700);
+			Integer old = jdkMap.get(words[i]);
+			jdkMap.put(words[i], old == null ? 1 : old + 1);
+		}
+		ObjectMap[] maps = {new ObjectMap<String, Integer>(4), new CachedHashMap<String, Integer>(4),
+			new SwissMap<String, Integer>(4), new RobinHoodMap<String, Integer>(4), new HardenedMap<String, Integer>(4),
+			new IncrementalMap<String, Integer>(4), new OrderedMap<String, Integer>(4)};
+		for (ObjectMap map : maps) {
+			count(map, words);
+			Assert.assertEquals(jdkMap.size(), map.size);
+			for (String key : jdkMap.keySet())
+				Assert.assertEquals(map.getClass().getSimpleName(), jdkMap.get(key), map.get(key));
+		}
+		// Keys are ordered by when insertAt() first saw them.
+		OrderedMap<String, Integer> ordered = (OrderedMap<String, Integer>)maps[maps.length - 1];
+		for (int i = 0; i < 700; i++)
+			Assert.assertEquals(words[i], ordered.orderedKeys().get(i));
+	}
+
+	@Test public void testIncrementalMidResize () {
+		IncrementalMap<Integer, Integer> map = new IncrementalMap<>(64);
+		int n = 0;
+		while (!map.isResizing())
+			map.put(n, n++);
+		for (int i = 0; i < n; i++) {
+			int slot = map.indexOf(i);
+			Assert.assertTrue(slot >= 0);
+			map.setValueAt(slot, -i);
+		}
+		map.finishResize();
+		for (int i = 0; i < n; i++)
+			Assert.assertEquals(-i, (int)map.get(i));
+	}
+
+	@Test public void testPrimitiveMaps () {
+		IntIntMap intIntMap = new IntIntMap(4);
+		IntFloatMap intFloatMap = new IntFloatMap(4);
+		ObjectIntMap<String> objectIntMap = new ObjectIntMap<>(4);
+		LongMap<String> longMap = new LongMap<>(4);
+		for (int i = -500; i < 1500; i++) {
+			int key = i % 1000;
+			int slot = intIntMap.indexOf(key);
+			if (slot >= 0)
+				intIntMap.setValueAt(slot, intIntMap.valueAt(slot) + 1);
+			else
+				intIntMap.insertAt(slot, key, 1);
+			slot = intFloatMap.indexOf(key);
+			if (slot >= 0)
+				intFloatMap.setValueAt(slot, intFloatMap.valueAt(slot) + 0.5f);
+			else
+				intFloatMap.insertAt(slot, key, 0.5f);
+			slot = objectIntMap.indexOf("k" + key);
+			if (slot >= 0)
+				objectIntMap.setValueAt(slot, objectIntMap.valueAt(slot) + 1);
+			else
+				objectIntMap.insertAt(slot, "k" + key, 1);
+			slot = longMap.indexOf(key);
+			if (slot >= 0)
+				longMap.setValueAt(slot, longMap.valueAt(slot) + "!");
+			else
+				longMap.insertAt(slot, key, "");
+		}
+		for (int key = -500; key < 1000; key++) {
+			// Keys from 0 to 499 came up twice.
+			int times = key >= 0 && key < 500 ? 2 : 1;
+			Assert.assertEquals(times, intIntMap.get(key, -1));
+			Assert.assertEquals(times * 0.5f, intFloatMap.get(key, -1), 0f);
+			Assert.assertEquals(times, objectIntMap.get("k" + key, -1));
+			Assert.assertEquals(times == 2 ? "!" : "", longMap.get(key));
+		}
+		Assert.assertEquals(0, intIntMap.keyAt(intIntMap.indexOf(0)));
+		Assert.assertEquals(0L, longMap.keyAt(longMap.indexOf(0)));
+		Assert.assertTrue(new IntIntMap().indexOf(0) < 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInsertAtPresent () {
+		ObjectMap<String, String> map = new ObjectMap<>();
+		map.put("a", "b");
+		map.insertAt(map.indexOf("a"), "a", "c");
+	}
+}
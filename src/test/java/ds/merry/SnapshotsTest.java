@@ -0,0 +1,124 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class SnapshotsTest {
+	private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	private DataOutputStream out = new DataOutputStream(bytes);
+
+	private DataInputStream in () {
+		return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	@Test public void testIntIntMapTable () throws IOException {
+		IntIntMap map = new IntIntMap(4, 0.7f);
+		for (int i = -2000; i < 2000; i += 3)
+			map.put(i * 31, i);
+		for (int i = -2000; i < 2000; i += 9)
+			map.remove(i * 31, 0);
+		Snapshots.write(out, map);
+		IntIntMap read = Snapshots.readIntIntMap(in(), null);
+		Assert.assertEquals(map, read);
+		Assert.assertEquals(0.7f, read.loadFactor, 0f);
+		// The table came back as it was, without rehashing.
+		Assert.assertArrayEquals(map.keyTable, read.keyTable);
+		Assert.assertArrayEquals(map.valueTable, read.valueTable);
+		// A filled map loses its old contents.
+		IntIntMap into = new IntIntMap();
+		into.put(123456, 7);
+		Assert.assertSame(into, Snapshots.readIntIntMap(in(), into));
+		Assert.assertEquals(map, into);
+	}
+
+	@Test public void testPrimitiveKinds () throws IOException {
+		IntFloatMap floats = new IntFloatMap();
+		LongLongMap longs = new LongLongMap();
+		LongSet longSet = new LongSet();
+		IntSet intSet = new IntSet();
+		for (int i = 0; i < 1000; i++) {
+			floats.put(i - 500, i * 0.25f);
+			longs.put((long)i << 33, -i);
+			longSet.add((long)i * i);
+			intSet.add(i * 7 - 3000);
+		}
+		Snapshots.write(out, floats);
+		Snapshots.write(out, longs);
+		Snapshots.write(out, longSet);
+		Snapshots.write(out, intSet);
+		DataInputStream in = in();
+		Assert.assertEquals(floats, Snapshots.readIntFloatMap(in, null));
+		Assert.assertEquals(longs, Snapshots.readLongLongMap(in, null));
+		Assert.assertEquals(longSet, Snapshots.readLongSet(in, null));
+		Assert.assertEquals(intSet, Snapshots.readIntSet(in, null));
+	}
+
+	@Test public void testIntMapValues () throws IOException {
+		IncrementalIntMap<String> map = new IncrementalIntMap<>(4);
+		for (int i = 0; i < 3000; i++)
+			map.put(i * 5, i % 7 == 0 ? null : "v" + i);
+		Snapshots.write(out, map, Codec.STRING);
+		IntMap<String> read = Snapshots.readIntMap(in(), null, Codec.STRING);
+		Assert.assertEquals(map.size, read.size);
+		for (int i = 0; i < 3000; i++) {
+			Assert.assertTrue(read.containsKey(i * 5));
+			Assert.assertEquals(map.get(i * 5), read.get(i * 5));
+		}
+		// Reading into a subclass goes through put().
+		IntMap<String> incremental = Snapshots.readIntMap(in(), new IncrementalIntMap<String>(), Codec.STRING);
+		Assert.assertEquals(read.size, incremental.size);
+		Assert.assertEquals("v2999", incremental.get(2999 * 5));
+	}
+
+	@Test public void testObjectMaps () throws IOException {
+		OrderedMap<String, Integer> map = new OrderedMap<>();
+		ObjectDoubleMap<Integer> doubles = new ObjectDoubleMap<>();
+		for (int i = 0; i < 2000; i++) {
+			map.put("k" + (i * 7919 % 2000), i);
+			doubles.put(i, i / 3.0);
+		}
+		Snapshots.write(out, map, Codec.STRING, Codec.INTEGER);
+		Snapshots.write(out, doubles, Codec.INTEGER);
+		DataInputStream in = in();
+		OrderedMap<String, Integer> ordered = (OrderedMap<String, Integer>)Snapshots.readObjectMap(in,
+			new OrderedMap<String, Integer>(), Codec.STRING, Codec.INTEGER);
+		Assert.assertEquals(map.orderedKeys(), ordered.orderedKeys());
+		Assert.assertEquals(map, ordered);
+		Assert.assertEquals(doubles, Snapshots.readObjectDoubleMap(in, null, Codec.INTEGER));
+		// A plain ObjectMap gets the same entries, in the same size of table.
+		ObjectMap<String, Integer> plain = Snapshots.readObjectMap(in(), null, Codec.STRING, Codec.INTEGER);
+		Assert.assertEquals(map, plain);
+		Assert.assertEquals(map.mask, plain.mask);
+	}
+
+	@Test public void testObjectSet () throws IOException {
+		OrderedSet<String> set = new OrderedSet<>();
+		for (int i = 0; i < 500; i++)
+			set.add(Integer.toString(i * 13 % 500, 36));
+		Snapshots.write(out, set, Codec.STRING);
+		OrderedSet<String> read = (OrderedSet<String>)Snapshots.readObjectSet(in(), new OrderedSet<String>(), Codec.STRING);
+		Assert.assertEquals(set.orderedItems(), read.orderedItems());
+		Assert.assertEquals(set, Snapshots.readObjectSet(in(), null, Codec.STRING));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWrongKind () throws IOException {
+		Snapshots.write(out, new IntIntMap());
+		Snapshots.readIntFloatMap(in(), null);
+	}
+
+	@Test public void testEmpty () throws IOException {
+		Snapshots.write(out, new IntSet(1000));
+		IntSet read = Snapshots.readIntSet(in(), null);
+		Assert.assertTrue(read.isEmpty());
+		Assert.assertFalse(read.contains(0));
+		Assert.assertTrue(Arrays.equals(new IntSet(1000).keyTable, read.keyTable));
+	}
+}
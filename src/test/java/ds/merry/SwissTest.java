@@ -0,0 +1,117 @@
+package ds.merry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class SwissTest {
+	/** Every full slot's control byte must match its key, and every empty slot's must be empty. */
+	private static void assertControl (Object[] keyTable, long[] control) {
+		for (int i = 0; i < keyTable.length; i++) {
+			int expected = keyTable[i] == null ? SwissSet.EMPTY : SwissSet.tag(keyTable[i].hashCode());
+			Assert.assertEquals("Control byte wrong at " + i, expected, SwissSet.getControl(control, i));
+		}
+		for (int i = keyTable.length; i < 8; i++)
+			Assert.assertEquals(SwissSet.PADDING, SwissSet.getControl(control, i));
+	}
+
+	@Test public void testMapMix () {
+		SwissMap<Integer, Integer> merryMap = new SwissMap<>();
+		HashMap<Integer, Integer> jdkMap = new HashMap<>();
+		long stateA = 0L, stateB = 1L, temp;
+		int item;
+		for (int i = 0; i < 0x40000; i++) {
+			stateA += 0xC6BC279692B5C323L;
+			temp = (stateA ^ stateA >>> 31) * (stateB += 0x9E3779B97F4A7C16L);
+			item = (int)(temp & temp >>> 24) & 0xFFFF;
+			if (merryMap.remove(item) == null) merryMap.put(item, i);
+			if (jdkMap.remove(item) == null) jdkMap.put(item, i);
+			Assert.assertEquals(jdkMap.size(), merryMap.size);
+		}
+		assertControl(merryMap.keyTable, merryMap.control);
+		for (Integer k : jdkMap.keySet())
+			Assert.assertEquals(jdkMap.get(k), merryMap.get(k));
+		for (int k = 0; k < 0x10000; k++)
+			Assert.assertEquals(jdkMap.containsKey(k), merryMap.containsKey(k));
+		SwissMap<Integer, Integer> copy = new SwissMap<>(merryMap);
+		Assert.assertEquals(merryMap, copy);
+		copy.clear();
+		assertControl(copy.keyTable, copy.control);
+		Assert.assertNull(copy.get(jdkMap.keySet().iterator().next()));
+	}
+
+	@Test public void testSetStrings () {
+		SwissSet<String> set = new SwissSet<>();
+		HashSet<String> jdkSet = new HashSet<>();
+		for (int i = 0; i < 50000; i++) {
+			set.add("s" + i * 7);
+			jdkSet.add("s" + i * 7);
+		}
+		for (int i = 0; i < 50000; i += 5) {
+			Assert.assertTrue(set.remove("s" + i * 7));
+			jdkSet.remove("s" + i * 7);
+		}
+		Assert.assertEquals(jdkSet.size(), set.size);
+		assertControl(set.keyTable, set.control);
+		for (int i = 0; i < 400000; i++) {
+			String s = "s" + i;
+			Assert.assertEquals(jdkSet.contains(s), set.contains(s));
+		}
+	}
+
+	@Test public void testSetCollidingKeys () {
+		// Same hashCode means the same control byte, so every key in the cluster has to be compared.
+		SwissSet<ExtremeCaseTest.Malice> set = new SwissSet<>();
+		for (int i = -300; i < 300; i++)
+			set.add(new ExtremeCaseTest.Malice(i));
+		for (int i = -300; i < 300; i += 3)
+			Assert.assertTrue(set.remove(new ExtremeCaseTest.Malice(i)));
+		assertControl(set.keyTable, set.control);
+		for (int i = -400; i < 400; i++)
+			Assert.assertEquals(i >= -300 && i < 300 && (i + 300) % 3 != 0, set.contains(new ExtremeCaseTest.Malice(i)));
+	}
+
+	@Test public void testSmallTables () {
+		// Tables with fewer than 8 slots share one control word with padding after the last slot.
+		SwissSet<String> set = new SwissSet<>(1, 0.9f);
+		Assert.assertEquals(2, set.mask + 1);
+		assertControl(set.keyTable, set.control);
+		set.add("a");
+		Assert.assertTrue(set.contains("a"));
+		Assert.assertFalse(set.contains("b"));
+		for (int i = 0; i < 6; i++)
+			set.add("k" + i);
+		set.remove("a");
+		for (int i = 3; i < 6; i++)
+			set.remove("k" + i);
+		set.shrink(3);
+		Assert.assertTrue(set.mask + 1 < 8);
+		assertControl(set.keyTable, set.control);
+		for (int i = 0; i < 6; i++)
+			Assert.assertEquals(i < 3, set.contains("k" + i));
+		set.clear(3);
+		assertControl(set.keyTable, set.control);
+		Assert.assertFalse(set.contains("k0"));
+		for (int i = 0; i < 3; i++)
+			set.add("k" + i);
+		assertControl(set.keyTable, set.control);
+		for (int i = 0; i < 6; i++)
+			Assert.assertEquals(i < 3, set.contains("k" + i));
+	}
+
+	@Test public void testIteratorRemove () {
+		SwissMap<String, Integer> map = new SwissMap<>(8);
+		for (int i = 0; i < 1000; i++)
+			map.put("item" + i, i);
+		ObjectMap.Entries<String, Integer> it = map.entries();
+		while (it.hasNext) {
+			if (it.next().value % 3 == 0) it.remove();
+		}
+		Assert.assertEquals(666, map.size);
+		assertControl(map.keyTable, map.control);
+		for (int i = 0; i < 1000; i++)
+			Assert.assertEquals(i % 3 == 0 ? null : (Integer)i, map.get("item" + i));
+	}
+}